@@ -0,0 +1,44 @@
+package ecg;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Reducing n points to an 800 px wide plot: LTTB (2 per px) and one envelope edge (1 per px).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecimatorBench {
+
+    private static final int PX = 800;
+
+    @Param({ "1441", "100000" })
+    int n;
+
+    double[] x, y;
+    int[] idx;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        java.util.Random r = new java.util.Random(3);
+        x = new double[n];
+        y = new double[n];
+        idx = new int[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = i;
+            y[i] = 75 + 15 * Math.sin(i / 300.0) + 4 * r.nextGaussian();
+        }
+    }
+
+    @Benchmark
+    public int lttb() {
+        return Decimator.lttb(x, y, n, 2 * PX, idx);
+    }
+
+    @Benchmark
+    public int envelope() {
+        return Decimator.extreme(x, y, n, PX, true, idx);
+    }
+}
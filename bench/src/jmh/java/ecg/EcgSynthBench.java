@@ -0,0 +1,42 @@
+package ecg;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// One second of one patient-channel per call (20 ms blocks like WaveformPump), so
+// 1e6 / score(us) = channels one core can synthesize in real time.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EcgSynthBench {
+
+    @Param({ "250", "500", "1000" })
+    int hz;
+
+    @Param({ "sinus", "pvc", "af" })
+    String rhythm;
+
+    EcgSynth synth;
+    float[][] block;
+    int blockSamples;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        synth = new EcgSynth(hz, 42);
+        synth.setEctopicProb(rhythm.equals("pvc") ? 0.1 : 0);
+        synth.setAf(rhythm.equals("af"));
+        blockSamples = hz / 50;
+        block = new float[1][hz];
+        // 10 min of signal first, so lazy template builds do not land in the measurement
+        for (int i = 0; i < 600; i++) synth.fill(block, hz);
+    }
+
+    @Benchmark
+    public float oneSecond() {
+        for (int i = 0; i < 50; i++) synth.fill(block, blockSamples);
+        return block[0][0];
+    }
+}
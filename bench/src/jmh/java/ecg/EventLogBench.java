@@ -0,0 +1,28 @@
+package ecg;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// addLog cost on the detection path: int-only append into the lock-free EventLog,
+// single producer and 4 contending producers.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventLogBench {
+
+    final EventLog log = new EventLog(1 << 16);
+
+    @Benchmark
+    public long append() {
+        return log.append(1_700_000_000_000_000_000L, LogType.BLE_WARNING_TX, 75, 800);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long appendContended() {
+        return log.append(1_700_000_000_000_000_000L, LogType.BLE_WARNING_TX, 75, 800);
+    }
+}
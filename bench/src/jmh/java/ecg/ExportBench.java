@@ -0,0 +1,71 @@
+package ecg;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Streaming file export of 1 hour / 1 day of 20Hz samples plus an event log of 400 / 10k /
+// 100k rows (monitor events, every 10th a text row like a mock call).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ExportBench {
+
+    @Param({"3600", "86400"})
+    int seconds;
+
+    @Param({"CSV", "JSON"})
+    EcgExporter.Format format;
+
+    @Param({"400", "10000", "100000"})
+    int logRows;
+
+    PatientMonitor monitor;
+    EventLog log;
+    EcgRingBuffer samples;
+    EcgExporter exporter;
+    Path dir;
+    Path target;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        monitor = new PatientMonitor(0, 20, seconds, 42);
+        long t0 = 1_700_000_000_000_000_000L;
+        long ts = t0;
+        for (int i = 0; i < seconds * 20; i++, ts += 50_000_000L) monitor.tick(ts);
+
+        // exactly logRows rows spread over the recording (capacity >= logRows: nothing overwritten)
+        log = new EventLog(Integer.highestOneBit(logRows - 1) << 1);
+        long step = (ts - t0) / logRows;
+        for (int i = 0; i < logRows; i++) {
+            long at = t0 + i * step;
+            switch (i % 10) {
+                case 0 -> log.append(at, LogType.CALL, "긴급연락1 call tapped (mock): \"010-1234-5678\"");
+                case 1, 5 -> log.append(at, LogType.ABNORMAL_START, 185, 324, 0, 185, null);
+                case 2, 6 -> log.append(at, LogType.ABNORMAL_END, 12, 240, 0, 0, null);
+                default -> log.append(at, LogType.RULE_ON, 0, 185, 185, 324, null);
+            }
+        }
+        samples = monitor.copyRing();
+        exporter = new EcgExporter();
+        dir = Files.createTempDirectory("ecg-export-bench");
+        target = dir.resolve("export.out");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(target);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        exporter.export(EcgExporter.Snapshot.of("2026-01-01 12:00:00", monitor, log, samples), format, target, null);
+        return Files.size(target);
+    }
+}
@@ -0,0 +1,39 @@
+package ecg;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Metrics cost: one record() on the hot path, and a reader's snapshot + p99 (dump, panel, JFR).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HistogramBench {
+
+    Histogram histogram;
+    Histogram.Snapshot snapshot;
+    final long[] values = new long[1024];
+    int idx;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        histogram = new Histogram();
+        snapshot = new Histogram.Snapshot();
+        java.util.Random r = new java.util.Random(5);
+        for (int i = 0; i < values.length; i++) values[i] = 2_000 + (long) (r.nextDouble() * r.nextDouble() * 2_000_000);
+        for (int i = 0; i < 100_000; i++) histogram.record(values[i & 1023]);
+    }
+
+    @Benchmark
+    public void record() {
+        histogram.record(values[idx++ & 1023]);
+    }
+
+    @Benchmark
+    public long snapshotP99() {
+        histogram.snapshot(snapshot);
+        return snapshot.percentile(99);
+    }
+}
@@ -0,0 +1,61 @@
+package ecg;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Cost of one beat with three windows (10 s / 1 min / 5 min) kept full: incremental update
+// vs. rescanning the 5 min of beats (what a per-beat recompute over the ring would do).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HrvStatsBench {
+
+    private static final int RR_LEN = 1 << 12;
+
+    int[] rrs;
+    HrvStats stats;
+    long ts;
+    int i;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        java.util.Random r = new java.util.Random(7);
+        rrs = new int[RR_LEN];
+        for (int k = 0; k < RR_LEN; k++) rrs[k] = 700 + r.nextInt(200);
+        stats = new HrvStats(10, 60, 300);
+        for (int k = 0; k < 2 * RR_LEN; k++) beat();
+    }
+
+    private void beat() {
+        int rr = rrs[i++ & (RR_LEN - 1)];
+        ts += rr * 1_000_000L;
+        stats.accept(ts, rr);
+    }
+
+    @Benchmark
+    public long incremental() {
+        beat();
+        return stats.version();
+    }
+
+    // baseline: sums + min/max over the last 5 min of beats (~375 at 80 bpm)
+    @Benchmark
+    public double rescan() {
+        int n = 375, end = i++;
+        long s = 0, s2 = 0, d2 = 0;
+        int mn = Integer.MAX_VALUE, mx = 0, prev = rrs[(end - n) & (RR_LEN - 1)];
+        for (int k = end - n + 1; k <= end; k++) {
+            int v = rrs[k & (RR_LEN - 1)];
+            s += v;
+            s2 += (long) v * v;
+            d2 += (long) (v - prev) * (v - prev);
+            mn = Math.min(mn, v);
+            mx = Math.max(mx, v);
+            prev = v;
+        }
+        return Math.sqrt((double) (n * s2 - s * s) / n) + Math.sqrt((double) d2 / n) + mn + mx;
+    }
+}
@@ -0,0 +1,66 @@
+package ecg;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.*;
+
+// Event journal: one appended record (CRC + index, no commit), and index queries over a
+// month of history (1M records, ~1 abnormal episode every 40 rows).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JournalBench {
+
+    static final int RECORDS = 1_000_000;
+    static final long T0 = 1_700_000_000_000_000_000L;
+    static final long STEP = 30L * 86_400_000_000_000L / RECORDS;   // 30 days
+
+    Path dir;
+    EventJournal journal;
+    long ts;
+    final EnumSet<LogType> episodes = EnumSet.of(LogType.ABNORMAL_START, LogType.ABNORMAL_END);
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("ecg-journal-bench");
+        journal = EventJournal.open(dir);
+        ts = T0;
+        for (int i = 0; i < RECORDS; i++, ts += STEP) {
+            LogType t = (i % 40 == 0) ? LogType.ABNORMAL_START : (i % 40 == 20) ? LogType.ABNORMAL_END : LogType.RULE_ON;
+            journal.append(ts, t, i & 63, 150, 400, 40, 180, null);
+        }
+        journal.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : files.toList()) Files.deleteIfExists(p);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public long append() throws IOException {
+        ts += STEP;
+        return journal.append(ts, LogType.RULE_ON, 0, 150, 400, 40, 180, null);
+    }
+
+    @Benchmark
+    public int episodesLastWeek() {
+        return journal.select(episodes, ts - 7 * 86_400_000_000_000L, Long.MAX_VALUE, 100_000).length;
+    }
+
+    @Benchmark
+    public int anyLastHour() {
+        return journal.select(null, ts - 3_600_000_000_000L, Long.MAX_VALUE, 100_000).length;
+    }
+}
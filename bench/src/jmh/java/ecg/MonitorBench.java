@@ -0,0 +1,108 @@
+package ecg;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Per-sample detection cost: hrFromRr, evaluate() with and without abnormal transitions,
+// evaluate() with all six rule kinds, and a full simulated tick (RR drift + ring + evaluate)
+// on a 1h ring.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MonitorBench {
+
+    private static final int HZ = 20;
+    private static final long PERIOD = 1_000_000_000L / HZ;
+
+    // limits only, no hysteresis/debounce: every forced flip is a transition
+    private static final RulePlan INSTANT = RulePlan.parse(
+            "tachy hr_high on=limit for=0 clear=0\nbrady hr_low on=limit for=0 clear=0", RulePlan.NO_PATIENT);
+    private static final RulePlan ALL_KINDS = RulePlan.parse(
+            "tachy hr_high on=limit hyst=5 for=3s clear=5s\n" +
+            "brady hr_low on=limit hyst=5 for=3s clear=5s\n" +
+            "pause pause on=2500 hyst=500 for=0 clear=3s\n" +
+            "irregular irregular on=20 hyst=5 for=30s clear=30s window=60s\n" +
+            "jump rate_change on=40 hyst=15 for=1s clear=10s window=10s\n" +
+            "baseline baseline on=60 hyst=20 for=30s clear=30s window=10m", RulePlan.NO_PATIENT);
+
+    PatientMonitor monitor;
+    PatientMonitor ruled;
+    PatientMonitor timed;   // same as monitor, with Metrics
+    long now;
+    int rrIdx;
+    boolean tachy;
+
+    final int[] rrs = new int[1024];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        monitor = new PatientMonitor(0, HZ, 3600, 42);
+        monitor.setRulePlan(INSTANT);
+        ruled = new PatientMonitor(1, HZ, 3600, 42);
+        ruled.setRulePlan(ALL_KINDS);
+        timed = new PatientMonitor(2, HZ, 3600, 42);
+        timed.setRulePlan(INSTANT);
+        timed.setMetrics(new Metrics());
+        now = 1_700_000_000_000_000_000L;
+        for (int i = 0; i < 3600 * HZ; i++) {
+            monitor.accept(now, 780 + (i % 40));
+            ruled.accept(now, 780 + (i % 40));
+            timed.accept(now, 780 + (i % 40));
+            now += PERIOD;
+        }
+        for (int i = 0; i < rrs.length; i++) rrs[i] = 300 + (i * 37) % 1700;
+    }
+
+    @Benchmark
+    public int hrFromRr() {
+        return PatientMonitor.hrFromRr(rrs[rrIdx++ & 1023]);
+    }
+
+    @Benchmark
+    public boolean evaluateSteady() {
+        now += PERIOD;
+        monitor.evaluate(now);
+        return monitor.isAbnormal();
+    }
+
+    @Benchmark
+    public boolean evaluateAllRules() {
+        now += PERIOD;
+        ruled.evaluate(now);
+        return ruled.isAbnormal();
+    }
+
+    @Benchmark
+    public boolean evaluateTransition() {
+        // every call flips normal <-> tachy: abnormal start (clip onset) / end (clip offset), no copies
+        now += PERIOD;
+        tachy = !tachy;
+        monitor.forceRr(now, tachy ? 320 : 800);
+        return monitor.isAbnormal();
+    }
+
+    @Benchmark
+    public int tick() {
+        now += PERIOD;
+        monitor.tick(now);
+        return monitor.hrBpm();
+    }
+
+    @Benchmark
+    public int acceptSteady() {
+        now += PERIOD;
+        monitor.accept(now, 780 + (rrIdx++ % 40));
+        return monitor.hrBpm();
+    }
+
+    @Benchmark
+    public int acceptWithMetrics() {
+        // acceptSteady + stage timers, allocation counter and histogram records
+        now += PERIOD;
+        timed.accept(now, 780 + (rrIdx++ % 40));
+        return timed.hrBpm();
+    }
+}
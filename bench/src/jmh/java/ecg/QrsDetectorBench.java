@@ -0,0 +1,38 @@
+package ecg;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// One minute of synthetic ECG through the streaming detector per call:
+// real-time factor = 60e6 / score(us).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QrsDetectorBench {
+
+    @Param({ "250", "500", "1000" })
+    int hz;
+
+    float[] minute;
+    QrsDetector detector;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        EcgSynth synth = new EcgSynth(hz, 42);
+        synth.setEctopicProb(0.05);
+        float[][] out = new float[1][60 * hz];
+        synth.fill(out, out[0].length);
+        minute = out[0];
+        detector = new QrsDetector(hz);
+        detector.process(minute, 0, minute.length); // past the 2 s learning phase
+    }
+
+    @Benchmark
+    public long oneMinute() {
+        detector.process(minute, 0, minute.length);
+        return detector.beats();
+    }
+}
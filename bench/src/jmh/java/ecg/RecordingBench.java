@@ -0,0 +1,60 @@
+package ecg;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// 24h @ 20Hz recording: full sequential decode and random seeks through the chunk index.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordingBench {
+
+    static final int SAMPLES = 20 * 86400;
+
+    Path file;
+    Recording recording;
+    long start;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = Files.createTempFile("ecg-bench", ".ecgrec");
+        start = 1_700_000_000_000_000_000L;
+        try (RecordingWriter w = new RecordingWriter(file, 20, start)) {
+            int rr = 800;
+            for (int i = 0; i < SAMPLES; i++) {
+                rr = Math.max(300, Math.min(2000, rr + (i * 31 % 41) - 20));
+                w.append(start + i * 50_000_000L, rr);
+            }
+        }
+        recording = Recording.open(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        recording.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long decodeAll() {
+        Recording.Cursor c = recording.cursor();
+        long sum = 0;
+        while (c.next()) sum += c.rr();
+        return sum;
+    }
+
+    @Benchmark
+    public long seekRandomMinute() {
+        int minute = ThreadLocalRandom.current().nextInt(24 * 60);
+        Recording.Cursor c = recording.seek(start + minute * 60_000_000_000L);
+        return c.next() ? c.ts() : -1;
+    }
+}
@@ -0,0 +1,40 @@
+package ecg;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// buildExportJsonLikeText over a full EcgTest-sized log (64k entries). The report only formats
+// the 20 newest rows, so the log size doesn't change the work.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReportBench {
+
+    static final int LOG_CAPACITY = 1 << 16;
+
+    PatientMonitor monitor;
+    EventLog log;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        monitor = new PatientMonitor(0, 20, 60, 42);
+        log = new EventLog(LOG_CAPACITY);
+        long ts = 1_700_000_000_000_000_000L;
+        for (int i = 0; i < LOG_CAPACITY; i++) {
+            if (i % 10 == 0) {
+                log.append(ts, LogType.CALL, "긴급연락1 call tapped (mock): \"010-1234-5678\"");
+            } else {
+                log.append(ts, LogType.BLE_WARNING_TX, 60 + i % 120, 500 + i % 700);
+            }
+            ts += 50_000_000L;
+        }
+    }
+
+    @Benchmark
+    public String buildExportJsonLikeText() {
+        return EcgReport.buildJsonLikeText("2026-01-01 12:00:00", monitor, log);
+    }
+}
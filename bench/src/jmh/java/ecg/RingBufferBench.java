@@ -0,0 +1,61 @@
+package ecg;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Steady-state ring work per 20Hz tick (append + trimRingSeconds) and the pre-window
+// extraction done at abnormal start, for 20s / 1h / 24h rings.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RingBufferBench {
+
+    private static final int HZ = 20;
+    private static final long PERIOD = 1_000_000_000L / HZ;
+
+    @Param({"20", "3600", "86400"})
+    int ringSeconds;
+
+    PatientMonitor monitor;
+    EcgRingBuffer ring;
+    EcgRingBuffer clip;
+    long now;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        monitor = new PatientMonitor(0, HZ, ringSeconds, 42);
+        ring = monitor.ring();
+        clip = new EcgRingBuffer(HZ * PatientMonitor.MAX_WINDOW_SEC * 2);
+        now = 1_700_000_000_000_000_000L;
+        for (int i = 0; i < ringSeconds * HZ; i++) {
+            int rr = 760 + (i % 80);
+            ring.append(now, rr, PatientMonitor.hrFromRr(rr));
+            now += PERIOD;
+        }
+    }
+
+    @Benchmark
+    public int appendAndTrim() {
+        now += PERIOD;
+        ring.append(now, 800, 75);
+        monitor.trimRingSeconds(now, ringSeconds);
+        return ring.size();
+    }
+
+    @Benchmark
+    public int trimRingSeconds() {
+        // nothing expires most ticks: this is the per-tick fast path
+        monitor.trimRingSeconds(now, ringSeconds);
+        return ring.size();
+    }
+
+    @Benchmark
+    public int extractLastSecondsFromRing() {
+        clip.clear();
+        monitor.extractLastSecondsFromRing(now, 10, clip);
+        return clip.size();
+    }
+}
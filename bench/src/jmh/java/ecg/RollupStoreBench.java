@@ -0,0 +1,56 @@
+package ecg;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Store holding a year of 4 Hz HR: the chart queries behind Day/Month/Year (one tier each,
+// cost ~ points returned), plus the per-sample ingest cost.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RollupStoreBench {
+
+    private static final long DAY = 86_400_000_000_000L;
+
+    RollupStore store;
+    RollupStore.Series out;
+    long now;
+    long liveTs;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        store = new RollupStore();
+        out = new RollupStore.Series();
+        now = 1_760_000_000_000_000_000L;
+        SyntheticHrHistory.fill(store, now - 365 * DAY, now, 4, 7);
+        liveTs = now;
+    }
+
+    @Benchmark
+    public int yearView() {
+        store.query(RollupStore.Tier.DAY, now - 365 * DAY, now, out);
+        return out.size;
+    }
+
+    @Benchmark
+    public int monthView() {
+        store.query(RollupStore.Tier.HOUR, now - 30 * DAY, now, out);
+        return out.size;
+    }
+
+    @Benchmark
+    public int dayView() {
+        store.query(RollupStore.Tier.MINUTE, now - DAY, now, out);
+        return out.size;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void add() {
+        liveTs += 250_000_000L;
+        store.add(liveTs, 72f);
+    }
+}
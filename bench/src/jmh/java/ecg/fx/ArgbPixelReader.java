@@ -0,0 +1,71 @@
+package ecg.fx;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritablePixelFormat;
+import javafx.scene.paint.Color;
+
+// PixelReader over a packed int[] ARGB buffer, so image code can be benchmarked without a toolkit.
+final class ArgbPixelReader implements PixelReader {
+
+    private final int[] argb;
+    private final int w, h;
+
+    ArgbPixelReader(int[] argb, int w, int h) {
+        this.argb = argb;
+        this.w = w;
+        this.h = h;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public PixelFormat getPixelFormat() {
+        return PixelFormat.getIntArgbInstance();
+    }
+
+    @Override
+    public int getArgb(int x, int y) {
+        return argb[y * w + x];
+    }
+
+    @Override
+    public Color getColor(int x, int y) {
+        int p = argb[y * w + x];
+        return Color.rgb((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF, ((p >>> 24) & 0xFF) / 255.0);
+    }
+
+    @Override
+    public <T extends Buffer> void getPixels(int x, int y, int w, int h, WritablePixelFormat<T> pixelformat,
+                                             T buffer, int scanlineStride) {
+        // pixel (0,0) of the region goes to the buffer's current position
+        @SuppressWarnings("unchecked")
+        T dst = (T) buffer.slice();
+        for (int row = 0; row < h; row++) {
+            int src = (y + row) * this.w + x;
+            for (int col = 0; col < w; col++) {
+                pixelformat.setArgb(dst, col, row, scanlineStride, argb[src + col]);
+            }
+        }
+    }
+
+    @Override
+    public void getPixels(int x, int y, int w, int h, WritablePixelFormat<ByteBuffer> pixelformat,
+                          byte[] buffer, int offset, int scanlineStride) {
+        getPixels(x, y, w, h, pixelformat, ByteBuffer.wrap(buffer, offset, buffer.length - offset), scanlineStride);
+    }
+
+    @Override
+    public void getPixels(int x, int y, int w, int h, WritablePixelFormat<IntBuffer> pixelformat,
+                          int[] buffer, int offset, int scanlineStride) {
+        if (pixelformat.getType() != PixelFormat.Type.INT_ARGB) {
+            getPixels(x, y, w, h, pixelformat, IntBuffer.wrap(buffer, offset, buffer.length - offset), scanlineStride);
+            return;
+        }
+        for (int row = 0; row < h; row++) {
+            System.arraycopy(argb, (y + row) * this.w + x, buffer, offset + row * scanlineStride, w);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package ecg.fx;
+
+// Synthetic ARGB test images shaped like the heart_*.png assets.
+final class HeartImages {
+
+    private HeartImages() {}
+
+    static int[] synthetic(int size) {
+        int[] argb = new int[size * size];
+        double cx = size * 0.45, cy = size * 0.42, r = size * 0.28;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                double dx = (x - cx) / r, dy = (y - cy) / r;
+                int px;
+                if (dx * dx + dy * dy < 1.0) {
+                    px = 0xFFE02020;                   // red heart
+                } else if (y > size * 0.6 && x > size * 0.55) {
+                    px = 0xFFF2C6A0;                   // skin-tone hand
+                } else {
+                    px = 0x00000000;                   // transparent
+                }
+                argb[y * size + x] = px;
+            }
+        }
+        return argb;
+    }
+}
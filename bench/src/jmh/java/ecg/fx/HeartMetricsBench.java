@@ -0,0 +1,43 @@
+package ecg.fx;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// ProtoAppWindow.computeHeartMetrics on synthetic 256² .. 2048² heart images
+// (red heart + skin-tone "hand" + transparent background): full path from a PixelReader,
+// then the packed-ARGB scan alone, sequential vs ForkJoin stripes.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HeartMetricsBench {
+
+    @Param({"256", "1024", "2048"})
+    int size;
+
+    int[] argb;
+    ArgbPixelReader reader;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        argb = HeartImages.synthetic(size);
+        reader = new ArgbPixelReader(argb, size, size);
+    }
+
+    @Benchmark
+    public HeartMetrics computeHeartMetrics() {
+        return HeartMetrics.compute(reader, size, size);
+    }
+
+    @Benchmark
+    public HeartMetrics scanSequential() {
+        return HeartMetrics.computeSequential(argb, size, size);
+    }
+
+    @Benchmark
+    public HeartMetrics scanParallel() {
+        return HeartMetrics.compute(argb, size, size);
+    }
+}
@@ -1,7 +1,16 @@
-import java.io.File;
+import ecg.AcquisitionEngine;
+import ecg.EcgSynth;
+import ecg.WaveformBuffer;
+import ecg.WaveformPump;
+import ecg.fx.AssetLoader;
+import ecg.fx.AssetLoader.Asset;
+import ecg.fx.EcgSweepView;
+import ecg.fx.StateSnapshotCache;
+import java.nio.file.Paths;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.beans.value.ObservableValue;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -26,38 +35,47 @@ public class EcgDashboardFinal extends Application {
 
     // 5초마다 NORMAL → LOW → HIGH 순환
     private final State[] cycle = { State.NORMAL, State.LOW, State.HIGH };
+    private static final State INITIAL = State.LOW;
     private int idx = 0;
 
-    // ===== 이미지 =====
+    // ===== 이미지 (AssetLoader: 백그라운드 병렬 디코딩, 준비 전에는 placeholder) =====
+    private final AssetLoader assets = new AssetLoader(Paths.get(RES));
+
+    // ===== 파형 (250Hz, "ecg-wave" 스레드가 채우고 EcgSweepView가 그림) =====
+    private static final int WAVE_HZ = 250;
+    private final WaveformBuffer ecgWave = new WaveformBuffer(1, WAVE_HZ, 4096);
+    private final EcgSynth beats = new EcgSynth(WAVE_HZ, 1);
+    private final AcquisitionEngine waveEngine = new WaveformPump(ecgWave, beats, WAVE_HZ / 50).engine("ecg-wave");
+
     // hearts
-    private Image heartNormal, heartLow, heartHigh, heartFallback;
+    private Asset heartNormal, heartLow, heartHigh, heartFallback;
+    private ObservableValue<Image> heartNormalView, heartLowView, heartHighView; // heart.png fallback 포함
 
     // layout assets
-    private Image navRailImg;     // Group42
-    private Image ecgLineImg;     // Union
-    private Image gradLowImg;     // Rectangle7
-    private Image gradHighImg;    // Group45
+    private Asset navRailImg;     // Group42
+    private Asset gradLowImg;     // Rectangle7
+    private Asset gradHighImg;    // Group45
 
     // icons
-    private Image warnImg;        // Group15
-    private Image sirenImg;       // Group24
+    private Asset warnImg;        // Group15
+    private Asset sirenImg;       // Group24
 
     // buttons
-    private Image btnShelterImg;  // Group43
-    private Image btnEmergencyImg;// Group44
+    private Asset btnShelterImg;  // Group43
+    private Asset btnEmergencyImg;// Group44
 
     // BPM cards (Group46/47/48)
-    private Image bpmLowImg;
-    private Image bpmNormalImg;
-    private Image bpmHighImg;
+    private Asset bpmLowImg;
+    private Asset bpmNormalImg;
+    private Asset bpmHighImg;
 
     // bpm unit (Group8) optional
     private Image bpmUnitImg;
 
     // right panel text images
-    private Image txtAutoControl; // "5초 후 자동 제어..." (이미지)
-    private Image txtLowTitle;    // "맥박 수가 떨어져요!"
-    private Image txtHighTitle;   // "맥박 수가 너무 높아져요!"
+    private Asset txtAutoControl; // "5초 후 자동 제어..." (이미지)
+    private Asset txtLowTitle;    // "맥박 수가 떨어져요!"
+    private Asset txtHighTitle;   // "맥박 수가 너무 높아져요!"
 
     // ===== UI 노드 =====
     private StackPane stageRoot;
@@ -69,7 +87,7 @@ public class EcgDashboardFinal extends Application {
     private ImageView bpmUnitView;  // bpm_unit (optional)
 
     // center
-    private ImageView ecgView;      // ecg line image
+    private EcgSweepView ecgSweep;  // 실시간 ECG 파형 (Canvas)
     private ImageView heartView;    // heart image
 
     // bottom gradient
@@ -79,6 +97,11 @@ public class EcgDashboardFinal extends Application {
     private Pane rightPanel;
     private ImageView rightTitleImg;
     private ImageView autoControlImg;
+    private ImageView shelterBtnView;
+    private ImageView emergencyBtnView;
+
+    // 상태별로 완성된 canvas 스냅샷: 전환 시 텍스처 하나만 교체
+    private StateSnapshotCache<State> stateCache;
 
     @Override
     public void start(Stage stage) {
@@ -105,21 +128,22 @@ public class EcgDashboardFinal extends Application {
         AnchorPane.setBottomAnchor(gradView, 0.0);
 
         // 왼쪽 탭(이미지)
-        ImageView navRail = new ImageView(navRailImg);
+        ImageView navRail = new ImageView();
+        AssetLoader.bind(navRail, navRailImg);
         navRail.setPreserveRatio(true);
         navRail.setFitHeight(420);
         AnchorPane.setLeftAnchor(navRail, 26.0);
         AnchorPane.setTopAnchor(navRail, 86.0);
 
         // ECG 라인(이미지)
-        ecgView = new ImageView(ecgLineImg);
-        ecgView.setPreserveRatio(false);
-        ecgView.setFitWidth(1040);
-        ecgView.setFitHeight(60);
-        ecgView.setOpacity(0.9);
-        ecgView.setVisible(false);
-        AnchorPane.setLeftAnchor(ecgView, 0.0);
-        AnchorPane.setTopAnchor(ecgView, 265.0);
+        // (스냅샷에 찍히면 안 되므로 canvas가 아니라 그 위의 liveLayer에 올림)
+        ecgSweep = new EcgSweepView(ecgWave);
+        ecgSweep.setPrefHeight(60);
+        ecgSweep.setStroke(Color.web("#E30000", 0.9));
+        ecgSweep.setVisible(false);
+        AnchorPane.setLeftAnchor(ecgSweep, 0.0);
+        AnchorPane.setRightAnchor(ecgSweep, 0.0);
+        AnchorPane.setTopAnchor(ecgSweep, 265.0);
 
         // 상단: 아이콘 + BPM 이미지 카드
         Pane vitals = buildVitalsImageBased();
@@ -138,16 +162,30 @@ public class EcgDashboardFinal extends Application {
         AnchorPane.setRightAnchor(rightPanel, 26.0);
         AnchorPane.setTopAnchor(rightPanel, 60.0);
 
-        canvas.getChildren().addAll(gradView, ecgView, navRail, vitals, heartView, rightPanel);
-        stageRoot.getChildren().add(canvas);
+        canvas.getChildren().addAll(gradView, navRail, vitals, heartView, rightPanel);
+        ImageView stateView = new ImageView();
+
+        // 매 프레임 바뀌는 요소: canvas와 같은 크기로 겹쳐 둠 (클릭은 통과)
+        AnchorPane liveLayer = new AnchorPane(ecgSweep);
+        liveLayer.setMouseTransparent(true);
+        liveLayer.setMinSize(0, 0);
+        liveLayer.maxWidthProperty().bind(canvas.widthProperty());
+        liveLayer.maxHeightProperty().bind(canvas.heightProperty());
+
+        stageRoot.getChildren().addAll(canvas, stateView, liveLayer);
+
+        stateCache = new StateSnapshotCache<>(State.class, canvas, stateView);
+        // 창 크기 변경(캔버스 크기/위치) → 다시 찍기
+        stateCache.invalidateOn(canvas.layoutBoundsProperty(), canvas.layoutXProperty(), canvas.layoutYProperty());
+        stateCache.passClicksTo(shelterBtnView, emergencyBtnView);
 
         Scene scene = new Scene(stageRoot, 1080, 700);
         stage.setTitle("ECG Dashboard (Final)");
         stage.setScene(scene);
         stage.show();
 
-        // 초기 상태(원하면 NORMAL로 바꿔도 됨)
-        applyState(State.LOW);
+        // 초기 상태(원하면 NORMAL로 바꿔도 됨: INITIAL)
+        applyState(INITIAL);
 
         // 5초마다 자동 변화
         Timeline t = new Timeline(new KeyFrame(Duration.seconds(5), e -> {
@@ -156,6 +194,9 @@ public class EcgDashboardFinal extends Application {
         }));
         t.setCycleCount(Timeline.INDEFINITE);
         t.play();
+
+        waveEngine.start();
+        stage.setOnHidden(e -> waveEngine.stop());
     }
 
     // ===== Vitals (이미지 기반) =====
@@ -203,7 +244,7 @@ public class EcgDashboardFinal extends Application {
         rightTitleImg = new ImageView();
         rightTitleImg.setPreserveRatio(true);
         rightTitleImg.setFitWidth(190);
-        rightTitleImg.setImage(txtLowTitle); // 초기값
+        AssetLoader.bind(rightTitleImg, txtLowTitle); // 초기값
 
         Region spacer1 = new Region();
         spacer1.setPrefHeight(14);
@@ -212,18 +253,20 @@ public class EcgDashboardFinal extends Application {
         autoControlImg = new ImageView();
         autoControlImg.setPreserveRatio(true);
         autoControlImg.setFitWidth(190);
-        autoControlImg.setImage(txtAutoControl);
-        autoControlImg.setVisible(txtAutoControl != null);
+        AssetLoader.bind(autoControlImg, txtAutoControl);
+        autoControlImg.visibleProperty().bind(txtAutoControl.imageProperty().isNotNull());
 
         Region spacer2 = new Region();
         spacer2.setPrefHeight(18);
 
         // 버튼 이미지 2개
-        ImageView shelterBtnView = new ImageView(btnShelterImg);
+        shelterBtnView = new ImageView();
+        AssetLoader.bind(shelterBtnView, btnShelterImg);
         shelterBtnView.setPreserveRatio(true);
         shelterBtnView.setFitWidth(200);
 
-        ImageView emergencyBtnView = new ImageView(btnEmergencyImg);
+        emergencyBtnView = new ImageView();
+        AssetLoader.bind(emergencyBtnView, btnEmergencyImg);
         emergencyBtnView.setPreserveRatio(true);
         emergencyBtnView.setFitWidth(200);
 
@@ -249,56 +292,109 @@ public class EcgDashboardFinal extends Application {
 
     // ===== 상태 적용 =====
     private void applyState(State s) {
+        // 다음 상태 이미지를 먼저 디코딩 (아직 큐에 있으면)
+        assets.prioritize(AssetLoader.PRIORITY_SOON, assetsFor(cycle[(indexOf(s) + 1) % cycle.length]));
+        // 상태 하트가 없으면 fallback(heart.png, LATER)을 당겨옴
+        if (heartFor(s).isMissing()) assets.prioritize(AssetLoader.PRIORITY_NOW, heartFallback);
+
+        // 이미지가 다 준비된 상태만 스냅샷 (placeholder가 찍히지 않도록)
+        stateCache.show(s, () -> composeState(s), isReady(s));
+
+        // 실시간 파형은 스냅샷 밖에서: LOW/HIGH에서만 표시
+        beats.setBpm(demoBpm(s));
+        ecgSweep.setVisible(s != State.NORMAL);
+    }
+
+    private static int demoBpm(State s) {
+        return switch (s) {
+            case NORMAL -> 80;
+            case LOW -> 45;
+            case HIGH -> 150;
+        };
+    }
+
+    // canvas 노드들을 상태에 맞게 구성 (스냅샷이 없을 때만 호출됨)
+    private void composeState(State s) {
         if (s == State.NORMAL) {
             // 상단 아이콘 숨김
-            iconTop.setImage(null);
+            AssetLoader.bind(iconTop, null);
 
             // BPM 카드
-            bpmCardView.setImage(bpmNormalImg);
+            AssetLoader.bind(bpmCardView, bpmNormalImg);
 
             // 중앙 요소
-            heartView.setImage(heartNormal != null ? heartNormal : heartFallback);
+            AssetLoader.bind(heartView, heartNormalView);
 
             // 경고 화면 요소 숨김
             gradView.setVisible(false);
-            ecgView.setVisible(false);
             rightPanel.setVisible(false);
 
         } else if (s == State.LOW) {
             // 경고 아이콘
-            iconTop.setImage(warnImg);
+            AssetLoader.bind(iconTop, warnImg);
 
             // BPM 카드
-            bpmCardView.setImage(bpmLowImg);
+            AssetLoader.bind(bpmCardView, bpmLowImg);
 
             // 하트
-            heartView.setImage(heartLow != null ? heartLow : heartFallback);
+            AssetLoader.bind(heartView, heartLowView);
 
             // 그라데이션/ECG/패널 표시
-            gradView.setImage(gradLowImg);
+            AssetLoader.bind(gradView, gradLowImg);
             gradView.setVisible(true);
 
-            ecgView.setVisible(true);
             rightPanel.setVisible(true);
 
             // 오른쪽 제목 이미지
-            if (txtLowTitle != null) rightTitleImg.setImage(txtLowTitle);
+            AssetLoader.bind(rightTitleImg, txtLowTitle);
 
         } else { // HIGH
-            iconTop.setImage(sirenImg);
+            AssetLoader.bind(iconTop, sirenImg);
 
-            bpmCardView.setImage(bpmHighImg);
+            AssetLoader.bind(bpmCardView, bpmHighImg);
 
-            heartView.setImage(heartHigh != null ? heartHigh : heartFallback);
+            AssetLoader.bind(heartView, heartHighView);
 
-            gradView.setImage(gradHighImg);
+            AssetLoader.bind(gradView, gradHighImg);
             gradView.setVisible(true);
 
-            ecgView.setVisible(true);
             rightPanel.setVisible(true);
 
-            if (txtHighTitle != null) rightTitleImg.setImage(txtHighTitle);
+            AssetLoader.bind(rightTitleImg, txtHighTitle);
+        }
+    }
+
+    // 상태별로 화면에 필요한 이미지 (디코딩 우선순위용)
+    private Asset[] assetsFor(State s) {
+        return switch (s) {
+            case NORMAL -> new Asset[] { bpmNormalImg, heartNormal, heartFallback };
+            case LOW -> new Asset[] { warnImg, bpmLowImg, heartLow, gradLowImg, txtLowTitle,
+                    txtAutoControl, btnShelterImg, btnEmergencyImg };
+            case HIGH -> new Asset[] { sirenImg, bpmHighImg, heartHigh, gradHighImg, txtHighTitle,
+                    txtAutoControl, btnShelterImg, btnEmergencyImg };
+        };
+    }
+
+    // 상태별 하트가 없으면(isMissing) heart.png가 디코딩될 때까지 준비 안 됨 (placeholder 캐시 방지)
+    private boolean isReady(State s) {
+        if (!navRailImg.isReady()) return false;
+        for (Asset a : assetsFor(s)) {
+            if (!a.isReady()) return false;
         }
+        return !heartFor(s).isMissing() || heartFallback.isReady();
+    }
+
+    private Asset heartFor(State s) {
+        return switch (s) {
+            case NORMAL -> heartNormal;
+            case LOW -> heartLow;
+            case HIGH -> heartHigh;
+        };
+    }
+
+    private int indexOf(State s) {
+        for (int i = 0; i < cycle.length; i++) if (cycle[i] == s) return i;
+        return 0;
     }
 
     // ===== 팝업 =====
@@ -349,56 +445,47 @@ public class EcgDashboardFinal extends Application {
     }
 
     // ===== 이미지 로드 =====
+    // 디코딩은 AssetLoader 워커에서: 여기서는 등록만 하므로 stage.show()까지 막히지 않음.
+    // 첫 화면(INITIAL) 이미지는 PRIORITY_NOW, 나머지는 LATER (applyState가 다음 상태를 당겨옴)
     private void loadImages() {
         // hearts
-        heartFallback = safeLoad(RES + "heart.png");
-        heartNormal   = safeLoad(RES + "heart_normal.png");
-        heartLow      = safeLoad(RES + "heart_low.png");
-        heartHigh     = safeLoad(RES + "heart_high.png");
+        heartFallback = load("heart.png", null);
+        heartNormal   = load("heart_normal.png", State.NORMAL);
+        heartLow      = load("heart_low.png", State.LOW);
+        heartHigh     = load("heart_high.png", State.HIGH);
 
         // nav & line & gradients
-        navRailImg  = safeLoad(RES + "nav_rail.png");      // Group42
-        ecgLineImg  = safeLoad(RES + "ecg_line.png");      // Union
-        gradLowImg  = safeLoad(RES + "grad_low.png");      // Rectangle7
-        gradHighImg = safeLoad(RES + "grad_high.png");     // Group45
+        navRailImg  = load("nav_rail.png", INITIAL);       // Group42 (항상 보임)
+        gradLowImg  = load("grad_low.png", State.LOW);     // Rectangle7
+        gradHighImg = load("grad_high.png", State.HIGH);   // Group45
 
         // icons
-        warnImg  = safeLoad(RES + "icon_warning.png");     // Group15
-        sirenImg = safeLoad(RES + "icon_siren.png");       // Group24
+        warnImg  = load("icon_warning.png", State.LOW);    // Group15
+        sirenImg = load("icon_siren.png", State.HIGH);     // Group24
 
         // buttons
-        btnShelterImg   = safeLoad(RES + "btn_shelter.png");    // Group43
-        btnEmergencyImg = safeLoad(RES + "btn_emergency.png");  // Group44
+        btnShelterImg   = load("btn_shelter.png", State.LOW);    // Group43
+        btnEmergencyImg = load("btn_emergency.png", State.LOW);  // Group44
 
         // BPM cards
-        bpmLowImg    = safeLoad(RES + "bpm_low.png");       // Group46
-        bpmNormalImg = safeLoad(RES + "bpm_normal.png");    // Group47
-        bpmHighImg   = safeLoad(RES + "bpm_high.png");      // Group48
-        
+        bpmLowImg    = load("bpm_low.png", State.LOW);       // Group46
+        bpmNormalImg = load("bpm_normal.png", State.NORMAL); // Group47
+        bpmHighImg   = load("bpm_high.png", State.HIGH);     // Group48
 
         // right panel texts
-        txtAutoControl = safeLoad(RES + "txt_autocontrol.png");
-        txtLowTitle    = safeLoad(RES + "txt_low_title.png");
-        txtHighTitle   = safeLoad(RES + "txt_high_title.png");
-
-        // fallback
-        if (heartNormal == null) heartNormal = heartFallback;
-        if (heartLow == null)    heartLow = heartFallback;
-        if (heartHigh == null)   heartHigh = heartFallback;
+        txtAutoControl = load("txt_autocontrol.png", State.LOW);
+        txtLowTitle    = load("txt_low_title.png", State.LOW);
+        txtHighTitle   = load("txt_high_title.png", State.HIGH);
+
+        // fallback: 상태별 하트가 없으면 heart.png
+        heartNormalView = heartNormal.orElse(heartFallback);
+        heartLowView    = heartLow.orElse(heartFallback);
+        heartHighView   = heartHigh.orElse(heartFallback);
     }
 
-    private Image safeLoad(String path) {
-        try {
-            File f = new File(path);
-            if (!f.exists()) {
-                System.out.println("[WARN] File not found: " + path);
-                return null;
-            }
-            return new Image(f.toURI().toString());
-        } catch (Exception e) {
-            System.out.println("[WARN] Failed to load: " + path + " / " + e.getMessage());
-            return null;
-        }
+    private Asset load(String file, State neededBy) {
+        int prio = (neededBy == INITIAL) ? AssetLoader.PRIORITY_NOW : AssetLoader.PRIORITY_LATER;
+        return assets.load(file, prio);
     }
 
     public static void main(String[] args) {
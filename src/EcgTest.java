@@ -4,7 +4,7 @@
 // What this demo shows (prototype-level):
 // 1) Simulated RR interval stream (ms) -> HR(bpm)=60000/RR
 // 2) Abnormal detection by thresholds (LOW/HIGH)
-// 3) Alert UI + beep + "BLE warning sent" (simulated)
+// 3) Alert UI + beep + BLE warning (simulated link), delivered off the detection path by an AlertBus
 // 4) Actions: Call 119 / Call Guardian1/2 (mock), Open Maps for ER/Rest area (real browser open)
 // 5) Data Log + Export CSV (summary + abnormal window metadata)
 //
@@ -17,14 +17,39 @@
 //
 // Author: Milo (for Ellie)
 
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import ecg.AlertBus;
+import ecg.EcgClock;
+import ecg.EcgExporter;
+import ecg.EcgReport;
+import ecg.EcgRingBuffer;
+import ecg.EventJournal;
+import ecg.EventLog;
+import ecg.LogEvent;
+import ecg.LogType;
+import ecg.LoopbackBleTransport;
+import ecg.Metrics;
+import ecg.MonitorScheduler;
+import ecg.PatientMonitor;
+import ecg.Recording;
+import ecg.RecordingReplayer;
+import ecg.RecordingWriter;
+import ecg.RuleConfigWatcher;
+import ecg.RulePlan;
+import ecg.TsFormat;
+import ecg.WaveformBuffer;
+import ecg.WaveformRrSource;
+import ecg.fx.DiagnosticsView;
+import ecg.fx.EcgSweepView;
+import ecg.fx.EventLogView;
+import ecg.fx.HrvMetrics;
+import ecg.fx.JournalView;
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
 import javafx.beans.property.*;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
@@ -36,17 +61,21 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
-import javafx.util.Duration;
+import javafx.util.StringConverter;
 
 import java.awt.Desktop;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.IOException;
 import java.net.URI;
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class EcgTest extends Application {
 
@@ -63,27 +92,91 @@ public class EcgTest extends Application {
     private final StringProperty guardian1Phone = new SimpleStringProperty("010-1234-5678");
     private final StringProperty guardian2Name = new SimpleStringProperty("긴급연락2");
     private final StringProperty guardian2Phone = new SimpleStringProperty("010-8765-4321");
+    // {name, phone} copies for the CALL_GUARDIAN sink (alert worker), replaced by listeners on the FX thread
+    private volatile String[] guardian1 = {guardian1Name.get(), guardian1Phone.get()};
+    private volatile String[] guardian2 = {guardian2Name.get(), guardian2Phone.get()};
 
     // ====== SIGNAL STATE ======
+    // FX-side view (bound to labels): only updated on the FX thread by publishSnapshot()
     private final IntegerProperty rrMs = new SimpleIntegerProperty(800);    // ~75 bpm
     private final IntegerProperty hrBpm = new SimpleIntegerProperty(75);
     private final BooleanProperty abnormal = new SimpleBooleanProperty(false);
     private final BooleanProperty bleConnected = new SimpleBooleanProperty(true); // simulated
     private final BooleanProperty streaming = new SimpleBooleanProperty(false);
 
-    private Instant abnormalStart = null;
-    private boolean bleWarningSent = false;
-
-    // ring buffer (store last N seconds samples, but here we store summary samples)
-    private final Deque<EcgSample> ring = new ArrayDeque<>();
-    private final List<EcgSample> abnormalClip = new ArrayList<>(); // pre + post samples (demo)
-
-    // logs
-    private final ObservableList<LogEvent> logs = FXCollections.observableArrayList();
+    // detection core: one PatientMonitor driven by a 1-shard scheduler; this window is just its viewer
+    // (primitive ring: 20Hz x 4h = 288k samples (~4.6MB), no per-sample objects)
+    private static final int TICK_HZ = 20;
+    private static final int RING_KEEP_SEC = 4 * 60 * 60;
+    private final PatientMonitor monitor = new PatientMonitor(0, TICK_HZ, RING_KEEP_SEC, System.nanoTime());
+
+    // RR comes from a real waveform: each tick synthesizes 25 samples @500Hz and runs the QRS
+    // detector on them (acquisition thread); the raw samples also feed the live trace
+    private static final int WAVE_HZ = 500;
+    private final WaveformRrSource rrSource = new WaveformRrSource(WAVE_HZ, TICK_HZ, System.nanoTime());
+    private final WaveformBuffer ecgWave = new WaveformBuffer(1, WAVE_HZ, 1 << 13);
+
+    // rolling HRV (10s / 1m / 5m), maintained by the monitor per beat, copied on publish
+    private final HrvMetrics hrvMetrics = new HrvMetrics(monitor.hrv());
+
+    // alert rules: rules.conf (working dir) hot-reloaded into the monitor; defaults if missing
+    private static final Path RULES_FILE = Paths.get("rules.conf");
+    private final RuleConfigWatcher ruleWatcher = new RuleConfigWatcher(RULES_FILE, 1000, new RuleConfigWatcher.Listener() {
+        @Override
+        public void onLoaded(Path path, String text) {
+            // compiled for this patient on the watcher thread, swapped in on the acquisition thread
+            RulePlan plan = RulePlan.parse(text, monitor.id());
+            monitor.post(() -> monitor.setRulePlan(plan));
+            eventLog.append(scheduler.epochNanos(), LogType.RULES_LOADED, plan.size(), 0, 0, 0, path.toString());
+            requestPublish();
+        }
 
-    // scheduler
-    private Timeline timeline;
-    private final Random rng = new Random();
+        @Override
+        public void onError(Path path, String message) {
+            eventLog.append(scheduler.epochNanos(), LogType.ERROR, "Rules not reloaded (" + path + "): " + message);
+            requestPublish();
+        }
+    });
+
+    // logs: lock-free ring (64k newest entries), the table is a virtual newest-first view over it
+    private final EventLog eventLog = new EventLog(1 << 16);
+    private final EventLogView logs = new EventLogView(eventLog);
+
+    // persistent journal (journal/events-*.ejl): log rows are copied there every 100ms; the table
+    // can page through it by type / time range instead of showing the live ring
+    private static final Path JOURNAL_DIR = Paths.get("journal");
+    private static final int JOURNAL_QUERY_LIMIT = 100_000;
+    private EventJournal journal = null;
+    private boolean journalFailed = false;      // FX thread
+    private JournalView journalRows = null;     // FX thread; shown instead of `logs` when set
+
+    // one time base (monotonic + wall anchor) for samples, log rows and report/export stamps;
+    // -Decg.clockSpeed=10 runs the whole demo 10x faster
+    private static final EcgClock CLOCK = clockFromProperty();
+
+    // scheduler: 20Hz ticks on a dedicated thread, so a busy/frozen FX thread can't delay samples
+    private final MonitorScheduler scheduler =
+            new MonitorScheduler("ecg-acquisition", 1, 1_000_000_000L / TICK_HZ, CLOCK);
+
+    // session recording (recordings/*.ecgrec) while streaming live, mmap replay at 1x..1000x
+    private static final Path RECORDINGS_DIR = Paths.get("recordings");
+    private volatile RecordingWriter recorder = null;
+    private volatile RecordingReplayer replayer = null;
+    private volatile long liveSinceNanos = 0;  // end of the last replay: older alert ts are recorded time
+    private final BooleanProperty replaying = new SimpleBooleanProperty(false);
+
+    // alert side-effects (beep, BLE warning with retry, 119/guardian calls) on their own lanes,
+    // so the acquisition thread only posts; the BLE link is a local stand-in (toggle + 15ms writes)
+    private final LoopbackBleTransport bleLink = new LoopbackBleTransport(15, System.nanoTime());
+    private final AlertBus alerts = new AlertBus(64);
+
+    // hot-path timings (tick/ring/evaluate/log, tick lateness, sample->alert, export, alloc per
+    // tick): diagnostics panel, a text dump to stdout every minute, JFR events when recording
+    private static final long METRICS_DUMP_MS = 60_000;
+    private final Metrics perfMetrics = new Metrics();
+
+    // coalesced UI publish: at most one Platform.runLater in flight at any time
+    private final AtomicBoolean publishPending = new AtomicBoolean(false);
 
     // simple beep (fallback if media not available)
     private void beep() {
@@ -94,15 +187,193 @@ public class EcgTest extends Application {
     }
 
     // ====== UI helpers ======
-    private static final DateTimeFormatter TS_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final TsFormat uiTs = new TsFormat();   // FX thread
 
     private String nowTs() {
-        return LocalDateTime.now().format(TS_FMT);
+        return uiTs.text(scheduler.epochNanos());
+    }
+
+    private static EcgClock clockFromProperty() {
+        double speed = Double.parseDouble(System.getProperty("ecg.clockSpeed", "1"));
+        return (speed == 1) ? EcgClock.system() : EcgClock.scaled(speed);
+    }
+
+    // thread-safe, allocation-free for int args; the table picks new rows up on the next publishSnapshot()
+    private void addLog(LogType type) {
+        eventLog.append(scheduler.epochNanos(), type);
+        requestPublish();
+    }
+
+    private void addLog(LogType type, int a) {
+        eventLog.append(scheduler.epochNanos(), type, a);
+        requestPublish();
+    }
+
+    private void addLog(LogType type, int a, int b) {
+        eventLog.append(scheduler.epochNanos(), type, a, b);
+        requestPublish();
+    }
+
+    private void addLog(LogType type, String text) {
+        eventLog.append(scheduler.epochNanos(), type, text);
+        requestPublish();
+    }
+
+    private void addLog(LogType type, int a, String text) {
+        eventLog.append(scheduler.epochNanos(), type, a, 0, 0, 0, text);
+        requestPublish();
     }
 
-    private void addLog(String type, String msg) {
-        logs.add(0, new LogEvent(nowTs(), type, msg));
-        if (logs.size() > 400) logs.remove(logs.size() - 1);
+    // monitor callbacks arrive on the shard thread: queue + coalesce, never touch FX state here
+    private final PatientMonitor.Listener viewer = new PatientMonitor.Listener() {
+        @Override
+        public void onEvent(PatientMonitor m, long tsNanos, LogType type, int a, int b, int c, int d) {
+            long t0 = System.nanoTime();
+            eventLog.append(tsNanos, type, a, b, c, d, null);
+            perfMetrics.record(Metrics.Stage.LOG_APPEND, System.nanoTime() - t0);
+            if (type == LogType.ABNORMAL_START) {
+                alerts.post(AlertBus.Topic.BEEP, tsNanos, m.id());
+                alerts.post(AlertBus.Topic.BLE_WARNING, tsNanos, m.id(), a, b);
+            }
+        }
+
+        @Override
+        public void onSample(PatientMonitor m, long tsNanos) {
+            RecordingWriter r = recorder;
+            if (r != null) r.append(tsNanos, m.rrMs());
+            requestPublish();
+        }
+    };
+
+    // ====== METRICS ======
+    private void setupMetrics() {
+        monitor.setMetrics(perfMetrics);
+        scheduler.setMetrics(perfMetrics);
+        for (AlertBus.Lane l : AlertBus.Lane.values()) {
+            perfMetrics.gauge("alert." + l.name().toLowerCase(Locale.ROOT), () -> alerts.queued(l));
+        }
+        perfMetrics.gauge("log.rows", eventLog::claimed);
+        perfMetrics.registerJfr();
+        perfMetrics.startDump(METRICS_DUMP_MS, System.out::print);
+    }
+
+    // ====== ALERTS ======
+    // sinks run on the lane workers; anything shown goes through Platform.runLater (non-blocking)
+    private void setupAlerts() {
+        alerts.setSink(AlertBus.Topic.BEEP, (t, ts, key, a, b, attempt) -> beep());
+        alerts.setSink(AlertBus.Topic.BLE_WARNING, (t, ts, key, a, b, attempt) -> bleLink.send(a, b));
+        alerts.setSink(AlertBus.Topic.CALL_119, (t, ts, key, a, b, attempt) -> {
+            addLog(LogType.CALL, "119 call placed (mock)");
+            Platform.runLater(() -> showWarn("응급콜(시연)", "PC 프로토타입이라 실제 통화는 안 걸려!\n하지만 모바일 앱에선 tel/sms API로 연동 가능.\n\n[시연] 119로 연락을 시도합니다."));
+        });
+        guardian1Name.addListener((o, ov, nv) -> guardian1 = new String[] {nv, guardian1Phone.get()});
+        guardian1Phone.addListener((o, ov, nv) -> guardian1 = new String[] {guardian1Name.get(), nv});
+        guardian2Name.addListener((o, ov, nv) -> guardian2 = new String[] {nv, guardian2Phone.get()});
+        guardian2Phone.addListener((o, ov, nv) -> guardian2 = new String[] {guardian2Name.get(), nv});
+        alerts.setSink(AlertBus.Topic.CALL_GUARDIAN, (t, ts, key, a, b, attempt) -> {
+            String[] g = (key == 1) ? guardian1 : guardian2;
+            String name = g[0], phone = g[1];
+            addLog(LogType.CALL, name + " call placed (mock): " + phone);
+            Platform.runLater(() -> showInfo("긴급연락(시연)", name + " (" + phone + ")\n연락을 시도합니다."));
+        });
+
+        alerts.setListener(new AlertBus.Listener() {
+            @Override
+            public void onDelivered(AlertBus.Topic t, long ts, int key, int a, int b, int attempts) {
+                // raised by a live sample; replayed samples carry recorded time (even if delivered after the replay)
+                if (t.lane != AlertBus.Lane.EMERGENCY && replayer == null && ts >= liveSinceNanos) {
+                    perfMetrics.alertDelivered(t.name(), scheduler.epochNanos() - ts);
+                }
+                if (t == AlertBus.Topic.BLE_WARNING) {
+                    eventLog.append(ts, LogType.BLE_WARNING_TX, a, b, attempts, 0, null);
+                    requestPublish();
+                }
+            }
+
+            @Override
+            public void onGiveUp(AlertBus.Topic t, long ts, int key, int a, int b, int attempts, Exception error) {
+                if (t == AlertBus.Topic.BLE_WARNING) {
+                    eventLog.append(ts, LogType.BLE_WARNING_TX_FAIL, attempts, 0, 0, 0, error.getMessage());
+                } else {
+                    eventLog.append(ts, LogType.ERROR, t + " failed after " + attempts + " attempts: " + error.getMessage());
+                }
+                requestPublish();
+            }
+
+            @Override
+            public void onDropped(AlertBus.Topic t, long ts, int key) {
+                eventLog.append(ts, LogType.ALERT_DROPPED, t.ordinal());
+                requestPublish();
+            }
+        });
+        alerts.start();
+    }
+
+    private void requestPublish() {
+        if (publishPending.compareAndSet(false, true)) {
+            Platform.runLater(this::publishSnapshot);
+        }
+    }
+
+    // FX thread: copy the latest monitor state into the bound properties + pull new log rows
+    private void publishSnapshot() {
+        publishPending.set(false);
+
+        rrMs.set(monitor.rrMs());
+        hrBpm.set(monitor.hrBpm());
+        abnormal.set(monitor.isAbnormal());
+        hrvMetrics.refresh();
+
+        checkJournal();
+        logs.refresh();
+        if (journalRows != null) journalRows.refresh();
+    }
+
+    // ====== JOURNAL ======
+    private void openJournal() {
+        try {
+            journal = EventJournal.open(JOURNAL_DIR);
+            journal.follow(eventLog, monitor.id());
+        } catch (IOException e) {
+            addLog(LogType.ERROR, "Event journal unavailable (" + JOURNAL_DIR + "): " + e.getMessage());
+        }
+    }
+
+    // FX thread: the journal's writer thread died -> one ERROR row (later rows stay in the live log only)
+    private void checkJournal() {
+        EventJournal j = journal;
+        Throwable f = (j != null) ? j.failure() : null;
+        if (f == null || journalFailed) return;
+        journalFailed = true;
+        addLog(LogType.ERROR, "Event journal stopped (" + JOURNAL_DIR + "): " + f);
+    }
+
+    private void closeJournal() {
+        EventJournal j = journal;
+        if (j == null) return;
+        try {
+            j.close();
+        } catch (IOException e) {
+            System.err.println("event journal: " + e.getMessage());
+        }
+    }
+
+    // filter: 0 live ring, 1 all, 2 abnormal episodes, 3 BLE failures, 4 errors; range in hours (0 = all)
+    private void showLogs(TableView<LogEvent> table, int filter, int rangeHours) {
+        if (filter == 0 || journal == null) {
+            journalRows = null;
+            table.setItems(logs);
+            return;
+        }
+        EnumSet<LogType> types = switch (filter) {
+            case 2 -> EnumSet.of(LogType.ABNORMAL_START, LogType.ABNORMAL_END, LogType.CLIP_SAVED);
+            case 3 -> EnumSet.of(LogType.BLE_WARNING_TX_FAIL, LogType.ALERT_DROPPED);
+            case 4 -> EnumSet.of(LogType.ERROR);
+            default -> null;
+        };
+        long from = (rangeHours == 0) ? Long.MIN_VALUE : scheduler.epochNanos() - rangeHours * 3_600_000_000_000L;
+        journalRows = JournalView.of(journal, types, from, Long.MAX_VALUE, JOURNAL_QUERY_LIMIT);
+        table.setItems(journalRows);
     }
 
     private void openMaps(String query) {
@@ -111,19 +382,20 @@ public class EcgTest extends Application {
             // Above trick avoids manual encoding logic; it URL-encodes via URI parsing-ish.
             // If it looks weird, just hardcode encoding; this works well for demo.
             Desktop.getDesktop().browse(new URI(url));
-            addLog("NAV_OPEN", "Open maps search: " + query);
+            addLog(LogType.NAV_OPEN, query);
         } catch (Exception e) {
-            addLog("ERROR", "Maps open failed: " + e.getMessage());
+            addLog(LogType.ERROR, "Maps open failed: " + e.getMessage());
             showInfo("지도 열기 실패", "브라우저/권한 문제로 지도를 열 수 없어요.\n" + e.getMessage());
         }
     }
 
+    // FX thread; non-modal show(), so neither the caller nor a pending alert waits on the user
     private void showInfo(String title, String content) {
         Alert a = new Alert(Alert.AlertType.INFORMATION);
         a.setTitle(title);
         a.setHeaderText(null);
         a.setContentText(content);
-        a.showAndWait();
+        a.show();
     }
 
     private void showWarn(String title, String content) {
@@ -131,158 +403,157 @@ public class EcgTest extends Application {
         a.setTitle(title);
         a.setHeaderText(null);
         a.setContentText(content);
-        a.showAndWait();
+        a.show();
     }
 
     // ====== STREAM / SIM ======
     private void startStream() {
         if (streaming.get()) return;
         streaming.set(true);
-        addLog("STREAM_START", "RR->HR simulation started (20Hz summary)");
+        addLog(LogType.STREAM_START, TICK_HZ);
 
-        // 20Hz "summary" ticks for prototype (every 50ms)
-        timeline = new Timeline(new KeyFrame(Duration.millis(50), e -> tick()));
-        timeline.setCycleCount(Timeline.INDEFINITE);
-        timeline.play();
+        openRecording();
+
+        // 20Hz "summary" ticks for prototype (every 50ms), drift-compensated on the shard thread
+        scheduler.start();
     }
 
     private void stopStream() {
+        if (!streaming.get()) return;
         streaming.set(false);
-        if (timeline != null) timeline.stop();
-        addLog("STREAM_STOP", "Simulation stopped");
+        scheduler.stop();
+        addLog(LogType.STREAM_STOP);
+        closeRecording();
     }
 
-    private void forceTachy() {
-        rrMs.set(320); // ~188 bpm
-        evaluate();
-        addLog("FORCE_ABNORMAL", "Forced tachy (RR=320ms)");
+    // ====== RECORDING / REPLAY ======
+    private void openRecording() {
+        try {
+            Files.createDirectories(RECORDINGS_DIR);
+            String name = "session-" + uiTs.fileName(scheduler.epochNanos()) + ".ecgrec";
+            recorder = new RecordingWriter(RECORDINGS_DIR.resolve(name), TICK_HZ, scheduler.epochNanos());
+        } catch (IOException e) {
+            addLog(LogType.ERROR, "Recording disabled: " + e.getMessage());
+        }
     }
 
-    private void forceBrady() {
-        rrMs.set(1600); // ~38 bpm
-        evaluate();
-        addLog("FORCE_ABNORMAL", "Forced brady (RR=1600ms)");
+    // the scheduler is stopped here, so no more appends; index write + fsync happen off the FX thread
+    private void closeRecording() {
+        RecordingWriter r = recorder;
+        if (r == null) return;
+        recorder = null;
+        ioExecutor.execute(() -> {
+            try {
+                r.close();
+                eventLog.append(scheduler.epochNanos(), LogType.RECORDING_SAVED, (int) r.samples(), 0, 0, 0,
+                        r.path().toAbsolutePath().toString());
+            } catch (IOException e) {
+                eventLog.append(scheduler.epochNanos(), LogType.ERROR, "Recording failed: " + e.getMessage());
+            }
+            requestPublish();
+        });
     }
 
-    private void resetNormal() {
-        rrMs.set(800);
-        abnormal.set(false);
-        abnormalStart = null;
-        bleWarningSent = false;
-        abnormalClip.clear();
-        addLog("RESET", "Reset to normal");
-    }
-
-    private void tick() {
-        // --- simulate RR drift ---
-        // small drift
-        if (rng.nextDouble() < 0.05) {
-            int delta = rng.nextInt(41) - 20; // -20..+20
-            rrMs.set(clamp(rrMs.get() + delta, 300, 2000));
-        }
+    private void startReplay(Stage stage, int speed, int fromMinute) {
+        if (replayer != null) return;
+        FileChooser fc = new FileChooser();
+        fc.setTitle("Replay recording");
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("ECG recordings", "*.ecgrec"));
+        if (Files.isDirectory(RECORDINGS_DIR)) fc.setInitialDirectory(RECORDINGS_DIR.toFile());
+        File file = fc.showOpenDialog(stage);
+        if (file == null) return;
 
-        // rare abnormal episode injection
-        if (rng.nextDouble() < 0.002) {
-            boolean tachy = rng.nextBoolean();
-            rrMs.set(tachy ? (300 + rng.nextInt(180)) : (1300 + rng.nextInt(700)));
+        Recording rec;
+        try {
+            rec = Recording.open(file.toPath());
+        } catch (IOException e) {
+            addLog(LogType.ERROR, "Replay failed: " + e.getMessage());
+            showWarn("재생 실패", e.getMessage());
+            return;
+        }
+        if (rec.isEmpty()) {
+            closeQuietly(rec);
+            showWarn("재생 실패", "빈 녹화 파일이에요.");
+            return;
         }
 
-        // store sample in ring (summary sample)
-        ring.addLast(new EcgSample(Instant.now(), rrMs.get(), hrFromRr(rrMs.get())));
-        trimRingSeconds(20); // keep last 20 seconds of summary samples
-
-        evaluate();
+        stopStream(); // one driving thread per monitor: live ticks pause during replay
+        RecordingReplayer r = new RecordingReplayer(rec, monitor, CLOCK);
+        r.setOnFinished(() -> Platform.runLater(() -> {
+            if (replayer == r) stopReplay();
+        }));
+        replayer = r;
+        replaying.set(true);
+        addLog(LogType.REPLAY_START, speed, file.getAbsolutePath());
+        r.start(rec.startTs() + fromMinute * 60_000_000_000L, speed);
     }
 
-    private void trimRingSeconds(int keepSec) {
-        Instant cutoff = Instant.now().minusSeconds(keepSec);
-        while (!ring.isEmpty() && ring.peekFirst().ts.isBefore(cutoff)) {
-            ring.removeFirst();
-        }
+    private void stopReplay() {
+        RecordingReplayer r = replayer;
+        if (r == null) return;
+        r.stop();
+        liveSinceNanos = scheduler.epochNanos();
+        replayer = null;
+        replaying.set(false);
+        closeQuietly(r.recording());
+        addLog(LogType.REPLAY_STOP, (int) r.replayed());
     }
 
-    private int hrFromRr(int rr) {
-        return (int)Math.round(60000.0 / rr);
+    private static void closeQuietly(Recording rec) {
+        try {
+            rec.close();
+        } catch (IOException ignored) {}
     }
 
-    private int clamp(int x, int lo, int hi) {
-        return Math.max(lo, Math.min(hi, x));
+    // the monitor is driven either by the live scheduler or by a replay; commands go to whichever runs
+    private void postToMonitor(Runnable cmd) {
+        RecordingReplayer r = replayer;
+        if (r != null) r.post(cmd);
+        else scheduler.post(monitor, cmd);
     }
 
-    private void evaluate() {
-        int rr = rrMs.get();
-        int hr = hrFromRr(rr);
-        hrBpm.set(hr);
-
-        boolean nowAbnormal = (hr < lowBpm.get()) || (hr > highBpm.get());
-
-        if (nowAbnormal && !abnormal.get()) {
-            // ABNORMAL START
-            abnormal.set(true);
-            abnormalStart = Instant.now();
-            bleWarningSent = false;
-
-            // collect "pre" window samples from ring (last preWindowSec)
-            abnormalClip.clear();
-            abnormalClip.addAll(extractLastSecondsFromRing(preWindowSec.get()));
-
-            addLog("ABNORMAL_START", "HR=" + hr + " bpm, RR=" + rr + "ms (threshold " + lowBpm.get() + "~" + highBpm.get() + ")");
-            beep();
-        } else if (!nowAbnormal && abnormal.get()) {
-            // ABNORMAL END
-            abnormal.set(false);
+    // "now" on the monitor's timeline (recorded time during replay); call from posted commands
+    private long monitorNanos() {
+        RecordingReplayer r = replayer;
+        if (r != null && r.positionTs() >= 0) return r.positionTs();
+        return scheduler.epochNanos();
+    }
 
-            // collect "post" window samples (just take last postWindowSec from ring again)
-            abnormalClip.addAll(extractLastSecondsFromRing(postWindowSec.get()));
+    // button actions are posted to the monitor's thread so all signal state stays single-threaded
+    private void forceTachy() {
+        postToMonitor(() -> {
+            monitor.forceRr(monitorNanos(), 320); // ~188 bpm
+            addLog(LogType.FORCE_ABNORMAL, 320, 1);
+            requestPublish();
+        });
+    }
 
-            long dur = (abnormalStart == null) ? -1 : (Instant.now().getEpochSecond() - abnormalStart.getEpochSecond());
-            addLog("ABNORMAL_END", "duration=" + dur + "s, clipSamples=" + abnormalClip.size());
-            abnormalStart = null;
-            bleWarningSent = false;
-        }
+    private void forceBrady() {
+        postToMonitor(() -> {
+            monitor.forceRr(monitorNanos(), 1600); // ~38 bpm
+            addLog(LogType.FORCE_ABNORMAL, 1600, 0);
+            requestPublish();
+        });
+    }
 
-        // Simulated BLE warning
-        if (abnormal.get() && !bleWarningSent) {
-            bleWarningSent = true;
-            if (bleConnected.get()) {
-                addLog("BLE_WARNING_TX", "Sent warning payload {hr=" + hr + ", rr=" + rr + "}");
-            } else {
-                addLog("BLE_WARNING_TX_FAIL", "BLE disconnected. Payload dropped.");
-            }
-        }
+    private void resetNormal() {
+        postToMonitor(() -> {
+            monitor.reset();
+            addLog(LogType.RESET);
+            requestPublish();
+        });
     }
 
-    private List<EcgSample> extractLastSecondsFromRing(int sec) {
-        Instant cutoff = Instant.now().minusSeconds(sec);
-        List<EcgSample> out = new ArrayList<>();
-        for (EcgSample s : ring) {
-            if (!s.ts.isBefore(cutoff)) out.add(s);
-        }
-        return out;
+    private void reevaluate() {
+        postToMonitor(() -> {
+            monitor.evaluate(monitorNanos());
+            requestPublish();
+        });
     }
 
     // ====== EXPORT ======
     private String buildExportJsonLikeText() {
-        // quick "report" text (JSON-ish) to copy
-        StringBuilder sb = new StringBuilder();
-        sb.append("{\n");
-        sb.append("  \"exportedAt\": \"").append(nowTs()).append("\",\n");
-        sb.append("  \"thresholds\": {\"lowBpm\": ").append(lowBpm.get()).append(", \"highBpm\": ").append(highBpm.get()).append("},\n");
-        sb.append("  \"latest\": {\"rrMs\": ").append(rrMs.get()).append(", \"hrBpm\": ").append(hrBpm.get()).append("},\n");
-        sb.append("  \"eventWindow\": {\"preSec\": ").append(preWindowSec.get()).append(", \"postSec\": ").append(postWindowSec.get()).append("},\n");
-        sb.append("  \"abnormalClipSamples\": ").append(abnormalClip.size()).append(",\n");
-        sb.append("  \"recentLogs\": [\n");
-        int n = Math.min(20, logs.size());
-        for (int i = 0; i < n; i++) {
-            LogEvent le = logs.get(i);
-            sb.append("    {\"ts\":\"").append(le.ts).append("\",\"type\":\"").append(le.type).append("\",\"msg\":\"")
-                    .append(le.msg.replace("\"", "\\\"")).append("\"}");
-            if (i != n - 1) sb.append(",");
-            sb.append("\n");
-        }
-        sb.append("  ]\n");
-        sb.append("}\n");
-        return sb.toString();
+        return EcgReport.buildJsonLikeText(nowTs(), monitor, eventLog);
     }
 
     private void copyExportToClipboard() {
@@ -290,75 +561,148 @@ public class EcgTest extends Application {
         ClipboardContent cc = new ClipboardContent();
         cc.putString(txt);
         Clipboard.getSystemClipboard().setContent(cc);
-        addLog("EXPORT_COPY", "Copied report text to clipboard (len=" + txt.length() + ")");
+        addLog(LogType.EXPORT_COPY, txt.length());
         showInfo("복사 완료", "로그/요약 리포트를 클립보드에 복사했어!\n(발표 때 바로 붙여넣기 가능)");
     }
 
-    private void exportCsv(Stage stage) {
+    // streaming export (CSV/JSON) and recording close on a background thread: FileChannel writer, progress + cancel
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ecg-io");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ObjectProperty<ExportTask> exportTask = new SimpleObjectProperty<>(null);
+
+    private final class ExportTask extends Task<Void> implements EcgExporter.Progress {
+        private final EcgExporter.Format format;
+        private final File file;
+        private final String exportedAt = nowTs();
+        private final CompletableFuture<EcgRingBuffer> history = new CompletableFuture<>();
+
+        ExportTask(EcgExporter.Format format, File file) {
+            this.format = format;
+            this.file = file;
+            // the sample ring belongs to the acquisition thread: copy it there (a few ms for 4h)
+            postToMonitor(() -> history.complete(monitor.copyRing()));
+        }
+
+        @Override
+        protected Void call() throws Exception {
+            long t0 = System.nanoTime();
+            EcgExporter.Snapshot snap = EcgExporter.Snapshot.of(exportedAt, monitor, eventLog, history.get());
+            new EcgExporter().export(snap, format, file.toPath(), this);
+            perfMetrics.record(Metrics.Stage.EXPORT, System.nanoTime() - t0);
+            return null;
+        }
+
+        // exporter thread -> Task progress (Task coalesces the FX updates itself)
+        @Override
+        public void update(long done, long total) {
+            updateProgress(done, total);
+        }
+    }
+
+    private void exportFile(Stage stage, EcgExporter.Format format) {
+        if (exportTask.get() != null) return;
+        boolean csv = (format == EcgExporter.Format.CSV);
+
         FileChooser fc = new FileChooser();
-        fc.setTitle("Export CSV (logs + abnormal clip metadata)");
-        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
-        fc.setInitialFileName("ecg_demo_export.csv");
+        fc.setTitle(csv ? "Export CSV (logs + abnormal clip + samples)" : "Export JSON (logs + abnormal clip + samples)");
+        fc.getExtensionFilters().add(csv
+                ? new FileChooser.ExtensionFilter("CSV Files", "*.csv")
+                : new FileChooser.ExtensionFilter("JSON Files", "*.json"));
+        fc.setInitialFileName(csv ? "ecg_demo_export.csv" : "ecg_demo_export.json");
         File file = fc.showSaveDialog(stage);
         if (file == null) return;
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
-            // header
-            bw.write("exported_at," + nowTs());
-            bw.newLine();
-            bw.write("threshold_low_bpm," + lowBpm.get());
-            bw.newLine();
-            bw.write("threshold_high_bpm," + highBpm.get());
-            bw.newLine();
-            bw.write("event_pre_sec," + preWindowSec.get());
-            bw.newLine();
-            bw.write("event_post_sec," + postWindowSec.get());
-            bw.newLine();
-            bw.write("latest_rr_ms," + rrMs.get());
-            bw.newLine();
-            bw.write("latest_hr_bpm," + hrBpm.get());
-            bw.newLine();
-            bw.write("abnormal_clip_samples," + abnormalClip.size());
-            bw.newLine();
-            bw.newLine();
-
-            bw.write("LOGS");
-            bw.newLine();
-            bw.write("ts,type,msg");
-            bw.newLine();
-            for (LogEvent le : logs) {
-                bw.write(csv(le.ts) + "," + csv(le.type) + "," + csv(le.msg));
-                bw.newLine();
-            }
+        ExportTask task = new ExportTask(format, file);
+        task.setOnSucceeded(e -> {
+            exportTask.set(null);
+            addLog(csv ? LogType.EXPORT_CSV : LogType.EXPORT_JSON, file.getAbsolutePath());
+            showInfo("저장 완료", (csv ? "CSV" : "JSON") + " 저장 완료!\n" + file.getAbsolutePath());
+        });
+        task.setOnCancelled(e -> {
+            exportTask.set(null);
+            addLog(LogType.EXPORT_CANCELLED, file.getAbsolutePath());
+        });
+        task.setOnFailed(e -> {
+            exportTask.set(null);
+            Throwable ex = task.getException();
+            addLog(LogType.ERROR, (csv ? "CSV" : "JSON") + " export failed: " + ex.getMessage());
+            showWarn("저장 실패", String.valueOf(ex.getMessage()));
+        });
+        exportTask.set(task);
+        ioExecutor.execute(task);
+    }
 
-            bw.newLine();
-            bw.write("ABNORMAL_CLIP_SUMMARY_SAMPLES");
-            bw.newLine();
-            bw.write("ts,rr_ms,hr_bpm");
-            bw.newLine();
-            for (EcgSample s : abnormalClip) {
-                bw.write(csv(LocalDateTime.ofInstant(s.ts, TimeZone.getDefault().toZoneId()).format(TS_FMT))
-                        + "," + s.rr + "," + s.hr);
-                bw.newLine();
-            }
+    private void cancelExport() {
+        ExportTask task = exportTask.get();
+        if (task != null) task.cancel();
+    }
 
-            addLog("EXPORT_CSV", "Saved CSV to " + file.getAbsolutePath());
-            showInfo("저장 완료", "CSV 저장 완료!\n" + file.getAbsolutePath());
-        } catch (Exception e) {
-            addLog("ERROR", "CSV export failed: " + e.getMessage());
-            showWarn("저장 실패", e.getMessage());
+    // one row per HRV window: beats, SDNN, RMSSD, pNN50, HR min/avg/max
+    private GridPane buildHrvGrid() {
+        GridPane g = new GridPane();
+        g.setHgap(18);
+        g.setVgap(2);
+        String[] head = {"HRV", "beats", "SDNN", "RMSSD", "pNN50", "HR min/avg/max"};
+        for (int c = 0; c < head.length; c++) {
+            Label l = new Label(head[c]);
+            l.setTextFill(Color.GRAY);
+            g.add(l, c, 0);
         }
+        for (int w = 0; w < hrvMetrics.windows(); w++) {
+            HrvMetrics.Window win = hrvMetrics.window(w);
+            int sec = win.seconds();
+            Label name = new Label(sec % 60 == 0 ? (sec / 60) + "m" : sec + "s");
+            Label beats = new Label();
+            beats.textProperty().bind(win.beatsProperty().asString());
+            Label sdnn = new Label();
+            sdnn.textProperty().bind(win.sdnnProperty().asString("%.0f ms"));
+            Label rmssd = new Label();
+            rmssd.textProperty().bind(win.rmssdProperty().asString("%.0f ms"));
+            Label pnn50 = new Label();
+            pnn50.textProperty().bind(win.pnn50Property().asString("%.1f %%"));
+            Label hr = new Label();
+            hr.textProperty().bind(Bindings.createStringBinding(
+                    () -> win.beatsProperty().get() == 0 ? "-"
+                            : String.format("%d / %.0f / %d bpm", win.minHrProperty().get(),
+                                    win.meanHrProperty().get(), win.maxHrProperty().get()),
+                    win.beatsProperty(), win.minHrProperty(), win.meanHrProperty(), win.maxHrProperty()));
+            g.addRow(w + 1, name, beats, sdnn, rmssd, pnn50, hr);
+        }
+        return g;
     }
 
-    private String csv(String s) {
-        if (s == null) return "";
-        String t = s.replace("\"", "\"\"");
-        return "\"" + t + "\"";
+    // ====== APP ======
+    // attach this window to the monitor: config flows FX -> monitor, state flows back via publishSnapshot()
+    private void attachMonitor() {
+        monitor.setLowBpm(lowBpm.get());
+        monitor.setHighBpm(highBpm.get());
+        monitor.setPreWindowSec(preWindowSec.get());
+        monitor.setPostWindowSec(postWindowSec.get());
+        bleLink.setConnected(bleConnected.get());
+
+        lowBpm.addListener((o, ov, nv) -> monitor.setLowBpm(nv.intValue()));
+        highBpm.addListener((o, ov, nv) -> monitor.setHighBpm(nv.intValue()));
+        preWindowSec.addListener((o, ov, nv) -> monitor.setPreWindowSec(nv.intValue()));
+        postWindowSec.addListener((o, ov, nv) -> monitor.setPostWindowSec(nv.intValue()));
+        bleConnected.addListener((o, ov, nv) -> bleLink.setConnected(nv));
+
+        rrSource.setTrace(ecgWave);
+        monitor.setRrSource(rrSource);
+        setupAlerts();
+        setupMetrics();
+        monitor.setListener(viewer);
+        scheduler.add(monitor);
+        ruleWatcher.start();
+        openJournal();
     }
 
-    // ====== APP ======
     @Override
     public void start(Stage stage) {
+        attachMonitor();
+
         // Top: status banner
         Label statusTitle = new Label();
         statusTitle.setFont(Font.font(20));
@@ -406,14 +750,14 @@ public class EcgTest extends Application {
 
         lowSpin.valueProperty().addListener((o, ov, nv) -> {
             lowBpm.set(nv);
-            addLog("THRESHOLD_LOW_SET", "low=" + nv);
-            evaluate();
+            addLog(LogType.THRESHOLD_LOW_SET, nv);
+            reevaluate();
             statusSub.setText("기준: " + lowBpm.get() + "~" + highBpm.get() + " bpm");
         });
         highSpin.valueProperty().addListener((o, ov, nv) -> {
             highBpm.set(nv);
-            addLog("THRESHOLD_HIGH_SET", "high=" + nv);
-            evaluate();
+            addLog(LogType.THRESHOLD_HIGH_SET, nv);
+            reevaluate();
             statusSub.setText("기준: " + lowBpm.get() + "~" + highBpm.get() + " bpm");
         });
 
@@ -424,11 +768,11 @@ public class EcgTest extends Application {
 
         preSpin.valueProperty().addListener((o, ov, nv) -> {
             preWindowSec.set(nv);
-            addLog("WINDOW_PRE_SET", "preSec=" + nv);
+            addLog(LogType.WINDOW_PRE_SET, nv);
         });
         postSpin.valueProperty().addListener((o, ov, nv) -> {
             postWindowSec.set(nv);
-            addLog("WINDOW_POST_SET", "postSec=" + nv);
+            addLog(LogType.WINDOW_POST_SET, nv);
         });
 
         GridPane config = new GridPane();
@@ -442,18 +786,29 @@ public class EcgTest extends Application {
         // Buttons (actions)
         Button btnStart = new Button("스트림 시작");
         Button btnStop = new Button("스트림 중지");
-        btnStop.setDisable(true);
-
-        btnStart.setOnAction(e -> {
-            startStream();
-            btnStart.setDisable(true);
-            btnStop.setDisable(false);
+        btnStart.disableProperty().bind(streaming.or(replaying));
+        btnStop.disableProperty().bind(streaming.not());
+
+        btnStart.setOnAction(e -> startStream());
+        btnStop.setOnAction(e -> stopStream());
+
+        // replay a recorded session through the same detection path
+        ComboBox<Integer> replaySpeed = new ComboBox<>();
+        replaySpeed.getItems().addAll(1, 10, 100, 1000);
+        replaySpeed.setValue(10);
+        replaySpeed.setConverter(new StringConverter<>() {
+            @Override public String toString(Integer v) { return (v == null) ? "" : v + "x"; }
+            @Override public Integer fromString(String s) { return Integer.valueOf(s.replace("x", "").trim()); }
         });
-        btnStop.setOnAction(e -> {
-            stopStream();
-            btnStart.setDisable(false);
-            btnStop.setDisable(true);
+        Spinner<Integer> replayFromMin = new Spinner<>(0, 24 * 60, 0);
+        replayFromMin.setPrefWidth(80);
+        replayFromMin.setTooltip(new Tooltip("시작 위치 (분)"));
+        Button btnReplay = new Button("녹화 재생");
+        btnReplay.setOnAction(e -> {
+            if (replaying.get()) stopReplay();
+            else startReplay(stage, replaySpeed.getValue(), replayFromMin.getValue());
         });
+        btnReplay.textProperty().bind(Bindings.when(replaying).then("재생 중지").otherwise("녹화 재생"));
 
         Button btnForceT = new Button("이상(빠름) 강제");
         btnForceT.setOnAction(e -> forceTachy());
@@ -467,25 +822,25 @@ public class EcgTest extends Application {
         btnBle.selectedProperty().bindBidirectional(bleConnected);
         bleConnected.addListener((o, ov, nv) -> {
             btnBle.setText(nv ? "BLE 연결됨(시뮬)" : "BLE 끊김(시뮬)");
-            addLog("BLE_TOGGLE", "connected=" + nv);
+            addLog(LogType.BLE_TOGGLE, nv ? 1 : 0);
         });
 
         Button btnCall119 = new Button("119 응급콜");
         btnCall119.setOnAction(e -> {
-            addLog("CALL", "119 call tapped (mock)");
-            showWarn("응급콜(시연)", "PC 프로토타입이라 실제 통화는 안 걸려!\n하지만 모바일 앱에선 tel/sms API로 연동 가능.\n\n[시연] 119로 연락을 시도합니다.");
+            addLog(LogType.CALL, "119 call tapped (mock)");
+            alerts.post(AlertBus.Topic.CALL_119, scheduler.epochNanos(), monitor.id());
         });
 
         Button btnCallG1 = new Button(guardian1Name.get() + " 연락");
         btnCallG1.setOnAction(e -> {
-            addLog("CALL", guardian1Name.get() + " call tapped (mock): " + guardian1Phone.get());
-            showInfo("긴급연락(시연)", guardian1Name.get() + " (" + guardian1Phone.get() + ")\n연락을 시도합니다.");
+            addLog(LogType.CALL, guardian1Name.get() + " call tapped (mock): " + guardian1Phone.get());
+            alerts.post(AlertBus.Topic.CALL_GUARDIAN, scheduler.epochNanos(), 1);
         });
 
         Button btnCallG2 = new Button(guardian2Name.get() + " 연락");
         btnCallG2.setOnAction(e -> {
-            addLog("CALL", guardian2Name.get() + " call tapped (mock): " + guardian2Phone.get());
-            showInfo("긴급연락(시연)", guardian2Name.get() + " (" + guardian2Phone.get() + ")\n연락을 시도합니다.");
+            addLog(LogType.CALL, guardian2Name.get() + " call tapped (mock): " + guardian2Phone.get());
+            alerts.post(AlertBus.Topic.CALL_GUARDIAN, scheduler.epochNanos(), 2);
         });
 
         Button btnNavEr = new Button("응급실 경로");
@@ -497,12 +852,31 @@ public class EcgTest extends Application {
         btnCopy.setOnAction(e -> copyExportToClipboard());
 
         Button btnExport = new Button("CSV 저장");
-        btnExport.setOnAction(e -> exportCsv(stage));
+        btnExport.setOnAction(e -> exportFile(stage, EcgExporter.Format.CSV));
+        Button btnExportJson = new Button("JSON 저장");
+        btnExportJson.setOnAction(e -> exportFile(stage, EcgExporter.Format.JSON));
+        btnExport.disableProperty().bind(exportTask.isNotNull());
+        btnExportJson.disableProperty().bind(exportTask.isNotNull());
+
+        // export progress (only while an export runs)
+        ProgressBar exportBar = new ProgressBar(0);
+        exportBar.setPrefWidth(120);
+        Button btnExportCancel = new Button("취소");
+        btnExportCancel.setOnAction(e -> cancelExport());
+        HBox exportBox = new HBox(6, exportBar, btnExportCancel);
+        exportBox.setAlignment(Pos.CENTER_LEFT);
+        exportBox.visibleProperty().bind(exportTask.isNotNull());
+        exportBox.managedProperty().bind(exportBox.visibleProperty());
+        exportTask.addListener((obs, old, t) -> {
+            exportBar.progressProperty().unbind();
+            if (t != null) exportBar.progressProperty().bind(t.progressProperty());
+        });
 
-        HBox actions1 = new HBox(10, btnStart, btnStop, btnBle, btnForceT, btnForceB, btnReset);
+        HBox actions1 = new HBox(10, btnStart, btnStop, btnBle, btnForceT, btnForceB, btnReset,
+                new Separator(Orientation.VERTICAL), btnReplay, replaySpeed, replayFromMin);
         actions1.setAlignment(Pos.CENTER_LEFT);
 
-        HBox actions2 = new HBox(10, btnCall119, btnCallG1, btnCallG2, btnNavEr, btnNavRest, btnCopy, btnExport);
+        HBox actions2 = new HBox(10, btnCall119, btnCallG1, btnCallG2, btnNavEr, btnNavRest, btnCopy, btnExport, btnExportJson, exportBox);
         actions2.setAlignment(Pos.CENTER_LEFT);
 
         VBox actions = new VBox(10, actions1, actions2);
@@ -510,40 +884,65 @@ public class EcgTest extends Application {
         actions.setStyle("-fx-background-radius: 14; -fx-border-radius: 14; -fx-border-color: #eee; -fx-background-color: #ffffff;");
 
         // Logs table
+        // virtualized: only visible rows are formatted (lazily, from the primitive log)
         TableView<LogEvent> table = new TableView<>(logs);
         TableColumn<LogEvent, String> c1 = new TableColumn<>("시간");
-        c1.setCellValueFactory(d -> d.getValue().tsProperty());
+        c1.setCellValueFactory(d -> new ReadOnlyStringWrapper(d.getValue().getTs()));
         c1.setPrefWidth(160);
 
         TableColumn<LogEvent, String> c2 = new TableColumn<>("유형");
-        c2.setCellValueFactory(d -> d.getValue().typeProperty());
+        c2.setCellValueFactory(d -> new ReadOnlyStringWrapper(d.getValue().getType()));
         c2.setPrefWidth(140);
 
         TableColumn<LogEvent, String> c3 = new TableColumn<>("내용");
-        c3.setCellValueFactory(d -> d.getValue().msgProperty());
+        c3.setCellValueFactory(d -> new ReadOnlyStringWrapper(d.getValue().getMsg()));
         c3.setPrefWidth(520);
 
-        table.getColumns().addAll(c1, c2, c3);
+        table.getColumns().setAll(List.of(c1, c2, c3));
         table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_ALL_COLUMNS);
         table.setPrefHeight(260);
 
+        // live ring (default) or a journal query; journal views are paged from disk, not copied
+        ComboBox<String> logFilter = new ComboBox<>();
+        logFilter.getItems().addAll("실시간 (최근 64k)", "기록: 전체", "기록: 이상 에피소드", "기록: BLE 경고 실패", "기록: 오류");
+        logFilter.getSelectionModel().select(0);
+        ComboBox<String> logRange = new ComboBox<>();
+        logRange.getItems().addAll("1시간", "24시간", "7일", "전체");
+        logRange.getSelectionModel().select(2);
+        logRange.disableProperty().bind(logFilter.getSelectionModel().selectedIndexProperty().isEqualTo(0));
+        logFilter.setDisable(journal == null);
+        final int[] rangeHours = { 1, 24, 7 * 24, 0 };
+        Runnable applyLogFilter = () -> showLogs(table, logFilter.getSelectionModel().getSelectedIndex(),
+                rangeHours[logRange.getSelectionModel().getSelectedIndex()]);
+        logFilter.setOnAction(e -> applyLogFilter.run());
+        logRange.setOnAction(e -> applyLogFilter.run());
+        HBox logHeader = new HBox(10, new Label("이벤트 로그"), logFilter, logRange);
+        logHeader.setAlignment(Pos.CENTER_LEFT);
+
         // Layout: left top metrics + right logs? We'll do vertical for simplicity.
-        VBox metrics = new VBox(6, hrLabel, rrLabel);
+        EcgSweepView trace = new EcgSweepView(ecgWave);
+        trace.setPrefHeight(90);
+        trace.setSweepSpeed(125); // 25mm/s @ ~5px/mm
+
+        VBox metrics = new VBox(6, hrLabel, rrLabel, trace, buildHrvGrid());
         metrics.setPadding(new Insets(12));
         metrics.setAlignment(Pos.CENTER_LEFT);
         metrics.setStyle("-fx-background-radius: 14; -fx-border-radius: 14; -fx-border-color: #eee; -fx-background-color: #ffffff;");
 
         Label hint = new Label(
                 "프로토타입 시연 포인트:\n" +
-                "• RR(ms) → HR(bpm)=60000/RR 계산\n" +
-                "• HR이 LOW/HIGH를 벗어나면 '이상' + (시뮬)BLE 경고 전송 + 알림\n" +
+                "• 500Hz 파형 → QRS 검출(Pan-Tompkins) → RR(ms) → HR(bpm)=60000/RR 계산\n" +
+                "• rules.conf 규칙(빈맥/서맥/정지/불규칙/급변/기준선, 히스테리시스+디바운스) 충족 시 '이상' + (시뮬)BLE 경고 + 알림 (저장하면 바로 반영)\n" +
                 "• 응급실/졸음쉼터는 브라우저 지도 검색으로 연동 시연\n" +
                 "• 로그/요약은 CSV/클립보드로 내보내기"
         );
         hint.setTextFill(Color.GRAY);
         hint.setPadding(new Insets(6, 0, 0, 2));
 
-        VBox root = new VBox(12, banner, metrics, config, actions, new Label("이벤트 로그"), table, hint);
+        TitledPane diagnostics = new TitledPane("진단 (단계별 지연 / 큐)", new DiagnosticsView(perfMetrics).node());
+        diagnostics.setExpanded(false);
+
+        VBox root = new VBox(12, banner, metrics, config, actions, logHeader, table, diagnostics, hint);
         root.setPadding(new Insets(16));
         Scene scene = new Scene(root, 1100, 860);
 
@@ -553,12 +952,22 @@ public class EcgTest extends Application {
 
         // Start immediately (optional)
         startStream();
-        btnStart.setDisable(true);
-        btnStop.setDisable(false);
 
-        // on close
+        // on close: let the recording index + pending export finish (bounded) before exiting
         stage.setOnCloseRequest(e -> {
+            cancelExport();
+            stopReplay();
             stopStream();
+            ruleWatcher.stop();
+            alerts.stop();
+            closeJournal();
+            perfMetrics.stopDump();
+            ioExecutor.shutdown();
+            try {
+                ioExecutor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
             Platform.exit();
         });
     }
@@ -573,39 +982,6 @@ public class EcgTest extends Application {
         }
     }
 
-    // ====== data classes ======
-    static class EcgSample {
-        final Instant ts;
-        final int rr;
-        final int hr;
-
-        EcgSample(Instant ts, int rr, int hr) {
-            this.ts = ts;
-            this.rr = rr;
-            this.hr = hr;
-        }
-    }
-
-    public static class LogEvent {
-        private final StringProperty ts = new SimpleStringProperty();
-        private final StringProperty type = new SimpleStringProperty();
-        private final StringProperty msg = new SimpleStringProperty();
-
-        LogEvent(String ts, String type, String msg) {
-            this.ts.set(ts);
-            this.type.set(type);
-            this.msg.set(msg);
-        }
-
-        public StringProperty tsProperty() { return ts; }
-        public StringProperty typeProperty() { return type; }
-        public StringProperty msgProperty() { return msg; }
-
-        public String getTs() { return ts.get(); }
-        public String getType() { return type.get(); }
-        public String getMsg() { return msg.get(); }
-    }
-
     public static void main(String[] args) {
         launch(args);
     }
@@ -1,3 +1,8 @@
+import ecg.AcquisitionEngine;
+import ecg.EcgSynth;
+import ecg.WaveformBuffer;
+import ecg.WaveformPump;
+import ecg.fx.EcgSweepView;
 import javafx.application.Application;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -19,6 +24,12 @@ public class HealthWidgets_NoCSS extends Application {
     private static final Color BLUE = Color.web("#0A6CFF");
     private static final Color LIGHT_GRAY = Color.web("#DADCE2");
 
+    // live trace for the Heart Rate card (250 Hz, filled on the "ecg-wave" thread)
+    private static final int WAVE_HZ = 250;
+    private final WaveformBuffer ecgWave = new WaveformBuffer(1, WAVE_HZ, 4096);
+    private final EcgSynth beats = new EcgSynth(WAVE_HZ, 1);
+    private final AcquisitionEngine waveEngine = new WaveformPump(ecgWave, beats, WAVE_HZ / 50).engine("ecg-wave");
+
     @Override
     public void start(Stage stage) {
         // Root background
@@ -63,6 +74,10 @@ public class HealthWidgets_NoCSS extends Application {
         stage.setTitle("Health Widgets (No CSS)");
         stage.setScene(scene);
         stage.show();
+
+        beats.setBpm(120);
+        waveEngine.start();
+        stage.setOnHidden(e -> waveEngine.stop());
     }
 
     // ----------------- Card Base -----------------
@@ -158,14 +173,11 @@ public class HealthWidgets_NoCSS extends Application {
         ecgArea.setBackground(new Background(new BackgroundFill(Color.web("#F3F4F7"), new CornerRadii(18), Insets.EMPTY)));
         ecgArea.setPadding(new Insets(10));
 
-        Polyline ecg = new Polyline(
-                0, 30, 12, 30, 18, 22, 24, 45, 32, 30, 48, 30,
-                54, 20, 60, 46, 70, 30, 90, 30,
-                96, 22, 102, 45, 112, 30
-        );
+        EcgSweepView ecg = new EcgSweepView(ecgWave);
+        ecg.setPrefSize(100, 50);
+        ecg.setSweepSpeed(75);
         ecg.setStroke(BLUE);
-        ecg.setStrokeWidth(2);
-        ecg.setFill(Color.TRANSPARENT);
+        ecg.setLineWidth(2);
 
         ecgArea.getChildren().add(ecg);
 
@@ -1,11 +1,33 @@
-import java.io.File;
-import java.util.HashMap;
+import ecg.AcquisitionEngine;
+import ecg.EcgSynth;
+import ecg.HrvStats;
+import ecg.RollupStore;
+import ecg.StateCycle;
+import ecg.StateCycle.State;
+import ecg.SyntheticHrHistory;
+import ecg.WaveformBuffer;
+import ecg.WaveformPump;
+import ecg.fx.EcgSweepView;
+import ecg.fx.HeartMetrics;
+import ecg.fx.AssetLoader;
+import ecg.fx.AssetLoader.Asset;
+import ecg.fx.HeartMetricsCache;
+import ecg.fx.HrvMetrics;
+import ecg.fx.TrendChart;
+import ecg.fx.StateSnapshotCache;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
+import javafx.beans.value.ObservableNumberValue;
+import javafx.beans.value.ObservableValue;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -16,7 +38,6 @@ import javafx.scene.control.Button;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import javafx.scene.image.PixelReader;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
@@ -40,30 +61,47 @@ public class ProtoAppWindow extends Application {
     // ====== 리소스 폴더 ======
     private static final String RES = "./resources/";
 
-    // ====== 상태(5초마다 순환) ======
-    enum State { LOW, NORMAL, HIGH }
-    private final State[] cycle = { State.NORMAL, State.LOW, State.HIGH };
-    private int cycleIdx = 0;
-
-    private final Random rng = new Random();
-
-    // ====== 이미지 ======
-    private Image heartNormal, heartLow, heartHigh;
-    private Image gradLow, gradHigh;
-    private Image iconWarn, iconSiren;
-    private Image ecgLine;
+    // ====== 상태(5초마다 순환, ecg.StateCycle) ======
+    private final StateCycle states = new StateCycle(new Random());
+
+    // ====== 이미지 (AssetLoader: 백그라운드 병렬 디코딩, 준비 전에는 placeholder) ======
+    private final AssetLoader assets = new AssetLoader(Paths.get(RES));
+
+    // ====== 파형 (250Hz, "ecg-wave" 스레드가 채우고 EcgSweepView가 그림) ======
+    private static final int WAVE_HZ = 250;
+    private final WaveformBuffer ecgWave = new WaveformBuffer(1, WAVE_HZ, 4096);
+    private final EcgSynth beats = new EcgSynth(WAVE_HZ, 1);
+    private final AcquisitionEngine waveEngine = new WaveformPump(ecgWave, beats, WAVE_HZ / 50).engine("ecg-wave");
+
+    // ====== HRV (파형의 R-R 간격 -> 5분 롤링 통계, 리포트 Min/Max/Avg가 바인딩) ======
+    private final HrvStats hrv = new HrvStats(300);
+    private final HrvMetrics hrvMetrics = new HrvMetrics(hrv);
+    private long lastRPeak = -1; // "ecg-wave" 스레드 전용
+
+    // ====== 추세 (1s→1m→1h→1d 롤업, Day/Month/Year 차트가 조회) ======
+    // 데모용 1년치 4Hz 이력을 백그라운드로 채운 뒤부터 실시간 HR을 이어 붙인다
+    private final RollupStore hrTrend = new RollupStore();
+    private volatile boolean trendLive = false;
+    private long waveStartNanos;   // 파형 sample 0의 epoch-nanos
+    private Asset heartNormal, heartLow, heartHigh;
+    private Asset gradLow, gradHigh;
+    private Asset iconWarn, iconSiren;
+    private Asset shownHeart; // 지금 heartView에 걸린 하트 (디코딩 완료 시 재적용 판단용)
 
     // ====== UI 노드 ======
     private AnchorPane canvas;
 
     private ImageView gradientView;
-    private ImageView ecgView;
+    private EcgSweepView ecgView;
     private ImageView heartView;
     private ImageView topIconView;
 
     private Text bpmNumberText;
     private Text bpmUnitText;
 
+    // 상태별 정적 레이어(그라데이션/ECG/하트) 스냅샷 — 아이콘/BPM 텍스트만 그 위에서 라이브 갱신
+    private StateSnapshotCache<State> stateCache;
+
     private HBox tabBar;
     private Button tabHome, tabGuide, tabReport, tabProfile;
 
@@ -72,25 +110,13 @@ public class ProtoAppWindow extends Application {
     private Pane homePane, guidePane, reportPane, profilePane;
 
     // ✅ Status Bar only
-    private Image statusBarImg;
+    private Asset statusBarImg;
     private ImageView statusBarView;
 
-    // ====== "손 제외, 빨간 하트만" 기준으로 맞추기 위한 메트릭 ======
-    static class HeartMetrics {
-        final double imgW, imgH;
-        final double heartMinX, heartMaxX, heartMinY, heartMaxY;
-
-        HeartMetrics(double imgW, double imgH, double minX, double maxX, double minY, double maxY) {
-            this.imgW = imgW; this.imgH = imgH;
-            this.heartMinX = minX; this.heartMaxX = maxX;
-            this.heartMinY = minY; this.heartMaxY = maxY;
-        }
-
-        double heartW() { return heartMaxX - heartMinX; }
-        double heartCenterX() { return (heartMinX + heartMaxX) / 2.0; }
-    }
-
-    private final Map<Image, HeartMetrics> heartMetrics = new HashMap<>();
+    // ====== "손 제외, 빨간 하트만" 기준으로 맞추기 위한 메트릭 (ecg.fx.HeartMetrics) ======
+    // (워커 스레드에서 디코딩 직후 채워짐)
+    private final Map<Image, HeartMetrics> heartMetrics = new ConcurrentHashMap<>();
+    private static final HeartMetricsCache HEART_CACHE = new HeartMetricsCache(Paths.get(".cache", "heart-metrics"));
 
     // ✅ NORMAL의 "하트(빨강)" 폭이 화면에서 이 정도로 보이도록 맞춤
     //    (너가 NORMAL에서 fitWidth=260이 기준이라 했으니, 그 기준으로 자동 계산됨)
@@ -129,11 +155,10 @@ public class ProtoAppWindow extends Application {
         gradientView.setVisible(false);
 
         // (2) ECG 라인
-        ecgView = new ImageView();
-        if (ecgLine != null) ecgView.setImage(ecgLine);
-        ecgView.setPreserveRatio(true);
-        ecgView.setFitWidth(PHONE_W + 80);
-        AnchorPane.setLeftAnchor(ecgView, -40.0);
+        ecgView = new EcgSweepView(ecgWave);
+        ecgView.setPrefHeight(70);
+        AnchorPane.setLeftAnchor(ecgView, 0.0);
+        AnchorPane.setRightAnchor(ecgView, 0.0);
         AnchorPane.setTopAnchor(ecgView, 308.0);
         ecgView.setOpacity(0.75);
 
@@ -191,7 +216,8 @@ public class ProtoAppWindow extends Application {
         canvas.getChildren().addAll(contentHolder, tabBar);
         // ====== Status Bar 오버레이(레이아웃 영향 0) ======
         if (statusBarImg != null) {
-            statusBarView = new ImageView(statusBarImg);
+            statusBarView = new ImageView();
+            AssetLoader.bind(statusBarView, statusBarImg);
             // 1) 비율 유지로 바꾸기
             statusBarView.setPreserveRatio(true);
             // 2) 가로만 맞추기
@@ -253,15 +279,19 @@ public class ProtoAppWindow extends Application {
 
         // 초기 탭/상태
         setActiveTab(tabHome);
-        applyState(cycle[cycleIdx]);
+        applyState(states.current());
 
         // 5초마다 상태 순환
-        Timeline timeline = new Timeline(new KeyFrame(Duration.seconds(5), e -> {
-            cycleIdx = (cycleIdx + 1) % cycle.length;
-            applyState(cycle[cycleIdx]);
-        }));
+        Timeline timeline = new Timeline(new KeyFrame(Duration.millis(StateCycle.PERIOD_MILLIS),
+                e -> applyState(states.advance())));
         timeline.setCycleCount(Timeline.INDEFINITE);
         timeline.play();
+
+        beats.setBeatListener(this::onBeat);
+        waveStartNanos = System.currentTimeMillis() * 1_000_000L;
+        loadTrendHistory(waveStartNanos);
+        waveEngine.start();
+        stage.setOnHidden(e -> waveEngine.stop());
     }
 
     private double dragOffsetX;
@@ -275,7 +305,10 @@ public class ProtoAppWindow extends Application {
 
 
     private void applyState(State state) {
-        int bpm = generateBpmByState(state);
+        int bpm = states.randomBpm(state);
+
+        // 다음 상태 이미지를 먼저 디코딩 (아직 큐에 있으면)
+        assets.prioritize(AssetLoader.PRIORITY_SOON, assetsFor(states.peekNext()));
 
         bpmNumberText.setText(String.valueOf(bpm));
         bpmUnitText.setText("bpm");
@@ -290,63 +323,62 @@ public class ProtoAppWindow extends Application {
         }
 
         // 아이콘 규칙
-        topIconView.setImage(null);
+        AssetLoader.bind(topIconView, null);
 
         if (bpm >= 140) {
-            if (iconSiren != null) {
-                topIconView.setImage(iconSiren);
+            if (!iconSiren.isMissing()) {
+                AssetLoader.bind(topIconView, iconSiren);
                 double w = 72 * 0.7;   // 고심박 경고등 0.7배
                 topIconView.setFitWidth(w);
                 centerX(topIconView, w);
             }
         } else if (bpm <= 50) {
-            if (iconWarn != null) {
-                topIconView.setImage(iconWarn);
+            if (!iconWarn.isMissing()) {
+                AssetLoader.bind(topIconView, iconWarn);
                 topIconView.setFitWidth(86);
                 centerX(topIconView, 86);
             }
         }
 
+        // 실시간 파형 (스냅샷 밖)
+        beats.setBpm(bpm);
+        ecgView.setOpacity(switch (state) {
+            case NORMAL -> 0.65;
+            case LOW -> 0.80;
+            case HIGH -> 0.85;
+        });
+
+        // 정적 레이어: 캐시된 스냅샷이 있으면 텍스처 교체만 (이미지/메트릭 준비 전엔 캐시 안 함)
+        stateCache.show(state, () -> composeState(state), isReady(state));
+
+        // ✅ 텍스트 중앙 정렬(매번 갱신)
+        centerXText(bpmNumberText);
+        centerXText(bpmUnitText);
+    }
+
+    // 그라데이션/ECG/하트를 상태에 맞게 구성 (스냅샷이 없을 때만 호출됨)
+    private void composeState(State state) {
         // ✅ 핵심: "손 제외(빨간 하트만)" 기준으로 3장 크기/중앙 자동 맞춤
         switch (state) {
             case NORMAL -> {
                 applyHeartImage(heartNormal, 365.0, 260.0); // NORMAL은 네가 원한 기준 fitWidth=260에서 타겟 자동 산출
                 gradientView.setVisible(false);
-                ecgView.setOpacity(0.65);
             }
             case LOW -> {
                 applyHeartImage(heartLow, 365.0, null);     // 나머지는 타겟 하트폭에 자동 맞춤
-                if (gradLow != null) {
-                    gradientView.setImage(gradLow);
+                if (!gradLow.isMissing()) {
+                    AssetLoader.bind(gradientView, gradLow);
                     gradientView.setVisible(true);
                 } else gradientView.setVisible(false);
-                ecgView.setOpacity(0.80);
             }
             case HIGH -> {
                 applyHeartImage(heartHigh, 365.0, null);    // 나머지는 타겟 하트폭에 자동 맞춤
-                if (gradHigh != null) {
-                    gradientView.setImage(gradHigh);
+                if (!gradHigh.isMissing()) {
+                    AssetLoader.bind(gradientView, gradHigh);
                     gradientView.setVisible(true);
                 } else gradientView.setVisible(false);
-                ecgView.setOpacity(0.85);
             }
         }
-
-        // ✅ 텍스트 중앙 정렬(매번 갱신)
-        centerXText(bpmNumberText);
-        centerXText(bpmUnitText);
-    }
-
-    private int generateBpmByState(State state) {
-        return switch (state) {
-            case NORMAL -> rand(80, 100);
-            case LOW    -> rand(30, 80);
-            case HIGH   -> rand(101, 170);
-        };
-    }
-
-    private int rand(int min, int maxInclusive) {
-        return min + rng.nextInt(maxInclusive - min + 1);
     }
 
     private HBox buildTabBar(Stage owner) {
@@ -432,71 +464,61 @@ public class ProtoAppWindow extends Application {
         """);
     }
 
+    // 디코딩은 AssetLoader 워커에서: 여기서는 등록만 하므로 stage.show()까지 막히지 않음.
+    // 첫 상태(states.current()) + 항상 보이는 이미지는 PRIORITY_NOW, 나머지는 applyState가 다음 상태 것을 당겨옴
     private void loadImages() {
-        heartNormal = safeLoad(RES + "heart_normal.png");
-        heartLow    = safeLoad(RES + "heart_low.png");
-        heartHigh   = safeLoad(RES + "heart_high.png");
+        State first = states.current();
 
-        iconWarn    = safeLoad(RES + "icon_warning.png");
-        iconSiren   = safeLoad(RES + "icon_siren.png");
+        // ✅ 빨간 하트(손 제외) 영역 메트릭은 디코딩 직후 워커에서 계산 (디스크 캐시)
+        heartNormal = loadHeart("heart_normal.png", first == State.NORMAL);
+        heartLow    = loadHeart("heart_low.png", first == State.LOW);
+        heartHigh   = loadHeart("heart_high.png", first == State.HIGH);
 
-        gradLow     = safeLoad(RES + "grad_low.png");
-        gradHigh    = safeLoad(RES + "grad_high.png");
+        iconWarn    = load("icon_warning.png", first == State.LOW);
+        iconSiren   = load("icon_siren.png", first == State.HIGH);
 
-        ecgLine     = safeLoad(RES + "ecg_line.png");
+        gradLow     = load("grad_low.png", first == State.LOW);
+        gradHigh    = load("grad_high.png", first == State.HIGH);
 
-        statusBarImg = safeLoad(RES + "Status_Bar.png");
 
-        // ✅ 빨간 하트(손 제외) 영역 메트릭 사전 계산
-        if (heartNormal != null) heartMetrics.put(heartNormal, computeHeartMetrics(heartNormal));
-        if (heartLow != null)    heartMetrics.put(heartLow, computeHeartMetrics(heartLow));
-        if (heartHigh != null)   heartMetrics.put(heartHigh, computeHeartMetrics(heartHigh));
+        statusBarImg = load("Status_Bar.png", true);
 
         // ✅ 타겟 하트폭은 NORMAL 첫 적용 시 자동 설정됨
         targetHeartDisplayW = -1;
     }
 
-    private Image safeLoad(String path) {
-        try {
-            File f = new File(path);
-            if (!f.exists()) return null;
-            return new Image(f.toURI().toString());
-        } catch (Exception e) {
-            System.out.println("[WARN] Failed to load: " + path + " / " + e.getMessage());
-            return null;
-        }
+    private Asset load(String file, boolean now) {
+        return assets.load(file, now ? AssetLoader.PRIORITY_NOW : AssetLoader.PRIORITY_LATER);
     }
 
-    // ====== 핵심: 빨간 하트 영역(손 제외) 바운딩 계산 ======
-    private HeartMetrics computeHeartMetrics(Image img) {
-        if (img == null) return null;
-        PixelReader pr = img.getPixelReader();
-        if (pr == null) return null;
-
-        int w = (int) img.getWidth();
-        int h = (int) img.getHeight();
-
-        int minX = w, minY = h, maxX = -1, maxY = -1;
-
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                Color c = pr.getColor(x, y);
-                if (c.getOpacity() < 0.05) continue;
+    private Asset loadHeart(String file, boolean now) {
+        return assets.load(file, now ? AssetLoader.PRIORITY_NOW : AssetLoader.PRIORITY_LATER, (path, img) -> {
+            HeartMetrics m = computeHeartMetrics(path, img);
+            if (m != null) heartMetrics.put(img, m);
+        });
+    }
 
-                // 빨강 판정 (필요하면 임계값만 살짝 조절)
-                boolean isRed = c.getRed() > 0.65 && c.getGreen() < 0.35 && c.getBlue() < 0.35;
+    // 상태별로 화면에 필요한 이미지 (디코딩 우선순위용)
+    private Asset[] assetsFor(State s) {
+        return switch (s) {
+            case NORMAL -> new Asset[] { heartNormal };
+            case LOW -> new Asset[] { heartLow, iconWarn, gradLow };
+            case HIGH -> new Asset[] { heartHigh, iconSiren, gradHigh };
+        };
+    }
 
-                if (isRed) {
-                    if (x < minX) minX = x;
-                    if (y < minY) minY = y;
-                    if (x > maxX) maxX = x;
-                    if (y > maxY) maxY = y;
-                }
-            }
+    private boolean isReady(State s) {
+        for (Asset a : assetsFor(s)) {
+            if (!a.isReady()) return false;
         }
+        return true;
+    }
 
-        if (maxX < 0) return null; // 빨강 못 찾음
-        return new HeartMetrics(w, h, minX, maxX, minY, maxY);
+    // ====== 핵심: 빨간 하트 영역(손 제외) 바운딩 계산 ======
+    // packed-ARGB scan (parallel for big images), cached on disk by file hash -> restart skips the scan
+    private HeartMetrics computeHeartMetrics(Path path, Image img) {
+        if (img == null) return null;
+        return HEART_CACHE.get(path, img);
     }
 
     /**
@@ -504,15 +526,23 @@ public class ProtoAppWindow extends Application {
      * - "빨간 하트" 폭을 NORMAL 기준으로 동일하게 맞추고
      * - "빨간 하트" 중심이 화면 정중앙이 되도록 자동 translateX 보정
      *
-     * @param img                표시할 이미지
+     * @param asset              표시할 이미지 (디코딩 전이면 placeholder, 완료되면 다시 맞춤)
      * @param topAnchor          하트 Y 위치
      * @param normalFitWidthHint NORMAL일 때만: 기존 너가 쓰던 fitWidth(예: 260). 타겟 폭 산출용.
      *                           LOW/HIGH에서는 null로 호출하면 됨.
      */
-    private void applyHeartImage(Image img, double topAnchor, Double normalFitWidthHint) {
-        if (img == null) return;
+    private void applyHeartImage(Asset asset, double topAnchor, Double normalFitWidthHint) {
+        if (asset.isMissing()) return;
+
+        shownHeart = asset;
+        if (!asset.isReady()) {
+            asset.whenReady(() -> {
+                if (shownHeart == asset) applyHeartImage(asset, topAnchor, normalFitWidthHint);
+            });
+        }
 
-        heartView.setImage(img);
+        Image img = asset.getValue();
+        AssetLoader.bind(heartView, asset);
         HeartMetrics m = heartMetrics.get(img);
 
         // 메트릭 없으면 기존 방식 fallback
@@ -573,10 +603,21 @@ public class ProtoAppWindow extends Application {
     // bpmUnitText = new Text(...);
     // heartView = new ImageView();
 
+    // 상태마다 바뀌는 정적 요소는 stateLayer에 모아서 스냅샷으로 교체
+    AnchorPane stateLayer = new AnchorPane(gradientView, heartView);
+    AnchorPane.setTopAnchor(stateLayer, 0.0);
+    AnchorPane.setLeftAnchor(stateLayer, 0.0);
+    AnchorPane.setRightAnchor(stateLayer, 0.0);
+    AnchorPane.setBottomAnchor(stateLayer, 0.0);
+    ImageView stateView = new ImageView();
+
+    stateCache = new StateSnapshotCache<>(State.class, stateLayer, stateView);
+    stateCache.invalidateOn(stateLayer.layoutBoundsProperty());
+
+    // 파형/아이콘/BPM 텍스트는 매번 바뀌므로 스냅샷 위에 라이브로
     p.getChildren().addAll(
-        gradientView, ecgView, topIconView,
-        bpmNumberText, bpmUnitText,
-        heartView
+        stateLayer, stateView,
+        ecgView, topIconView, bpmNumberText, bpmUnitText
     );
 
     return p;
@@ -758,14 +799,11 @@ public class ProtoAppWindow extends Application {
         });
 
 
-        // ECG 라인 재사용하면 예쁨
-        ImageView ecg = new ImageView();
-        if (ecgLine != null) ecg.setImage(ecgLine);
+        // 홈과 같은 실시간 파형 (같은 버퍼를 한 번 더 그림)
+        EcgSweepView ecg = new EcgSweepView(ecgWave);
 
         // ✅ 세로로 더 길게(두껍게)
-        ecg.setPreserveRatio(false);
-        ecg.setFitWidth(PHONE_W - 80);
-        ecg.setFitHeight(90);     // ✅ 기존 대비 체감 3배 느낌 (원하면 80~110 조절)
+        ecg.setPrefSize(PHONE_W - 80, 90);     // ✅ 기존 대비 체감 3배 느낌 (원하면 80~110 조절)
         ecg.setOpacity(0.55);
 
         AnchorPane.setTopAnchor(ecg, 420.0);
@@ -835,10 +873,14 @@ public class ProtoAppWindow extends Application {
         chart.setPrefHeight(260);
         chart.setMinHeight(260);
 
+        // 평균선(LTTB) + 최저/최고 구간(min-max), 둘 다 차트 폭에 맞춰 솎아서 그림
+        XYChart.Series<Number, Number> lo = new XYChart.Series<>();
+        XYChart.Series<Number, Number> hi = new XYChart.Series<>();
         XYChart.Series<Number, Number> s = new XYChart.Series<>();
-        int[] values = {72, 120, 95, 80, 60, 55, 70, 85, 90, 88, 92, 110, 140, 120, 100, 95, 90, 105, 115, 130, 150, 120, 100, 85, 72};
-        for (int i = 0; i < values.length; i++) s.getData().add(new XYChart.Data<>(i, values[i]));
-        chart.getData().add(s);
+        chart.getData().setAll(List.of(lo, hi, s));
+        TrendChart trend = new TrendChart(hrTrend, chart, s);
+        trend.setEnvelope(lo, hi);
+        trend.show(TrendChart.Range.DAY);
 
         // ✅ 차트 선 색/두께 (기본 파란색 없애기)
         Platform.runLater(() -> {
@@ -846,6 +888,9 @@ public class ProtoAppWindow extends Application {
             if (s.getNode() != null) {
                 s.getNode().setStyle("-fx-stroke: #FF6B6B; -fx-stroke-width: 2.2px;");
             }
+            for (XYChart.Series<Number, Number> band : List.of(lo, hi)) {
+                if (band.getNode() != null) band.getNode().setStyle("-fx-stroke: rgba(255,107,107,0.28); -fx-stroke-width: 1px;");
+            }
             // gridline/axis 톤 다운
             chart.lookupAll(".chart-horizontal-grid-lines line").forEach(n ->
                     n.setStyle("-fx-stroke: rgba(0,0,0,0.08);"));
@@ -858,9 +903,9 @@ public class ProtoAppWindow extends Application {
         stats.setAlignment(Pos.CENTER);
         stats.setTranslateY(15);
         stats.getChildren().addAll(
-                statBox("Min", "50"),
-                statBox("Max", "157"),
-                statBox("Avg", "81")
+                statBox("Min", hrText(hrvMetrics.window(0).minHrProperty())),
+                statBox("Max", hrText(hrvMetrics.window(0).maxHrProperty())),
+                statBox("Avg", hrText(hrvMetrics.window(0).meanHrProperty()))
         );
 
         card.getChildren().addAll(chart, stats);
@@ -884,10 +929,10 @@ public class ProtoAppWindow extends Application {
         chart.setMinHeight(320);
 
 
-        // 세그먼트 클릭시 활성 스타일만 바꿔주기(데이터 스왑은 나중에 붙이면 됨)
-        day.setOnAction(e -> setSegActive(day, month, year));
-        month.setOnAction(e -> setSegActive(month, day, year));
-        year.setOnAction(e -> setSegActive(year, day, month));
+        // 세그먼트 클릭: 활성 스타일 + 해당 롤업 단계로 차트 교체
+        day.setOnAction(e -> { setSegActive(day, month, year); trend.show(TrendChart.Range.DAY); });
+        month.setOnAction(e -> { setSegActive(month, day, year); trend.show(TrendChart.Range.MONTH); });
+        year.setOnAction(e -> { setSegActive(year, day, month); trend.show(TrendChart.Range.YEAR); });
 
         p.getChildren().addAll(seg, card);
         return p;
@@ -954,12 +999,48 @@ public class ProtoAppWindow extends Application {
         other2.setStyle("-fx-background-color: transparent; -fx-text-fill: #777777; -fx-background-radius: 14px; -fx-font-weight: 700;");
     }
 
-    private VBox statBox(String label, String value) {
+    // "ecg-wave" 스레드: 기외수축(PVC) 앞뒤 간격은 NN이 아니라서 빼고 넣는다
+    private void onBeat(long rPeakSample, boolean ectopic) {
+        if (ectopic) {
+            hrv.gap();
+            lastRPeak = -1;
+            return;
+        }
+        if (lastRPeak >= 0) {
+            int rr = (int) ((rPeakSample - lastRPeak) * 1000 / WAVE_HZ);
+            long ts = waveStartNanos + rPeakSample * 1_000_000_000L / WAVE_HZ;
+            hrv.accept(ts, rr);
+            hrvMetrics.requestRefresh();
+            if (trendLive) hrTrend.add(ts, 60000f / rr);
+        }
+        lastRPeak = rPeakSample;
+    }
+
+    // 지난 1년치 데모 이력 (4Hz, 약 1.3억 샘플) -> 끝나면 실시간 HR 추가 시작
+    private void loadTrendHistory(long untilNanos) {
+        Thread t = new Thread(() -> {
+            SyntheticHrHistory.load(hrTrend, Paths.get(".cache", "hr-history.bin"), untilNanos, 365, 4, 7);
+            trendLive = true;
+        }, "hr-history");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // 아직 박동이 없으면 "--"
+    private ObservableValue<String> hrText(ObservableNumberValue hr) {
+        HrvMetrics.Window w = hrvMetrics.window(0);
+        return Bindings.createStringBinding(
+                () -> w.beatsProperty().get() == 0 ? "--" : String.valueOf(Math.round(hr.doubleValue())),
+                w.beatsProperty(), hr);
+    }
+
+    private VBox statBox(String label, ObservableValue<String> value) {
         Text l = new Text(label);
         l.setFill(Color.web("#888888"));
         l.setFont(Font.font("System", FontWeight.MEDIUM, 16));
 
-        Text v = new Text(value);
+        Text v = new Text();
+        v.textProperty().bind(value);
         v.setFill(Color.web("#222222"));
         v.setFont(Font.font("System", FontWeight.BOLD, 24));
 
@@ -0,0 +1,191 @@
+package ecg;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+// Headless fixed-rate sampling loop running on its own thread (never the FX thread).
+//
+// - Ticks are scheduled against an absolute timeline (anchor + n * period), so wakeup
+//   jitter never accumulates into drift.
+// - Every sample is stamped with its *scheduled* time. If the thread is delayed (GC pause,
+//   busy machine) the missed ticks are replayed back-to-back with their original timestamps,
+//   so detection sees the same timing as an undisturbed run.
+// - A lag larger than maxCatchUpNanos (laptop sleep, debugger) is skipped instead of replayed.
+// - Commands posted from other threads (UI buttons) run on the engine thread between ticks,
+//   which keeps all sampler state single-threaded.
+//
+// Time comes from an EcgClock (default: system), so a Manual clock gives a deterministic run
+// and a scaled one an accelerated run. The engine knows nothing about JavaFX; publishing to
+// the UI is the sampler's business.
+public final class AcquisitionEngine {
+
+    // Called on the engine thread once per tick with the tick's epoch-nanos timestamp.
+    public interface Sampler {
+        void sample(long tsNanos);
+    }
+
+    private static final long DEFAULT_MAX_CATCH_UP_NANOS = 5_000_000_000L;
+
+    private final String name;
+    private final long periodNanos;
+    private final long maxCatchUpNanos;
+    private final Sampler sampler;
+    private final EcgClock clock;
+    private final ConcurrentLinkedQueue<Runnable> commands = new ConcurrentLinkedQueue<>();
+
+    // timeline anchor: epoch-nanos = anchorEpochNanos + (clock.nanoTime() - anchorNanoTime)
+    private volatile long anchorNanoTime;
+    private volatile long anchorEpochNanos;
+
+    private volatile boolean running = false;
+    private boolean stopping = false;       // guarded by this: stop() is joining the thread
+    private Thread thread;
+
+    // stats (written by the engine thread only)
+    private volatile long ticks = 0;
+    private volatile long lateTicks = 0;     // ticks that ran after their deadline (caught up)
+    private volatile long skippedTicks = 0;  // ticks dropped because lag exceeded maxCatchUpNanos
+    private volatile long maxLatenessNanos = 0;
+    private volatile Histogram latenessRecorder = null;
+
+    public AcquisitionEngine(String name, long periodNanos, Sampler sampler) {
+        this(name, periodNanos, DEFAULT_MAX_CATCH_UP_NANOS, EcgClock.system(), sampler);
+    }
+
+    public AcquisitionEngine(String name, long periodNanos, EcgClock clock, Sampler sampler) {
+        this(name, periodNanos, DEFAULT_MAX_CATCH_UP_NANOS, clock, sampler);
+    }
+
+    public AcquisitionEngine(String name, long periodNanos, long maxCatchUpNanos, EcgClock clock, Sampler sampler) {
+        if (periodNanos <= 0) throw new IllegalArgumentException("periodNanos must be > 0: " + periodNanos);
+        this.name = name;
+        this.periodNanos = periodNanos;
+        this.maxCatchUpNanos = maxCatchUpNanos;
+        this.clock = clock;
+        this.sampler = sampler;
+        reanchor();
+    }
+
+    // ====== lifecycle ======
+
+    public void start() {
+        start(clock.nanoTime(), clock.epochNanos());
+    }
+
+    // start on a shared timeline, so several engines (scheduler shards) stamp identical ticks
+    public synchronized void start(long anchorNanoTime, long anchorEpochNanos) {
+        if (running || stopping) return;
+        running = true;
+        this.anchorNanoTime = anchorNanoTime;
+        this.anchorEpochNanos = anchorEpochNanos;
+        thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+            stopping = true;
+            t = thread;
+            thread = null;
+        }
+        LockSupport.unpark(t);
+        if (t != Thread.currentThread()) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            runCommands(); // anything posted until the thread exited still gets applied
+            stopping = false;
+        }
+    }
+
+    public boolean isRunning() { return running; }
+
+    // Runs cmd on the engine thread before the next tick; runs it inline once fully stopped.
+    public void post(Runnable cmd) {
+        synchronized (this) {
+            if (running || stopping) {
+                commands.add(cmd);
+                return;
+            }
+        }
+        cmd.run();
+    }
+
+    // ====== clock ======
+
+    public long periodNanos() { return periodNanos; }
+    public EcgClock clock() { return clock; }
+
+    public long epochNanos() {
+        return anchorEpochNanos + (clock.nanoTime() - anchorNanoTime);
+    }
+
+    private void reanchor() {
+        anchorNanoTime = clock.nanoTime();
+        anchorEpochNanos = clock.epochNanos();
+    }
+
+    // ====== stats ======
+
+    public long ticks() { return ticks; }
+    public long lateTicks() { return lateTicks; }
+    public long skippedTicks() { return skippedTicks; }
+    public long maxLatenessNanos() { return maxLatenessNanos; }
+
+    // every tick's lateness (wakeup - scheduled time) also goes into h; null: off
+    public void setLatenessRecorder(Histogram h) { latenessRecorder = h; }
+
+    // ====== loop ======
+
+    private void run() {
+        final long base = anchorNanoTime;
+        final long baseEpoch = anchorEpochNanos;
+        long n = 0;
+
+        while (running) {
+            long deadline = base + n * periodNanos;
+            long now = clock.nanoTime();
+
+            // park until the deadline (loop: parkNanos may return early)
+            while (running && now < deadline) {
+                clock.parkNanos(deadline - now);
+                now = clock.nanoTime();
+            }
+            if (!running) break;
+
+            long lateness = now - deadline;
+            if (lateness > maxCatchUpNanos) {
+                long skip = lateness / periodNanos;
+                skippedTicks += skip;
+                n += skip;
+                deadline = base + n * periodNanos;
+                lateness = now - deadline;
+            }
+            if (lateness > periodNanos) lateTicks++;
+            if (lateness > maxLatenessNanos) maxLatenessNanos = lateness;
+            Histogram h = latenessRecorder;
+            if (h != null) h.record(lateness);
+
+            runCommands();
+            sampler.sample(baseEpoch + (deadline - base));
+            ticks++;
+            n++;
+        }
+    }
+
+    private void runCommands() {
+        Runnable cmd;
+        while ((cmd = commands.poll()) != null) {
+            cmd.run();
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package ecg;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Asynchronous side-effects of alerts (beep, BLE warning, 119/guardian calls), so
+// detection only ever does a non-blocking post() and never waits on a sound, a dialog or I/O.
+//
+// - Lanes: each Lane has its own bounded queue and worker thread. EMERGENCY (calls) never
+//   waits behind a BLE retry or a notice; WARNING/NOTICE can't starve each other either.
+// - Bounded: a full NOTICE/WARNING lane drops its oldest entry (the newest alert matters
+//   more); a full EMERGENCY lane rejects the new one instead of dropping a queued call.
+// - Coalescing: posting a (topic, key) that is still queued updates that entry in place
+//   (latest ts/args win) instead of queueing a second one.
+// - Dedup: a (topic, key) accepted less than topic.dedupNanos ago is ignored (double taps,
+//   flapping alarms).
+// - Retry: a Sink that throws is retried with exponential backoff (topic.backoffNanos,
+//   doubling, capped at MAX_BACKOFF_NANOS) up to topic.maxAttempts, then given up.
+// Queues are primitive columns (no object per alert); post() takes a short lock, never waits.
+// Dedup windows and backoff run on the EcgClock given at construction (default: system), so
+// a Manual clock (Headless --fast) dedups and retries in virtual time.
+public final class AlertBus {
+
+    public enum Lane { EMERGENCY, WARNING, NOTICE }
+
+    public enum Topic {
+        //          lane            dedup    attempts  first backoff
+        CALL_119(Lane.EMERGENCY,    5_000,   3,        500),    // key = patient
+        CALL_GUARDIAN(Lane.EMERGENCY, 5_000, 3,        500),    // key = guardian index
+        BLE_WARNING(Lane.WARNING,   10_000,  6,        250),    // key = patient, a = hr, b = rr
+        BEEP(Lane.NOTICE,           1_000,   1,        0);      // key = patient
+
+        public final Lane lane;
+        public final long dedupNanos;
+        public final int maxAttempts;
+        public final long backoffNanos;
+
+        Topic(Lane lane, long dedupMillis, int maxAttempts, long backoffMillis) {
+            this.lane = lane;
+            this.dedupNanos = dedupMillis * 1_000_000L;
+            this.maxAttempts = maxAttempts;
+            this.backoffNanos = backoffMillis * 1_000_000L;
+        }
+
+        private static final Topic[] VALUES = values();
+
+        public static Topic of(int code) {
+            return (code >= 0 && code < VALUES.length) ? VALUES[code] : null;
+        }
+    }
+
+    // Performs one alert on its lane's worker thread; throw to have it retried.
+    public interface Sink {
+        void deliver(Topic topic, long tsNanos, int key, int a, int b, int attempt) throws Exception;
+    }
+
+    // Outcomes, on the lane worker (or the posting thread for drops). Keep them cheap.
+    public interface Listener {
+        default void onDelivered(Topic topic, long tsNanos, int key, int a, int b, int attempts) {}
+
+        default void onRetry(Topic topic, int key, int attempt, long delayNanos, Exception error) {}
+
+        default void onGiveUp(Topic topic, long tsNanos, int key, int a, int b, int attempts, Exception error) {}
+
+        // an alert that never reached its sink because its lane was full
+        default void onDropped(Topic topic, long tsNanos, int key) {}
+    }
+
+    private static final Listener NO_LISTENER = new Listener() {};
+    private static final long MAX_BACKOFF_NANOS = 30_000_000_000L;
+    private static final int DEDUP_SLOTS = 64;    // per topic, by key (a collision only skips dedup)
+    private static final long CLOCK_POLL_NANOS = 1_000_000;  // backoff wait slice on a non-system clock
+
+    private final EcgClock clock;
+    private final long maxWaitNanos;    // real-time cap of one worker wait (clock time may run faster)
+
+    private final Lane[] laneOf = new Lane[Topic.VALUES.length];
+    private final Queue[] queues = new Queue[Lane.values().length];
+    private final Sink[] sinks = new Sink[Topic.VALUES.length];
+    private volatile Listener listener = NO_LISTENER;
+
+    // dedup: last accepted post per (topic, key slot), on the bus clock; guarded by dedupLock
+    private final Object dedupLock = new Object();
+    private final int[] dedupKey = new int[Topic.VALUES.length * DEDUP_SLOTS];
+    private final long[] dedupAt = new long[Topic.VALUES.length * DEDUP_SLOTS];
+    private long dedup = 0;
+
+    public AlertBus(int capacityPerLane) {
+        this(capacityPerLane, EcgClock.system());
+    }
+
+    public AlertBus(int capacityPerLane, EcgClock clock) {
+        if (capacityPerLane <= 0) throw new IllegalArgumentException("capacity must be > 0: " + capacityPerLane);
+        this.clock = clock;
+        this.maxWaitNanos = (clock == EcgClock.system()) ? Long.MAX_VALUE : CLOCK_POLL_NANOS;
+        for (Lane l : Lane.values()) queues[l.ordinal()] = new Queue(l, capacityPerLane);
+        for (Topic t : Topic.VALUES) laneOf[t.ordinal()] = t.lane;
+        Arrays.fill(dedupAt, Long.MIN_VALUE);
+    }
+
+    // set before start(); a topic without a sink is accepted and dropped silently
+    public void setSink(Topic t, Sink s) { sinks[t.ordinal()] = s; }
+
+    public EcgClock clock() { return clock; }
+
+    public void setListener(Listener l) {
+        listener = (l != null) ? l : NO_LISTENER;
+    }
+
+    public synchronized void start() {
+        for (Queue q : queues) q.start();
+    }
+
+    // queued alerts are discarded
+    public synchronized void stop() {
+        for (Queue q : queues) q.stop();
+    }
+
+    // ====== post (any thread, never blocks on delivery) ======
+
+    // false if deduplicated or rejected (full EMERGENCY lane)
+    public boolean post(Topic t, long tsNanos, int key) {
+        return post(t, tsNanos, key, 0, 0);
+    }
+
+    public boolean post(Topic t, long tsNanos, int key, int a, int b) {
+        long now = clock.nanoTime();
+        if (t.dedupNanos > 0 && !claimDedup(t, key, now)) {
+            return false;
+        }
+        if (queues[laneOf[t.ordinal()].ordinal()].offer(t, tsNanos, key, a, b, now)) return true;
+        if (t.dedupNanos > 0) releaseDedup(t, key, now);
+        return false;
+    }
+
+    private boolean claimDedup(Topic t, int key, long now) {
+        int slot = t.ordinal() * DEDUP_SLOTS + Math.floorMod(key, DEDUP_SLOTS);
+        synchronized (dedupLock) {
+            if (dedupKey[slot] == key && dedupAt[slot] != Long.MIN_VALUE && now - dedupAt[slot] < t.dedupNanos) {
+                dedup++;
+                return false;
+            }
+            dedupKey[slot] = key;
+            dedupAt[slot] = now;
+            return true;
+        }
+    }
+
+    // the claimed post was rejected: a retry must not be deduplicated against it
+    // (the slot's previous post, if any, was already outside the window)
+    private void releaseDedup(Topic t, int key, long now) {
+        int slot = t.ordinal() * DEDUP_SLOTS + Math.floorMod(key, DEDUP_SLOTS);
+        synchronized (dedupLock) {
+            if (dedupKey[slot] == key && dedupAt[slot] == now) dedupAt[slot] = Long.MIN_VALUE;
+        }
+    }
+
+    // ====== stats (any thread) ======
+    public long dedupCount() {
+        synchronized (dedupLock) {
+            return dedup;
+        }
+    }
+
+    public long coalescedCount(Lane l) { return queues[l.ordinal()].coalesced; }
+    public long droppedCount(Lane l) { return queues[l.ordinal()].dropped; }
+    public long deliveredCount(Lane l) { return queues[l.ordinal()].delivered; }
+    public int queued(Lane l) { return queues[l.ordinal()].size(); }
+
+    // ====== lane ======
+
+    // Slots in parallel primitive arrays; order = seq (posting order), retries keep theirs.
+    // The worker delivers the oldest entry that is due and not backing off.
+    private final class Queue {
+        private final Lane lane;
+        private final int capacity;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+
+        private final boolean[] used;
+        private final int[] topic, key, a, b, attempt;
+        private final long[] ts, seq, dueNanos;
+        private int size = 0;
+        private long nextSeq = 0;
+
+        private volatile long coalesced = 0, dropped = 0, delivered = 0;   // written under lock
+        private volatile Thread thread = null;
+
+        Queue(Lane lane, int capacity) {
+            this.lane = lane;
+            this.capacity = capacity;
+            used = new boolean[capacity];
+            topic = new int[capacity];
+            key = new int[capacity];
+            a = new int[capacity];
+            b = new int[capacity];
+            attempt = new int[capacity];
+            ts = new long[capacity];
+            seq = new long[capacity];
+            dueNanos = new long[capacity];
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return size;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean offer(Topic t, long tsNanos, int k, int va, int vb, long now) {
+            int code = t.ordinal();
+            Topic dropTopic = null;
+            long dropTs = 0;
+            int dropKey = 0;
+            boolean accepted = true;
+            lock.lock();
+            try {
+                // coalesce with a queued entry that hasn't been tried yet
+                for (int i = 0; i < capacity; i++) {
+                    if (used[i] && topic[i] == code && key[i] == k && attempt[i] == 0) {
+                        ts[i] = tsNanos;
+                        a[i] = va;
+                        b[i] = vb;
+                        coalesced++;
+                        return true;
+                    }
+                }
+                int slot = freeSlot();
+                if (slot < 0) {
+                    if (lane == Lane.EMERGENCY) {
+                        dropped++;
+                        dropTopic = t;
+                        dropTs = tsNanos;
+                        dropKey = k;
+                        accepted = false;
+                    } else {
+                        slot = oldest();
+                        dropTopic = Topic.of(topic[slot]);
+                        dropTs = ts[slot];
+                        dropKey = key[slot];
+                        used[slot] = false;
+                        size--;
+                        dropped++;
+                    }
+                }
+                if (slot >= 0) {
+                    put(slot, code, tsNanos, k, va, vb, 0, nextSeq++, now);
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (dropTopic != null) listener.onDropped(dropTopic, dropTs, dropKey);
+            return accepted;
+        }
+
+        private void put(int slot, int code, long vts, int vkey, int va, int vb, int vattempt, long vseq, long due) {
+            used[slot] = true;
+            topic[slot] = code;
+            key[slot] = vkey;
+            a[slot] = va;
+            b[slot] = vb;
+            ts[slot] = vts;
+            attempt[slot] = vattempt;
+            seq[slot] = vseq;
+            dueNanos[slot] = due;
+            size++;
+            changed.signal();
+        }
+
+        private int freeSlot() {
+            for (int i = 0; i < capacity; i++) if (!used[i]) return i;
+            return -1;
+        }
+
+        private int oldest() {
+            int best = -1;
+            for (int i = 0; i < capacity; i++) {
+                if (used[i] && (best < 0 || seq[i] < seq[best])) best = i;
+            }
+            return best;
+        }
+
+        void start() {
+            if (thread != null) return;
+            Thread th = new Thread(this::run, "alert-" + lane.name().toLowerCase(Locale.ROOT));
+            th.setDaemon(true);
+            thread = th;
+            th.start();
+        }
+
+        void stop() {
+            Thread th = thread;
+            thread = null;
+            if (th != null) th.interrupt();
+            lock.lock();
+            try {
+                Arrays.fill(used, false);
+                size = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void run() {
+            Thread self = Thread.currentThread();
+            while (thread == self) {
+                Topic t;
+                long vts, vseq;
+                int vkey, va, vb, vattempt;
+                lock.lock();
+                try {
+                    int slot = -1;
+                    while (slot < 0) {
+                        long now = clock.nanoTime();
+                        long wait = Long.MAX_VALUE;
+                        for (int i = 0; i < capacity; i++) {
+                            if (!used[i]) continue;
+                            long d = dueNanos[i] - now;
+                            if (d <= 0) {
+                                if (slot < 0 || seq[i] < seq[slot]) slot = i;
+                            } else {
+                                wait = Math.min(wait, d);
+                            }
+                        }
+                        if (slot >= 0) break;
+                        if (wait == Long.MAX_VALUE) changed.await();
+                        else changed.awaitNanos(Math.min(wait, maxWaitNanos));
+                    }
+                    // taken out while it runs (a repost during delivery queues a new entry)
+                    used[slot] = false;
+                    size--;
+                    t = Topic.of(topic[slot]);
+                    vts = ts[slot];
+                    vkey = key[slot];
+                    va = a[slot];
+                    vb = b[slot];
+                    vattempt = attempt[slot] + 1;
+                    vseq = seq[slot];
+                } catch (InterruptedException e) {
+                    return;
+                } finally {
+                    lock.unlock();
+                }
+
+                deliver(t, vts, vkey, va, vb, vattempt, vseq);
+            }
+        }
+
+        private void deliver(Topic t, long vts, int vkey, int va, int vb, int vattempt, long vseq) {
+            Sink s = sinks[t.ordinal()];
+            if (s == null) return;
+            try {
+                s.deliver(t, vts, vkey, va, vb, vattempt);
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+                if (vattempt >= t.maxAttempts || thread != Thread.currentThread()) {
+                    listener.onGiveUp(t, vts, vkey, va, vb, vattempt, e);
+                    return;
+                }
+                long delay = Math.min(MAX_BACKOFF_NANOS, t.backoffNanos << Math.min(vattempt - 1, 20));
+                listener.onRetry(t, vkey, vattempt, delay, e);
+                requeue(t, vts, vkey, va, vb, vattempt, vseq, clock.nanoTime() + delay);
+                return;
+            }
+            lock.lock();
+            try {
+                delivered++;
+            } finally {
+                lock.unlock();
+            }
+            listener.onDelivered(t, vts, vkey, va, vb, vattempt);
+        }
+
+        // back into the lane with its original order; gives up if the lane filled meanwhile
+        private void requeue(Topic t, long vts, int vkey, int va, int vb, int vattempt, long vseq, long due) {
+            lock.lock();
+            try {
+                int slot = freeSlot();
+                if (slot >= 0) {
+                    put(slot, t.ordinal(), vts, vkey, va, vb, vattempt, vseq, due);
+                    return;
+                }
+                dropped++;
+            } finally {
+                lock.unlock();
+            }
+            listener.onDropped(t, vts, vkey);
+        }
+    }
+}
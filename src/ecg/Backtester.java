@@ -0,0 +1,425 @@
+package ecg;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Offline threshold tuning: replays stored recordings (.ecgrec) through PatientMonitor.accept()
+// -- the production ring + rules + abnormal state machine, not a re-implementation -- once per
+// config of a grid (low x high x pre x post) and reports alert counts, episode durations, clip
+// sizes and false alarms per config.
+//
+// The recordings are decoded once into flat ts/rr arrays (Input) that every worker reads;
+// a worker owns one small PatientMonitor per config and walks the whole input with it, so
+// a config costs one accept() per sample and nothing is shared but read-only arrays.
+//
+// There are no clinician annotations in a recording, so "truth" is a reference condition:
+// HR outside [truthLow, truthHigh] for at least truthSec in a row. An alert episode that
+// overlaps no such run is a false alarm; a run that no episode overlaps is missed.
+//
+//   ./gradlew run -PmainClass=ecg.Backtester --args="--low 30:50:2 --high 140:200:5 --pre 5,10 --post 5,10 recordings/*.ecgrec"
+public final class Backtester {
+
+    public record Config(int lowBpm, int highBpm, int preSec, int postSec) {}
+
+    public static final class Result {
+        public final Config config;
+        final double hours;
+        int alerts, falseAlarms, detected, truthRuns, openAtEnd, clips;
+        long abnormalNanos, maxEpisodeNanos, clipSamples;
+        int maxClip;
+
+        Result(Config config, double hours, int truthRuns) {
+            this.config = config;
+            this.hours = hours;
+            this.truthRuns = truthRuns;
+        }
+
+        public int alerts() { return alerts; }
+        public int falseAlarms() { return falseAlarms; }
+        public int missed() { return truthRuns - detected; }
+        public double alertsPerHour() { return alerts / hours; }
+        public double falseAlarmsPerHour() { return falseAlarms / hours; }
+        public double falseAlarmRate() { return alerts == 0 ? 0 : (double) falseAlarms / alerts; }
+        public double sensitivity() { return truthRuns == 0 ? 1 : (double) detected / truthRuns; }
+        public double meanEpisodeSec() { return alerts == 0 ? 0 : abnormalNanos / 1e9 / alerts; }
+        public double maxEpisodeSec() { return maxEpisodeNanos / 1e9; }
+        public int clips() { return clips; }
+        public double meanClipSamples() { return clips == 0 ? 0 : (double) clipSamples / clips; }
+        public int maxClipSamples() { return maxClip; }
+    }
+
+    // ====== input ======
+
+    // Recordings decoded once, back to back; segment k is [segStart[k], segStart[k + 1]).
+    public static final class Input {
+        final int tickHz;
+        final long[] ts;
+        final int[] rr;
+        final int[] hr;
+        final int[] segStart;
+        final double hours;
+
+        private Input(int tickHz, long[] ts, int[] rr, int[] segStart) {
+            this.tickHz = tickHz;
+            this.ts = ts;
+            this.rr = rr;
+            this.segStart = segStart;
+            this.hr = new int[rr.length];
+            double sec = 0;
+            for (int k = 0; k + 1 < segStart.length; k++) {
+                int a = segStart[k], b = segStart[k + 1];
+                if (b > a) sec += (ts[b - 1] - ts[a]) / 1e9 + 1.0 / tickHz;
+            }
+            for (int i = 0; i < rr.length; i++) hr[i] = PatientMonitor.hrFromRr(rr[i]);
+            this.hours = Math.max(sec, 1e-9) / 3600;
+        }
+
+        public static Input load(List<Path> recordings) throws IOException {
+            int n = 0, hz = -1;
+            List<Recording> open = new ArrayList<>();
+            try {
+                for (Path p : recordings) {
+                    Recording r = Recording.open(p);
+                    open.add(r);
+                    if (hz < 0) hz = r.tickHz();
+                    else if (r.tickHz() != hz) throw new IOException(p + ": " + r.tickHz() + " Hz, expected " + hz);
+                    n = Math.addExact(n, (int) r.sampleCount());
+                }
+                long[] ts = new long[n];
+                int[] rr = new int[n];
+                int[] seg = new int[open.size() + 1];
+                int i = 0;
+                for (int k = 0; k < open.size(); k++) {
+                    seg[k] = i;
+                    Recording.Cursor c = open.get(k).cursor();
+                    while (c.next() && i < n) {
+                        ts[i] = c.ts();
+                        rr[i] = c.rr();
+                        i++;
+                    }
+                }
+                seg[open.size()] = i;
+                return new Input(Math.max(hz, 1), ts, rr, seg);
+            } finally {
+                for (Recording r : open) r.close();
+            }
+        }
+
+        public int samples() { return ts.length; }
+        public double hours() { return hours; }
+
+        // Reference runs: HR outside [low, high] for >= minSec without a break, as sample
+        // index pairs {start0, end0, start1, end1, ...} (end inclusive), in order.
+        int[] truthRuns(int low, int high, int minSec) {
+            int[] out = new int[16];
+            int n = 0;
+            long minNanos = minSec * 1_000_000_000L;
+            for (int k = 0; k + 1 < segStart.length; k++) {
+                int runStart = -1;
+                for (int i = segStart[k]; i <= segStart[k + 1]; i++) {
+                    boolean out0 = i < segStart[k + 1] && (hr[i] < low || hr[i] > high);
+                    if (out0 && runStart < 0) runStart = i;
+                    if (!out0 && runStart >= 0) {
+                        if (ts[i - 1] - ts[runStart] >= minNanos) {
+                            if (n + 2 > out.length) out = Arrays.copyOf(out, out.length * 2);
+                            out[n++] = runStart;
+                            out[n++] = i - 1;
+                        }
+                        runStart = -1;
+                    }
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+    }
+
+    // ====== run ======
+
+    private final Input input;
+    private final RulePlan plan;
+    private final int[] truth;
+    private final int ringKeepSec;
+    private final AtomicInteger done = new AtomicInteger();
+
+    public Backtester(Input input, RulePlan plan, int truthLow, int truthHigh, int truthSec) {
+        this.input = input;
+        this.plan = (plan != null) ? plan : RulePlan.DEFAULT;
+        this.truth = input.truthRuns(truthLow, truthHigh, truthSec);
+        // pre/post windows + rule look-back; the 4h live ring would be wasted per config
+        long lookback = (this.plan.ringLookbackNanos() + 999_999_999L) / 1_000_000_000L;
+        this.ringKeepSec = (int) Math.max(PatientMonitor.MAX_WINDOW_SEC, lookback) + 1;
+    }
+
+    public int truthRunCount() { return truth.length / 2; }
+    public int configsDone() { return done.get(); }
+
+    // every config, on `threads` workers pulling the next config index; results in config order
+    public Result[] run(List<Config> configs, int threads) throws InterruptedException {
+        if (threads <= 0) throw new IllegalArgumentException("threads must be > 0: " + threads);
+        Result[] results = new Result[configs.size()];
+        AtomicInteger next = new AtomicInteger();
+        Thread[] workers = new Thread[Math.min(threads, Math.max(1, configs.size()))];
+        for (int w = 0; w < workers.length; w++) {
+            workers[w] = new Thread(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < results.length) {
+                    results[i] = runConfig(configs.get(i));
+                    done.incrementAndGet();
+                }
+            }, "backtest-" + w);
+            workers[w].setDaemon(true);
+            workers[w].start();
+        }
+        for (Thread t : workers) t.join();
+        return results;
+    }
+
+    public Result runConfig(Config c) {
+        PatientMonitor m = new PatientMonitor(0, input.tickHz, ringKeepSec, 0);
+        m.setRulePlan(plan);
+        m.setLowBpm(c.lowBpm());
+        m.setHighBpm(c.highBpm());
+        m.setPreWindowSec(c.preSec());
+        m.setPostWindowSec(c.postSec());
+        Episodes ep = new Episodes(new Result(c, input.hours, truth.length / 2));
+        m.setListener(ep);
+
+        long[] ts = input.ts;
+        int[] rr = input.rr;
+        int[] seg = input.segStart;
+        for (int k = 0; k + 1 < seg.length; k++) {
+            // separate sessions: no state (or ring samples) carries over
+            m.reset();
+            m.ring().clear();
+            for (int i = seg[k]; i < seg[k + 1]; i++) {
+                ep.index = i;
+                m.accept(ts[i], rr[i]);
+            }
+            if (m.isAbnormal() && seg[k + 1] > seg[k]) {
+                ep.result.openAtEnd++;
+                ep.end(seg[k + 1] - 1, ts[seg[k + 1] - 1]);
+            }
+        }
+        return ep.result;
+    }
+
+    // one config's abnormal episodes, scored against the truth runs (its worker thread only)
+    private final class Episodes implements PatientMonitor.Listener {
+        final Result result;
+        final BitSet detected = new BitSet();
+        int index;
+        int startIndex = -1;
+        long startTs;
+
+        Episodes(Result result) {
+            this.result = result;
+        }
+
+        @Override
+        public void onEvent(PatientMonitor m, long tsNanos, LogType type, int a, int b, int c, int d) {
+            if (type == LogType.ABNORMAL_START) {
+                result.alerts++;
+                startIndex = index;
+                startTs = tsNanos;
+            } else if (type == LogType.ABNORMAL_END && startIndex >= 0) {
+                end(index, tsNanos);
+            } else if (type == LogType.CLIP_SAVED) {
+                // pre + episode + post; clips still open at a segment's end are not counted
+                result.clips++;
+                result.clipSamples += a;
+                result.maxClip = Math.max(result.maxClip, a);
+            }
+        }
+
+        void end(int endIndex, long endTs) {
+            long dur = endTs - startTs;
+            result.abnormalNanos += dur;
+            result.maxEpisodeNanos = Math.max(result.maxEpisodeNanos, dur);
+
+            // runs are sorted and disjoint: first run ending at/after the episode start
+            int lo = 0, hi = truth.length / 2;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (truth[2 * mid + 1] < startIndex) lo = mid + 1;
+                else hi = mid;
+            }
+            boolean any = false;
+            for (int r = lo; r < truth.length / 2 && truth[2 * r] <= endIndex; r++) {
+                any = true;
+                if (!detected.get(r)) {
+                    detected.set(r);
+                    result.detected++;
+                }
+            }
+            if (!any) result.falseAlarms++;
+            startIndex = -1;
+        }
+    }
+
+    // ====== output ======
+
+    static final String CSV_HEADER = "low_bpm,high_bpm,pre_sec,post_sec,alerts,alerts_per_h,false_alarms,false_alarm_rate,"
+            + "false_per_h,missed,sensitivity,mean_episode_sec,max_episode_sec,open_at_end,mean_clip_samples,max_clip_samples";
+
+    static void appendCsv(StringBuilder sb, Result r) {
+        Config c = r.config;
+        sb.append(c.lowBpm()).append(',').append(c.highBpm()).append(',').append(c.preSec()).append(',').append(c.postSec())
+                .append(',').append(r.alerts).append(',').append(String.format(Locale.ROOT, "%.3f", r.alertsPerHour()))
+                .append(',').append(r.falseAlarms).append(',').append(String.format(Locale.ROOT, "%.3f", r.falseAlarmRate()))
+                .append(',').append(String.format(Locale.ROOT, "%.3f", r.falseAlarmsPerHour()))
+                .append(',').append(r.missed()).append(',').append(String.format(Locale.ROOT, "%.3f", r.sensitivity()))
+                .append(',').append(String.format(Locale.ROOT, "%.1f", r.meanEpisodeSec()))
+                .append(',').append(String.format(Locale.ROOT, "%.1f", r.maxEpisodeSec()))
+                .append(',').append(r.openAtEnd)
+                .append(',').append(String.format(Locale.ROOT, "%.1f", r.meanClipSamples()))
+                .append(',').append(r.maxClip).append('\n');
+    }
+
+    // fewest missed runs first, then fewest false alarms, then fewest alerts
+    static final Comparator<Result> BEST = Comparator.comparingInt(Result::missed)
+            .thenComparingInt(Result::falseAlarms)
+            .thenComparingInt(Result::alerts);
+
+    // ====== CLI ======
+
+    static final String USAGE = """
+            usage: Backtester [options] recording.ecgrec...
+              --low A:B[:STEP]|A,B,..   low thresholds, bpm (40)
+              --high A:B[:STEP]|A,B,..  high thresholds, bpm (180)
+              --pre A:B[:STEP]|A,B,..   pre-window seconds (10)
+              --post A:B[:STEP]|A,B,..  post-window seconds (10)
+              --rules PATH              rule plan (rules.conf if present, else the built-in limits)
+              --truth LOW:HIGH:SEC      reference: HR out of range for SEC s in a row (40:180:10)
+              --threads N               workers (cores)
+              --out PATH                CSV of every config (backtest.csv)
+              --top N                   best configs printed (20)
+            """;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int[] low = { 40 }, high = { 180 }, pre = { 10 }, post = { 10 };
+        int[] truthSpec = { 40, 180, 10 };
+        Path rules = Paths.get("rules.conf");
+        boolean rulesGiven = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path out = Paths.get("backtest.csv");
+        int top = 20;
+        List<Path> files = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String a = args[i];
+                if (!a.startsWith("--")) {
+                    files.add(Paths.get(a));
+                    continue;
+                }
+                if (i + 1 >= args.length) throw new IllegalArgumentException("missing value for " + a);
+                String v = args[++i];
+                switch (a) {
+                    case "--low" -> low = range(v);
+                    case "--high" -> high = range(v);
+                    case "--pre" -> pre = range(v);
+                    case "--post" -> post = range(v);
+                    case "--rules" -> {
+                        rules = Paths.get(v);
+                        rulesGiven = true;
+                    }
+                    case "--truth" -> {
+                        String[] t = v.split(":");
+                        if (t.length != 3) throw new IllegalArgumentException("--truth expects LOW:HIGH:SEC: " + v);
+                        truthSpec = new int[] { Integer.parseInt(t[0]), Integer.parseInt(t[1]), Integer.parseInt(t[2]) };
+                    }
+                    case "--threads" -> threads = Integer.parseInt(v);
+                    case "--out" -> out = Paths.get(v);
+                    case "--top" -> top = Integer.parseInt(v);
+                    default -> throw new IllegalArgumentException("unknown option " + a);
+                }
+            }
+            if (files.isEmpty()) throw new IllegalArgumentException("no recordings given");
+            if (threads <= 0) throw new IllegalArgumentException("--threads must be > 0: " + threads);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        RulePlan plan = null;
+        if (rulesGiven || Files.exists(rules)) plan = RulePlan.parse(Files.readString(rules), RulePlan.NO_PATIENT);
+
+        List<Config> configs = new ArrayList<>();
+        for (int l : low) for (int h : high) for (int p : pre) for (int q : post) {
+            if (l < h) configs.add(new Config(l, h, p, q));
+        }
+
+        long t0 = System.nanoTime();
+        Input input = Input.load(files);
+        long t1 = System.nanoTime();
+        Backtester bt = new Backtester(input, plan, truthSpec[0], truthSpec[1], truthSpec[2]);
+        System.out.printf(Locale.ROOT, "backtest: %d samples (%.1f h @ %d Hz) from %d recordings decoded in %.2f s, "
+                        + "%d reference runs, %d configs on %d threads%n", input.samples(), input.hours(), input.tickHz,
+                files.size(), (t1 - t0) / 1e9, bt.truthRunCount(), configs.size(), threads);
+
+        // progress while the workers run
+        final int total = configs.size();
+        Thread progress = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                System.out.printf(Locale.ROOT, "  %d/%d configs, %.0f s%n", bt.configsDone(), total, (System.nanoTime() - t1) / 1e9);
+            }
+        }, "backtest-progress");
+        progress.setDaemon(true);
+        progress.start();
+        Result[] results = bt.run(configs, threads);
+        progress.interrupt();
+        double sec = (System.nanoTime() - t1) / 1e9;
+        System.out.printf(Locale.ROOT, "backtest: %d configs in %.1f s (%.1f M samples/s)%n", total, sec,
+                (double) input.samples() * total / sec / 1e6);
+
+        StringBuilder sb = new StringBuilder(CSV_HEADER).append('\n');
+        for (Result r : results) appendCsv(sb, r);
+        try (BufferedWriter w = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            w.append(sb);
+        }
+        System.out.println("wrote " + out.toAbsolutePath());
+
+        Result[] sorted = results.clone();
+        Arrays.sort(sorted, BEST);
+        System.out.printf(Locale.ROOT, "%5s %5s %4s %4s %7s %7s %8s %7s %8s %8s %6s%n",
+                "low", "high", "pre", "post", "alerts", "/h", "false/h", "FA%", "missed", "meanSec", "clip");
+        for (int i = 0; i < Math.min(top, sorted.length); i++) {
+            Result r = sorted[i];
+            Config c = r.config;
+            System.out.printf(Locale.ROOT, "%5d %5d %4d %4d %7d %7.2f %8.2f %6.1f%% %8d %8.1f %6.0f%n",
+                    c.lowBpm(), c.highBpm(), c.preSec(), c.postSec(), r.alerts, r.alertsPerHour(),
+                    r.falseAlarmsPerHour(), 100 * r.falseAlarmRate(), r.missed(), r.meanEpisodeSec(), r.meanClipSamples());
+        }
+    }
+
+    // "A:B[:STEP]" (inclusive) or "A,B,C"
+    static int[] range(String v) {
+        if (v.contains(",")) return Arrays.stream(v.split(",")).mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+        String[] t = v.split(":");
+        if (t.length == 1) return new int[] { Integer.parseInt(t[0]) };
+        if (t.length > 3) throw new IllegalArgumentException("expected A:B[:STEP]: " + v);
+        int from = Integer.parseInt(t[0]), to = Integer.parseInt(t[1]);
+        int step = (t.length == 3) ? Integer.parseInt(t[2]) : 1;
+        if (step <= 0 || to < from) throw new IllegalArgumentException("bad range: " + v);
+        int[] r = new int[(to - from) / step + 1];
+        for (int i = 0; i < r.length; i++) r[i] = from + i * step;
+        return r;
+    }
+}
@@ -0,0 +1,186 @@
+package ecg;
+
+// Abnormal-episode clips as read-only views of the monitor's sample ring, not copies.
+//
+// onset() opens a clip at the ring sample preSec before the onset, every later sample
+// extends the open clips, offset() starts the post window and the clip completes once
+// postSec of samples after the offset are in. A clip is just a range of ring sequence
+// numbers (EcgRingBuffer.firstSeq()..endSeq()), so nothing is copied at onset, offset or
+// completion, and overlapping episodes (B starting inside A's post window) share samples.
+//
+// While a clip is open its first sample is pinned (pinnedSeq(), honoured by the monitor's
+// time-based trim). The ring's capacity is still a hard limit: an episode longer than the
+// ring keeps only its newest part, see Clip.isIntact().
+//
+// Driving thread only, except latest() and Clip's metadata getters (any thread).
+public final class ClipRecorder {
+
+    public static final int MAX_OPEN = 8;   // clips in flight; beyond that the oldest completes early
+    public static final int KEEP = 16;      // completed clips kept for recent()
+
+    public static final class Clip {
+        private final EcgRingBuffer store;
+        private final long startSeq;
+        private final long startTs;         // first sample (onset - pre)
+        private final long onsetTs;
+        private final int preSamples;
+        private volatile long endSeq;       // exclusive; grows while open
+        private volatile long endTs;
+        private volatile long offsetTs = -1;
+        private volatile int episodeSamples = -1;
+        private volatile boolean complete = false;
+        private long postUntil = Long.MAX_VALUE;    // driving thread
+
+        private Clip(EcgRingBuffer store, long startSeq, long startTs, long onsetTs, int preSamples) {
+            this.store = store;
+            this.startSeq = startSeq;
+            this.startTs = startTs;
+            this.onsetTs = onsetTs;
+            this.preSamples = preSamples;
+        }
+
+        // ---- metadata (any thread) ----
+        public int size() { return (int) (endSeq - startSeq); }
+        public long startTs() { return startTs; }
+        public long endTs() { return endTs; }
+        public long onsetTs() { return onsetTs; }
+        public long offsetTs() { return offsetTs; }        // -1 while the episode lasts
+        public boolean isComplete() { return complete; }
+        public int preSamples() { return preSamples; }
+
+        // onset .. offset sample count (-1 while the episode lasts)
+        public int episodeSamples() { return episodeSamples; }
+
+        public int postSamples() {
+            int e = episodeSamples;
+            return (e < 0) ? 0 : size() - preSamples - e;
+        }
+
+        // ---- samples (driving thread, or while the monitor is stopped) ----
+
+        // false once the ring has overwritten the clip's first samples
+        public boolean isIntact() { return startSeq >= store.firstSeq(); }
+
+        public long tsAt(int i) { return store.tsAt(index(i)); }
+        public int rrAt(int i) { return store.rrAt(index(i)); }
+        public int hrAt(int i) { return store.hrAt(index(i)); }
+
+        // Same samples in a later copy of the ring (e.g. an export's history copy): [from, to)
+        // by timestamp, clamped to what the copy holds.
+        public int fromIndex(EcgRingBuffer copy) { return copy.lowerBound(startTs); }
+        public int toIndex(EcgRingBuffer copy) { return Math.max(fromIndex(copy), copy.lowerBound(endTs + 1)); }
+
+        private int index(int i) {
+            if (i < 0 || i >= size()) throw new IndexOutOfBoundsException("index " + i + ", clip size " + size());
+            long seq = startSeq + i;
+            if (seq < store.firstSeq()) throw new IllegalStateException("clip sample " + i + " already overwritten");
+            return (int) (seq - store.firstSeq());
+        }
+    }
+
+    private final EcgRingBuffer store;
+    private final Clip[] open = new Clip[MAX_OPEN];
+    private int openCount = 0;
+    private Clip episode = null;            // open clip still waiting for its offset
+    private final Clip[] recent = new Clip[KEEP];
+    private long completed = 0;
+    private volatile Clip latest = null;
+
+    public ClipRecorder(EcgRingBuffer store) {
+        this.store = store;
+    }
+
+    // most recently opened clip (open or complete), null before the first / after clear()
+    public Clip latest() { return latest; }
+
+    public long completedCount() { return completed; }
+
+    // i-th newest completed clip (0 = newest), i < min(completedCount(), KEEP)
+    public Clip recent(int i) {
+        if (i < 0 || i >= Math.min(completed, KEEP)) throw new IndexOutOfBoundsException("recent " + i);
+        return recent[(int) ((completed - 1 - i) % KEEP)];
+    }
+
+    // oldest sample any open clip still needs (Long.MAX_VALUE: none)
+    public long pinnedSeq() {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < openCount; i++) min = Math.min(min, open[i].startSeq);
+        return min;
+    }
+
+    // ====== episode edges (from evaluate(), after the current sample is in the ring) ======
+
+    // returns the oldest open clip if MAX_OPEN were in flight (completed early to make room)
+    public Clip onset(long nowNanos, int preSec) {
+        Clip evicted = null;
+        if (openCount == MAX_OPEN) {
+            evicted = open[0];
+            complete(0);
+        }
+        int from = store.lowerBound(nowNanos - preSec * 1_000_000_000L);
+        long startSeq = store.firstSeq() + from;
+        long endSeq = store.endSeq();
+        long startTs = (from < store.size()) ? store.tsAt(from) : nowNanos;
+        Clip c = new Clip(store, startSeq, startTs, nowNanos, (int) Math.max(0, endSeq - 1 - startSeq));
+        c.endSeq = endSeq;
+        c.endTs = store.isEmpty() ? nowNanos : store.newestTs();
+        open[openCount++] = c;
+        episode = c;
+        latest = c;
+        return evicted;
+    }
+
+    // returns the clip if it completed right away (postSec == 0)
+    public Clip offset(long nowNanos, int postSec) {
+        Clip c = episode;
+        if (c == null) return null;
+        episode = null;
+        c.offsetTs = nowNanos;
+        c.episodeSamples = c.size() - c.preSamples;
+        c.postUntil = nowNanos + postSec * 1_000_000_000L;
+        if (postSec > 0) return null;
+        for (int i = 0; i < openCount; i++) {
+            if (open[i] == c) complete(i);
+        }
+        return c;
+    }
+
+    // ====== per sample ======
+
+    // After each ring append: extends the open clips; returns one clip whose post window
+    // finished with this sample (others, if any, on the next call), else null.
+    public Clip sample(long tsNanos) {
+        if (openCount == 0) return null;
+        long end = store.endSeq();
+        Clip done = null;
+        for (int i = 0; i < openCount; i++) {
+            Clip c = open[i];
+            c.endSeq = end;
+            c.endTs = tsNanos;
+            if (done == null && tsNanos >= c.postUntil) done = c;
+        }
+        if (done != null) {
+            for (int i = 0; i < openCount; i++) {
+                if (open[i] == done) complete(i);
+            }
+        }
+        return done;
+    }
+
+    public void clear() {
+        for (int i = 0; i < openCount; i++) open[i] = null;
+        openCount = 0;
+        episode = null;
+        latest = null;
+    }
+
+    private void complete(int i) {
+        Clip c = open[i];
+        c.complete = true;
+        if (c == episode) episode = null;
+        System.arraycopy(open, i + 1, open, i, openCount - i - 1);
+        open[--openCount] = null;
+        recent[(int) (completed % KEEP)] = c;
+        completed++;
+    }
+}
@@ -0,0 +1,85 @@
+package ecg;
+
+// Point reduction for charts, so a series never reaches the scene graph with more points than
+// the plot has pixels to show them (x ascending, primitive arrays in, chosen indices out):
+//   lttb()    Largest-Triangle-Three-Buckets: keeps the visual shape of a line with ~threshold
+//             points (first and last always kept)
+//   extreme() one point per pixel column, the min or max of that column: the lower/upper
+//             edge of a min-max envelope, so spikes LTTB may drop are still drawn
+// O(n), no allocation; callers keep the idx arrays between updates.
+public final class Decimator {
+
+    private Decimator() {}
+
+    // Indices of at most `threshold` (>= 3) points of (x, y)[0..n) into idx; returns the count.
+    // Returns all n indices when n <= threshold.
+    public static int lttb(double[] x, double[] y, int n, int threshold, int[] idx) {
+        if (threshold < 3) throw new IllegalArgumentException("threshold must be >= 3: " + threshold);
+        if (n <= threshold) {
+            for (int i = 0; i < n; i++) idx[i] = i;
+            return n;
+        }
+
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+        int out = 0;
+        idx[out++] = 0;
+        for (int b = 0; b < threshold - 2; b++) {
+            // average of the next bucket (the third triangle corner)
+            int nextStart = (int) ((b + 1) * every) + 1;
+            int nextEnd = Math.min((int) ((b + 2) * every) + 1, n);
+            double avgX = 0, avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += x[i];
+                avgY += y[i];
+            }
+            int len = nextEnd - nextStart;
+            avgX /= len;
+            avgY /= len;
+
+            // point of this bucket forming the largest triangle with the last kept point
+            int start = (int) (b * every) + 1;
+            int end = (int) ((b + 1) * every) + 1;
+            double ax = x[a], ay = y[a];
+            double best = -1;
+            int pick = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((ax - avgX) * (y[i] - ay) - (ax - x[i]) * (avgY - ay));
+                if (area > best) {
+                    best = area;
+                    pick = i;
+                }
+            }
+            idx[out++] = pick;
+            a = pick;
+        }
+        idx[out++] = n - 1;
+        return out;
+    }
+
+    // For each of `columns` equal x-ranges over [x[0], x[n-1]], the index of the largest
+    // (takeMax) or smallest y in it; empty columns are skipped. Returns the count.
+    public static int extreme(double[] x, double[] y, int n, int columns, boolean takeMax, int[] idx) {
+        if (columns < 1) throw new IllegalArgumentException("columns must be >= 1: " + columns);
+        if (n <= columns) {
+            for (int i = 0; i < n; i++) idx[i] = i;
+            return n;
+        }
+        double x0 = x[0], span = x[n - 1] - x0;
+        double scale = (span > 0) ? columns / span : 0;
+
+        int out = 0;
+        int col = -1;
+        for (int i = 0; i < n; i++) {
+            int c = Math.min(columns - 1, (int) ((x[i] - x0) * scale));
+            if (c != col) {
+                col = c;
+                idx[out++] = i;
+            } else {
+                int cur = idx[out - 1];
+                if (takeMax ? y[i] > y[cur] : y[i] < y[cur]) idx[out - 1] = i;
+            }
+        }
+        return out;
+    }
+}
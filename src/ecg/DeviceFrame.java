@@ -0,0 +1,83 @@
+package ecg;
+
+import java.nio.ByteBuffer;
+
+// Wire format between wearables (or DeviceSimulator) and IngestServer: a byte stream of
+// fixed-header frames, big-endian (ByteBuffer default).
+//
+//   off  size
+//    0    2   magic 0xEC61
+//    2    1   type (HELLO / RR / SAMPLES)
+//    3    1   version (1)
+//    4    4   device id
+//    8    4   seq (per device, +1 per frame; gaps = frames lost before the socket)
+//   12    8   ts (epoch-nanos, device clock)
+//   20    2   payload length (bytes)
+//   22    2   reserved
+//   24    ..  payload
+//
+//   HELLO    u16 sampleHz (0 = no raw samples)         first frame of every connection
+//   RR       u16 hr (bpm), u16 rr (ms)                 one per detected beat
+//   SAMPLES  i16 x n, raw lead-0 samples in uV         ts = first sample
+//
+// Readers decode in place with absolute gets (no frame objects); writers use put*() into a
+// reused buffer.
+public final class DeviceFrame {
+
+    public static final short MAGIC = (short) 0xEC61;
+    public static final byte VERSION = 1;
+    public static final int HEADER = 24;
+    public static final int MAX_PAYLOAD = 8192;
+
+    public static final byte HELLO = 1, RR = 2, SAMPLES = 3;
+
+    static final int OFF_TYPE = 2, OFF_VERSION = 3, OFF_DEVICE = 4, OFF_SEQ = 8, OFF_TS = 12, OFF_LEN = 20;
+
+    private DeviceFrame() {}
+
+    // ====== read (absolute, frame starts at `at`) ======
+
+    public static boolean validMagic(ByteBuffer b, int at) { return b.getShort(at) == MAGIC; }
+    public static int type(ByteBuffer b, int at) { return b.get(at + OFF_TYPE); }
+    public static int version(ByteBuffer b, int at) { return b.get(at + OFF_VERSION); }
+    public static int deviceId(ByteBuffer b, int at) { return b.getInt(at + OFF_DEVICE); }
+    public static int seq(ByteBuffer b, int at) { return b.getInt(at + OFF_SEQ); }
+    public static long tsNanos(ByteBuffer b, int at) { return b.getLong(at + OFF_TS); }
+    public static int payloadLength(ByteBuffer b, int at) { return b.getShort(at + OFF_LEN) & 0xFFFF; }
+
+    public static int payload(int at) { return at + HEADER; }
+
+    // ====== write (relative, at the buffer position) ======
+
+    public static void putHello(ByteBuffer b, int deviceId, int seq, long tsNanos, int sampleHz) {
+        putHeader(b, HELLO, deviceId, seq, tsNanos, 2);
+        b.putShort((short) sampleHz);
+    }
+
+    public static void putRr(ByteBuffer b, int deviceId, int seq, long tsNanos, int hr, int rr) {
+        putHeader(b, RR, deviceId, seq, tsNanos, 4);
+        b.putShort((short) hr);
+        b.putShort((short) rr);
+    }
+
+    // n samples (mV) quantized to uV
+    public static void putSamples(ByteBuffer b, int deviceId, int seq, long tsNanos, float[] mv, int off, int n) {
+        if (n * 2 > MAX_PAYLOAD) throw new IllegalArgumentException("too many samples for one frame: " + n);
+        putHeader(b, SAMPLES, deviceId, seq, tsNanos, n * 2);
+        for (int i = 0; i < n; i++) {
+            float uv = mv[off + i] * 1000f;
+            b.putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(uv))));
+        }
+    }
+
+    private static void putHeader(ByteBuffer b, byte type, int deviceId, int seq, long tsNanos, int len) {
+        b.putShort(MAGIC);
+        b.put(type);
+        b.put(VERSION);
+        b.putInt(deviceId);
+        b.putInt(seq);
+        b.putLong(tsNanos);
+        b.putShort((short) len);
+        b.putShort((short) 0);
+    }
+}
@@ -0,0 +1,292 @@
+package ecg;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Load generator for IngestServer: N simulated wearables, each with its own TCP connection,
+// EcgSynth rhythm and DeviceFrame stream (HELLO, an RR frame per beat, a SAMPLES frame per
+// block of raw samples).
+//
+// - Devices are spread over a few worker threads; each device sends on an absolute block
+//   timeline (blockMillis) plus up to jitterMillis of random delay, so jitter never drifts.
+// - lossRate drops frames before the socket (seq still advances, the server sees the gap).
+// - reconnectsPerMinute closes and reopens a device's connection at random (new HELLO).
+// Timestamps are epoch-nanos from the device's sample clock. Deterministic rhythms per seed.
+//
+//   ./gradlew run -PmainClass=ecg.DeviceSimulator --args="localhost 7070 500 250 40 5 0.01 1"
+public final class DeviceSimulator {
+
+    private final InetSocketAddress target;
+    private final int devices;
+    private final int sampleHz;         // synth rate; raw samples are only sent if rawSamples
+    private final boolean rawSamples;
+    private final int blockMillis;
+    private final long seed;
+
+    private volatile long jitterMillis = 0;
+    private volatile double lossRate = 0;
+    private volatile double reconnectsPerMinute = 0;
+
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong framesLost = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private final AtomicLong connectFailures = new AtomicLong();
+
+    private volatile boolean running = false;
+    private Thread[] workers = new Thread[0];
+
+    public DeviceSimulator(InetSocketAddress target, int devices, int sampleHz, boolean rawSamples, int blockMillis, long seed) {
+        if (devices <= 0) throw new IllegalArgumentException("devices must be > 0: " + devices);
+        if (sampleHz <= 0) throw new IllegalArgumentException("sampleHz must be > 0: " + sampleHz);
+        if (blockMillis <= 0) throw new IllegalArgumentException("blockMillis must be > 0: " + blockMillis);
+        if ((long) sampleHz * blockMillis / 1000 * 2 > DeviceFrame.MAX_PAYLOAD) {
+            throw new IllegalArgumentException("block too large for one frame: " + blockMillis + " ms");
+        }
+        this.target = target;
+        this.devices = devices;
+        this.sampleHz = sampleHz;
+        this.rawSamples = rawSamples;
+        this.blockMillis = blockMillis;
+        this.seed = seed;
+    }
+
+    public void setJitterMillis(long v) { jitterMillis = Math.max(0, v); }
+
+    public void setLossRate(double p) {
+        if (p < 0 || p > 1) throw new IllegalArgumentException("loss rate must be in [0, 1]: " + p);
+        lossRate = p;
+    }
+
+    public void setReconnectsPerMinute(double v) { reconnectsPerMinute = Math.max(0, v); }
+
+    public long framesSent() { return framesSent.get(); }
+    public long bytesSent() { return bytesSent.get(); }
+    public long framesLost() { return framesLost.get(); }
+    public long reconnects() { return reconnects.get(); }
+    public long connectFailures() { return connectFailures.get(); }
+
+    // ====== lifecycle ======
+
+    public synchronized void start(int threads) {
+        if (running) return;
+        running = true;
+        int n = Math.max(1, Math.min(threads, devices));
+        long epoch0 = System.currentTimeMillis() * 1_000_000L;
+        long nano0 = System.nanoTime();
+        SplittableRandom master = new SplittableRandom(seed);
+        workers = new Thread[n];
+        for (int w = 0; w < n; w++) {
+            int count = devices / n + (w < devices % n ? 1 : 0);
+            Device[] ds = new Device[count];
+            for (int i = 0; i < count; i++) ds[i] = new Device(w + i * n, master.split(), epoch0, nano0);
+            Thread t = new Thread(() -> run(ds), "device-sim-" + w);
+            t.setDaemon(true);
+            workers[w] = t;
+            t.start();
+        }
+    }
+
+    public void stop() {
+        Thread[] ws;
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+            ws = workers;
+        }
+        for (Thread t : ws) {
+            LockSupport.unpark(t);
+            try {
+                t.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void run(Device[] ds) {
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                long next = Long.MAX_VALUE;
+                for (Device d : ds) {
+                    if (d.dueNanos <= now) d.step();
+                    next = Math.min(next, d.dueNanos);
+                }
+                long wait = next - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+            }
+        } finally {
+            for (Device d : ds) d.disconnect();
+        }
+    }
+
+    // ====== one wearable (its worker thread only) ======
+
+    private final class Device implements EcgSynth.BeatListener {
+        final int id;
+        final EcgSynth synth;
+        final SplittableRandom rng;
+        final float[][] block;
+        final ByteBuffer out = ByteBuffer.allocate(2 * DeviceFrame.MAX_PAYLOAD);
+        final long epoch0, nano0, blockNanos;
+
+        SocketChannel ch = null;
+        int seq = 0;
+        long blocks = 0;
+        long dueNanos;
+        long lastR = -1;
+        int pending = 0;        // frames in `out`
+
+        Device(int id, SplittableRandom rng, long epoch0, long nano0) {
+            this.id = id;
+            this.rng = rng;
+            this.synth = new EcgSynth(sampleHz, rng.nextLong());
+            synth.setBpm(55 + rng.nextInt(50));
+            synth.setBeatListener(this);
+            this.block = new float[1][sampleHz * blockMillis / 1000 + 1];
+            this.epoch0 = epoch0;
+            this.nano0 = nano0;
+            this.blockNanos = blockMillis * 1_000_000L;
+            this.dueNanos = nano0 + rng.nextLong(blockNanos);    // spread the first sends
+        }
+
+        long sampleTs(long sample) {
+            return epoch0 + sample * 1_000_000_000L / sampleHz;
+        }
+
+        void step() {
+            blocks++;
+            long j = jitterMillis;
+            dueNanos = nano0 + blocks * blockNanos + (j > 0 ? rng.nextLong(j * 1_000_000L) : 0);
+
+            if (ch == null) {
+                connect();
+            } else {
+                double rpm = reconnectsPerMinute;
+                if (rpm > 0 && rng.nextDouble() < rpm * blockMillis / 60_000.0) {
+                    disconnect();
+                    reconnects.incrementAndGet();
+                    connect();
+                }
+            }
+
+            // the wearable keeps sampling while offline; onBeat() appends RR frames while filling
+            long first = synth.samples();
+            int n = (int) Math.min(block[0].length, blocks * sampleHz * blockMillis / 1000 - first);
+            if (n > 0) {
+                synth.fill(block, n);
+                if (rawSamples) frame(DeviceFrame.SAMPLES, sampleTs(first), 0, 0, n);
+            }
+            send();
+        }
+
+        @Override
+        public void onBeat(long rPeakSample, boolean ectopic) {
+            if (lastR >= 0) {
+                int rr = (int) ((rPeakSample - lastR) * 1000 / sampleHz);
+                frame(DeviceFrame.RR, sampleTs(rPeakSample), (int) Math.round(60000.0 / rr), rr, 0);
+            }
+            lastR = rPeakSample;
+        }
+
+        // appends one frame to `out`, or drops it (lossRate) after taking its seq
+        private void frame(byte type, long ts, int hr, int rr, int samples) {
+            int s = seq++;
+            double loss = lossRate;
+            if (loss > 0 && rng.nextDouble() < loss) {
+                framesLost.incrementAndGet();
+                return;
+            }
+            if (type == DeviceFrame.RR) DeviceFrame.putRr(out, id, s, ts, hr, rr);
+            else DeviceFrame.putSamples(out, id, s, ts, block[0], 0, samples);
+            pending++;
+        }
+
+        // a failed connect is retried on the next block
+        private void connect() {
+            try {
+                SocketChannel c = SocketChannel.open();
+                c.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                c.connect(target);
+                ch = c;
+            } catch (IOException e) {
+                connectFailures.incrementAndGet();
+                return;
+            }
+            DeviceFrame.putHello(out, id, seq++, sampleTs(synth.samples()), rawSamples ? sampleHz : 0);
+            pending++;
+        }
+
+        // frames produced while offline are gone (the next HELLO restarts the server's seq check)
+        private void send() {
+            out.flip();
+            if (ch != null) {
+                try {
+                    int n = out.remaining();
+                    while (out.hasRemaining()) ch.write(out);
+                    bytesSent.addAndGet(n);
+                    framesSent.addAndGet(pending);
+                } catch (IOException e) {
+                    disconnect();
+                }
+            }
+            out.clear();
+            pending = 0;
+        }
+
+        void disconnect() {
+            SocketChannel c = ch;
+            ch = null;
+            if (c == null) return;
+            try {
+                c.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    // ====== CLI ======
+
+    // host port devices [sampleHz blockMs jitterMs lossRate reconnectsPerMin threads seconds]
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 3) {
+            System.err.println("usage: DeviceSimulator host port devices [sampleHz=250 blockMs=40 jitterMs=0 "
+                    + "loss=0 reconnectsPerMin=0 threads=4 seconds=0(forever)]");
+            System.exit(2);
+        }
+        InetSocketAddress target = new InetSocketAddress(args[0], Integer.parseInt(args[1]));
+        int devices = Integer.parseInt(args[2]);
+        int hz = arg(args, 3, 250);
+        int blockMs = arg(args, 4, 40);
+        DeviceSimulator sim = new DeviceSimulator(target, devices, hz, true, blockMs, 42);
+        sim.setJitterMillis(arg(args, 5, 0));
+        sim.setLossRate(args.length > 6 ? Double.parseDouble(args[6]) : 0);
+        sim.setReconnectsPerMinute(args.length > 7 ? Double.parseDouble(args[7]) : 0);
+        int threads = arg(args, 8, 4);
+        int seconds = arg(args, 9, 0);
+
+        sim.start(threads);
+        long lastFrames = 0, lastBytes = 0;
+        for (int s = 0; seconds == 0 || s < seconds; s += 5) {
+            Thread.sleep(5000);
+            long f = sim.framesSent(), b = sim.bytesSent();
+            System.out.printf("%d devices: %.0f frames/s, %.1f KB/s, lost %d, reconnects %d, connect failures %d%n",
+                    devices, (f - lastFrames) / 5.0, (b - lastBytes) / 5120.0, sim.framesLost(), sim.reconnects(),
+                    sim.connectFailures());
+            lastFrames = f;
+            lastBytes = b;
+        }
+        sim.stop();
+    }
+
+    private static int arg(String[] args, int i, int def) {
+        return args.length > i ? Integer.parseInt(args[i]) : def;
+    }
+}
@@ -0,0 +1,92 @@
+package ecg;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Time source for the acquisition loops: a monotonic nanosecond counter for pacing plus
+// epoch-nanos on that same base (anchored to the wall clock once), so timestamps never jump
+// when NTP adjusts the system time. Everything downstream stores these as plain longs and
+// formats them (TsFormat) only when a row is shown or exported.
+//
+// Injectable: AcquisitionEngine, MonitorScheduler and RecordingReplayer take one.
+//   system()       : real time
+//   scaled(speed)  : real time running speed x faster (accelerated demo / replay)
+//   Manual         : only moves when told to; parkNanos() advances it instead of sleeping, so
+//                    a single-threaded loop runs as fast as possible with exact timestamps
+//                    (Headless --fast: the virtual time of the batch run)
+public interface EcgClock {
+
+    long nanoTime();
+
+    long epochNanos();
+
+    // waits nanos of this clock's time (may return early, like LockSupport.parkNanos)
+    default void parkNanos(long nanos) {
+        LockSupport.parkNanos(nanos);
+    }
+
+    static EcgClock system() { return Anchored.SYSTEM; }
+
+    static EcgClock scaled(double speed) {
+        if (!(speed > 0)) throw new IllegalArgumentException("speed must be > 0: " + speed);
+        return new Anchored(speed);
+    }
+
+    final class Anchored implements EcgClock {
+        static final Anchored SYSTEM = new Anchored(1);
+
+        private final long anchorNanoTime;
+        private final long anchorEpochNanos;
+        private final double speed;
+
+        private Anchored(double speed) {
+            this.speed = speed;
+            Instant now = Instant.now();
+            this.anchorNanoTime = System.nanoTime();
+            this.anchorEpochNanos = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+        }
+
+        @Override
+        public long nanoTime() {
+            long t = System.nanoTime();
+            return (speed == 1) ? t : anchorNanoTime + (long) ((t - anchorNanoTime) * speed);
+        }
+
+        @Override
+        public long epochNanos() {
+            return anchorEpochNanos + (nanoTime() - anchorNanoTime);
+        }
+
+        @Override
+        public void parkNanos(long nanos) {
+            LockSupport.parkNanos((speed == 1) ? nanos : (long) (nanos / speed));
+        }
+    }
+
+    final class Manual implements EcgClock {
+        private final long epochAtZero;
+        private final AtomicLong nanos = new AtomicLong();
+
+        // nanoTime() starts at 0, epochNanos() at startEpochNanos
+        public Manual(long startEpochNanos) {
+            this.epochAtZero = startEpochNanos;
+        }
+
+        @Override
+        public long nanoTime() { return nanos.get(); }
+
+        @Override
+        public long epochNanos() { return epochAtZero + nanos.get(); }
+
+        @Override
+        public void parkNanos(long n) {
+            if (n > 0) nanos.addAndGet(n);
+        }
+
+        public void advance(long n) {
+            if (n < 0) throw new IllegalArgumentException("clock can't go back: " + n);
+            nanos.addAndGet(n);
+        }
+    }
+}
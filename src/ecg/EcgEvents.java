@@ -0,0 +1,90 @@
+package ecg;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Custom Flight Recorder events, committed by Metrics. Record with e.g.
+//   -XX:StartFlightRecording=filename=ecg.jfr,settings=profile
+// and look under "ECG" in JMC (or `jfr print --events ecg.* ecg.jfr`).
+public final class EcgEvents {
+
+    private EcgEvents() {}
+
+    @Name("ecg.AlertLatency")
+    @Label("Alert Latency")
+    @Description("Sample timestamp to alert side-effect done (beep, BLE warning, call)")
+    @Category("ECG")
+    @StackTrace(false)
+    public static final class AlertLatency extends Event {
+        @Label("Alert")
+        String alert;
+
+        @Label("Latency")
+        @Timespan
+        long latency;
+    }
+
+    @Name("ecg.SlowTick")
+    @Label("Slow Tick")
+    @Description("A monitor sample that took longer than Metrics.SLOW_TICK_NANOS")
+    @Category("ECG")
+    @StackTrace(false)
+    public static final class SlowTick extends Event {
+        @Label("Monitor")
+        int monitor;
+
+        @Label("Tick Time")
+        @Timespan
+        long tickTime;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+    }
+
+    @Name("ecg.StageStats")
+    @Label("Stage Stats")
+    @Description("Per-stage histogram summary of the last period")
+    @Category("ECG")
+    @Period("1 s")
+    @StackTrace(false)
+    public static final class StageStats extends Event {
+        @Label("Stage")
+        String stage;
+
+        @Label("Unit")
+        String unit;
+
+        @Label("Count")
+        long count;
+
+        @Label("p50")
+        long p50;
+
+        @Label("p99")
+        long p99;
+
+        @Label("Max")
+        long max;
+    }
+
+    @Name("ecg.QueueDepth")
+    @Label("Queue Depth")
+    @Category("ECG")
+    @Period("1 s")
+    @StackTrace(false)
+    public static final class QueueDepth extends Event {
+        @Label("Queue")
+        String queue;
+
+        @Label("Depth")
+        long depth;
+    }
+}
@@ -0,0 +1,391 @@
+package ecg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CancellationException;
+
+// Streaming CSV / JSON export of config + event log + optional sample history (+ the latest
+// abnormal clip, written as a slice of that history).
+//
+// Built for day-long recordings (1.7M samples @ 20Hz), so nothing here is per-row garbage:
+// - rows are encoded straight into one reusable 64KB byte buffer, flushed through a FileChannel
+// - numbers are written digit by digit, timestamps come from TsFormat's per-second byte cache
+// - log messages are formatted into one reused StringBuilder and UTF-8 encoded + escaped in place
+// The output goes to "<file>.part" and is moved over the target only when complete, so a cancelled
+// or failed export never leaves a half-written file behind.
+//
+// UI-free and single-threaded: call it from a background task, report through Progress.
+public final class EcgExporter {
+
+    public enum Format { CSV, JSON }
+
+    // Polled every PROGRESS_EVERY rows from the exporting thread.
+    public interface Progress {
+        boolean isCancelled();
+        void update(long done, long total);
+    }
+
+    public static final Progress NO_PROGRESS = new Progress() {
+        @Override public boolean isCancelled() { return false; }
+        @Override public void update(long done, long total) {}
+    };
+
+    // Everything an export needs, captured up front so the monitor keeps running meanwhile.
+    public static final class Snapshot {
+        final String exportedAt;
+        final int lowBpm, highBpm, preSec, postSec, rrMs, hrBpm;
+        final EventLog log;
+        final long logFrom, logTo;      // seq range [from, to), exported newest first
+        final EcgRingBuffer samples;    // may be null
+        final int clipFrom, clipTo;     // latest abnormal clip as a [from, to) slice of samples
+
+        private Snapshot(String exportedAt, PatientMonitor m, EventLog log, EcgRingBuffer samples) {
+            this.exportedAt = exportedAt;
+            this.lowBpm = m.lowBpm();
+            this.highBpm = m.highBpm();
+            this.preSec = m.preWindowSec();
+            this.postSec = m.postWindowSec();
+            this.rrMs = m.rrMs();
+            this.hrBpm = m.hrBpm();
+            this.log = log;
+            this.logTo = log.claimed();
+            this.logFrom = Math.max(0, logTo - log.capacity());
+            this.samples = samples;
+            ClipRecorder.Clip c = m.latestClip();
+            if (c == null || samples == null) {
+                this.clipFrom = this.clipTo = 0;
+            } else {
+                this.clipFrom = c.fromIndex(samples);
+                this.clipTo = c.toIndex(samples);
+            }
+        }
+
+        // samples: a private copy of the history to include (see PatientMonitor.copyRing), or null
+        public static Snapshot of(String exportedAt, PatientMonitor m, EventLog log, EcgRingBuffer samples) {
+            return new Snapshot(exportedAt, m, log, samples);
+        }
+
+        long rows() {
+            return (logTo - logFrom) + clipSize() + (samples != null ? samples.size() : 0);
+        }
+
+        int clipSize() { return clipTo - clipFrom; }
+    }
+
+    private static final int BUF_SIZE = 1 << 16;
+    private static final int PROGRESS_EVERY = 4096;
+
+    private final byte[] buf = new byte[BUF_SIZE];
+    private final ByteBuffer out = ByteBuffer.wrap(buf);
+    private final TsFormat tsFormat;
+    private final StringBuilder msg = new StringBuilder(128);
+
+    private FileChannel ch;
+    private int pos;
+    private Progress progress;
+    private long done, total;
+
+    public EcgExporter() {
+        this(new TsFormat());
+    }
+
+    public EcgExporter(TsFormat tsFormat) {
+        this.tsFormat = tsFormat;
+    }
+
+    // Writes snap to target; throws CancellationException (target untouched) when cancelled.
+    public void export(Snapshot snap, Format format, Path target, Progress p) throws IOException {
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        progress = (p != null) ? p : NO_PROGRESS;
+        done = 0;
+        total = snap.rows();
+        pos = 0;
+        boolean ok = false;
+        try (FileChannel fc = FileChannel.open(part, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ch = fc;
+            if (format == Format.CSV) writeCsv(snap);
+            else writeJson(snap);
+            flush();
+            progress.update(total, total);
+            ok = true;
+        } catch (ClosedByInterruptException e) {
+            // Future.cancel(true) interrupted a channel write
+            throw new CancellationException("export cancelled");
+        } finally {
+            ch = null;
+            if (!ok) Files.deleteIfExists(part);
+        }
+        try {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // ====== CSV (same layout as the old BufferedWriter export) ======
+
+    private static final byte[] CSV_LOGS = ascii("\nLOGS\nts,type,msg\n");
+    private static final byte[] CSV_CLIP = ascii("\nABNORMAL_CLIP_SUMMARY_SAMPLES\nts,rr_ms,hr_bpm\n");
+    private static final byte[] CSV_SAMPLES = ascii("\nSAMPLES\nts,rr_ms,hr_bpm\n");
+
+    private void writeCsv(Snapshot s) throws IOException {
+        raw("exported_at,");
+        text(s.exportedAt, false, false);
+        raw("\nthreshold_low_bpm,");
+        num(s.lowBpm);
+        raw("\nthreshold_high_bpm,");
+        num(s.highBpm);
+        raw("\nevent_pre_sec,");
+        num(s.preSec);
+        raw("\nevent_post_sec,");
+        num(s.postSec);
+        raw("\nlatest_rr_ms,");
+        num(s.rrMs);
+        raw("\nlatest_hr_bpm,");
+        num(s.hrBpm);
+        raw("\nabnormal_clip_samples,");
+        num(s.clipSize());
+        put((byte) '\n');
+
+        raw(CSV_LOGS);
+        EventLog log = s.log;
+        for (long seq = s.logTo - 1; seq >= s.logFrom; seq--) {
+            step();
+            long ts = log.tsNanos(seq);
+            LogType t = log.type(seq);
+            msg.setLength(0);
+            if (ts < 0 || t == null || !log.formatMessage(seq, msg) || !log.contains(seq)) continue;
+            put((byte) '"');
+            ts(ts);
+            raw("\",\"");
+            raw(t.name());
+            raw("\",");
+            text(msg, true, false);
+            put((byte) '\n');
+        }
+
+        raw(CSV_CLIP);
+        if (s.samples != null) {
+            csvSamples(s.samples, s.clipFrom, s.clipTo);
+            raw(CSV_SAMPLES);
+            csvSamples(s.samples, 0, s.samples.size());
+        }
+    }
+
+    private void csvSamples(EcgRingBuffer r, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            step();
+            put((byte) '"');
+            ts(r.tsAt(i));
+            raw("\",");
+            num(r.rrAt(i));
+            put((byte) ',');
+            num(r.hrAt(i));
+            put((byte) '\n');
+        }
+    }
+
+    // ====== JSON ======
+
+    private void writeJson(Snapshot s) throws IOException {
+        raw("{\n  \"exportedAt\": ");
+        text(s.exportedAt, true, true);
+        raw(",\n  \"thresholds\": {\"lowBpm\": ");
+        num(s.lowBpm);
+        raw(", \"highBpm\": ");
+        num(s.highBpm);
+        raw("},\n  \"latest\": {\"rrMs\": ");
+        num(s.rrMs);
+        raw(", \"hrBpm\": ");
+        num(s.hrBpm);
+        raw("},\n  \"eventWindow\": {\"preSec\": ");
+        num(s.preSec);
+        raw(", \"postSec\": ");
+        num(s.postSec);
+        raw("},\n  \"abnormalClipSamples\": ");
+        num(s.clipSize());
+
+        raw(",\n  \"logs\": [");
+        EventLog log = s.log;
+        boolean first = true;
+        for (long seq = s.logTo - 1; seq >= s.logFrom; seq--) {
+            step();
+            long ts = log.tsNanos(seq);
+            LogType t = log.type(seq);
+            msg.setLength(0);
+            if (ts < 0 || t == null || !log.formatMessage(seq, msg) || !log.contains(seq)) continue;
+            raw(first ? "\n    {\"ts\":\"" : ",\n    {\"ts\":\"");
+            first = false;
+            ts(ts);
+            raw("\",\"type\":\"");
+            raw(t.name());
+            raw("\",\"msg\":");
+            text(msg, true, true);
+            put((byte) '}');
+        }
+        raw(first ? "]" : "\n  ]");
+
+        raw(",\n  \"abnormalClip\": ");
+        if (s.samples != null) {
+            jsonSamples(s.samples, s.clipFrom, s.clipTo);
+            raw(",\n  \"samples\": ");
+            jsonSamples(s.samples, 0, s.samples.size());
+        } else {
+            raw("[]");
+        }
+        raw("\n}\n");
+    }
+
+    private void jsonSamples(EcgRingBuffer r, int from, int to) throws IOException {
+        put((byte) '[');
+        for (int i = from; i < to; i++) {
+            step();
+            raw(i == from ? "\n    {\"ts\":\"" : ",\n    {\"ts\":\"");
+            ts(r.tsAt(i));
+            raw("\",\"rrMs\":");
+            num(r.rrAt(i));
+            raw(",\"hrBpm\":");
+            num(r.hrAt(i));
+            put((byte) '}');
+        }
+        raw(from == to ? "]" : "\n  ]");
+    }
+
+    // ====== progress ======
+
+    private void step() {
+        if ((++done & (PROGRESS_EVERY - 1)) != 0) return;
+        if (progress.isCancelled() || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("export cancelled");
+        }
+        progress.update(done, total);
+    }
+
+    // ====== encoding ======
+
+    private void ensure(int n) throws IOException {
+        if (BUF_SIZE - pos < n) flush();
+    }
+
+    private void flush() throws IOException {
+        out.clear().limit(pos);
+        while (out.hasRemaining()) ch.write(out);
+        pos = 0;
+    }
+
+    private void put(byte b) throws IOException {
+        if (pos == BUF_SIZE) flush();
+        buf[pos++] = b;
+    }
+
+    private void raw(byte[] b) throws IOException {
+        ensure(b.length);
+        System.arraycopy(b, 0, buf, pos, b.length);
+        pos += b.length;
+    }
+
+    // ASCII literals/enum names only
+    private void raw(String s) throws IOException {
+        int n = s.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) buf[pos++] = (byte) s.charAt(i);
+    }
+
+    private void ts(long tsNanos) throws IOException {
+        ensure(TsFormat.LENGTH);
+        System.arraycopy(tsFormat.bytes(tsNanos), 0, buf, pos, TsFormat.LENGTH);
+        pos += TsFormat.LENGTH;
+    }
+
+    private void num(long v) throws IOException {
+        ensure(20);
+        if (v < 0) {
+            if (v == Long.MIN_VALUE) {
+                raw(Long.toString(v));
+                return;
+            }
+            buf[pos++] = '-';
+            v = -v;
+        }
+        int start = pos;
+        do {
+            buf[pos++] = (byte) ('0' + (int) (v % 10));
+            v /= 10;
+        } while (v != 0);
+        for (int i = start, j = pos - 1; i < j; i++, j--) {
+            byte tmp = buf[i];
+            buf[i] = buf[j];
+            buf[j] = tmp;
+        }
+    }
+
+    // UTF-8 encodes s; quoted=true wraps it in quotes, json picks JSON vs CSV ("") escaping
+    private void text(CharSequence s, boolean quoted, boolean json) throws IOException {
+        if (s == null) s = "";
+        if (quoted) put((byte) '"');
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            ensure(12);
+            if (c == '"') {
+                buf[pos++] = json ? (byte) '\\' : (byte) '"';
+                buf[pos++] = '"';
+            } else if (json && c == '\\') {
+                buf[pos++] = '\\';
+                buf[pos++] = '\\';
+            } else if (json && c < 0x20) {
+                jsonControl(c);
+            } else if (c < 0x80) {
+                buf[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buf[pos++] = '?'; // lone surrogate: not encodable
+            } else {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        if (quoted) put((byte) '"');
+    }
+
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    private void jsonControl(char c) {
+        buf[pos++] = '\\';
+        switch (c) {
+            case '\n' -> buf[pos++] = 'n';
+            case '\r' -> buf[pos++] = 'r';
+            case '\t' -> buf[pos++] = 't';
+            case '\b' -> buf[pos++] = 'b';
+            case '\f' -> buf[pos++] = 'f';
+            default -> {
+                buf[pos++] = 'u';
+                buf[pos++] = '0';
+                buf[pos++] = '0';
+                buf[pos++] = HEX[c >> 4];
+                buf[pos++] = HEX[c & 0xF];
+            }
+        }
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,61 @@
+package ecg;
+
+// Report text builders shared by EcgTest (clipboard copy) and the benchmarks.
+public final class EcgReport {
+
+    private EcgReport() {}
+
+    // quick "report" text (valid JSON) to copy: config + latest values + 20 newest logs
+    public static String buildJsonLikeText(String exportedAt, PatientMonitor m, EventLog log) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"exportedAt\": ");
+        appendJsonString(sb, exportedAt);
+        sb.append(",\n");
+        sb.append("  \"thresholds\": {\"lowBpm\": ").append(m.lowBpm()).append(", \"highBpm\": ").append(m.highBpm()).append("},\n");
+        sb.append("  \"latest\": {\"rrMs\": ").append(m.rrMs()).append(", \"hrBpm\": ").append(m.hrBpm()).append("},\n");
+        sb.append("  \"eventWindow\": {\"preSec\": ").append(m.preWindowSec()).append(", \"postSec\": ").append(m.postWindowSec()).append("},\n");
+        sb.append("  \"abnormalClipSamples\": ").append(m.clipSize()).append(",\n");
+        sb.append("  \"recentLogs\": [\n");
+        long stop = Math.max(0, log.claimed() - log.capacity());
+        int n = 0;
+        for (long seq = log.claimed() - 1; seq >= stop && n < 20; seq--) {
+            if (!log.contains(seq)) continue; // still being written / already overwritten
+            LogEvent le = new LogEvent(log, seq);
+            if (n++ > 0) sb.append(",\n");
+            sb.append("    {\"ts\":");
+            appendJsonString(sb, le.getTs());
+            sb.append(",\"type\":");
+            appendJsonString(sb, le.getType());
+            sb.append(",\"msg\":");
+            appendJsonString(sb, le.getMsg());
+            sb.append('}');
+        }
+        if (n > 0) sb.append("\n");
+        sb.append("  ]\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    // quoted JSON string literal (RFC 8259 escaping)
+    public static void appendJsonString(StringBuilder sb, CharSequence s) {
+        sb.append('"');
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                case '\b' -> sb.append("\\b");
+                case '\f' -> sb.append("\\f");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,164 @@
+package ecg;
+
+// Fixed-capacity ring of summary samples (epoch-nanos, RR ms, HR bpm).
+//
+// Samples live in three parallel primitive arrays, so appending/trimming never allocates
+// and an hour of 20Hz samples costs ~1.1MB instead of 72k EcgSample + Instant objects.
+// Timestamps are appended in non-decreasing order, which lets range lookups use a binary
+// search over the ts column.
+//
+// Logical index 0 is always the oldest sample, size()-1 the newest. Every appended sample
+// also gets a sequence number (0, 1, 2, ... over the buffer's life, never reused), so a range
+// can be referred to across appends/trims: logical index = seq - firstSeq().
+// Not thread-safe: one writer (the stream tick) owns it.
+public final class EcgRingBuffer {
+
+    private final long[] ts;
+    private final int[] rr;
+    private final int[] hr;
+    private final int capacity;
+
+    private int head = 0;   // physical slot of the oldest sample
+    private int size = 0;
+    private long endSeq = 0;    // seq of the next append
+
+    public EcgRingBuffer(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0: " + capacity);
+        this.capacity = capacity;
+        this.ts = new long[capacity];
+        this.rr = new int[capacity];
+        this.hr = new int[capacity];
+    }
+
+    public int size() { return size; }
+    public int capacity() { return capacity; }
+    public boolean isEmpty() { return size == 0; }
+
+    // seq of logical index 0 / one past the newest sample
+    public long firstSeq() { return endSeq - size; }
+    public long endSeq() { return endSeq; }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    // ====== write ======
+
+    // O(1). When full, the oldest sample is overwritten.
+    public void append(long tsNanos, int rrMs, int hrBpm) {
+        int p;
+        if (size < capacity) {
+            p = phys(size);
+            size++;
+        } else {
+            p = head;
+            head = (head + 1 == capacity) ? 0 : head + 1;
+        }
+        ts[p] = tsNanos;
+        rr[p] = rrMs;
+        hr[p] = hrBpm;
+        endSeq++;
+    }
+
+    // Drops every sample with ts < cutoffNanos, returns how many were dropped.
+    // The common per-tick case (nothing or a single sample expired) is O(1).
+    public int trimBefore(long cutoffNanos) {
+        int n = expired(cutoffNanos);
+        dropOldest(n);
+        return n;
+    }
+
+    // trimBefore(), but never drops samples from keepFromSeq on (e.g. pinned by an open clip)
+    public int trimBefore(long cutoffNanos, long keepFromSeq) {
+        int n = expired(cutoffNanos);
+        if (n == 0) return 0;
+        long pinned = keepFromSeq - firstSeq();
+        if (pinned < n) n = (int) Math.max(0, pinned);
+        dropOldest(n);
+        return n;
+    }
+
+    // samples with ts < cutoffNanos: checks the oldest two before falling back to lowerBound()
+    private int expired(long cutoffNanos) {
+        if (size == 0 || ts[head] >= cutoffNanos) return 0;
+        if (size == 1 || ts[phys(1)] >= cutoffNanos) return 1;
+        return lowerBound(cutoffNanos);
+    }
+
+    public void dropOldest(int n) {
+        if (n <= 0) return;
+        if (n >= size) {
+            clear();
+            return;
+        }
+        head = phys(n);
+        size -= n;
+    }
+
+    // Appends src[from, to) (logical indices) with bulk array copies.
+    // If the range is larger than this buffer, only the newest `capacity` samples are kept.
+    public void appendRange(EcgRingBuffer src, int from, int to) {
+        checkRange(src, from, to);
+        if (to - from > capacity) from = to - capacity;
+
+        int i = from;
+        while (i < to) {
+            int sp = src.phys(i);
+            int dp = (size < capacity) ? phys(size) : head;
+            int n = Math.min(to - i, Math.min(src.capacity - sp, capacity - dp));
+
+            System.arraycopy(src.ts, sp, ts, dp, n);
+            System.arraycopy(src.rr, sp, rr, dp, n);
+            System.arraycopy(src.hr, sp, hr, dp, n);
+
+            int overflow = size + n - capacity;
+            if (overflow > 0) {
+                head = (head + overflow) % capacity;
+                size = capacity;
+            } else {
+                size += n;
+            }
+            endSeq += n;
+            i += n;
+        }
+    }
+
+    // ====== read ======
+
+    public long tsAt(int i) { return ts[phys(checkIndex(i))]; }
+    public int rrAt(int i) { return rr[phys(checkIndex(i))]; }
+    public int hrAt(int i) { return hr[phys(checkIndex(i))]; }
+
+    public long oldestTs() { return tsAt(0); }
+    public long newestTs() { return tsAt(size - 1); }
+
+    // First logical index whose ts >= tsNanos (size() if none).
+    public int lowerBound(long tsNanos) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ts[phys(mid)] < tsNanos) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // ====== internal ======
+
+    private int phys(int i) {
+        int p = head + i;
+        return (p >= capacity) ? p - capacity : p;
+    }
+
+    private int checkIndex(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("index " + i + ", size " + size);
+        return i;
+    }
+
+    private static void checkRange(EcgRingBuffer src, int from, int to) {
+        if (from < 0 || to > src.size || from > to) {
+            throw new IndexOutOfBoundsException("range [" + from + ", " + to + "), size " + src.size);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package ecg;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Deterministic synthetic ECG (mV) for load/detector testing: P-QRS-T beats, baseline wander,
+// noise, premature ventricular beats (with compensatory pause) and AF-like rhythm (no P wave,
+// irregular RR, fibrillatory f-waves). Same seed + same config changes = same samples.
+//
+// Everything expensive is precomputed once per sample rate and shared by all instances:
+//   - beat templates per (kind, 10 ms RR bucket), ST-T shortened with RR, built lazily
+//   - one breathing-rate wander period, one f-wave pattern, one Gaussian noise table
+// so fill() is only straight array copies and multiply-adds over contiguous ranges (loops the
+// JIT can vectorize); the RNG is touched once per beat and once per lead per block.
+// Config setters can be called from any thread and apply from the next beat / block.
+// fill() allocates nothing once its scratch block has grown to the largest n.
+public final class EcgSynth implements WaveformSource {
+
+    // Ground truth for detector tests: called on the fill() thread when a beat is laid out,
+    // with the absolute sample index of its R peak (may lie in a later block).
+    public interface BeatListener {
+        void onBeat(long rPeakSample, boolean ectopic);
+    }
+
+    public static final int MIN_RR_MS = 300;
+    public static final int MAX_RR_MS = 2500;
+
+    private static final int KIND_NORMAL = 0, KIND_NO_P = 1, KIND_PVC = 2;
+
+    // wave centre (s after beat onset), width (s), amplitude (mV) at RR = 1 s
+    private static final double[][] CENTER = {
+            { 0.09, 0.22, 0.25, 0.28, 0.50 },     // P Q R S T
+            { 0.09, 0.22, 0.25, 0.28, 0.50 },     // same without P (amplitude 0)
+            { 0.25, 0.31, 0.48 },                 // PVC: wide R, deep S, inverted T
+    };
+    private static final double[][] WIDTH = {
+            { 0.025, 0.008, 0.010, 0.010, 0.045 },
+            { 0.025, 0.008, 0.010, 0.010, 0.045 },
+            { 0.030, 0.025, 0.060 },
+    };
+    private static final double[][] AMP = {
+            { 0.12, -0.12, 1.10, -0.25, 0.30 },
+            { 0.00, -0.12, 1.10, -0.25, 0.30 },
+            { 1.30, -0.50, -0.35 },
+    };
+    // R sits at the same offset in every template, so R-R equals the laid-out RR exactly;
+    // only the waves after it (S, T) move closer with shorter RR
+    private static final double R_CENTER = 0.25;
+
+    // read from a random offset every block, so 4096 values don't repeat visibly (and the
+    // table costs ~1 ms at class init instead of ~15 ms for 64K)
+    private static final int NOISE_LEN = 1 << 12;
+    private static final float[] NOISE = gaussianTable(NOISE_LEN, 0x5EED_0001L);
+    private static final ConcurrentHashMap<Integer, Tables> TABLES = new ConcurrentHashMap<>();
+
+    private final int sampleHz;
+    private final Tables tables;
+    private final Random rng;
+
+    // ====== CONFIG (any thread) ======
+    private volatile int bpm = 75;
+    private volatile double hrvPercent = 3;       // sinus RR jitter (SD, % of RR)
+    private volatile double ectopicProb = 0;      // chance that the next beat is a PVC
+    private volatile boolean af = false;
+    private volatile double noiseMv = 0.02;       // SD
+    private volatile double wanderMv = 0.08;      // breathing baseline wander amplitude
+    private volatile double fWaveMv = 0.05;       // f-wave amplitude while af
+    private volatile float[] leadGains = { 1f };
+    private volatile BeatListener beatListener = null;
+
+    // ====== STATE (fill thread) ======
+    private float[] beat;           // template of the current beat
+    private int beatLen, pos;       // samples in the current beat window / consumed so far
+    private int nextKind = KIND_NORMAL;
+    private long sample = 0;        // absolute index of the next sample
+    private int wanderPos = 0, fPos = 0;
+    private float[] clean = new float[0];
+
+    public EcgSynth(int sampleHz, long seed) {
+        if (sampleHz < 100 || sampleHz > 2000) throw new IllegalArgumentException("sampleHz must be 100..2000: " + sampleHz);
+        this.sampleHz = sampleHz;
+        this.tables = TABLES.computeIfAbsent(sampleHz, Tables::new);
+        this.rng = new Random(seed);
+    }
+
+    public int sampleHz() { return sampleHz; }
+    public long samples() { return sample; }
+
+    public void setBpm(int v) { bpm = Math.max(60000 / MAX_RR_MS, Math.min(60000 / MIN_RR_MS, v)); }
+    public void setHrvPercent(double v) { hrvPercent = Math.max(0, v); }
+    public void setEctopicProb(double v) { ectopicProb = Math.max(0, Math.min(1, v)); }
+    public void setAf(boolean v) { af = v; }
+    public void setNoiseMv(double v) { noiseMv = Math.max(0, v); }
+    public void setWanderMv(double v) { wanderMv = Math.max(0, v); }
+    public void setFWaveMv(double v) { fWaveMv = Math.max(0, v); }
+    public void setLeadGains(float... g) { leadGains = (g.length == 0) ? new float[] { 1f } : g.clone(); }
+    public void setBeatListener(BeatListener l) { beatListener = l; }
+
+    // ====== generation ======
+
+    @Override
+    public void fill(float[][] out, int n) {
+        if (clean.length < n) clean = new float[n];
+        float[] c = clean;
+
+        // 1) beats: template ranges copied as-is
+        int i = 0;
+        while (i < n) {
+            if (pos == beatLen) nextBeat(sample + i);
+            int seg = Math.min(n - i, beatLen - pos);
+            System.arraycopy(beat, pos, c, i, seg);
+            pos += seg;
+            i += seg;
+        }
+
+        // 2) baseline wander / f-waves: periodic tables
+        float wander = (float) wanderMv;
+        if (wander != 0) wanderPos = addTable(c, n, tables.wander, wanderPos, wander);
+        if (af && fWaveMv != 0) fPos = addTable(c, n, tables.fWave, fPos, (float) fWaveMv);
+        else fPos = (fPos + n) % tables.fWave.length;
+
+        // 3) per lead: gain + independent noise
+        float[] gains = leadGains;
+        float noise = (float) noiseMv;
+        for (int lead = 0; lead < out.length; lead++) {
+            float g = gains[lead % gains.length];
+            float[] o = out[lead];
+            for (int k = 0; k < n; k++) o[k] = c[k] * g;
+            if (noise != 0) addTable(o, n, NOISE, rng.nextInt(NOISE_LEN), noise);
+        }
+        sample += n;
+    }
+
+    private void nextBeat(long beatStart) {
+        int kind = nextKind;
+        boolean irregular = af;
+        nextKind = irregular ? KIND_NO_P
+                : (kind != KIND_PVC && rng.nextDouble() < ectopicProb) ? KIND_PVC : KIND_NORMAL;
+
+        double base = 60.0 / bpm;
+        double rr;
+        if (irregular) {
+            rr = base * (0.55 + 0.9 * rng.nextDouble());            // AF: no RR pattern at all
+        } else if (nextKind == KIND_PVC) {
+            rr = base * 0.65;                                        // premature next beat
+        } else if (kind == KIND_PVC) {
+            rr = base * 1.35;                                        // compensatory pause
+        } else {
+            rr = base * (1 + hrvPercent / 100.0 * rng.nextGaussian());
+        }
+        int rrMs = Math.max(MIN_RR_MS, Math.min(MAX_RR_MS, (int) Math.round(rr * 1000)));
+
+        beat = tables.template(kind, rrMs);
+        beatLen = Math.min(beat.length, (int) ((long) rrMs * sampleHz / 1000));
+        pos = 0;
+
+        BeatListener l = beatListener;
+        if (l != null) l.onBeat(beatStart + tables.rOffset(), kind == KIND_PVC);
+    }
+
+    // dst[0..n) += table[p..] * gain, wrapping; returns the next table position
+    private static int addTable(float[] dst, int n, float[] table, int p, float gain) {
+        int len = table.length;
+        int i = 0;
+        while (i < n) {
+            int seg = Math.min(n - i, len - p);
+            for (int k = 0; k < seg; k++) dst[i + k] += table[p + k] * gain;
+            i += seg;
+            p += seg;
+            if (p == len) p = 0;
+        }
+        return p;
+    }
+
+    // ====== shared tables (per sample rate) ======
+
+    private static final class Tables {
+        private static final int BUCKET_MS = 10;
+        private static final int BUCKETS = (MAX_RR_MS - MIN_RR_MS) / BUCKET_MS + 1;
+
+        final int hz;
+        final float[] wander;   // one 4 s breathing period (0.25 Hz + harmonic), unit amplitude
+        final float[] fWave;    // 4 s of 5.5 + 7.25 Hz f-waves (whole cycles: seamless wrap)
+        private final AtomicReferenceArray<float[]> templates = new AtomicReferenceArray<>(3 * BUCKETS);
+
+        Tables(int hz) {
+            this.hz = hz;
+            int len = 4 * hz;
+            wander = new float[len];
+            fWave = new float[len];
+            for (int i = 0; i < len; i++) {
+                double t = (double) i / hz;
+                wander[i] = (float) (0.85 * Math.sin(2 * Math.PI * 0.25 * t) + 0.15 * Math.sin(2 * Math.PI * 0.5 * t + 1.0));
+                fWave[i] = (float) (0.6 * Math.sin(2 * Math.PI * 5.5 * t)
+                        + 0.4 * Math.sin(2 * Math.PI * 7.25 * t + 0.7) * (0.7 + 0.3 * Math.sin(2 * Math.PI * 0.5 * t)));
+            }
+        }
+
+        static int bucket(int rrMs) {
+            return (Math.max(MIN_RR_MS, Math.min(MAX_RR_MS, rrMs)) - MIN_RR_MS) / BUCKET_MS;
+        }
+
+        // post-R timing scale: QT ~ sqrt(RR), and the T wave must end inside the bucket's shortest RR
+        static double scale(int kind, int rrMs) {
+            double rr = (MIN_RR_MS + bucket(rrMs) * BUCKET_MS) / 1000.0;
+            double s = Math.min(1.0, Math.sqrt(rr));
+            while (s > 0.05 && R_CENTER + postRExtent(kind, s) > 0.95 * rr) s *= 0.95;
+            return s;
+        }
+
+        private static double postRExtent(int kind, double s) {
+            double[] c = CENTER[kind], w = WIDTH[kind];
+            double e = 0;
+            for (int k = 0; k < c.length; k++) {
+                if (c[k] > R_CENTER) e = Math.max(e, (c[k] - R_CENTER) * s + 3 * w[k] * Math.max(s, 0.6));
+            }
+            return e;
+        }
+
+        int rOffset() {
+            return (int) Math.round(R_CENTER * hz);
+        }
+
+        // template long enough for the longest RR of the bucket (baseline-padded)
+        float[] template(int kind, int rrMs) {
+            int b = bucket(rrMs);
+            int idx = kind * BUCKETS + b;
+            float[] t = templates.get(idx);
+            if (t == null) {
+                t = build(kind, scale(kind, rrMs), (MIN_RR_MS + (b + 1) * BUCKET_MS) * hz / 1000);
+                if (!templates.compareAndSet(idx, null, t)) t = templates.get(idx);
+            }
+            return t;
+        }
+
+        private float[] build(int kind, double s, int len) {
+            float[] t = new float[len];
+            double[] c = CENTER[kind], w = WIDTH[kind], a = AMP[kind];
+            for (int i = 0; i < len; i++) {
+                double time = (double) i / hz;
+                double v = 0;
+                for (int k = 0; k < c.length; k++) {
+                    if (a[k] == 0) continue;
+                    boolean post = c[k] > R_CENTER;
+                    double center = post ? R_CENTER + (c[k] - R_CENTER) * s : c[k];
+                    double d = (time - center) / (post ? w[k] * Math.max(s, 0.6) : w[k]);
+                    if (d > -6 && d < 6) v += a[k] * Math.exp(-0.5 * d * d);
+                }
+                t[i] = (float) v;
+            }
+            return t;
+        }
+    }
+
+    private static float[] gaussianTable(int len, long seed) {
+        Random r = new Random(seed);
+        float[] t = new float[len];
+        for (int i = 0; i < len; i++) t[i] = (float) r.nextGaussian();
+        return t;
+    }
+}
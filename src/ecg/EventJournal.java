@@ -0,0 +1,610 @@
+package ecg;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.zip.CRC32C;
+
+// Persistent, crash-safe journal of event-log rows: events-NNNNNN.ejl segments in one directory.
+//
+// Layout (little endian, every segment memory-mapped read-write at its full size):
+//   segment header 32B : magic 'EJRN', version, segment number, reserved
+//   record*            : len, type, source, ts, a, b, c, d, textLen (-1 = none), text (UTF-8),
+//                        zero padding to 4B, CRC32C of everything before it
+// The map starts zero-filled, so a zero len ends a segment.
+//
+// Writing: follow(log, source) registers an EventLog ring (source = patient/monitor id). The
+// "ecg-journal" thread copies new rows into the current segment and forces the written range
+// every COMMIT_MILLIS (group commit: one msync for whatever came in meanwhile), so monitors
+// still only touch their lock-free EventLog. Alert outcomes (BLE_WARNING_TX/_FAIL,
+// ALERT_DROPPED) are EventLog rows as well and get journaled the same way. Copied rows sit in
+// the page cache, so a process crash loses nothing already copied; power loss at most the last
+// commit interval.
+//
+// Recovery: open() walks every segment and stops at the first record with a bad length or CRC
+// (a torn write); the rest of the last segment is zeroed and appends continue from there.
+//
+// Indexes (rebuilt by that walk, in memory, ~16B per record): record id -> position, one
+// posting list per LogType, and per block of 256 records the min ts + running max ts. select()
+// walks the postings of the asked types newest-first, skips blocks outside the time range and
+// stops once the running max falls below it, so "ABNORMAL_START in the last week" only touches
+// the records it returns (plus a block or two).
+//
+// Threads: one writer (the journal thread; append() directly when nothing is followed), any
+// number of readers. Readers see records [0, size()).
+//
+//   ./gradlew run -PmainClass=ecg.EventJournal --args="journal --type ABNORMAL_START --since 7d"
+public final class EventJournal implements Closeable, LogEvent.Source {
+
+    static final int MAGIC = 0x4E524A45;        // "EJRN"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_BYTES = 44;         // without text
+    static final int MAX_TEXT_BYTES = 1024;
+
+    public static final int SEGMENT_BYTES = 8 << 20;    // ~150k int-only records
+    public static final long COMMIT_MILLIS = 100;
+
+    private static final int BLOCK_SHIFT = 8;
+    private static final LogType[] TYPES = LogType.values();
+
+    // Growable primitive column: one writer appends/updates, readers go up to a size they got
+    // from a volatile read that came after the write (same publication as EventLog slots).
+    private static final class LongColumn {
+        private volatile long[] a = new long[1024];
+        private int n = 0;
+
+        void add(long v) {
+            long[] arr = a;
+            if (n == arr.length) a = arr = Arrays.copyOf(arr, n * 2);
+            arr[n++] = v;
+        }
+
+        void set(int i, long v) { a[i] = v; }
+        long get(int i) { return a[i]; }
+        int size() { return n; }   // writer only; readers bound by the journal's size
+    }
+
+    private static final class Followed {
+        final EventLog log;
+        final int source;
+        long cursor = 0;
+
+        Followed(EventLog log, int source) {
+            this.log = log;
+            this.source = source;
+        }
+    }
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final List<FileChannel> channels = new ArrayList<>();
+    private volatile MappedByteBuffer[] maps = new MappedByteBuffer[0];
+
+    // indexes
+    private final LongColumn pos = new LongColumn();          // id -> segment << 32 | offset
+    private final LongColumn blockMinTs = new LongColumn();
+    private final LongColumn blockMaxTs = new LongColumn();   // running max over blocks 0..b
+    private final LongColumn[] byType = new LongColumn[TYPES.length];
+    private final AtomicIntegerArray typeCount = new AtomicIntegerArray(TYPES.length); // postings published
+    private volatile long size = 0;
+
+    // writer
+    private MappedByteBuffer cur;
+    private int curSegment = -1;
+    private int writePos;
+    private int dirtyFrom;
+    private long maxTs = Long.MIN_VALUE;
+    private final CRC32C crc = new CRC32C();
+
+    private final CopyOnWriteArrayList<Followed> followed = new CopyOnWriteArrayList<>();
+    private volatile Thread thread = null;
+    private volatile long lost = 0;
+    private volatile Throwable failure = null;     // why the commit thread stopped
+
+    private EventJournal(Path dir, int segmentBytes) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        for (int t = 0; t < byType.length; t++) byType[t] = new LongColumn();
+    }
+
+    public static EventJournal open(Path dir) throws IOException {
+        return open(dir, SEGMENT_BYTES);
+    }
+
+    public static EventJournal open(Path dir, int segmentBytes) throws IOException {
+        if (segmentBytes < HEADER_BYTES + RECORD_BYTES + MAX_TEXT_BYTES) {
+            throw new IllegalArgumentException("segment too small: " + segmentBytes);
+        }
+        Files.createDirectories(dir);
+        EventJournal j = new EventJournal(dir, segmentBytes);
+        try {
+            j.recover();
+        } catch (IOException | RuntimeException e) {
+            j.closeChannels();
+            throw e;
+        }
+        return j;
+    }
+
+    public Path dir() { return dir; }
+    public long size() { return size; }
+    public int segments() { return maps.length; }
+
+    // rows overwritten in a followed EventLog before the journal thread got to them
+    public long lost() { return lost; }
+
+    // ====== recovery ======
+
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "events-*.ejl")) {
+            for (Path p : ds) files.add(p);
+        }
+        files.sort(null);   // zero-padded numbers: name order = segment order
+        for (int k = 0; k < files.size(); k++) {
+            boolean last = k == files.size() - 1;
+            long bytes = Files.size(files.get(k));
+            if (bytes > Integer.MAX_VALUE) throw new IOException("journal segment too large: " + files.get(k));
+            MappedByteBuffer m = map(files.get(k), (bytes < HEADER_BYTES + RECORD_BYTES) ? segmentBytes : (int) bytes);
+            if (m.getInt(0) != MAGIC) {
+                if (!last) throw new IOException("not a journal segment (bad magic): " + files.get(k));
+                writeHeader(m, maps.length - 1);    // crashed right after creating it
+            } else if (m.getInt(4) != VERSION) {
+                throw new IOException("unsupported journal version " + m.getInt(4) + ": " + files.get(k));
+            }
+            int seg = maps.length - 1;
+            int p = scan(m, seg);
+            if (last) {
+                clearTail(m, p);
+                cur = m;
+                curSegment = seg;
+                writePos = dirtyFrom = p;
+            }
+        }
+        if (cur == null) newSegment();
+    }
+
+    // indexes the valid records of segment seg, returns where they end
+    private int scan(MappedByteBuffer m, int seg) {
+        int p = HEADER_BYTES;
+        int limit = m.limit();
+        while (p + RECORD_BYTES <= limit) {
+            int len = m.getInt(p);
+            if (len == 0) break;
+            if (len < RECORD_BYTES || (len & 3) != 0 || len > limit - p) break;
+            int textLen = m.getInt(p + 36);
+            if (textLen < -1 || textLen > MAX_TEXT_BYTES || align4(RECORD_BYTES + Math.max(0, textLen)) != len) break;
+            crc.reset();
+            crc.update(m.slice(p, len - 4));
+            if ((int) crc.getValue() != m.getInt(p + len - 4)) break;
+            int type = m.getInt(p + 4);
+            if (type < 0 || type >= TYPES.length) break;
+            index(seg, p, type, m.getLong(p + 12));
+            p += len;
+        }
+        return p;
+    }
+
+    // Pages reach the disk in any order, so a crash can leave intact-looking records after a
+    // torn one. Zero everything after the last valid record so appends never run into them.
+    private static void clearTail(MappedByteBuffer m, int from) {
+        int end = from;
+        for (int i = from; i + 4 <= m.limit(); i += 4) {
+            if (m.getInt(i) != 0) end = i + 4;
+        }
+        if (end == from) return;
+        for (int i = from; i < end; i += 4) m.putInt(i, 0);
+        m.force(from, end - from);
+    }
+
+    private MappedByteBuffer map(Path file, int bytes) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channels.add(ch);
+        preallocate(ch, bytes);
+        MappedByteBuffer m = ch.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        m.order(ByteOrder.LITTLE_ENDIAN);
+        MappedByteBuffer[] next = Arrays.copyOf(maps, maps.length + 1);
+        next[maps.length] = m;
+        maps = next;
+        return m;
+    }
+
+    // Writes real zero blocks up to `bytes`: mapping past the end only makes a sparse file, and
+    // a full disk then shows up as SIGBUS on a later store instead of an IOException here.
+    private static void preallocate(FileChannel ch, int bytes) throws IOException {
+        long at = ch.size();
+        if (at >= bytes) return;
+        ByteBuffer zeros = ByteBuffer.allocateDirect(64 << 10);
+        while (at < bytes) {
+            zeros.clear().limit((int) Math.min(zeros.capacity(), bytes - at));
+            while (zeros.hasRemaining()) at += ch.write(zeros, at);
+        }
+        ch.force(false);
+    }
+
+    private void newSegment() throws IOException {
+        int seg = maps.length;
+        MappedByteBuffer m = map(dir.resolve(String.format(Locale.ROOT, "events-%06d.ejl", seg)), segmentBytes);
+        writeHeader(m, seg);
+        m.force();
+        cur = m;
+        curSegment = seg;
+        writePos = dirtyFrom = HEADER_BYTES;
+    }
+
+    private static void writeHeader(MappedByteBuffer m, int seg) {
+        m.putInt(0, MAGIC);
+        m.putInt(4, VERSION);
+        m.putInt(8, seg);
+    }
+
+    private static int align4(int n) { return (n + 3) & ~3; }
+
+    // ====== write (writer thread) ======
+
+    // Starts copying log's rows (from its oldest still in the ring) on the journal thread.
+    public void follow(EventLog log, int source) {
+        followed.add(new Followed(log, source));
+        synchronized (this) {
+            if (thread != null) return;
+            Thread t = new Thread(this::run, "ecg-journal");
+            t.setDaemon(true);
+            thread = t;
+            t.start();
+        }
+    }
+
+    private void run() {
+        while (thread == Thread.currentThread()) {
+            try {
+                Thread.sleep(COMMIT_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                drain();
+                commit();
+            } catch (IOException | RuntimeException | Error e) {
+                failure = e;
+                System.err.println("event journal: " + e);
+                return;
+            }
+        }
+    }
+
+    private synchronized void drain() throws IOException {
+        for (Followed f : followed) {
+            EventLog l = f.log;
+            long head = l.publishedHead(f.cursor);
+            long from = Math.max(f.cursor, head - l.capacity());
+            lost += from - f.cursor;
+            for (long seq = from; seq < head; seq++) {
+                long ts = l.tsNanos(seq);
+                LogType type = l.type(seq);
+                int a = l.arg(seq, 0), b = l.arg(seq, 1), c = l.arg(seq, 2), d = l.arg(seq, 3);
+                String s = l.text(seq);
+                if (ts < 0 || type == null || !l.contains(seq)) {
+                    lost++;
+                    continue;
+                }
+                append(ts, type, f.source, a, b, c, d, s);
+            }
+            f.cursor = head;
+        }
+    }
+
+    // One record; returns its id. Writer thread only (don't mix with follow()).
+    public synchronized long append(long tsNanos, LogType t, int source, int a, int b, int c, int d, String s) throws IOException {
+        byte[] text = null;
+        int textLen = -1;
+        if (s != null) {
+            text = s.getBytes(StandardCharsets.UTF_8);
+            textLen = utf8Prefix(text, MAX_TEXT_BYTES);
+        }
+        int len = align4(RECORD_BYTES + Math.max(0, textLen));
+        if (writePos + len > cur.limit()) {
+            commit();
+            newSegment();
+        }
+        MappedByteBuffer m = cur;
+        int p = writePos;
+        m.putInt(p + 4, t.ordinal());
+        m.putInt(p + 8, source);
+        m.putLong(p + 12, tsNanos);
+        m.putInt(p + 20, a);
+        m.putInt(p + 24, b);
+        m.putInt(p + 28, c);
+        m.putInt(p + 32, d);
+        m.putInt(p + 36, textLen);
+        if (textLen > 0) m.put(p + 40, text, 0, textLen);
+        m.putInt(p, len);
+        crc.reset();
+        crc.update(m.slice(p, len - 4));
+        m.putInt(p + len - 4, (int) crc.getValue());
+        writePos = p + len;
+        return index(curSegment, p, t.ordinal(), tsNanos);
+    }
+
+    // longest prefix of at most max bytes that doesn't end inside a multi-byte character
+    static int utf8Prefix(byte[] b, int max) {
+        if (b.length <= max) return b.length;
+        int n = max;
+        while (n > 0 && (b[n] & 0xC0) == 0x80) n--;     // b[n] is a continuation byte: back off to its lead
+        return n;
+    }
+
+    private long index(int seg, int offset, int type, long ts) {
+        long id = size;
+        pos.add(((long) seg << 32) | offset);
+        LongColumn postings = byType[type];
+        postings.add(id);
+        typeCount.set(type, postings.size());
+        int block = (int) (id >>> BLOCK_SHIFT);
+        maxTs = Math.max(maxTs, ts);
+        if (block == blockMinTs.size()) {
+            blockMinTs.add(ts);
+            blockMaxTs.add(maxTs);
+        } else {
+            blockMinTs.set(block, Math.min(blockMinTs.get(block), ts));
+            blockMaxTs.set(block, maxTs);
+        }
+        size = id + 1;  // publish
+        return id;
+    }
+
+    // why the commit thread stopped (null while it runs); rows logged after that are not journaled
+    public Throwable failure() { return failure; }
+
+    // forces everything written since the last commit to disk
+    public synchronized void commit() throws IOException {
+        Throwable e = failure;
+        if (e != null) throw (e instanceof IOException io) ? io : new IOException("journal writer failed: " + e, e);
+        if (writePos > dirtyFrom) {
+            cur.force(dirtyFrom, writePos - dirtyFrom);
+            dirtyFrom = writePos;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        Thread t = thread;
+        thread = null;
+        if (t != null) {
+            t.interrupt();
+            try {
+                t.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            drain();
+            commit();
+        } finally {
+            closeChannels();
+        }
+    }
+
+    private synchronized void closeChannels() throws IOException {
+        IOException first = null;
+        for (FileChannel ch : channels) {
+            try {
+                ch.close();
+            } catch (IOException e) {
+                if (first == null) first = e;
+            }
+        }
+        channels.clear();
+        if (first != null) throw first;
+    }
+
+    // ====== read (any thread) ======
+
+    private ByteBuffer mapOf(long id) {
+        long p = pos.get((int) id);
+        return maps[(int) (p >>> 32)];
+    }
+
+    private int offsetOf(long id) {
+        return (int) pos.get((int) id);
+    }
+
+    public long tsNanos(long id) {
+        if (id < 0 || id >= size) return -1;
+        return mapOf(id).getLong(offsetOf(id) + 12);
+    }
+
+    public LogType type(long id) {
+        if (id < 0 || id >= size) return null;
+        return LogType.of(mapOf(id).getInt(offsetOf(id) + 4));
+    }
+
+    public int source(long id) {
+        if (id < 0 || id >= size) return -1;
+        return mapOf(id).getInt(offsetOf(id) + 8);
+    }
+
+    public int arg(long id, int k) {
+        if (id < 0 || id >= size) return 0;
+        return mapOf(id).getInt(offsetOf(id) + 20 + 4 * k);
+    }
+
+    public String text(long id) {
+        if (id < 0 || id >= size) return null;
+        ByteBuffer m = mapOf(id);
+        int p = offsetOf(id);
+        int n = m.getInt(p + 36);
+        if (n < 0) return null;
+        byte[] b = new byte[n];
+        m.get(p + 40, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    public boolean formatMessage(long id, StringBuilder sb) {
+        LogType t = type(id);
+        if (t == null) return false;
+        t.format(sb, arg(id, 0), arg(id, 1), arg(id, 2), arg(id, 3), text(id));
+        return true;
+    }
+
+    public String message(long id) {
+        StringBuilder sb = new StringBuilder(64);
+        return formatMessage(id, sb) ? sb.toString() : "";
+    }
+
+    // Ids of records with a type in types (null: any) and fromNanos <= ts < toNanos, newest
+    // first, at most limit of them.
+    public long[] select(EnumSet<LogType> types, long fromNanos, long toNanos, int limit) {
+        long n = size;
+        if (limit <= 0 || n == 0) return new long[0];
+        long[] out = new long[Math.min(limit, 256)];
+        int found = 0;
+        if (types == null || types.size() == TYPES.length) {
+            for (long id = n - 1; id >= 0 && found < limit; id--) {
+                int block = (int) (id >>> BLOCK_SHIFT);
+                if (blockMaxTs.get(block) < fromNanos) break;
+                if (blockMinTs.get(block) >= toNanos) {
+                    id = (long) block << BLOCK_SHIFT;   // skip the rest of the block
+                    continue;
+                }
+                long ts = tsNanos(id);
+                if (ts < fromNanos || ts >= toNanos) continue;
+                if (found == out.length) out = Arrays.copyOf(out, Math.min(limit, found * 2));
+                out[found++] = id;
+            }
+            return (found == out.length) ? out : Arrays.copyOf(out, found);
+        }
+
+        for (LogType t : types) {
+            LongColumn col = byType[t.ordinal()];
+            int k = postings(t, n);
+            int taken = 0;
+            while (--k >= 0 && taken < limit) {
+                long id = col.get(k);
+                int block = (int) (id >>> BLOCK_SHIFT);
+                if (blockMaxTs.get(block) < fromNanos) break;
+                if (blockMinTs.get(block) >= toNanos) continue;
+                long ts = tsNanos(id);
+                if (ts < fromNanos || ts >= toNanos) continue;
+                if (found == out.length) out = Arrays.copyOf(out, found * 2);
+                out[found++] = id;
+                taken++;
+            }
+        }
+        if (types.size() > 1) {
+            Arrays.sort(out, 0, found);
+            for (int i = 0, j = found - 1; i < j; i++, j--) {
+                long x = out[i];
+                out[i] = out[j];
+                out[j] = x;
+            }
+        }
+        return Arrays.copyOf(out, Math.min(found, limit));
+    }
+
+    // postings of t with id < n (the writer may have appended more since n was read)
+    private int postings(LogType t, long n) {
+        LongColumn col = byType[t.ordinal()];
+        int k = typeCount.get(t.ordinal());
+        while (k > 0 && col.get(k - 1) >= n) k--;
+        return k;
+    }
+
+    // ====== CLI ======
+
+    static final String USAGE = """
+            usage: EventJournal DIR [options]
+              --type T[,T..]    LogType names, e.g. ABNORMAL_START,BLE_WARNING_TX_FAIL (any)
+              --since D         last D: 90s, 30m, 12h, 7d (all)
+              --source N        patient / monitor id (any)
+              --limit N         newest N rows (50)
+            """;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args[0].equals("--help") || args[0].equals("-h")) {
+            System.out.print(USAGE);
+            return;
+        }
+        Path dir = Paths.get(args[0]);
+        EnumSet<LogType> types = null;
+        long sinceNanos = -1;
+        int source = -1;
+        int limit = 50;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                String a = args[i];
+                if (i + 1 >= args.length) throw new IllegalArgumentException("missing value for " + a);
+                String v = args[++i];
+                switch (a) {
+                    case "--type" -> {
+                        types = EnumSet.noneOf(LogType.class);
+                        for (String s : v.split(",")) types.add(LogType.valueOf(s.trim().toUpperCase(Locale.ROOT)));
+                    }
+                    case "--since" -> sinceNanos = duration(v);
+                    case "--source" -> source = Integer.parseInt(v);
+                    case "--limit" -> limit = Integer.parseInt(v);
+                    default -> throw new IllegalArgumentException("unknown option " + a);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        long t0 = System.nanoTime();
+        try (EventJournal j = open(dir)) {
+            long t1 = System.nanoTime();
+            long to = Long.MAX_VALUE;
+            long from = (sinceNanos < 0) ? Long.MIN_VALUE : System.currentTimeMillis() * 1_000_000L - sinceNanos;
+            long[] ids = j.select(types, from, to, (source < 0) ? limit : Integer.MAX_VALUE);
+            long t2 = System.nanoTime();
+
+            TsFormat tf = new TsFormat();
+            StringBuilder sb = new StringBuilder(128);
+            int shown = 0;
+            for (int i = 0; i < ids.length && shown < limit; i++) {
+                long id = ids[i];
+                if (source >= 0 && j.source(id) != source) continue;
+                sb.setLength(0);
+                sb.append(tf.text(j.tsNanos(id))).append("  p").append(j.source(id)).append("  ").append(j.type(id)).append("  ");
+                j.formatMessage(id, sb);
+                System.out.println(sb);
+                shown++;
+            }
+            System.out.printf(Locale.ROOT, "%d of %d records, %d segments: opened in %.1f ms, query %.2f ms%n",
+                    shown, j.size(), j.segments(), (t1 - t0) / 1e6, (t2 - t1) / 1e6);
+        }
+    }
+
+    // "90s", "30m", "12h", "7d" -> nanos
+    static long duration(String v) {
+        char u = v.charAt(v.length() - 1);
+        long unit = switch (u) {
+            case 's' -> 1_000_000_000L;
+            case 'm' -> 60_000_000_000L;
+            case 'h' -> 3_600_000_000_000L;
+            case 'd' -> 86_400_000_000_000L;
+            default -> throw new IllegalArgumentException("bad duration (use s/m/h/d): " + v);
+        };
+        return Long.parseLong(v.substring(0, v.length() - 1)) * unit;
+    }
+}
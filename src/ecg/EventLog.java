@@ -0,0 +1,156 @@
+package ecg;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bounded multi-producer event log (ring of primitive columns).
+//
+// - append() is lock-free: claim a sequence number, write the slot, publish it. No objects
+//   are created for the common int-only events, so monitors can log at kHz rates.
+// - The ring keeps the newest `capacity` entries; older ones are overwritten in place.
+// - Readers address entries by sequence number and validate the slot (seqlock style), so a
+//   row that was overwritten while being read is reported as gone instead of torn.
+// - Messages/timestamps are formatted lazily, only for rows that are displayed or exported.
+public final class EventLog implements LogEvent.Source {
+
+    private static final long IN_PROGRESS = -1L;
+    private static final int ARGS = 4;
+
+    private final int capacity;
+    private final int mask;
+    private final long[] ts;
+    private final int[] type;
+    private final int[] args;       // ARGS per slot
+    private final String[] text;    // optional text arg (rare UI events), null otherwise
+    private final AtomicLongArray published;   // seq + 1 when slot holds seq, 0 empty, -1 writing
+    private final AtomicLong next = new AtomicLong();
+
+    public EventLog(int capacityPow2) {
+        if (capacityPow2 <= 0 || Integer.bitCount(capacityPow2) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacityPow2);
+        }
+        this.capacity = capacityPow2;
+        this.mask = capacityPow2 - 1;
+        this.ts = new long[capacityPow2];
+        this.type = new int[capacityPow2];
+        this.args = new int[capacityPow2 * ARGS];
+        this.text = new String[capacityPow2];
+        this.published = new AtomicLongArray(capacityPow2);
+    }
+
+    public int capacity() { return capacity; }
+
+    // ====== write (any thread) ======
+
+    public long append(long tsNanos, LogType t) {
+        return append(tsNanos, t, 0, 0, 0, 0, null);
+    }
+
+    public long append(long tsNanos, LogType t, int a) {
+        return append(tsNanos, t, a, 0, 0, 0, null);
+    }
+
+    public long append(long tsNanos, LogType t, int a, int b) {
+        return append(tsNanos, t, a, b, 0, 0, null);
+    }
+
+    public long append(long tsNanos, LogType t, String s) {
+        return append(tsNanos, t, 0, 0, 0, 0, s);
+    }
+
+    public long append(long tsNanos, LogType t, int a, int b, int c, int d, String s) {
+        long seq = next.getAndIncrement();
+        int slot = (int) (seq & mask);
+
+        published.set(slot, IN_PROGRESS);
+        VarHandle.storeStoreFence();
+
+        ts[slot] = tsNanos;
+        type[slot] = t.ordinal();
+        int o = slot * ARGS;
+        args[o] = a;
+        args[o + 1] = b;
+        args[o + 2] = c;
+        args[o + 3] = d;
+        text[slot] = s;
+
+        published.set(slot, seq + 1);
+        return seq;
+    }
+
+    // ====== read ======
+
+    // number of sequence numbers handed out so far (some may still be in flight)
+    public long claimed() { return next.get(); }
+
+    // Highest contiguous published sequence (exclusive), scanning forward from `from`.
+    public long publishedHead(long from) {
+        long end = next.get();
+        long seq = Math.max(from, end - capacity);
+        while (seq < end && published.get((int) (seq & mask)) == seq + 1) seq++;
+        return seq;
+    }
+
+    // still readable (published and not overwritten)?
+    public boolean contains(long seq) {
+        return seq >= 0 && published.get((int) (seq & mask)) == seq + 1;
+    }
+
+    public long tsNanos(long seq) {
+        int slot = (int) (seq & mask);
+        long v = ts[slot];
+        return valid(seq, slot) ? v : -1;
+    }
+
+    public LogType type(long seq) {
+        int slot = (int) (seq & mask);
+        int v = type[slot];
+        return valid(seq, slot) ? LogType.of(v) : null;
+    }
+
+    // int arg k (0..3) / text arg of seq; like the others, only trust it if contains(seq)
+    // still holds after the read (0 / null if the slot already moved on)
+    public int arg(long seq, int k) {
+        int slot = (int) (seq & mask);
+        int v = args[slot * ARGS + k];
+        return valid(seq, slot) ? v : 0;
+    }
+
+    public String text(long seq) {
+        int slot = (int) (seq & mask);
+        String v = text[slot];
+        return valid(seq, slot) ? v : null;
+    }
+
+    // formats the message into sb; false if the entry is gone (nothing appended)
+    public boolean formatMessage(long seq, StringBuilder sb) {
+        int slot = (int) (seq & mask);
+        if (!contains(seq)) return false;
+        int o = slot * ARGS;
+        int t = type[slot], a = args[o], b = args[o + 1], c = args[o + 2], d = args[o + 3];
+        String s = text[slot];
+        if (!valid(seq, slot)) return false;
+        LogType.of(t).format(sb, a, b, c, d, s);
+        return true;
+    }
+
+    public String message(long seq) {
+        StringBuilder sb = new StringBuilder(64);
+        return formatMessage(seq, sb) ? sb.toString() : "";
+    }
+
+    // plain reads above are only trusted if the slot still holds seq afterwards
+    private boolean valid(long seq, int slot) {
+        VarHandle.loadLoadFence();
+        return published.get(slot) == seq + 1;
+    }
+
+    // ====== timestamp text ======
+    // per thread (FX thread for the table): rows of the same second share one cached String
+    private static final ThreadLocal<TsFormat> TS_FORMAT = ThreadLocal.withInitial(TsFormat::new);
+
+    public static String formatTs(long tsNanos) {
+        return TS_FORMAT.get().text(tsNanos);
+    }
+}
@@ -0,0 +1,691 @@
+package ecg;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Headless runner: the EcgTest pipeline (synthetic waveform -> QRS -> monitor -> rules ->
+// alert bus -> event log, recording, export) for N patients with no JavaFX toolkit, plus the
+// ProtoAppWindow state cycle (--cycle). For servers, batch replays and CI soak tests.
+// Nothing here (or in ecg.*) touches javafx.*, and Metrics/JFR are only loaded with --metrics,
+// so the JVM is ticking within a few tens of ms of launch.
+//
+//   java -cp build/classes/java/main ecg.Headless --patients 200 --duration 600 --log -
+//   ./gradlew run -PmainClass=ecg.Headless --args="--patients 50 --duration 3600 --fast --export out"
+//
+// Clocks:
+//   realtime (default)  MonitorScheduler shards tick at --hz against the wall clock, as in EcgTest
+//   --fast              virtual time (EcgClock.Manual): each shard thread ticks its patients back
+//                       to back, so --duration is sample time and runs as fast as the CPU allows;
+//                       log rows outside the tick loop (rules, recordings, export) use that time too
+//   --replay FILE       one patient fed from a recording (RecordingReplayer, --speed 0 = max)
+//
+// Exit code: 0 ok, 1 an export/recording failed, 2 bad arguments.
+public final class Headless {
+
+    private static final int WAVE_HZ = 250;
+    private static final long DRAIN_MILLIS = 1000;
+    private static final long MAIN_NANOS = System.nanoTime();   // class init ~ main()
+
+    static final String USAGE = """
+            usage: Headless [options]
+              --patients N      monitored patients (1)
+              --duration SEC    run time, sample time with --fast; 0 = until Ctrl-C (60)
+              --fast            virtual time, as fast as possible (needs --duration > 0)
+              --shards N        driving threads (min(cores, patients))
+              --hz N            summary ticks per second (20)
+              --ring SEC        sample history kept per patient (600)
+              --low BPM --high BPM   default thresholds when rules.conf has none (40 / 180)
+              --rules PATH      alert rules, hot-reloaded in realtime mode (rules.conf)
+              --cycle SEC       ProtoAppWindow state cycle NORMAL -> LOW -> HIGH every SEC (off)
+              --log PATH        event log lines, "-" = stdout (off)
+              --journal DIR     persistent event journal, query with EventJournal (off)
+              --export DIR      per-patient export at the end (off)
+              --format csv|json export format (csv)
+              --record DIR      per-patient .ecgrec recording (off)
+              --replay FILE     replay a recording into one patient instead of live data
+              --speed X         replay speed 1..1000, 0 = as fast as possible (0)
+              --metrics SEC     stage latency dump every SEC + JFR events (off)
+              --seed N          synthetic signal seed (42)
+            """;
+
+    // ====== options ======
+
+    static final class Options {
+        int patients = 1;
+        long durationSec = 60;
+        boolean fast = false;
+        int shards = 0;     // 0: min(cores, patients)
+        int tickHz = 20;
+        int ringSec = 600;
+        int lowBpm = 40;
+        int highBpm = 180;
+        Path rules = Paths.get("rules.conf");
+        long cycleSec = 0;
+        Path log = null;
+        Path journalDir = null;
+        Path exportDir = null;
+        EcgExporter.Format format = EcgExporter.Format.CSV;
+        Path recordDir = null;
+        Path replay = null;
+        double speed = 0;
+        long metricsSec = 0;
+        long seed = 42;
+
+        static Options parse(String[] args) {
+            Options o = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String a = args[i];
+                if (a.equals("--fast")) {
+                    o.fast = true;
+                    continue;
+                }
+                if (i + 1 >= args.length) throw new IllegalArgumentException("missing value for " + a);
+                String v = args[++i];
+                switch (a) {
+                    case "--patients" -> o.patients = positive(a, v);
+                    case "--duration" -> o.durationSec = nonNegative(a, v);
+                    case "--shards" -> o.shards = positive(a, v);
+                    case "--hz" -> o.tickHz = positive(a, v);
+                    case "--ring" -> o.ringSec = positive(a, v);
+                    case "--low" -> o.lowBpm = positive(a, v);
+                    case "--high" -> o.highBpm = positive(a, v);
+                    case "--rules" -> o.rules = Paths.get(v);
+                    case "--cycle" -> o.cycleSec = nonNegative(a, v);
+                    case "--log" -> o.log = Paths.get(v);
+                    case "--journal" -> o.journalDir = Paths.get(v);
+                    case "--export" -> o.exportDir = Paths.get(v);
+                    case "--format" -> o.format = switch (v.toLowerCase(Locale.ROOT)) {
+                        case "csv" -> EcgExporter.Format.CSV;
+                        case "json" -> EcgExporter.Format.JSON;
+                        default -> throw new IllegalArgumentException("--format must be csv or json: " + v);
+                    };
+                    case "--record" -> o.recordDir = Paths.get(v);
+                    case "--replay" -> o.replay = Paths.get(v);
+                    case "--speed" -> o.speed = Double.parseDouble(v);
+                    case "--metrics" -> o.metricsSec = nonNegative(a, v);
+                    case "--seed" -> o.seed = Long.parseLong(v);
+                    default -> throw new IllegalArgumentException("unknown option " + a);
+                }
+            }
+            if (o.fast && o.durationSec == 0) throw new IllegalArgumentException("--fast needs --duration > 0");
+            if (o.replay != null && o.patients != 1) throw new IllegalArgumentException("--replay drives exactly one patient");
+            if (o.replay != null && o.fast) throw new IllegalArgumentException("--replay paces itself, use --speed 0");
+            if (o.speed != 0 && (o.speed < 1 || o.speed > RecordingReplayer.MAX_SPEED)) {
+                throw new IllegalArgumentException("--speed must be 0 or 1.." + (int) RecordingReplayer.MAX_SPEED + ": " + o.speed);
+            }
+            if (o.shards == 0) o.shards = Math.min(Runtime.getRuntime().availableProcessors(), o.patients);
+            return o;
+        }
+
+        private static int positive(String name, String v) {
+            int n = Integer.parseInt(v);
+            if (n <= 0) throw new IllegalArgumentException(name + " must be > 0: " + v);
+            return n;
+        }
+
+        private static long nonNegative(String name, String v) {
+            long n = Long.parseLong(v);
+            if (n < 0) throw new IllegalArgumentException(name + " must be >= 0: " + v);
+            return n;
+        }
+    }
+
+    // ====== state ======
+
+    private final Options opt;
+    private final long periodNanos;
+    private final PatientMonitor[] monitors;
+    private final EventLog[] logs;
+    private final RecordingWriter[] recorders;
+    private final long[] samples;           // per patient, written by its driving thread only
+    private final long[] logCursor;         // log-writer thread
+    private final AlertBus alerts;
+    private final LoopbackBleTransport bleLink;
+    private final Metrics metrics;          // null without --metrics
+
+    private final AtomicLong episodes = new AtomicLong();
+    private final AtomicLong beeps = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong logLost = new AtomicLong();
+
+    private final CountDownLatch stopRequested = new CountDownLatch(1);
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    private MonitorScheduler scheduler = null;  // realtime mode
+    private RuleConfigWatcher ruleWatcher = null;
+    private volatile String rulesText = null;
+    private Writer logOut = null;
+    private Thread logThread = null;
+    private TsFormat logTs = null;          // log-writer thread (zone rules load on first use)
+    private EventJournal journal = null;
+    private boolean journalFailed = false;  // guarded by this
+    private final EcgClock clock;           // Manual with --fast, advanced by shard 0
+
+    Headless(Options opt) {
+        this.opt = opt;
+        int tickHz = opt.tickHz;
+        this.periodNanos = 1_000_000_000L / tickHz;
+        int n = opt.patients;
+        this.monitors = new PatientMonitor[n];
+        this.logs = new EventLog[n];
+        this.recorders = new RecordingWriter[n];
+        this.samples = new long[n];
+        this.logCursor = new long[n];
+        this.clock = opt.fast ? new EcgClock.Manual(EcgClock.system().epochNanos()) : EcgClock.system();
+        this.alerts = new AlertBus(Math.max(64, n), clock);    // dedup/backoff in virtual time with --fast
+        // a real-time link latency would be seconds of virtual time per write with --fast
+        this.bleLink = new LoopbackBleTransport(opt.fast ? 0 : 15, opt.seed);
+        this.metrics = (opt.metricsSec > 0) ? new Metrics() : null;
+
+        // events are rare (a few per patient-minute) and drained every second, so rows per drain
+        // scale with total samples/s, not patients: one budget (256K rows, ~11 MB) split between
+        // them instead of 64K rows (~3 MB) each
+        int logCapacity = Math.max(1 << 10, Math.min(1 << 16, Integer.highestOneBit((1 << 18) / n)));
+        SplittableRandom seeds = new SplittableRandom(opt.seed);
+        for (int i = 0; i < n; i++) {
+            PatientMonitor m = new PatientMonitor(i, tickHz, opt.ringSec, seeds.nextLong());
+            m.setLowBpm(opt.lowBpm);
+            m.setHighBpm(opt.highBpm);
+            logs[i] = new EventLog(logCapacity);
+            if (opt.replay == null) {
+                PatientMonitor.RrSource src = new WaveformRrSource(WAVE_HZ, tickHz, seeds.nextLong());
+                if (opt.cycleSec > 0) {
+                    src = new CyclingSource(src, new StateCycle(new Random(seeds.nextLong())), logs[i],
+                            opt.cycleSec * 1_000_000_000L);
+                }
+                m.setRrSource(src);
+            }
+            m.setMetrics(metrics);
+            m.setListener(listener);
+            monitors[i] = m;
+        }
+    }
+
+    // driving thread(s): log + alerts, exactly what EcgTest's viewer does minus the UI refresh
+    private final PatientMonitor.Listener listener = new PatientMonitor.Listener() {
+        @Override
+        public void onEvent(PatientMonitor m, long tsNanos, LogType type, int a, int b, int c, int d) {
+            Metrics mx = metrics;
+            long t0 = (mx != null) ? System.nanoTime() : 0;
+            logs[m.id()].append(tsNanos, type, a, b, c, d, null);
+            if (mx != null) mx.record(Metrics.Stage.LOG_APPEND, System.nanoTime() - t0);
+            if (type == LogType.ABNORMAL_START) {
+                episodes.incrementAndGet();
+                alerts.post(AlertBus.Topic.BEEP, tsNanos, m.id());
+                alerts.post(AlertBus.Topic.BLE_WARNING, tsNanos, m.id(), a, b);
+            }
+        }
+
+        @Override
+        public void onSample(PatientMonitor m, long tsNanos) {
+            int id = m.id();
+            samples[id]++;
+            RecordingWriter r = recorders[id];
+            if (r != null) r.append(tsNanos, m.rrMs());
+        }
+    };
+
+    // ProtoAppWindow's 5 s NORMAL -> LOW -> HIGH cycle applied to a monitor's RR source: every
+    // period the rate is retargeted to a random bpm of the next state (driving thread).
+    private static final class CyclingSource implements PatientMonitor.RrSource {
+        private final PatientMonitor.RrSource inner;
+        private final StateCycle states;
+        private final EventLog log;
+        private final long periodNanos;
+        private long nextSwitch = Long.MIN_VALUE;
+
+        CyclingSource(PatientMonitor.RrSource inner, StateCycle states, EventLog log, long periodNanos) {
+            this.inner = inner;
+            this.states = states;
+            this.log = log;
+            this.periodNanos = periodNanos;
+        }
+
+        @Override
+        public int nextRr(long tsNanos) {
+            if (tsNanos >= nextSwitch) {
+                StateCycle.State s = (nextSwitch == Long.MIN_VALUE) ? states.current() : states.advance();
+                nextSwitch = ((nextSwitch == Long.MIN_VALUE) ? tsNanos : nextSwitch) + periodNanos;
+                int bpm = states.randomBpm(s);
+                inner.force(60000 / bpm);
+                log.append(tsNanos, LogType.STATE_CYCLE, s.ordinal(), bpm);
+            }
+            return inner.nextRr(tsNanos);
+        }
+
+        @Override
+        public void force(int rr) { inner.force(rr); }
+
+        @Override
+        public void reset() { inner.reset(); }
+    }
+
+    private EventLog logOf(int patient) {
+        return (patient >= 0 && patient < logs.length) ? logs[patient] : logs[0];
+    }
+
+    private long nowNanos() {
+        MonitorScheduler s = scheduler;
+        return (s != null) ? s.epochNanos() : clock.epochNanos();
+    }
+
+    // ====== setup ======
+
+    private void setupAlerts() {
+        // no audio device on a server: a beep is just counted
+        alerts.setSink(AlertBus.Topic.BEEP, (t, ts, key, a, b, attempt) -> beeps.incrementAndGet());
+        alerts.setSink(AlertBus.Topic.BLE_WARNING, (t, ts, key, a, b, attempt) -> bleLink.send(a, b));
+        alerts.setListener(new AlertBus.Listener() {
+            @Override
+            public void onDelivered(AlertBus.Topic t, long ts, int key, int a, int b, int attempts) {
+                // sample-to-alert only means something when sample ts is wall-clock time
+                if (metrics != null && !opt.fast && opt.replay == null && t.lane != AlertBus.Lane.EMERGENCY) {
+                    metrics.alertDelivered(t.name(), nowNanos() - ts);
+                }
+                if (t == AlertBus.Topic.BLE_WARNING) logOf(key).append(ts, LogType.BLE_WARNING_TX, a, b, attempts, 0, null);
+            }
+
+            @Override
+            public void onGiveUp(AlertBus.Topic t, long ts, int key, int a, int b, int attempts, Exception error) {
+                if (t == AlertBus.Topic.BLE_WARNING) {
+                    logOf(key).append(ts, LogType.BLE_WARNING_TX_FAIL, attempts, 0, 0, 0, error.getMessage());
+                } else {
+                    logOf(key).append(ts, LogType.ERROR, t + " failed after " + attempts + " attempts: " + error.getMessage());
+                }
+            }
+
+            @Override
+            public void onDropped(AlertBus.Topic t, long ts, int key) {
+                logOf(key).append(ts, LogType.ALERT_DROPPED, t.ordinal());
+            }
+        });
+        alerts.start();
+    }
+
+    // Loaded once up front (a broken file fails the run instead of silently using defaults);
+    // in realtime mode the watcher then picks up later edits.
+    private void setupRules() throws IOException {
+        if (!Files.exists(opt.rules)) return;
+        String text = Files.readString(opt.rules);
+        applyRules(text, false);
+        if (!opt.fast && opt.replay == null) {
+            ruleWatcher = new RuleConfigWatcher(opt.rules, 1000, new RuleConfigWatcher.Listener() {
+                @Override
+                public void onLoaded(Path path, String t) {
+                    if (!t.equals(rulesText)) applyRules(t, true);     // first poll sees the file we loaded
+                }
+
+                @Override
+                public void onError(Path path, String message) {
+                    long now = nowNanos();
+                    for (EventLog l : logs) l.append(now, LogType.ERROR, "Rules not reloaded (" + path + "): " + message);
+                }
+            });
+        }
+    }
+
+    // parsed once on the calling thread (patients without a section share one plan); once
+    // running, swapped in on the shard threads
+    private void applyRules(String text, boolean running) {
+        rulesText = text;
+        long now = nowNanos();
+        RulePlan.Config rules = RulePlan.parseConfig(text);
+        String path = opt.rules.toString();
+        for (PatientMonitor m : monitors) {
+            RulePlan plan = rules.plan(m.id());
+            if (running) scheduler.post(m, () -> m.setRulePlan(plan));
+            else m.setRulePlan(plan);
+            logs[m.id()].append(now, LogType.RULES_LOADED, plan.size(), 0, 0, 0, path);
+        }
+    }
+
+    private void openRecordings(long startNanos) throws IOException {
+        if (opt.recordDir == null) return;
+        Files.createDirectories(opt.recordDir);
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < recorders.length; i++) {
+            name.setLength(0);
+            name.append("patient-").append(i).append(".ecgrec");
+            recorders[i] = new RecordingWriter(opt.recordDir.resolve(name.toString()), opt.tickHz, startNanos);
+        }
+    }
+
+    private void setupMetrics() {
+        if (metrics == null) return;
+        for (AlertBus.Lane l : AlertBus.Lane.values()) {
+            metrics.gauge("alert.".concat(l.name().toLowerCase(Locale.ROOT)), () -> alerts.queued(l));
+        }
+        metrics.registerJfr();
+        metrics.startDump(opt.metricsSec * 1000, System.out::print);
+    }
+
+    // ====== event log output ======
+
+    private void startLogWriter() throws IOException {
+        if (opt.log == null) return;
+        logTs = new TsFormat();
+        logOut = opt.log.toString().equals("-")
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(opt.log, StandardCharsets.UTF_8);
+        Thread t = new Thread(() -> {
+            while (logThread == Thread.currentThread()) {
+                try {
+                    Thread.sleep(DRAIN_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                checkJournal();
+                drainLogs();
+            }
+        }, "log-writer");
+        t.setDaemon(true);
+        logThread = t;
+        t.start();
+    }
+
+    // new rows of every patient's log -> "ts  patient  TYPE  message" lines
+    private synchronized void drainLogs() {
+        if (logOut == null) return;
+        StringBuilder sb = new StringBuilder(128);
+        try {
+            for (int i = 0; i < logs.length; i++) {
+                EventLog l = logs[i];
+                long from = logCursor[i];
+                long head = l.publishedHead(from);
+                for (long seq = from; seq < head; seq++) {
+                    long ts = l.tsNanos(seq);
+                    LogType type = l.type(seq);
+                    sb.setLength(0);
+                    sb.append(logTs.text(ts)).append("  p").append(i).append("  ").append(type).append("  ");
+                    if (ts < 0 || type == null || !l.formatMessage(seq, sb)) {
+                        logLost.incrementAndGet();      // overwritten before we got to it
+                        continue;
+                    }
+                    logOut.append(sb).append(System.lineSeparator());
+                }
+                logCursor[i] = head;
+            }
+            logOut.flush();
+        } catch (IOException e) {
+            errors.incrementAndGet();
+            System.err.println("event log: " + e.getMessage());
+            logOut = null;
+        }
+    }
+
+    private void stopLogWriter() {
+        Thread t = logThread;
+        logThread = null;
+        if (t != null) t.interrupt();
+        drainLogs();
+        synchronized (this) {
+            if (logOut == null) return;
+            try {
+                if (opt.log.toString().equals("-")) logOut.flush();
+                else logOut.close();
+            } catch (IOException e) {
+                errors.incrementAndGet();
+            }
+            logOut = null;
+        }
+    }
+
+    // ====== journal ======
+
+    // every patient's log rows, source = patient id
+    private void openJournal() throws IOException {
+        if (opt.journalDir == null) return;
+        journal = EventJournal.open(opt.journalDir);
+        for (int i = 0; i < logs.length; i++) journal.follow(logs[i], i);
+    }
+
+    // the journal's writer thread died: an ERROR row in every patient's log, once
+    private synchronized void checkJournal() {
+        EventJournal j = journal;
+        Throwable f = (j != null) ? j.failure() : null;
+        if (f == null || journalFailed) return;
+        journalFailed = true;
+        errors.incrementAndGet();
+        long now = nowNanos();
+        for (EventLog l : logs) l.append(now, LogType.ERROR, "Event journal stopped (" + j.dir() + "): " + f);
+    }
+
+    private void closeJournal() {
+        EventJournal j = journal;
+        if (j == null) return;
+        try {
+            j.close();
+            System.out.println("headless: journal " + j.size() + " records in " + j.segments() + " segments ("
+                    + j.lost() + " lost), " + j.dir());
+        } catch (IOException e) {
+            synchronized (this) {
+                if (!journalFailed) errors.incrementAndGet();   // else counted by checkJournal()
+            }
+            System.err.println("event journal: " + e.getMessage());
+        }
+    }
+
+    // ====== run ======
+
+    private void requestStop() {
+        stopRequested.countDown();
+    }
+
+    // waits for --duration (wall time) or Ctrl-C
+    private void awaitStop() throws InterruptedException {
+        if (opt.durationSec > 0) stopRequested.await(opt.durationSec, TimeUnit.SECONDS);
+        else stopRequested.await();
+    }
+
+    private void runRealtime() throws InterruptedException {
+        scheduler = new MonitorScheduler("ecg-acquisition", opt.shards, periodNanos, clock);
+        if (metrics != null) scheduler.setMetrics(metrics);
+        for (PatientMonitor m : monitors) scheduler.add(m);
+        long now = nowNanos();
+        for (EventLog l : logs) l.append(now, LogType.STREAM_START, opt.tickHz);
+        scheduler.start();
+        if (ruleWatcher != null) ruleWatcher.start();
+        awaitStop();
+        if (ruleWatcher != null) ruleWatcher.stop();
+        scheduler.stop();
+        now = nowNanos();
+        for (EventLog l : logs) l.append(now, LogType.STREAM_STOP);
+    }
+
+    // Virtual time: shard s owns patients s, s + shards, ...; all patients see the same
+    // timestamps in the same order as under MonitorScheduler, just without the sleeps.
+    private void runFast(long startNanos) throws InterruptedException {
+        long ticks = opt.durationSec * opt.tickHz;
+        int shards = opt.shards;
+        Thread[] threads = new Thread[shards];
+        EcgClock.Manual virtual = (EcgClock.Manual) clock;
+        for (int s = 0; s < shards; s++) {
+            final int shard = s;
+            threads[s] = new Thread(() -> {
+                for (long k = 0; k < ticks && stopRequested.getCount() > 0; k++) {
+                    long ts = startNanos + k * periodNanos;
+                    for (int i = shard; i < monitors.length; i += shards) {
+                        PatientMonitor m = monitors[i];
+                        m.runCommands();
+                        m.tick(ts);
+                    }
+                    if (shard == 0) virtual.advance(periodNanos);
+                }
+            }, (shards == 1) ? "ecg-fast" : "ecg-fast-" + s);
+            threads[s].setDaemon(true);
+            threads[s].start();
+        }
+        for (Thread t : threads) t.join();
+        for (PatientMonitor m : monitors) m.runCommands();
+    }
+
+    private void runReplay() throws IOException, InterruptedException {
+        Recording rec = Recording.open(opt.replay);
+        try {
+            if (rec.isEmpty()) throw new IOException("empty recording: " + opt.replay);
+            PatientMonitor m = monitors[0];
+            RecordingReplayer r = new RecordingReplayer(rec, m);
+            r.setOnFinished(this::requestStop);
+            logs[0].append(nowNanos(), LogType.REPLAY_START, (int) opt.speed, 0, 0, 0, opt.replay.toString());
+            r.start(rec.startTs(), opt.speed);
+            awaitStop();
+            r.stop();
+            samples[0] = r.replayed();
+            logs[0].append(nowNanos(), LogType.REPLAY_STOP, (int) r.replayed());
+        } finally {
+            rec.close();
+        }
+    }
+
+    private void closeRecordings() {
+        for (int i = 0; i < recorders.length; i++) {
+            RecordingWriter r = recorders[i];
+            if (r == null) continue;
+            recorders[i] = null;
+            try {
+                r.close();
+                logs[i].append(nowNanos(), LogType.RECORDING_SAVED, (int) r.samples(), 0, 0, 0, r.path().toString());
+            } catch (IOException e) {
+                errors.incrementAndGet();
+                logs[i].append(nowNanos(), LogType.ERROR, "Recording failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // driving threads are stopped: monitors and rings can be read from here
+    private void exportAll() {
+        if (opt.exportDir == null) return;
+        boolean csv = (opt.format == EcgExporter.Format.CSV);
+        EcgExporter exporter = new EcgExporter();
+        String exportedAt = new TsFormat().text(clock.epochNanos());
+        try {
+            Files.createDirectories(opt.exportDir);
+        } catch (IOException e) {
+            errors.incrementAndGet();
+            System.err.println("export: " + e.getMessage());
+            return;
+        }
+        for (PatientMonitor m : monitors) {
+            Path file = opt.exportDir.resolve("patient-" + m.id() + (csv ? ".csv" : ".json"));
+            long t0 = System.nanoTime();
+            try {
+                EcgExporter.Snapshot snap = EcgExporter.Snapshot.of(exportedAt, m, logs[m.id()], m.copyRing());
+                exporter.export(snap, opt.format, file, EcgExporter.NO_PROGRESS);
+                logs[m.id()].append(nowNanos(), csv ? LogType.EXPORT_CSV : LogType.EXPORT_JSON, file.toString());
+            } catch (IOException e) {
+                errors.incrementAndGet();
+                logs[m.id()].append(nowNanos(), LogType.ERROR, "Export failed: " + e.getMessage());
+            }
+            if (metrics != null) metrics.record(Metrics.Stage.EXPORT, System.nanoTime() - t0);
+        }
+    }
+
+    // No string '+' on the way to the ready line: the first one bootstraps invokedynamic
+    // (StringConcatFactory), tens of ms of startup that would land in "ready in".
+    private String readyLine() {
+        StringBuilder sb = new StringBuilder(128).append("headless: ").append(monitors.length).append(" patients, ");
+        if (opt.replay != null) sb.append("replay ").append(opt.replay);
+        else sb.append(opt.fast ? "fast " : "realtime ").append(opt.tickHz).append(" Hz");
+        return sb.append(", ").append(opt.shards).append(" shards, ready in ")
+                .append((System.nanoTime() - MAIN_NANOS) / 1_000_000).append(" ms").toString();
+    }
+
+    private int run() throws IOException, InterruptedException {
+        long wall0 = System.nanoTime();
+        long startNanos = clock.epochNanos();
+        setupAlerts();
+        setupRules();
+        setupMetrics();
+        openRecordings(startNanos);
+        startLogWriter();
+        openJournal();
+        System.out.println(readyLine());
+
+        if (opt.replay != null) runReplay();
+        else if (opt.fast) runFast(startNanos);
+        else runRealtime();
+        double wallSec = (System.nanoTime() - wall0) / 1e9;
+
+        alerts.stop();
+        closeRecordings();
+        exportAll();
+        checkJournal();
+        stopLogWriter();
+        closeJournal();
+        if (metrics != null) {
+            metrics.stopDump();
+            System.out.print(metrics.dump());
+        }
+
+        long total = 0;
+        for (long s : samples) total += s;
+        long dropped = 0;
+        for (AlertBus.Lane l : AlertBus.Lane.values()) dropped += alerts.droppedCount(l);
+        System.out.printf(Locale.ROOT, "headless: %d samples in %.2f s (%.0f/s), %d abnormal episodes, %d beeps, "
+                        + "%d BLE warnings sent, %d alerts deduplicated, %d dropped, %d log rows lost, %d errors%n",
+                total, wallSec, total / Math.max(1e-9, wallSec), episodes.get(), beeps.get(), bleLink.sent(),
+                alerts.dedupCount(), dropped, logLost.get(), errors.get());
+        return errors.get() > 0 ? 1 : 0;
+    }
+
+    // ====== CLI ======
+
+    public static void main(String[] args) throws InterruptedException {
+        Options opt;
+        try {
+            if (args.length > 0 && (args[0].equals("--help") || args[0].equals("-h"))) {
+                System.out.print(USAGE);
+                return;
+            }
+            opt = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        if (opt.replay != null) {
+            // the monitor runs at the recording's rate
+            try (Recording rec = Recording.open(opt.replay)) {
+                opt.tickHz = rec.tickHz();
+            } catch (IOException e) {
+                System.err.println("replay: " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+        }
+
+        Headless h = new Headless(opt);
+        // Ctrl-C: stop ticking, then let run() close recordings/exports/logs before the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            h.requestStop();
+            try {
+                h.finished.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {}
+        }, "headless-shutdown"));
+
+        int code;
+        try {
+            code = h.run();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("headless: " + e.getMessage());
+            code = 1;
+        } finally {
+            h.finished.countDown();
+        }
+        System.exit(code);
+    }
+}
@@ -0,0 +1,121 @@
+package ecg;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock-free log-linear histogram of non-negative longs (nanos, bytes), HdrHistogram-style:
+// values are bucketed by power of two, each power split into SUB linear sub-buckets, so any
+// recorded value is off by less than 1/SUB (~1.6 %) from its bucket over the whole long
+// range, with a fixed 3.7k-slot array and no allocation per record().
+//
+// record() is a shift + three uncontended atomic adds (count, sum, max), from any thread.
+// Readers copy the counts into a Snapshot (not atomic across buckets: a record() racing the
+// copy is either in or out) and compute percentiles from that; two snapshots give interval
+// stats via Snapshot.minus().
+public final class Histogram {
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB = 1 << SUB_BITS;                       // sub-buckets per power of two
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB;                // up to Long.MAX_VALUE
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.getAndIncrement(index(value));
+        sum.getAndAdd(value);
+        long m;
+        while (value > (m = max.get()) && !max.compareAndSet(m, value)) {
+            // lost a race with a larger/concurrent max, re-check
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        max.set(0);
+        sum.set(0);
+    }
+
+    // bucket of v: values < 2*SUB map 1:1, above that (shift, top SUB_BITS+1 bits of v)
+    static int index(long v) {
+        if (v < SUB) return (int) v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;     // >= 0
+        return (shift + 1) * SUB + (int) (v >>> shift) - SUB;
+    }
+
+    // highest value that maps to bucket i
+    static long upperBound(int i) {
+        if (i < SUB) return i;
+        int shift = i / SUB - 1;
+        long mant = i % SUB + SUB;
+        return ((mant + 1) << shift) - 1;
+    }
+
+    public Snapshot snapshot() {
+        Snapshot s = new Snapshot();
+        snapshot(s);
+        return s;
+    }
+
+    // copies into s (reuse it between reads)
+    public void snapshot(Snapshot s) {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = counts.get(i);
+            s.counts[i] = c;
+            n += c;
+        }
+        s.count = n;
+        s.sum = sum.get();
+        s.max = max.get();
+    }
+
+    // ====== snapshot ======
+
+    public static final class Snapshot {
+        final long[] counts = new long[BUCKETS];
+        long count, sum, max;
+
+        public long count() { return count; }
+        public long max() { return max; }
+
+        public double mean() { return count == 0 ? 0 : (double) sum / count; }
+
+        // value at percentile p (0..100): the upper bound of the bucket holding that rank
+        public long percentile(double p) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(upperBound(i), max);
+            }
+            return max;
+        }
+
+        // this - older into dst: the values recorded in between (max: the interval's highest
+        // bucket, since the running max can't be split)
+        public void minus(Snapshot older, Snapshot dst) {
+            long n = 0;
+            int top = -1;
+            for (int i = 0; i < BUCKETS; i++) {
+                long c = counts[i] - older.counts[i];
+                dst.counts[i] = c;
+                n += c;
+                if (c > 0) top = i;
+            }
+            dst.count = n;
+            dst.sum = sum - older.sum;
+            dst.max = (top < 0) ? 0 : Math.min(upperBound(top), max);
+        }
+
+        public void copyFrom(Snapshot s) {
+            System.arraycopy(s.counts, 0, counts, 0, BUCKETS);
+            count = s.count;
+            sum = s.sum;
+            max = s.max;
+        }
+    }
+}
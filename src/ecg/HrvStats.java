@@ -0,0 +1,256 @@
+package ecg;
+
+import java.lang.invoke.VarHandle;
+
+// Rolling time-domain HRV over several sliding windows (e.g. 10 s / 1 min / 5 min), updated
+// incrementally per beat instead of rescanning the sample ring.
+//
+// Beats (NN intervals, ms) go into one shared primitive ring; every window keeps its own start
+// index plus exact long running sums (RR, RR^2, squared successive differences, NN50 count)
+// and two monotonic deques of beat indices for min/max RR. A beat enters every window once and
+// leaves it once, so accept()/advance() are amortized O(1) and allocate nothing.
+//   SDNN  = sample SD of RR            RMSSD = sqrt(mean of (RR[i] - RR[i-1])^2)
+//   pNN50 = % of successive diffs > 50 ms
+//   HR    = 60000 / RR (mean HR from mean RR, min/max HR from max/min RR)
+//
+// One writer thread (the monitor's driving thread, or a waveform thread). Readers on any
+// thread get a consistent per-window copy from read(); results are published seqlock-style
+// under version(), which only changes when some window changed.
+public final class HrvStats {
+
+    // One window's results; filled by read(), reusable (no allocation per refresh)
+    public static final class Values {
+        public int beats;           // NN intervals in the window
+        public double meanRrMs;
+        public double sdnnMs;       // needs >= 2 beats
+        public double rmssdMs;      // needs >= 1 successive pair
+        public double pnn50;        // %
+        public int minHr, maxHr;
+        public double meanHr;
+
+        public boolean isEmpty() { return beats == 0; }
+    }
+
+    private static final int NO_DIFF = Integer.MIN_VALUE;
+    private static final int MIN_RR_MS = 200;    // sizes the ring: 300 bpm for the longest window
+
+    private final long[] windowNanos;
+    private final int[] windowSec;
+
+    // ====== beat ring (writer) ======
+    private final long[] ts;
+    private final int[] rr;
+    private final int[] diff;          // rr[i] - rr[i-1], NO_DIFF after clear()/gap()
+    private final int mask;
+    private long next = 0;             // index of the next beat
+    private boolean chained = false;   // does the next beat continue the previous one?
+
+    // ====== per window (writer) ======
+    private final long[] head;                  // oldest beat in the window
+    private final long[] sumRr, sumRr2, sumDiff2;
+    private final int[] pairs, nn50;
+    private final long[][] maxQ, minQ;          // beat indices, monotonic (rr falling / rising)
+    private final int[] maxH, maxT, minH, minT; // deque heads/tails (absolute, masked on access)
+
+    // ====== published results ======
+    private final double[] out;        // [window * FIELDS + field]
+    private static final int FIELDS = 8;
+    private volatile long version = 0; // odd while the writer is publishing
+
+    public HrvStats(int... windowSec) {
+        if (windowSec.length == 0) throw new IllegalArgumentException("no windows");
+        int longest = 0;
+        for (int s : windowSec) {
+            if (s <= 0) throw new IllegalArgumentException("window must be > 0 s: " + s);
+            longest = Math.max(longest, s);
+        }
+        int n = windowSec.length;
+        this.windowSec = windowSec.clone();
+        this.windowNanos = new long[n];
+        for (int w = 0; w < n; w++) windowNanos[w] = windowSec[w] * 1_000_000_000L;
+
+        int need = (int) Math.min(1 << 20, (long) longest * 1000 / MIN_RR_MS + 2);
+        int cap = Integer.highestOneBit(need);
+        if (cap < need) cap <<= 1;
+        this.mask = cap - 1;
+        this.ts = new long[cap];
+        this.rr = new int[cap];
+        this.diff = new int[cap];
+
+        head = new long[n];
+        sumRr = new long[n];
+        sumRr2 = new long[n];
+        sumDiff2 = new long[n];
+        pairs = new int[n];
+        nn50 = new int[n];
+        maxQ = new long[n][cap];
+        minQ = new long[n][cap];
+        maxH = new int[n]; maxT = new int[n];
+        minH = new int[n]; minT = new int[n];
+        out = new double[n * FIELDS];
+    }
+
+    public int windows() { return windowSec.length; }
+    public int windowSec(int w) { return windowSec[w]; }
+
+    // changes whenever published results change (even values only)
+    public long version() { return version; }
+
+    // ====== write (single writer) ======
+
+    // one NN interval ending at tsNanos (non-decreasing); rr <= 0 is ignored
+    public void accept(long tsNanos, int rrMs) {
+        if (rrMs <= 0) return;
+        if (next - oldestHead() > mask) {
+            // ring full (faster than MIN_RR_MS for a whole window): drop the oldest beat
+            long oldest = oldestHead();
+            for (int w = 0; w < head.length; w++) {
+                if (head[w] == oldest && head[w] < next) pop(w);
+            }
+        }
+
+        long i = next++;
+        int p = (int) (i & mask);
+        ts[p] = tsNanos;
+        rr[p] = rrMs;
+        diff[p] = chained ? rrMs - rr[(int) ((i - 1) & mask)] : NO_DIFF;
+        chained = true;
+
+        for (int w = 0; w < head.length; w++) {
+            push(w, i, rrMs, diff[p]);
+            expire(w, tsNanos);
+        }
+        publish();
+    }
+
+    // drop beats that fell out of their windows without a new beat (e.g. asystole, stopped feed)
+    public void advance(long nowNanos) {
+        boolean changed = false;
+        for (int w = 0; w < head.length; w++) {
+            changed |= expire(w, nowNanos);
+        }
+        if (changed) publish();
+    }
+
+    // the next beat doesn't follow the previous one (ectopic beat skipped, signal gap)
+    public void gap() {
+        chained = false;
+    }
+
+    public void clear() {
+        next = 0;
+        chained = false;
+        for (int w = 0; w < head.length; w++) {
+            head[w] = 0;
+            sumRr[w] = sumRr2[w] = sumDiff2[w] = 0;
+            pairs[w] = nn50[w] = 0;
+            maxH[w] = maxT[w] = minH[w] = minT[w] = 0;
+        }
+        publish();
+    }
+
+    private long oldestHead() {
+        long h = next;
+        for (long x : head) h = Math.min(h, x);
+        return h;
+    }
+
+    private void push(int w, long i, int v, int d) {
+        sumRr[w] += v;
+        sumRr2[w] += (long) v * v;
+        if (i > head[w] && d != NO_DIFF) {     // previous beat is in this window too
+            sumDiff2[w] += (long) d * d;
+            pairs[w]++;
+            if (Math.abs(d) > 50) nn50[w]++;
+        }
+
+        long[] q = maxQ[w];
+        while (maxT[w] != maxH[w] && rr[(int) (q[(maxT[w] - 1) & mask] & mask)] <= v) maxT[w]--;
+        q[maxT[w]++ & mask] = i;
+        q = minQ[w];
+        while (minT[w] != minH[w] && rr[(int) (q[(minT[w] - 1) & mask] & mask)] >= v) minT[w]--;
+        q[minT[w]++ & mask] = i;
+    }
+
+    private boolean expire(int w, long nowNanos) {
+        long cutoff = nowNanos - windowNanos[w];
+        boolean changed = false;
+        while (head[w] < next && ts[(int) (head[w] & mask)] < cutoff) {
+            pop(w);
+            changed = true;
+        }
+        return changed;
+    }
+
+    private void pop(int w) {
+        long h = head[w]++;
+        int v = rr[(int) (h & mask)];
+        sumRr[w] -= v;
+        sumRr2[w] -= (long) v * v;
+        if (head[w] < next) {                  // pair (h, h+1) leaves with h
+            int d = diff[(int) (head[w] & mask)];
+            if (d != NO_DIFF) {
+                sumDiff2[w] -= (long) d * d;
+                pairs[w]--;
+                if (Math.abs(d) > 50) nn50[w]--;
+            }
+        }
+        if (maxT[w] != maxH[w] && maxQ[w][maxH[w] & mask] == h) maxH[w]++;
+        if (minT[w] != minH[w] && minQ[w][minH[w] & mask] == h) minH[w]++;
+    }
+
+    private void publish() {
+        version = version + 1;          // odd: readers retry
+        VarHandle.storeStoreFence();
+        for (int w = 0; w < head.length; w++) {
+            int o = w * FIELDS;
+            long n = next - head[w];
+            if (n == 0) {
+                for (int f = 0; f < FIELDS; f++) out[o + f] = 0;
+                continue;
+            }
+            long s = sumRr[w];
+            out[o] = n;
+            out[o + 1] = (double) s / n;
+            // exact in long: n * sum(x^2) - sum(x)^2
+            out[o + 2] = (n < 2) ? 0 : Math.sqrt((double) (n * sumRr2[w] - s * s) / (n * (n - 1)));
+            out[o + 3] = (pairs[w] == 0) ? 0 : Math.sqrt((double) sumDiff2[w] / pairs[w]);
+            out[o + 4] = (pairs[w] == 0) ? 0 : 100.0 * nn50[w] / pairs[w];
+            int maxRr = rr[(int) (maxQ[w][maxH[w] & mask] & mask)];
+            int minRr = rr[(int) (minQ[w][minH[w] & mask] & mask)];
+            out[o + 5] = PatientMonitor.hrFromRr(maxRr);
+            out[o + 6] = PatientMonitor.hrFromRr(minRr);
+            out[o + 7] = 60000.0 * n / s;
+        }
+        VarHandle.storeStoreFence();
+        version = version + 1;
+    }
+
+    // ====== read (any thread) ======
+
+    // consistent copy of window w's latest results; retries while the writer is publishing
+    public void read(int w, Values dst) {
+        int o = w * FIELDS;
+        while (true) {
+            long v = version;
+            if ((v & 1) == 0) {
+                int beats = (int) out[o];
+                double meanRr = out[o + 1], sdnn = out[o + 2], rmssd = out[o + 3], pnn50 = out[o + 4];
+                double minHr = out[o + 5], maxHr = out[o + 6], meanHr = out[o + 7];
+                VarHandle.loadLoadFence();
+                if (version == v) {
+                    dst.beats = beats;
+                    dst.meanRrMs = meanRr;
+                    dst.sdnnMs = sdnn;
+                    dst.rmssdMs = rmssd;
+                    dst.pnn50 = pnn50;
+                    dst.minHr = (int) minHr;
+                    dst.maxHr = (int) maxHr;
+                    dst.meanHr = meanHr;
+                    return;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
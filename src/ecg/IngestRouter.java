@@ -0,0 +1,101 @@
+package ecg;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// IngestServer.Sink that feeds device frames into the monitor pipeline: one PatientMonitor
+// per device id (created on the first frame by the factory), RR frames through accept() like
+// any live source, raw samples into the device's WaveformBuffer (if the factory gave one).
+//
+// Runs on the ingest selector thread, which becomes the driving thread of these monitors:
+// don't add them to a MonitorScheduler, reach them with post() (commands run before each RR).
+public final class IngestRouter implements IngestServer.Sink {
+
+    public interface Factory {
+        PatientMonitor monitor(int deviceId);
+
+        // 1-lead buffer at sampleHz; null: raw samples of this device are dropped
+        default WaveformBuffer trace(int deviceId, int sampleHz) { return null; }
+    }
+
+    private final Factory factory;
+    private final Map<Integer, Device> devices = new HashMap<>();     // selector thread
+    private volatile Device[] snapshot = new Device[0];                 // for readers
+    private Device last = null;
+    private float[] scratch = new float[256];
+
+    private static final class Device {
+        final int id;
+        final PatientMonitor monitor;
+        WaveformBuffer trace;
+        int sampleHz;
+
+        Device(int id, PatientMonitor monitor) {
+            this.id = id;
+            this.monitor = monitor;
+        }
+    }
+
+    public IngestRouter(Factory factory) {
+        this.factory = factory;
+    }
+
+    // monitor of a device seen so far, null otherwise (any thread)
+    public PatientMonitor monitor(int deviceId) {
+        for (Device d : snapshot) if (d.id == deviceId) return d.monitor;
+        return null;
+    }
+
+    public int deviceCount() { return snapshot.length; }
+
+    public void forEachMonitor(Consumer<PatientMonitor> action) {
+        for (Device d : snapshot) action.accept(d.monitor);
+    }
+
+    // frames of one read batch are all from one connection: the last device usually matches
+    // (and the map lookup, which boxes ids > 127, is skipped)
+    private Device device(int id) {
+        Device d = last;
+        if (d != null && d.id == id) return d;
+        d = devices.get(id);
+        if (d == null) {
+            d = new Device(id, factory.monitor(id));
+            devices.put(id, d);
+            snapshot = devices.values().toArray(new Device[0]);
+        }
+        last = d;
+        return d;
+    }
+
+    // ====== sink (selector thread) ======
+
+    @Override
+    public void onHello(int deviceId, int sampleHz) {
+        Device d = device(deviceId);
+        if (sampleHz != d.sampleHz || d.trace == null) {
+            d.sampleHz = sampleHz;
+            d.trace = (sampleHz > 0) ? factory.trace(deviceId, sampleHz) : null;
+        }
+    }
+
+    @Override
+    public void onRr(int deviceId, long tsNanos, int hr, int rr) {
+        if (rr <= 0) return;
+        PatientMonitor m = device(deviceId).monitor;
+        m.runCommands();
+        m.accept(tsNanos, rr);
+    }
+
+    @Override
+    public void onSamples(int deviceId, long tsNanos, ByteBuffer buf, int offset, int count) {
+        WaveformBuffer t = device(deviceId).trace;
+        if (t == null) return;
+        if (scratch.length < count) scratch = new float[count];
+        for (int i = 0; i < count; i++) scratch[i] = buf.getShort(offset + 2 * i) * 0.001f;   // uV -> mV
+        int n = Math.min(count, t.capacity());
+        t.write(0, scratch, count - n, n);
+        t.commit(n);
+    }
+}
@@ -0,0 +1,362 @@
+package ecg;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Device ingestion endpoint: one non-blocking TCP selector thread ("ecg-ingest") accepting
+// any number of wearable connections speaking DeviceFrame.
+//
+// Each connection reads into its own direct buffer; complete frames are decoded in place
+// (absolute gets) and handed to the Sink with primitive args -- raw samples as a region of
+// that buffer -- so nothing is copied or allocated per frame. A partial frame stays at the
+// front (compact()) until the rest arrives. A bad magic/version/length closes the connection
+// (a byte stream can't be resynchronized reliably); the device reconnects.
+//
+// The Sink runs on the selector thread, which makes it the driving thread of whatever it
+// feeds (e.g. IngestRouter -> PatientMonitor.accept()). A RuntimeException from the Sink
+// counts as an error and closes that one connection; the selector keeps serving the rest.
+public final class IngestServer {
+
+    public interface Sink {
+        default void onHello(int deviceId, int sampleHz) {}
+
+        void onRr(int deviceId, long tsNanos, int hr, int rr);
+
+        // `count` i16 samples (uV) at buf[offset..]; only valid during the call
+        default void onSamples(int deviceId, long tsNanos, ByteBuffer buf, int offset, int count) {}
+
+        default void onDisconnect(int deviceId) {}
+    }
+
+    // Per-connection counters, written by the selector thread, readable from any thread.
+    public static final class ConnectionStats {
+        public final SocketAddress remote;
+        public final long connectedNanos;   // System.nanoTime()
+        volatile int deviceId = -1;
+        volatile long frames, bytes, rrFrames, samples, lostFrames;
+        volatile double frameRate, byteRate;    // per second, over the last rate interval
+        volatile boolean open = true;
+
+        private long lastFrames, lastBytes, lastRateNanos;
+        private int expectSeq;
+        private boolean seenSeq = false;
+
+        ConnectionStats(SocketAddress remote, long now) {
+            this.remote = remote;
+            this.connectedNanos = now;
+            this.lastRateNanos = now;
+        }
+
+        public int deviceId() { return deviceId; }
+        public long frames() { return frames; }
+        public long bytes() { return bytes; }
+        public long rrFrames() { return rrFrames; }
+        public long samples() { return samples; }
+        public long lostFrames() { return lostFrames; }
+        public double frameRate() { return frameRate; }
+        public double byteRate() { return byteRate; }
+        public boolean isOpen() { return open; }
+
+        private void updateRates(long now) {
+            double dt = (now - lastRateNanos) / 1e9;
+            if (dt <= 0) return;
+            long f = frames, b = bytes;
+            frameRate = (f - lastFrames) / dt;
+            byteRate = (b - lastBytes) / dt;
+            lastFrames = f;
+            lastBytes = b;
+            lastRateNanos = now;
+        }
+    }
+
+    private static final int READ_BUFFER = 64 * 1024;
+    private static final long RATE_INTERVAL_NANOS = 1_000_000_000L;
+    private static final long SELECT_MILLIS = 250;
+
+    private final InetSocketAddress bind;
+    private final Sink sink;
+    private final List<ConnectionStats> connections = new CopyOnWriteArrayList<>();
+
+    private volatile Thread thread = null;
+    private volatile int port = -1;
+    private Selector selector;
+    private ServerSocketChannel server;
+
+    // totals over all connections, closed ones included (selector thread)
+    private volatile long accepted = 0, errors = 0, framesTotal = 0, bytesTotal = 0, lostTotal = 0;
+    private volatile RuntimeException sinkFailure = null;
+
+    private static final class Conn {
+        final SocketChannel ch;
+        final ByteBuffer buf = ByteBuffer.allocateDirect(READ_BUFFER);
+        final ConnectionStats stats;
+
+        Conn(SocketChannel ch, ConnectionStats stats) {
+            this.ch = ch;
+            this.stats = stats;
+        }
+    }
+
+    public IngestServer(InetSocketAddress bind, Sink sink) {
+        this.bind = bind;
+        this.sink = sink;
+    }
+
+    // bound port (useful with port 0), -1 before start()
+    public int port() { return port; }
+    public long acceptedCount() { return accepted; }
+    public long errorCount() { return errors; }
+    public long frameCount() { return framesTotal; }
+    public long byteCount() { return bytesTotal; }
+    public long lostFrameCount() { return lostTotal; }
+
+    // the last exception thrown by the Sink (null if none); its connection was closed
+    public RuntimeException sinkFailure() { return sinkFailure; }
+
+    // open and recently closed connections (closed ones are dropped on the next rate update)
+    public List<ConnectionStats> connections() { return new ArrayList<>(connections); }
+
+    // ====== lifecycle ======
+
+    public synchronized void start() throws IOException {
+        if (thread != null) return;
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        try {
+            server.bind(bind);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+        port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+        Thread t = new Thread(this::run, "ecg-ingest");
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    public synchronized void stop() {
+        Thread t = thread;
+        if (t == null) return;
+        thread = null;
+        selector.wakeup();
+        try {
+            t.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ====== selector loop ======
+
+    private void run() {
+        Thread self = Thread.currentThread();
+        long nextRates = System.nanoTime() + RATE_INTERVAL_NANOS;
+        try {
+            while (thread == self) {
+                selector.select(SELECT_MILLIS);
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey k = it.next();
+                    it.remove();
+                    if (!k.isValid()) continue;
+                    if (k.isAcceptable()) accept();
+                    else if (k.isReadable()) read(k);
+                }
+                long now = System.nanoTime();
+                if (now >= nextRates) {
+                    nextRates = now + RATE_INTERVAL_NANOS;
+                    for (ConnectionStats s : connections) {
+                        if (s.open) s.updateRates(now);
+                        else connections.remove(s);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            errors++;   // selector / listening socket failed: the server stops
+        } finally {
+            for (SelectionKey k : selector.keys()) {
+                if (k.attachment() instanceof Conn c) close(k, c);
+            }
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    // a failure setting up one connection (e.g. peer already reset) closes just that channel;
+    // only server.accept() itself throws out to run()
+    private void accept() throws IOException {
+        SocketChannel ch;
+        while ((ch = server.accept()) != null) {
+            try {
+                ch.configureBlocking(false);
+                ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                ConnectionStats s = new ConnectionStats(ch.getRemoteAddress(), System.nanoTime());
+                ch.register(selector, SelectionKey.OP_READ, new Conn(ch, s));
+                connections.add(s);
+                accepted++;
+            } catch (IOException e) {
+                errors++;
+                try {
+                    ch.close();
+                } catch (IOException ignored) {}
+            }
+        }
+    }
+
+    private void read(SelectionKey k) {
+        Conn c = (Conn) k.attachment();
+        ByteBuffer buf = c.buf;
+        int n;
+        try {
+            n = c.ch.read(buf);
+        } catch (IOException e) {
+            close(k, c);
+            return;
+        }
+        if (n < 0) {
+            close(k, c);
+            return;
+        }
+        c.stats.bytes += n;
+        bytesTotal += n;
+
+        buf.flip();
+        boolean ok;
+        try {
+            ok = decode(c, buf);
+        } catch (RuntimeException e) {
+            sinkFailure = e;
+            ok = false;
+        }
+        if (!ok) {
+            errors++;
+            close(k, c);
+            return;
+        }
+        buf.compact();
+    }
+
+    // all complete frames in buf; false on a protocol error
+    private boolean decode(Conn c, ByteBuffer buf) {
+        ConnectionStats s = c.stats;
+        int at = buf.position();
+        int end = buf.limit();
+        while (end - at >= DeviceFrame.HEADER) {
+            if (!DeviceFrame.validMagic(buf, at) || DeviceFrame.version(buf, at) != DeviceFrame.VERSION) return false;
+            int len = DeviceFrame.payloadLength(buf, at);
+            if (len > DeviceFrame.MAX_PAYLOAD) return false;
+            if (end - at < DeviceFrame.HEADER + len) break;
+
+            int device = DeviceFrame.deviceId(buf, at);
+            int seq = DeviceFrame.seq(buf, at);
+            long ts = DeviceFrame.tsNanos(buf, at);
+            int p = DeviceFrame.payload(at);
+            int type = DeviceFrame.type(buf, at);
+            if (type == DeviceFrame.HELLO) {
+                if (len < 2) return false;
+                s.deviceId = device;
+                s.seenSeq = false;
+                sink.onHello(device, buf.getShort(p) & 0xFFFF);
+            } else if (type == DeviceFrame.RR) {
+                if (len < 4) return false;
+                s.rrFrames++;
+                sink.onRr(device, ts, buf.getShort(p) & 0xFFFF, buf.getShort(p + 2) & 0xFFFF);
+            } else if (type == DeviceFrame.SAMPLES) {
+                s.samples += len / 2;
+                sink.onSamples(device, ts, buf, p, len / 2);
+            } else {
+                return false;
+            }
+            if (s.seenSeq && seq - s.expectSeq > 0) {
+                s.lostFrames += seq - s.expectSeq;
+                lostTotal += seq - s.expectSeq;
+            }
+            s.expectSeq = seq + 1;
+            s.seenSeq = true;
+            s.frames++;
+            framesTotal++;
+            at += DeviceFrame.HEADER + len;
+        }
+        buf.position(at);
+        return true;
+    }
+
+    // ====== CLI ======
+
+    // Headless receiver for load tests: port [ringSec], one monitor per device, prints totals
+    // and the busiest connections every 5 s.
+    //   ./gradlew run -PmainClass=ecg.IngestServer --args="7070"
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        int ringSec = args.length > 1 ? Integer.parseInt(args[1]) : 600;
+        IngestRouter router = new IngestRouter(new IngestRouter.Factory() {
+            @Override
+            public PatientMonitor monitor(int deviceId) {
+                return new PatientMonitor(deviceId, 4, ringSec, deviceId);    // RR per beat, < 4/s
+            }
+
+            @Override
+            public WaveformBuffer trace(int deviceId, int sampleHz) {
+                return new WaveformBuffer(1, sampleHz, 1 << 12);
+            }
+        });
+        IngestServer server = new IngestServer(new InetSocketAddress(port), router);
+        server.start();
+        System.out.println("listening on " + server.port());
+        while (true) {
+            Thread.sleep(5000);
+            List<ConnectionStats> cs = server.connections();
+            double fps = 0, bps = 0;
+            for (ConnectionStats c : cs) {
+                fps += c.frameRate;
+                bps += c.byteRate;
+            }
+            int[] counts = new int[1];
+            router.forEachMonitor(m -> { if (m.isAbnormal()) counts[0]++; });
+            System.out.printf("%d devices, %d connections (%d accepted, %d errors): %.0f frames/s, %.1f KB/s, "
+                            + "%d frames lost, %d abnormal%n", router.deviceCount(), cs.size(), server.acceptedCount(),
+                    server.errorCount(), fps, bps / 1024, server.lostFrameCount(), counts[0]);
+            cs.sort((x, y) -> Double.compare(y.frameRate, x.frameRate));
+            for (int i = 0; i < Math.min(3, cs.size()); i++) {
+                ConnectionStats c = cs.get(i);
+                System.out.printf("  device %d %s: %.0f frames/s, %.1f KB/s, %d frames, %d lost%n",
+                        c.deviceId, c.remote, c.frameRate, c.byteRate / 1024, c.frames, c.lostFrames);
+            }
+        }
+    }
+
+    private void close(SelectionKey k, Conn c) {
+        k.cancel();
+        try {
+            c.ch.close();
+        } catch (IOException ignored) {}
+        if (c.stats.open) {
+            c.stats.open = false;
+            if (c.stats.deviceId >= 0) {
+                try {
+                    sink.onDisconnect(c.stats.deviceId);
+                } catch (RuntimeException e) {
+                    sinkFailure = e;
+                    errors++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ecg;
+
+import java.util.Objects;
+
+// One row of the event log as seen by the TableView / exports: a (source, seq) handle whose
+// text is formatted on demand. Creating one is cheap; only visible rows ever get one.
+public final class LogEvent {
+
+    // where rows live: the in-memory EventLog ring or the on-disk EventJournal
+    public interface Source {
+        long tsNanos(long seq);     // -1 if gone
+        LogType type(long seq);     // null if gone
+        String message(long seq);   // "" if gone
+    }
+
+    private final Source log;
+    private final long seq;
+
+    public LogEvent(Source log, long seq) {
+        this.log = log;
+        this.seq = seq;
+    }
+
+    public long seq() { return seq; }
+    public long tsNanos() { return log.tsNanos(seq); }
+
+    public String getTs() {
+        long t = log.tsNanos(seq);
+        return (t < 0) ? "" : EventLog.formatTs(t);
+    }
+
+    public String getType() {
+        LogType t = log.type(seq);
+        return (t == null) ? "" : t.name();
+    }
+
+    public String getMsg() { return log.message(seq); }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LogEvent)) return false;
+        LogEvent other = (LogEvent) o;
+        return seq == other.seq && log == other.log;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(System.identityHashCode(log), seq);
+    }
+}
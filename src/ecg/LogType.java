@@ -0,0 +1,96 @@
+package ecg;
+
+// Event-log entry types. The log stores only ordinal() + up to 4 int args (+ an optional
+// text arg for rare UI events); the message is formatted lazily from these when a row is
+// shown or exported, never on the detection path.
+public enum LogType {
+    STREAM_START,        // a = tick Hz
+    STREAM_STOP,
+    FORCE_ABNORMAL,      // a = rr, b = 1 tachy / 0 brady
+    RESET,
+    ABNORMAL_START,      // a = hr, b = rr, c = RulePlan.Kind ordinal that fired, d = its value
+    ABNORMAL_END,        // a = duration sec, b = clip samples
+    RULE_ON,             // a = RulePlan.Kind ordinal, b = rule value, c = hr, d = rr
+    RULE_OFF,            // a = RulePlan.Kind ordinal, b = rule value, c = hr, d = rr
+    RULES_LOADED,        // a = rule count, text = path
+    BLE_WARNING_TX,      // a = hr, b = rr, c = attempts
+    BLE_WARNING_TX_FAIL, // a = attempts, text = last error
+    ALERT_DROPPED,       // a = AlertBus.Topic ordinal (lane full)
+    THRESHOLD_LOW_SET,   // a = low
+    THRESHOLD_HIGH_SET,  // a = high
+    WINDOW_PRE_SET,      // a = sec
+    WINDOW_POST_SET,     // a = sec
+    BLE_TOGGLE,          // a = 1 connected / 0
+    CALL,                // text
+    NAV_OPEN,            // text = query
+    EXPORT_COPY,         // a = text length
+    EXPORT_CSV,          // text = path
+    EXPORT_JSON,         // text = path
+    EXPORT_CANCELLED,    // text = path
+    RECORDING_SAVED,     // a = samples, text = path
+    REPLAY_START,        // a = speed, text = path
+    REPLAY_STOP,         // a = samples replayed
+    STATE_CYCLE,         // a = StateCycle.State ordinal, b = bpm
+    CLIP_SAVED,          // a = clip samples, b = pre, c = episode, d = post samples
+    ERROR;               // text
+
+    private static final LogType[] VALUES = values();
+
+    public static LogType of(int code) {
+        return (code >= 0 && code < VALUES.length) ? VALUES[code] : null;
+    }
+
+    public void format(StringBuilder sb, int a, int b, int c, int d, String text) {
+        switch (this) {
+            case STREAM_START -> sb.append("RR->HR simulation started (").append(a).append("Hz summary)");
+            case STREAM_STOP -> sb.append("Simulation stopped");
+            case FORCE_ABNORMAL -> sb.append(b != 0 ? "Forced tachy (RR=" : "Forced brady (RR=").append(a).append("ms)");
+            case RESET -> sb.append("Reset to normal");
+            case ABNORMAL_START -> {
+                RulePlan.Kind k = RulePlan.Kind.of(c);
+                sb.append("HR=").append(a).append(" bpm, RR=").append(b).append("ms (")
+                        .append(k != null ? k.label : "rule " + c).append(", value=").append(d).append(')');
+            }
+            case ABNORMAL_END -> sb.append("duration=").append(a).append("s, clipSamples=").append(b);
+            case RULE_ON, RULE_OFF -> {
+                RulePlan.Kind k = RulePlan.Kind.of(a);
+                sb.append(k != null ? k.label : "rule " + a).append(this == RULE_ON ? " started" : " cleared")
+                        .append(" (value=").append(b).append(", HR=").append(c).append(" bpm, RR=").append(d).append("ms)");
+            }
+            case RULES_LOADED -> sb.append("Loaded ").append(a).append(" alert rules from ").append(text);
+            case BLE_WARNING_TX -> {
+                sb.append("Sent warning payload {hr=").append(a).append(", rr=").append(b).append('}');
+                if (c > 1) sb.append(" after ").append(c).append(" attempts");
+            }
+            case BLE_WARNING_TX_FAIL -> {
+                sb.append("BLE warning not delivered");
+                if (a > 0) sb.append(" after ").append(a).append(" attempts");
+                if (text != null) sb.append(" (").append(text).append(')');
+                sb.append(". Payload dropped.");
+            }
+            case ALERT_DROPPED -> {
+                AlertBus.Topic t = AlertBus.Topic.of(a);
+                sb.append("Alert queue full, dropped ").append(t != null ? t.name() : "alert " + a);
+            }
+            case THRESHOLD_LOW_SET -> sb.append("low=").append(a);
+            case THRESHOLD_HIGH_SET -> sb.append("high=").append(a);
+            case WINDOW_PRE_SET -> sb.append("preSec=").append(a);
+            case WINDOW_POST_SET -> sb.append("postSec=").append(a);
+            case BLE_TOGGLE -> sb.append("connected=").append(a != 0);
+            case CALL -> sb.append(text);
+            case NAV_OPEN -> sb.append("Open maps search: ").append(text);
+            case EXPORT_COPY -> sb.append("Copied report text to clipboard (len=").append(a).append(')');
+            case EXPORT_CSV -> sb.append("Saved CSV to ").append(text);
+            case EXPORT_JSON -> sb.append("Saved JSON to ").append(text);
+            case EXPORT_CANCELLED -> sb.append("Export cancelled: ").append(text);
+            case RECORDING_SAVED -> sb.append("Saved recording (").append(a).append(" samples) to ").append(text);
+            case REPLAY_START -> sb.append("Replay ").append(a).append("x: ").append(text);
+            case REPLAY_STOP -> sb.append("Replay stopped (").append(a).append(" samples)");
+            case STATE_CYCLE -> sb.append("Demo state ").append(StateCycle.State.values()[a]).append(" (")
+                    .append(b).append(" bpm)");
+            case CLIP_SAVED -> sb.append("Abnormal clip complete: ").append(a).append(" samples (pre=").append(b)
+                    .append(", episode=").append(c).append(", post=").append(d).append(')');
+            case ERROR -> sb.append(text);
+        }
+    }
+}
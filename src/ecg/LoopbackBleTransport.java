@@ -0,0 +1,44 @@
+package ecg;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+// Local stand-in for the BLE link to the wearable/phone: send() takes a few ms like a real
+// GATT write and fails with IOException while "disconnected" or, randomly, at lossRate --
+// enough to exercise AlertBus retry/backoff without hardware. Thread-safe.
+public final class LoopbackBleTransport {
+
+    private final long latencyMillis;
+    private final SplittableRandom rng;
+
+    private volatile boolean connected = true;
+    private volatile double lossRate = 0;
+    private long sent = 0;      // this
+
+    public LoopbackBleTransport(long latencyMillis, long seed) {
+        if (latencyMillis < 0) throw new IllegalArgumentException("latency must be >= 0: " + latencyMillis);
+        this.latencyMillis = latencyMillis;
+        this.rng = new SplittableRandom(seed);
+    }
+
+    public boolean connected() { return connected; }
+    public void setConnected(boolean v) { connected = v; }
+
+    public void setLossRate(double p) {
+        if (p < 0 || p > 1) throw new IllegalArgumentException("loss rate must be in [0, 1]: " + p);
+        lossRate = p;
+    }
+
+    public synchronized long sent() { return sent; }
+
+    // warning payload {hr, rr}; blocks for the link latency
+    public void send(int hr, int rr) throws IOException, InterruptedException {
+        if (!connected) throw new IOException("BLE disconnected");
+        if (latencyMillis > 0) Thread.sleep(latencyMillis);
+        synchronized (this) {
+            if (!connected) throw new IOException("BLE disconnected");
+            if (lossRate > 0 && rng.nextDouble() < lossRate) throw new IOException("BLE write not acknowledged");
+            sent++;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package ecg;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import jdk.jfr.FlightRecorder;
+
+// Hot-path instrumentation: one Histogram per Stage (recorded from any thread, lock-free),
+// named gauges (queue depths, read on demand) and three ways out:
+//   - dump()          text table of the interval since the previous dump, e.g. every minute
+//                     via startDump() -> stdout/log
+//   - Window          interval/cumulative views for an in-app panel (ecg.fx.DiagnosticsView)
+//   - registerJfr()   EcgEvents in a Flight Recording: per-second stage stats and queue
+//                     depths, one event per delivered alert and per slow tick
+// Components take a Metrics via setMetrics() and skip all timing when they have none.
+public final class Metrics {
+
+    public enum Unit { NANOS, BYTES }
+
+    public enum Stage {
+        TICK("tick", Unit.NANOS),                   // PatientMonitor.accept(), whole sample
+        RING("ring", Unit.NANOS),                   // ring append + trimRingSeconds()
+        EVALUATE("evaluate", Unit.NANOS),           // rules + abnormal state machine
+        LOG_APPEND("logAppend", Unit.NANOS),        // EventLog.append() from the monitor listener
+        TICK_LATENESS("tickLateness", Unit.NANOS),  // acquisition wakeup after the scheduled tick
+        SAMPLE_TO_ALERT("sampleToAlert", Unit.NANOS), // sample ts -> alert side-effect done
+        EXPORT("export", Unit.NANOS),
+        ALLOC_PER_TICK("allocPerTick", Unit.BYTES); // heap bytes allocated by one accept()
+
+        public final String key;
+        public final Unit unit;
+
+        Stage(String key, Unit unit) {
+            this.key = key;
+            this.unit = unit;
+        }
+
+        private static final Stage[] VALUES = values();
+    }
+
+    // a TICK above this also gets an EcgEvents.SlowTick event
+    public static final long SLOW_TICK_NANOS = 2_000_000L;
+
+    private final Histogram[] histograms = new Histogram[Stage.VALUES.length];
+    private final List<Gauge> gauges = new CopyOnWriteArrayList<>();
+    private final Window dumpWindow;
+
+    private volatile Thread dumpThread = null;
+
+    private record Gauge(String name, LongSupplier value) {}
+
+    public Metrics() {
+        for (int i = 0; i < histograms.length; i++) histograms[i] = new Histogram();
+        dumpWindow = new Window();
+    }
+
+    public Histogram histogram(Stage s) { return histograms[s.ordinal()]; }
+
+    public void record(Stage s, long value) {
+        histograms[s.ordinal()].record(value);
+    }
+
+    // an alert side-effect finished `latencyNanos` after the sample that raised it
+    public void alertDelivered(String alert, long latencyNanos) {
+        histograms[Stage.SAMPLE_TO_ALERT.ordinal()].record(latencyNanos);
+        EcgEvents.AlertLatency e = new EcgEvents.AlertLatency();
+        if (e.isEnabled()) {
+            e.alert = alert;
+            e.latency = latencyNanos;
+            e.commit();
+        }
+    }
+
+    // driving thread, after a tick: TICK histogram + slow-tick event
+    void tickDone(int monitorId, long nanos, long allocBytes) {
+        histograms[Stage.TICK.ordinal()].record(nanos);
+        if (allocBytes >= 0) histograms[Stage.ALLOC_PER_TICK.ordinal()].record(allocBytes);
+        if (nanos > SLOW_TICK_NANOS) {
+            EcgEvents.SlowTick e = new EcgEvents.SlowTick();
+            if (e.isEnabled()) {
+                e.monitor = monitorId;
+                e.tickTime = nanos;
+                e.allocated = allocBytes;
+                e.commit();
+            }
+        }
+    }
+
+    public void gauge(String name, LongSupplier value) {
+        gauges.add(new Gauge(name, value));
+    }
+
+    public int gaugeCount() { return gauges.size(); }
+    public String gaugeName(int i) { return gauges.get(i).name; }
+    public long gaugeValue(int i) { return gauges.get(i).value.getAsLong(); }
+
+    // ====== allocation ======
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean b
+                    && b.isThreadAllocatedMemorySupported()) {
+                b.setThreadAllocatedMemoryEnabled(true);
+                return b;
+            }
+        } catch (RuntimeException | LinkageError ignored) {
+            // not a HotSpot-style VM: no allocation stats
+        }
+        return null;
+    }
+
+    // heap bytes allocated by the calling thread so far, -1 if the VM can't tell
+    public static long threadAllocatedBytes() {
+        return (THREADS != null) ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    // ====== views ======
+
+    // Snapshots of every stage for a reader that polls (one Window per reader, one thread):
+    // update() moves the interval forward, interval()/total() are valid until the next update().
+    public final class Window {
+        private final Histogram.Snapshot[] prev = new Histogram.Snapshot[Stage.VALUES.length];
+        private final Histogram.Snapshot[] cur = new Histogram.Snapshot[Stage.VALUES.length];
+        private final Histogram.Snapshot[] delta = new Histogram.Snapshot[Stage.VALUES.length];
+        private long prevNanos = System.nanoTime();
+        private long intervalNanos = 0;
+
+        private Window() {
+            for (int i = 0; i < prev.length; i++) {
+                prev[i] = new Histogram.Snapshot();
+                cur[i] = new Histogram.Snapshot();
+                delta[i] = new Histogram.Snapshot();
+            }
+        }
+
+        public void update() {
+            long now = System.nanoTime();
+            intervalNanos = now - prevNanos;
+            prevNanos = now;
+            for (int i = 0; i < cur.length; i++) {
+                prev[i].copyFrom(cur[i]);
+                histograms[i].snapshot(cur[i]);
+                cur[i].minus(prev[i], delta[i]);
+            }
+        }
+
+        public long intervalNanos() { return intervalNanos; }
+        public Histogram.Snapshot interval(Stage s) { return delta[s.ordinal()]; }
+        public Histogram.Snapshot total(Stage s) { return cur[s.ordinal()]; }
+    }
+
+    public Window newWindow() { return new Window(); }
+
+    // ====== text dump ======
+
+    // Stats since the previous dump() (the first one: since creation), one row per stage.
+    public synchronized String dump() {
+        dumpWindow.update();
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append(String.format(Locale.ROOT, "ECG metrics, last %.0f s%n", dumpWindow.intervalNanos() / 1e9));
+        sb.append(String.format(Locale.ROOT, "%-14s %9s %9s %9s %9s %9s %9s%n",
+                "stage", "count", "p50", "p90", "p99", "p99.9", "max"));
+        for (Stage s : Stage.VALUES) {
+            Histogram.Snapshot h = dumpWindow.interval(s);
+            sb.append(String.format(Locale.ROOT, "%-14s %9d %9s %9s %9s %9s %9s%n", s.key, h.count(),
+                    format(s.unit, h.percentile(50)), format(s.unit, h.percentile(90)),
+                    format(s.unit, h.percentile(99)), format(s.unit, h.percentile(99.9)), format(s.unit, h.max())));
+        }
+        if (!gauges.isEmpty()) {
+            sb.append("gauges:");
+            for (Gauge g : gauges) sb.append(' ').append(g.name).append('=').append(g.value.getAsLong());
+            sb.append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    // dump() every periodMillis on a daemon thread ("metrics-dump")
+    public synchronized void startDump(long periodMillis, Consumer<String> out) {
+        if (periodMillis <= 0) throw new IllegalArgumentException("periodMillis must be > 0: " + periodMillis);
+        if (dumpThread != null) return;
+        Thread t = new Thread(() -> {
+            while (dumpThread == Thread.currentThread()) {
+                try {
+                    Thread.sleep(periodMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                out.accept(dump());
+            }
+        }, "metrics-dump");
+        t.setDaemon(true);
+        dumpThread = t;
+        t.start();
+    }
+
+    public synchronized void stopDump() {
+        Thread t = dumpThread;
+        dumpThread = null;
+        if (t != null) t.interrupt();
+    }
+
+    public static String format(Unit unit, long v) {
+        if (unit == Unit.BYTES) {
+            if (v < 1024) return v + "B";
+            if (v < 1024 * 1024) return String.format(Locale.ROOT, "%.1fKB", v / 1024.0);
+            return String.format(Locale.ROOT, "%.1fMB", v / (1024.0 * 1024));
+        }
+        if (v < 1_000) return v + "ns";
+        if (v < 1_000_000) return String.format(Locale.ROOT, "%.1fus", v / 1e3);
+        if (v < 1_000_000_000) return String.format(Locale.ROOT, "%.1fms", v / 1e6);
+        return String.format(Locale.ROOT, "%.2fs", v / 1e9);
+    }
+
+    // ====== JFR ======
+
+    // per-second StageStats + QueueDepth events while a recording with them enabled runs
+    public void registerJfr() {
+        Window w = new Window();
+        FlightRecorder.addPeriodicEvent(EcgEvents.StageStats.class, () -> {
+            synchronized (w) {
+                w.update();
+                for (Stage s : Stage.VALUES) {
+                    Histogram.Snapshot h = w.interval(s);
+                    EcgEvents.StageStats e = new EcgEvents.StageStats();
+                    e.stage = s.key;
+                    e.unit = s.unit.name();
+                    e.count = h.count();
+                    e.p50 = h.percentile(50);
+                    e.p99 = h.percentile(99);
+                    e.max = h.max();
+                    e.commit();
+                }
+            }
+        });
+        FlightRecorder.addPeriodicEvent(EcgEvents.QueueDepth.class, () -> {
+            for (Gauge g : gauges) {
+                EcgEvents.QueueDepth e = new EcgEvents.QueueDepth();
+                e.queue = g.name;
+                e.depth = g.value.getAsLong();
+                e.commit();
+            }
+        });
+    }
+}
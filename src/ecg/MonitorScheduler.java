@@ -0,0 +1,154 @@
+package ecg;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Drives many PatientMonitors at a fixed rate from a small number of shard threads.
+//
+// Each shard is one AcquisitionEngine that, on every tick, walks its monitor array in one
+// batch (commands first, then tick) with the same scheduled timestamp. Monitors are spread
+// round-robin, so 5k patients on 8 cores means ~625 monitors per shard wakeup instead of
+// 5k timers. All shards share one timeline anchor, so every patient's samples line up.
+//
+// A monitor is only ever touched by its shard thread while running; use post() to reach it.
+// Time comes from the EcgClock given at construction (default: system).
+public final class MonitorScheduler {
+
+    private final String name;
+    private final long periodNanos;
+    private final EcgClock clock;
+    private final AcquisitionEngine[] shards;
+    // copy-on-write per shard: add/remove swap the array, the shard loop just reads it
+    private final AtomicReferenceArray<PatientMonitor[]> shardMonitors;
+    private int nextShard = 0;
+
+    private volatile boolean running = false;
+    private boolean stopping = false;       // guarded by this: stop() is joining the shards
+    private volatile long anchorNanoTime;
+    private volatile long anchorEpochNanos;
+
+    public MonitorScheduler(String name, int shardCount, long periodNanos) {
+        this(name, shardCount, periodNanos, EcgClock.system());
+    }
+
+    public MonitorScheduler(String name, int shardCount, long periodNanos, EcgClock clock) {
+        if (shardCount <= 0) throw new IllegalArgumentException("shardCount must be > 0: " + shardCount);
+        this.name = name;
+        this.periodNanos = periodNanos;
+        this.clock = clock;
+        this.anchorNanoTime = clock.nanoTime();
+        this.anchorEpochNanos = clock.epochNanos();
+        this.shards = new AcquisitionEngine[shardCount];
+        this.shardMonitors = new AtomicReferenceArray<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            final int shard = i;
+            shardMonitors.set(i, new PatientMonitor[0]);
+            String threadName = (shardCount == 1) ? name : name + "-" + i;
+            shards[i] = new AcquisitionEngine(threadName, periodNanos, clock, ts -> tickShard(shard, ts));
+        }
+    }
+
+    // one shard per available core
+    public static MonitorScheduler perCore(String name, long periodNanos) {
+        return new MonitorScheduler(name, Runtime.getRuntime().availableProcessors(), periodNanos);
+    }
+
+    public String name() { return name; }
+    public int shardCount() { return shards.length; }
+    public long periodNanos() { return periodNanos; }
+    public EcgClock clock() { return clock; }
+    public AcquisitionEngine shard(int i) { return shards[i]; }
+
+    // tick lateness of every shard into m's TICK_LATENESS histogram (null: off)
+    public void setMetrics(Metrics m) {
+        Histogram h = (m != null) ? m.histogram(Metrics.Stage.TICK_LATENESS) : null;
+        for (AcquisitionEngine s : shards) s.setLatenessRecorder(h);
+    }
+
+    // ====== membership ======
+
+    public synchronized void add(PatientMonitor m) {
+        int s = nextShard;
+        nextShard = (nextShard + 1) % shards.length;
+        PatientMonitor[] old = shardMonitors.get(s);
+        PatientMonitor[] next = Arrays.copyOf(old, old.length + 1);
+        next[old.length] = m;
+        shardMonitors.set(s, next);
+    }
+
+    public synchronized boolean remove(PatientMonitor m) {
+        for (int s = 0; s < shards.length; s++) {
+            PatientMonitor[] old = shardMonitors.get(s);
+            for (int i = 0; i < old.length; i++) {
+                if (old[i] != m) continue;
+                PatientMonitor[] next = new PatientMonitor[old.length - 1];
+                System.arraycopy(old, 0, next, 0, i);
+                System.arraycopy(old, i + 1, next, i, old.length - i - 1);
+                shardMonitors.set(s, next);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized int size() {
+        int n = 0;
+        for (int s = 0; s < shards.length; s++) n += shardMonitors.get(s).length;
+        return n;
+    }
+
+    // ====== lifecycle ======
+
+    public synchronized void start() {
+        if (running || stopping) return;
+        running = true;
+        anchorNanoTime = clock.nanoTime();
+        anchorEpochNanos = clock.epochNanos();
+        for (AcquisitionEngine e : shards) e.start(anchorNanoTime, anchorEpochNanos);
+    }
+
+    // Commands posted until every shard has exited are still queued (a shard may be mid-tick)
+    // and run here after the join; only then does post() run them inline.
+    public void stop() {
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+            stopping = true;
+        }
+        for (AcquisitionEngine e : shards) e.stop();
+        synchronized (this) {
+            for (int s = 0; s < shards.length; s++) {
+                for (PatientMonitor m : shardMonitors.get(s)) m.runCommands();
+            }
+            stopping = false;
+        }
+    }
+
+    public boolean isRunning() { return running; }
+
+    // Runs cmd on m's shard thread before its next tick; runs it inline once fully stopped.
+    public void post(PatientMonitor m, Runnable cmd) {
+        synchronized (this) {
+            if (running || stopping) {
+                m.post(cmd);
+                return;
+            }
+        }
+        cmd.run();
+    }
+
+    // current time on the shared shard timeline (epoch-nanos)
+    public long epochNanos() {
+        return anchorEpochNanos + (clock.nanoTime() - anchorNanoTime);
+    }
+
+    // ====== shard loop ======
+
+    private void tickShard(int shard, long tsNanos) {
+        PatientMonitor[] ms = shardMonitors.get(shard);
+        for (PatientMonitor m : ms) {
+            m.runCommands();
+            m.tick(tsNanos);
+        }
+    }
+}
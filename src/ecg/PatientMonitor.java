@@ -0,0 +1,327 @@
+package ecg;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// UI-free single-patient monitor: RR->HR simulation, sample ring, rule-based abnormal
+// start/end state machine, pre/post clip capture and rolling HRV. Side-effects of an alert
+// (beep, BLE warning, calls) are not done here: listeners hand them to an AlertBus.
+//
+// This is the logic that used to live in EcgTest.tick()/evaluate(). A monitor is driven by
+// exactly one thread at a time (a MonitorScheduler shard, a replay loop, ...):
+//   - tick(ts)        : take the next RR value from the RrSource (default: random-walk
+//                       simulation), then accept() it
+//   - accept(ts, rr)  : feed a real/replayed RR value through ring + detection
+// Other threads talk to it through post() (commands run on the driving thread) or read the
+// volatile latest values / latestClip() metadata for display.
+public final class PatientMonitor {
+
+    // Receives detection/log events on the driving thread. Keep it cheap (queue, don't block).
+    // Args are the primitive LogType args (see LogType), so nothing is formatted here.
+    public interface Listener {
+        void onEvent(PatientMonitor m, long tsNanos, LogType type, int a, int b, int c, int d);
+
+        // after every accepted sample; viewers use it to schedule a UI refresh
+        default void onSample(PatientMonitor m, long tsNanos) {}
+    }
+
+    private static final Listener NO_LISTENER = (m, ts, type, a, b, c, d) -> {};
+
+    // Where tick() gets its RR from (called on the driving thread, once per tick), e.g. a
+    // WaveformRrSource running a QRS detector. Without one, tick() simulates RR itself.
+    public interface RrSource {
+        int nextRr(long tsNanos);
+
+        // forceRr(): continue from this RR instead of the source's own estimate
+        default void force(int rr) {}
+
+        // reset(): back to the default rhythm
+        default void reset() {}
+    }
+
+    private final int id;
+    private final int tickHz;
+    private final int ringKeepSec;
+    private final Random rng;
+
+    // ====== CONFIG (written by any thread, read by the driving thread) ======
+    private volatile int lowBpm = 40;
+    private volatile int highBpm = 180;
+    private volatile int preWindowSec = 10;
+    private volatile int postWindowSec = 10;
+
+    // ====== SIGNAL STATE (driving thread; volatile for readers) ======
+    private volatile int rrMs = 800;    // ~75 bpm
+    private volatile int hrBpm = 75;
+    private volatile boolean abnormal = false;
+
+    private long abnormalStartNanos = -1;
+
+    // alert rules (default: lowBpm/highBpm with hysteresis + debounce); setRulePlan() swaps them
+    private final RuleEngine rules = new RuleEngine(RulePlan.DEFAULT);
+
+    // ring buffer (summary samples); abnormal clips (pre + episode + post) are ranges of it
+    private final EcgRingBuffer ring;
+    private final ClipRecorder clips;
+
+    // rolling HRV over 10 s / 1 min / 5 min. Samples are per tick, so one beat is counted
+    // whenever an RR interval's worth of time has passed since the previous one.
+    private static final int[] HRV_WINDOWS_SEC = { 10, 60, 300 };
+    private final HrvStats hrv = new HrvStats(HRV_WINDOWS_SEC);
+    private long lastBeatNanos = -1;
+
+    private final ConcurrentLinkedQueue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private volatile Listener listener = NO_LISTENER;
+    private RrSource rrSource = null;   // driving thread (set before start or via post())
+    private volatile Metrics metrics = null;    // per-sample timings when set
+
+    public static final int MAX_WINDOW_SEC = 30; // upper bound for pre/post windows
+
+    public PatientMonitor(int id, int tickHz, int ringKeepSec, long seed) {
+        this.id = id;
+        this.tickHz = tickHz;
+        this.ringKeepSec = ringKeepSec;
+        this.rng = new Random(seed);
+        this.ring = new EcgRingBuffer(tickHz * ringKeepSec);
+        this.clips = new ClipRecorder(ring);
+    }
+
+    public int id() { return id; }
+    public int tickHz() { return tickHz; }
+
+    public void setRrSource(RrSource s) { rrSource = s; }
+    public RrSource rrSource() { return rrSource; }
+
+    public void setMetrics(Metrics m) { metrics = m; }
+
+    public void setListener(Listener l) {
+        listener = (l != null) ? l : NO_LISTENER;
+    }
+
+    // ====== config ======
+    public int lowBpm() { return lowBpm; }
+    public int highBpm() { return highBpm; }
+    public int preWindowSec() { return preWindowSec; }
+    public int postWindowSec() { return postWindowSec; }
+
+    public void setLowBpm(int v) { lowBpm = v; }
+    public void setHighBpm(int v) { highBpm = v; }
+    public void setPreWindowSec(int v) { preWindowSec = Math.min(v, MAX_WINDOW_SEC); }
+    public void setPostWindowSec(int v) { postWindowSec = Math.min(v, MAX_WINDOW_SEC); }
+
+    // ====== latest values (any thread) ======
+    public int rrMs() { return rrMs; }
+    public int hrBpm() { return hrBpm; }
+    public boolean isAbnormal() { return abnormal; }
+
+    // latest abnormal clip so far (grows while its episode / post window is open)
+    public int clipSize() {
+        ClipRecorder.Clip c = clips.latest();
+        return (c == null) ? 0 : c.size();
+    }
+
+    // metadata from any thread; its samples only on the driving thread (or a copyRing() slice)
+    public ClipRecorder.Clip latestClip() { return clips.latest(); }
+
+    // driving thread only
+    ClipRecorder clips() { return clips; }
+
+    // written on the driving thread; read() it from any thread
+    public HrvStats hrv() { return hrv; }
+
+    // index of the HRV window of that length, -1 if there is none
+    public static int hrvWindowIndex(long windowNanos) {
+        for (int w = 0; w < HRV_WINDOWS_SEC.length; w++) {
+            if (HRV_WINDOWS_SEC[w] * 1_000_000_000L == windowNanos) return w;
+        }
+        return -1;
+    }
+
+    // driving thread only (post() it); rules still in the new plan keep their state
+    public void setRulePlan(RulePlan plan) { rules.setPlan(plan); }
+    public RulePlan rulePlan() { return rules.plan(); }
+
+    // ring is owned by the driving thread; only touch it from there (or while stopped)
+    EcgRingBuffer ring() { return ring; }
+
+    // private copy of the whole sample history; driving thread only (post() it, e.g. for export)
+    public EcgRingBuffer copyRing() {
+        EcgRingBuffer copy = new EcgRingBuffer(Math.max(1, ring.size()));
+        copy.appendRange(ring, 0, ring.size());
+        return copy;
+    }
+
+    // ====== commands ======
+
+    // queue cmd to run on the driving thread before the next sample
+    public void post(Runnable cmd) {
+        commands.add(cmd);
+    }
+
+    public void runCommands() {
+        Runnable cmd;
+        while ((cmd = commands.poll()) != null) {
+            cmd.run();
+        }
+    }
+
+    public void forceRr(long nowNanos, int rr) {
+        if (rrSource != null) rrSource.force(rr);
+        rrMs = rr;
+        evaluate(nowNanos);
+    }
+
+    public void reset() {
+        if (rrSource != null) rrSource.reset();
+        rrMs = 800;
+        hrBpm = hrFromRr(800);
+        abnormal = false;
+        abnormalStartNanos = -1;
+        clips.clear();
+        hrv.clear();
+        lastBeatNanos = -1;
+        rules.reset();
+    }
+
+    // ====== STREAM / SIM ======
+
+    // one summary sample at tsNanos (epoch-nanos): from the RrSource, or simulated
+    public void tick(long tsNanos) {
+        RrSource src = rrSource;
+        if (src != null) {
+            accept(tsNanos, src.nextRr(tsNanos));
+            return;
+        }
+
+        int rr = rrMs;
+
+        // --- simulate RR drift ---
+        // small drift
+        if (rng.nextDouble() < 0.05) {
+            int delta = rng.nextInt(41) - 20; // -20..+20
+            rr = clamp(rr + delta, 300, 2000);
+        }
+
+        // rare abnormal episode injection
+        if (rng.nextDouble() < 0.002) {
+            boolean tachy = rng.nextBoolean();
+            rr = tachy ? (300 + rng.nextInt(180)) : (1300 + rng.nextInt(700));
+        }
+
+        accept(tsNanos, rr);
+    }
+
+    // one measured/replayed RR value at tsNanos; with metrics set, also the per-stage timings
+    // and the bytes this thread allocated
+    public void accept(long tsNanos, int rr) {
+        Metrics mx = metrics;
+        long alloc0 = (mx != null) ? Metrics.threadAllocatedBytes() : 0;
+        long t0 = (mx != null) ? System.nanoTime() : 0;
+        rrMs = rr;
+
+        // store sample in ring (summary sample), keep last ringKeepSec of them
+        ring.append(tsNanos, rr, hrFromRr(rr));
+        trimRingSeconds(tsNanos, ringKeepSec);
+        ClipRecorder.Clip done = clips.sample(tsNanos);
+        if (done != null) clipSaved(tsNanos, done);
+        long t1 = (mx != null) ? System.nanoTime() : 0;
+        trackBeats(tsNanos, rr);
+        long t2 = (mx != null) ? System.nanoTime() : 0;
+        evaluate(tsNanos);
+        long t3 = (mx != null) ? System.nanoTime() : 0;
+        listener.onSample(this, tsNanos);
+
+        if (mx != null) {
+            long t4 = System.nanoTime();
+            long alloc = (alloc0 < 0) ? -1 : Metrics.threadAllocatedBytes() - alloc0;
+            mx.record(Metrics.Stage.RING, t1 - t0);
+            mx.record(Metrics.Stage.EVALUATE, t3 - t2);
+            mx.tickDone(id, t4 - t0, alloc);
+        }
+    }
+
+    private void trackBeats(long tsNanos, int rr) {
+        long rrNanos = rr * 1_000_000L;
+        if (lastBeatNanos < 0 || tsNanos - lastBeatNanos > 2 * rrNanos + 1_000_000_000L) {
+            // first sample or a gap in the feed (pause, replay seek): restart the beat series
+            hrv.gap();
+            lastBeatNanos = tsNanos;
+        } else if (tsNanos - lastBeatNanos >= rrNanos) {
+            lastBeatNanos += rrNanos;
+            hrv.accept(tsNanos, rr);
+        } else {
+            hrv.advance(tsNanos);
+        }
+    }
+
+    // samples still needed by an open clip stay (up to the ring's capacity)
+    public void trimRingSeconds(long nowNanos, int keepSec) {
+        ring.trimBefore(nowNanos - keepSec * 1_000_000_000L, clips.pinnedSeq());
+    }
+
+    public static int hrFromRr(int rr) {
+        return (int) Math.round(60000.0 / rr);
+    }
+
+    private static int clamp(int x, int lo, int hi) {
+        return Math.max(lo, Math.min(hi, x));
+    }
+
+    // all timing comes from nowNanos, never the wall clock
+    public void evaluate(long nowNanos) {
+        int rr = rrMs;
+        int hr = hrFromRr(rr);
+        hrBpm = hr;
+
+        int low = lowBpm, high = highBpm;
+        RuleEngine e = rules;
+        e.evaluate(nowNanos, hr, rr, low, high, ring, hrv);
+        int fired = -1;     // first rule that switched on with this sample
+        for (int k = 0; k < e.changedCount(); k++) {
+            int i = e.changed(k);
+            int kind = e.plan().kind[i];
+            if (e.isActive(i)) {
+                if (fired < 0) fired = i;
+                listener.onEvent(this, nowNanos, LogType.RULE_ON, kind, (int) Math.round(e.value(i)), hr, rr);
+            } else {
+                listener.onEvent(this, nowNanos, LogType.RULE_OFF, kind, (int) Math.round(e.value(i)), hr, rr);
+            }
+        }
+        boolean nowAbnormal = e.anyActive();
+
+        if (nowAbnormal && !abnormal) {
+            // ABNORMAL START
+            abnormal = true;
+            abnormalStartNanos = nowNanos;
+
+            // clip starts preWindowSec back in the ring and grows from here on
+            ClipRecorder.Clip evicted = clips.onset(nowNanos, preWindowSec);
+            if (evicted != null) clipSaved(nowNanos, evicted);     // MAX_OPEN in flight: oldest ends early
+
+            listener.onEvent(this, nowNanos, LogType.ABNORMAL_START, hr, rr,
+                    (fired < 0) ? -1 : e.plan().kind[fired], (fired < 0) ? 0 : (int) Math.round(e.value(fired)));
+        } else if (!nowAbnormal && abnormal) {
+            // ABNORMAL END
+            abnormal = false;
+
+            // clip keeps collecting for postWindowSec after this sample (CLIP_SAVED then)
+            int clipSize = clipSize();
+            ClipRecorder.Clip done = clips.offset(nowNanos, postWindowSec);
+
+            long dur = (abnormalStartNanos < 0) ? -1 : (nowNanos - abnormalStartNanos) / 1_000_000_000L;
+            listener.onEvent(this, nowNanos, LogType.ABNORMAL_END, (int) dur, clipSize, 0, 0);
+            abnormalStartNanos = -1;
+            if (done != null) clipSaved(nowNanos, done);
+        }
+    }
+
+    private void clipSaved(long nowNanos, ClipRecorder.Clip c) {
+        listener.onEvent(this, nowNanos, LogType.CLIP_SAVED, c.size(), c.preSamples(), c.episodeSamples(), c.postSamples());
+    }
+
+    // binary search for the window start, then one bulk copy of [from, size) into dst
+    public void extractLastSecondsFromRing(long nowNanos, int sec, EcgRingBuffer dst) {
+        int from = ring.lowerBound(nowNanos - sec * 1_000_000_000L);
+        dst.appendRange(ring, from, ring.size());
+    }
+}
@@ -0,0 +1,238 @@
+package ecg;
+
+import java.util.Arrays;
+
+// Streaming Pan-Tompkins style QRS detector over raw samples (mV), any rate >= 100 Hz.
+//
+// Per sample: band-pass 5..15 Hz (two biquads), 5-point derivative, squaring, 150 ms moving
+// window integration; peaks of the integrated signal are then classified with the usual
+// adaptive thresholds:
+//   SPKI/NPKI  running signal/noise peak levels, THR1 = NPKI + 0.25 (SPKI - NPKI), THR2 = THR1 / 2
+//   refractory 200 ms; a peak within 360 ms of the last QRS whose slope is under half the last
+//   QRS slope is a T wave; no QRS for 1.66 x the mean RR -> search back with THR2.
+// The first 2 s only learn the initial levels. Detections are reported at the integrated-peak
+// sample, i.e. a constant filter delay after the R peak, so RR intervals are exact differences.
+//
+// process() allocates nothing; all state is primitive fields and arrays sized in the
+// constructor. Not thread-safe: one thread (the monitor's driving thread) feeds it.
+public final class QrsDetector {
+
+    // Called from process() for every accepted QRS. rrMs is -1 for the first one.
+    public interface Listener {
+        void onQrs(long sample, int rrMs);
+    }
+
+    private static final Listener NO_LISTENER = (s, rr) -> {};
+    private static final int RR_AVG_BEATS = 8;
+
+    private final int sampleHz;
+    private final int refractory, tWaveWindow, learnSamples;
+
+    // band-pass: high-pass then low-pass biquad (RBJ), direct form I state
+    private final double hb0, hb1, hb2, ha1, ha2;
+    private final double lb0, lb1, lb2, la1, la2;
+    private double hx1, hx2, hy1, hy2, lx1, lx2, ly1, ly2;
+
+    // derivative history (band-passed x[n-1..n-4])
+    private double d1, d2, d3, d4;
+    private final double derivScale;
+
+    // moving window integration
+    private final double[] win;
+    private int winPos = 0;
+    private double winSum = 0;
+
+    // peak tracking on the integrated signal
+    private double prevMwi = 0;
+    private boolean rising = false;
+    private double segMaxSlope = 0;     // max squared slope since the integrated signal started rising
+
+    // adaptive levels
+    private double spki, npki, thr1, thr2;
+    private double lastQrsSlope = 0;
+    private double learnMax = 0, learnSum = 0;
+
+    // search-back candidate: best sub-THR1 peak since the last QRS
+    private long candSample = -1;
+    private double candPeak = 0, candSlope = 0;
+
+    // RR bookkeeping
+    private long sample = 0;            // index of the next input sample
+    private long lastQrs = -1;
+    private final int[] rrs = new int[RR_AVG_BEATS];
+    private int rrCount = 0, rrPos = 0;
+    private long rrSum = 0;
+    private int lastRrMs = -1;
+    private long beats = 0;
+
+    private Listener listener = NO_LISTENER;
+
+    public QrsDetector(int sampleHz) {
+        if (sampleHz < 100) throw new IllegalArgumentException("sampleHz must be >= 100: " + sampleHz);
+        this.sampleHz = sampleHz;
+        this.refractory = ms(200);
+        this.tWaveWindow = ms(360);
+        this.learnSamples = ms(2000);
+        this.win = new double[Math.max(1, ms(150))];
+        this.derivScale = sampleHz / 8.0;
+
+        // RBJ cookbook biquads, Q = 1/sqrt(2)
+        double q = Math.sqrt(0.5);
+        double w = 2 * Math.PI * 5.0 / sampleHz, al = Math.sin(w) / (2 * q), c = Math.cos(w), a0 = 1 + al;
+        hb0 = (1 + c) / 2 / a0; hb1 = -(1 + c) / a0; hb2 = hb0;
+        ha1 = -2 * c / a0; ha2 = (1 - al) / a0;
+        w = 2 * Math.PI * 15.0 / sampleHz; al = Math.sin(w) / (2 * q); c = Math.cos(w); a0 = 1 + al;
+        lb0 = (1 - c) / 2 / a0; lb1 = (1 - c) / a0; lb2 = lb0;
+        la1 = -2 * c / a0; la2 = (1 - al) / a0;
+    }
+
+    public int sampleHz() { return sampleHz; }
+    public void setListener(Listener l) { listener = (l == null) ? NO_LISTENER : l; }
+
+    public long samples() { return sample; }
+    public long beats() { return beats; }
+
+    // RR (ms) between the last two QRS, -1 before the second one
+    public int lastRrMs() { return lastRrMs; }
+
+    // mean of the last (up to) 8 RR intervals, -1 if none yet
+    public int meanRrMs() { return rrCount == 0 ? -1 : (int) (rrSum / rrCount); }
+
+    public void reset() {
+        hx1 = hx2 = hy1 = hy2 = lx1 = lx2 = ly1 = ly2 = 0;
+        d1 = d2 = d3 = d4 = 0;
+        Arrays.fill(win, 0);
+        winPos = 0;
+        winSum = 0;
+        prevMwi = 0;
+        rising = false;
+        segMaxSlope = 0;
+        spki = npki = thr1 = thr2 = 0;
+        lastQrsSlope = 0;
+        learnMax = learnSum = 0;
+        candSample = -1;
+        candPeak = candSlope = 0;
+        sample = 0;
+        lastQrs = -1;
+        Arrays.fill(rrs, 0);
+        rrCount = rrPos = 0;
+        rrSum = 0;
+        lastRrMs = -1;
+        beats = 0;
+    }
+
+    // ====== streaming ======
+
+    public void process(float[] x, int off, int n) {
+        for (int i = off, end = off + n; i < end; i++) {
+            step(x[i]);
+        }
+    }
+
+    private void step(double x) {
+        // band-pass
+        double h = hb0 * x + hb1 * hx1 + hb2 * hx2 - ha1 * hy1 - ha2 * hy2;
+        hx2 = hx1; hx1 = x; hy2 = hy1; hy1 = h;
+        double b = lb0 * h + lb1 * lx1 + lb2 * lx2 - la1 * ly1 - la2 * ly2;
+        lx2 = lx1; lx1 = h; ly2 = ly1; ly1 = b;
+
+        // derivative + squaring
+        double d = (2 * b + d1 - d3 - 2 * d4) * derivScale;
+        d4 = d3; d3 = d2; d2 = d1; d1 = b;
+        double sq = d * d;
+
+        // moving window integration (exact re-sum once per window: no float drift)
+        winSum += sq - win[winPos];
+        win[winPos] = sq;
+        if (++winPos == win.length) {
+            winPos = 0;
+            double s = 0;
+            for (double v : win) s += v;
+            winSum = s;
+        }
+        double mwi = winSum / win.length;
+
+        long now = sample++;
+        if (now < learnSamples) {
+            if (mwi > learnMax) learnMax = mwi;
+            learnSum += mwi;
+            if (now == learnSamples - 1) {
+                spki = learnMax / 3;
+                npki = learnSum / learnSamples / 2;
+                updateThresholds();
+            }
+            prevMwi = mwi;
+            return;
+        }
+
+        if (mwi > prevMwi) {
+            if (!rising) segMaxSlope = 0;
+            rising = true;
+            if (sq > segMaxSlope) segMaxSlope = sq;
+        } else if (rising) {
+            rising = false;
+            onPeak(now - 1, prevMwi, segMaxSlope);
+        }
+        prevMwi = mwi;
+
+        // search back: nothing for 1.66 x mean RR -> take the best candidate above THR2
+        if (lastQrs >= 0 && rrCount > 0 && candSample >= 0
+                && now - lastQrs > (long) (1.66 * rrSum / rrCount * sampleHz / 1000)) {
+            if (candPeak > thr2) {
+                spki = 0.25 * candPeak + 0.75 * spki;
+                accept(candSample, candSlope);
+                updateThresholds();
+            }
+            candSample = -1;
+        }
+    }
+
+    private void onPeak(long at, double peak, double slope) {
+        if (lastQrs >= 0 && at - lastQrs < refractory) return;
+
+        if (peak > thr1) {
+            // T wave: close to the last QRS and much flatter
+            if (lastQrs >= 0 && at - lastQrs < tWaveWindow && slope < 0.5 * lastQrsSlope) {
+                npki = 0.125 * peak + 0.875 * npki;
+            } else {
+                spki = 0.125 * peak + 0.875 * spki;
+                accept(at, slope);
+            }
+        } else {
+            npki = 0.125 * peak + 0.875 * npki;
+            if (peak > candPeak || candSample < 0) {
+                candSample = at;
+                candPeak = peak;
+                candSlope = slope;
+            }
+        }
+        updateThresholds();
+    }
+
+    private void accept(long at, double slope) {
+        int rr = -1;
+        if (lastQrs >= 0) {
+            rr = (int) ((at - lastQrs) * 1000 / sampleHz);
+            rrSum += rr - rrs[rrPos];
+            rrs[rrPos] = rr;
+            rrPos = (rrPos + 1) % RR_AVG_BEATS;
+            if (rrCount < RR_AVG_BEATS) rrCount++;
+            lastRrMs = rr;
+        }
+        lastQrs = at;
+        lastQrsSlope = slope;
+        candSample = -1;
+        candPeak = 0;
+        beats++;
+        listener.onQrs(at, rr);
+    }
+
+    private void updateThresholds() {
+        thr1 = npki + 0.25 * (spki - npki);
+        thr2 = 0.5 * thr1;
+    }
+
+    private int ms(int ms) {
+        return (int) ((long) ms * sampleHz / 1000);
+    }
+}
@@ -0,0 +1,272 @@
+package ecg;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Read side of the .ecgrec session recording format (written by RecordingWriter).
+//
+// Layout (little endian):
+//   file header  32B : magic 'ECGR', version, tickHz, createdEpochNanos, reserved
+//   chunk*            : header 32B (magic 'CHNK', count, firstTs, lastTs, firstRr, payloadBytes)
+//                       + payload: count-1 samples as zigzag varints of
+//                         (ts delta - previous ts delta) and (rr - previous rr)
+//   index             : chunkCount x (firstTs, fileOffset, count) = 20B each
+//   trailer      16B  : indexOffset, chunkCount, magic 'CIDX'
+// Fixed-rate timestamps make the delta-of-delta 0 almost always, so a sample is ~2 bytes
+// (24h @ 20Hz ~ 4MB).
+//
+// The file is memory-mapped read-only and decoded in place (no copies, no per-sample objects).
+// seek(ts) binary-searches the chunk index, then decodes at most one chunk. A recording
+// whose writer died before close() has no trailer; the index is then rebuilt by walking the
+// chunk headers and a torn last chunk is ignored.
+public final class Recording implements Closeable {
+
+    static final int MAGIC = 0x52474345;        // "ECGR"
+    static final int CHUNK_MAGIC = 0x4B4E4843;  // "CHNK"
+    static final int INDEX_MAGIC = 0x58444943;  // "CIDX"
+    static final int VERSION = 1;
+    static final int FILE_HEADER_BYTES = 32;
+    static final int CHUNK_HEADER_BYTES = 32;
+    static final int INDEX_ENTRY_BYTES = 20;
+    static final int TRAILER_BYTES = 16;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int tickHz;
+    private final long createdEpochNanos;
+
+    // chunk index (a few thousand entries for 24h, copied out of the map once)
+    private final long[] chunkFirstTs;
+    private final long[] chunkLastTs;
+    private final int[] chunkOffset;
+    private final long[] chunkStartSample;   // prefix sum of counts
+    private final long sampleCount;
+
+    private Recording(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) throw new IOException("recording too large to map: " + size);
+        if (size < FILE_HEADER_BYTES) throw new IOException("not a recording (too short): " + path);
+        this.map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        map.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (map.getInt(0) != MAGIC) throw new IOException("not a recording (bad magic): " + path);
+        if (map.getShort(4) != VERSION) throw new IOException("unsupported recording version " + map.getShort(4));
+        this.tickHz = map.getInt(8);
+        this.createdEpochNanos = map.getLong(12);
+
+        int n = readIndexCount();
+        int[] offsets;
+        if (n >= 0) {
+            int idx = (int) map.getLong(map.limit() - TRAILER_BYTES);
+            offsets = new int[n];
+            for (int i = 0; i < n; i++) offsets[i] = (int) map.getLong(idx + i * INDEX_ENTRY_BYTES + 8);
+        } else {
+            offsets = scanChunks();
+            n = offsets.length;
+        }
+
+        chunkFirstTs = new long[n];
+        chunkLastTs = new long[n];
+        chunkOffset = offsets;
+        chunkStartSample = new long[n + 1];
+        for (int i = 0; i < n; i++) {
+            int o = offsets[i];
+            chunkFirstTs[i] = map.getLong(o + 8);
+            chunkLastTs[i] = map.getLong(o + 16);
+            chunkStartSample[i + 1] = chunkStartSample[i] + map.getInt(o + 4);
+        }
+        sampleCount = chunkStartSample[n];
+    }
+
+    public static Recording open(Path path) throws IOException {
+        return new Recording(path);
+    }
+
+    public Path path() { return path; }
+    public int tickHz() { return tickHz; }
+    public long createdEpochNanos() { return createdEpochNanos; }
+    public int chunkCount() { return chunkOffset.length; }
+    public long sampleCount() { return sampleCount; }
+    public boolean isEmpty() { return sampleCount == 0; }
+
+    public long startTs() {
+        if (isEmpty()) throw new IllegalStateException("empty recording");
+        return chunkFirstTs[0];
+    }
+
+    public long endTs() {
+        if (isEmpty()) throw new IllegalStateException("empty recording");
+        return chunkLastTs[chunkLastTs.length - 1];
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close(); // the mapping itself goes away with the buffer
+    }
+
+    // ====== cursors ======
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // cursor positioned before the first sample with ts >= tsNanos
+    public Cursor seek(long tsNanos) {
+        Cursor c = new Cursor();
+        c.seek(tsNanos);
+        return c;
+    }
+
+    // Forward iterator over the samples. Decodes straight from the mapping; not thread-safe,
+    // but any number of cursors can read the same Recording concurrently.
+    public final class Cursor {
+        private int chunk = -1;
+        private int left = 0;        // samples left in the current chunk
+        private int pos;             // absolute read position in the map
+        private long ts, delta;
+        private int rr;
+        private boolean pending;     // seek() already decoded the next sample
+
+        private Cursor() {}
+
+        public boolean next() {
+            if (pending) {
+                pending = false;
+                return true;
+            }
+            if (left == 0) {
+                if (chunk + 1 >= chunkOffset.length) return false;
+                enterChunk(chunk + 1);
+                return true;
+            }
+            long zz = readVarLong();
+            delta += (zz >>> 1) ^ -(zz & 1);
+            ts += delta;
+            int zr = (int) readVarLong();
+            rr += (zr >>> 1) ^ -(zr & 1);
+            left--;
+            return true;
+        }
+
+        public long ts() { return ts; }
+        public int rr() { return rr; }
+
+        // logical sample index of the current sample
+        public long index() { return chunkStartSample[chunk + 1] - left - 1; }
+
+        public void seek(long tsNanos) {
+            pending = false;
+            int c = chunkFor(tsNanos);
+            if (c < 0) {
+                chunk = -1;
+                left = 0;
+                return;
+            }
+            enterChunk(c);
+            while (ts < tsNanos) {
+                if (!next()) return;    // past the end: cursor exhausted
+            }
+            pending = true;
+        }
+
+        private void enterChunk(int c) {
+            int o = chunkOffset[c];
+            chunk = c;
+            left = map.getInt(o + 4) - 1;
+            ts = map.getLong(o + 8);
+            rr = map.getInt(o + 24);
+            delta = 0;
+            pos = o + CHUNK_HEADER_BYTES;
+        }
+
+        private long readVarLong() {
+            long v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = map.get(pos++);
+                v |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return v;
+        }
+    }
+
+    // last chunk whose firstTs <= ts (0 when ts precedes the recording), -1 when empty
+    private int chunkFor(long tsNanos) {
+        int n = chunkFirstTs.length;
+        if (n == 0) return -1;
+        int lo = 0, hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (chunkFirstTs[mid] <= tsNanos) lo = mid + 1;
+            else hi = mid;
+        }
+        int c = Math.max(0, lo - 1);
+        // ts falls in the gap after chunk c: start at the next chunk
+        if (chunkLastTs[c] < tsNanos && c + 1 < n) c++;
+        return c;
+    }
+
+    // ====== index ======
+
+    // chunk count from a valid trailer, -1 if the file was not closed cleanly
+    private int readIndexCount() {
+        int limit = map.limit();
+        if (limit < FILE_HEADER_BYTES + TRAILER_BYTES) return -1;
+        int t = limit - TRAILER_BYTES;
+        if (map.getInt(t + 12) != INDEX_MAGIC) return -1;
+        long idx = map.getLong(t);
+        int n = map.getInt(t + 8);
+        if (n < 0 || idx < FILE_HEADER_BYTES || idx + (long) n * INDEX_ENTRY_BYTES != t) return -1;
+        return n;
+    }
+
+    private int[] scanChunks() {
+        int[] offsets = new int[64];
+        int n = 0;
+        int o = FILE_HEADER_BYTES;
+        int limit = map.limit();
+        while (o + CHUNK_HEADER_BYTES <= limit && map.getInt(o) == CHUNK_MAGIC) {
+            int count = map.getInt(o + 4);
+            int payload = map.getInt(o + 28);
+            if (count <= 0 || payload < 0 || o + CHUNK_HEADER_BYTES + (long) payload > limit) break; // torn tail
+            if (n == offsets.length) offsets = Arrays.copyOf(offsets, n * 2);
+            offsets[n++] = o;
+            o += CHUNK_HEADER_BYTES + payload;
+        }
+        return Arrays.copyOf(offsets, n);
+    }
+
+    // ====== codec (shared with RecordingWriter) ======
+
+    static void putVarLong(ByteBuffer bb, long v) {
+        while ((v & ~0x7FL) != 0) {
+            bb.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        bb.put((byte) v);
+    }
+
+    static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    static ByteBuffer fileHeader(int tickHz, long createdEpochNanos) {
+        ByteBuffer bb = ByteBuffer.allocate(FILE_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        bb.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0)
+                .putInt(tickHz).putLong(createdEpochNanos);
+        bb.position(FILE_HEADER_BYTES).flip();
+        return bb;
+    }
+}
@@ -0,0 +1,163 @@
+package ecg;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+// Replays a Recording into a PatientMonitor through accept(), i.e. the same ring + evaluate()
+// path as live data, on its own "ecg-replay" thread.
+//
+// Pacing keeps the recorded spacing divided by `speed` (1x..1000x) against an absolute
+// timeline, like AcquisitionEngine; speed 0 replays as fast as possible. Sample timestamps
+// are the recorded ones, so durations/clip windows match the original session.
+// While running, the replay thread is the monitor's driving thread: use post() to reach it,
+// and don't let a MonitorScheduler tick the same monitor at the same time.
+public final class RecordingReplayer {
+
+    public static final double MAX_SPEED = 1000;
+    private static final long MIN_PARK_NANOS = 50_000; // below this just run the sample
+
+    private final Recording recording;
+    private final PatientMonitor monitor;
+    private final EcgClock clock;
+    private final ConcurrentLinkedQueue<Runnable> commands = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean running = false;
+    private boolean stopping = false;       // guarded by this: the replay thread hasn't exited yet
+    private volatile long replayed = 0;
+    private volatile long positionTs = -1;
+    private volatile Runnable onFinished = null;
+    private Thread thread;
+
+    public RecordingReplayer(Recording recording, PatientMonitor monitor) {
+        this(recording, monitor, EcgClock.system());
+    }
+
+    // pacing runs on clock (a Manual clock replays at any speed without real sleeps)
+    public RecordingReplayer(Recording recording, PatientMonitor monitor, EcgClock clock) {
+        this.recording = recording;
+        this.monitor = monitor;
+        this.clock = clock;
+    }
+
+    public Recording recording() { return recording; }
+    public boolean isRunning() { return running; }
+    public long replayed() { return replayed; }
+
+    // ts of the last replayed sample (-1 before the first)
+    public long positionTs() { return positionTs; }
+
+    // called on the replay thread when the end of the recording is reached (not on stop())
+    public void setOnFinished(Runnable r) { onFinished = r; }
+
+    // ====== lifecycle ======
+
+    // Starts replaying at the first sample with ts >= fromTsNanos (O(log n) seek).
+    public synchronized void start(long fromTsNanos, double speed) {
+        if (running || stopping) return;
+        if (speed != 0 && (speed < 1 || speed > MAX_SPEED)) {
+            throw new IllegalArgumentException("speed must be 0 or 1.." + (int) MAX_SPEED + ": " + speed);
+        }
+        running = true;
+        replayed = 0;
+        Recording.Cursor cursor = recording.seek(fromTsNanos);
+        thread = new Thread(() -> run(cursor, speed), "ecg-replay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Commands posted until the replay thread has exited are still queued (it may be mid-sample)
+    // and run here after the join; only then does post() run them inline.
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+            stopping = true;
+            t = thread;
+            thread = null;
+        }
+        LockSupport.unpark(t);
+        if (t != Thread.currentThread()) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            runCommands();
+            stopping = false;
+        }
+    }
+
+    // Runs cmd on the replay thread before the next sample; runs it inline once fully stopped.
+    public void post(Runnable cmd) {
+        synchronized (this) {
+            if (running || stopping) {
+                commands.add(cmd);
+                return;
+            }
+        }
+        cmd.run();
+    }
+
+    // ====== loop ======
+
+    private void run(Recording.Cursor cursor, double speed) {
+        // old samples with newer live timestamps in the ring would break its ordering
+        monitor.reset();
+        monitor.ring().clear();
+
+        long baseNano = clock.nanoTime();
+        long baseTs = Long.MIN_VALUE;
+        boolean finished = false;
+
+        while (running) {
+            if (!cursor.next()) {
+                finished = true;
+                break;
+            }
+            long ts = cursor.ts();
+            if (baseTs == Long.MIN_VALUE) baseTs = ts;
+
+            if (speed != 0) {
+                long deadline = baseNano + (long) ((ts - baseTs) / speed);
+                long now = clock.nanoTime();
+                while (running && deadline - now > MIN_PARK_NANOS) {
+                    clock.parkNanos(deadline - now);
+                    now = clock.nanoTime();
+                }
+                if (!running) break;
+            }
+
+            runCommands();
+            monitor.runCommands();
+            monitor.accept(ts, cursor.rr());
+            positionTs = ts;
+            replayed++;
+        }
+
+        if (finished) {
+            synchronized (this) {
+                running = false;
+                stopping = true;
+                thread = null;
+            }
+            runCommands();
+            Runnable r = onFinished;
+            if (r != null) r.run();
+            // last thing this thread does: from here on post() may run commands inline
+            synchronized (this) {
+                runCommands();
+                stopping = false;
+            }
+        }
+    }
+
+    private void runCommands() {
+        Runnable cmd;
+        while ((cmd = commands.poll()) != null) {
+            cmd.run();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package ecg;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// Append-only writer for .ecgrec session recordings (format: see Recording).
+//
+// append() is called on the monitor's driving thread and only stores into a primitive chunk
+// buffer; full chunks are handed to a background "ecg-recorder" thread that delta-encodes
+// and writes them, so disk latency never reaches the acquisition loop. Chunk buffers are
+// recycled through a free list (steady state: no allocation).
+//
+// close() writes the chunk index + trailer. If the process dies first, every complete chunk
+// is still readable (Recording rebuilds the index).
+public final class RecordingWriter implements Closeable {
+
+    public static final int CHUNK_SAMPLES = 1024;   // ~51s @ 20Hz
+
+    private static final class Chunk {
+        final long[] ts = new long[CHUNK_SAMPLES];
+        final int[] rr = new int[CHUNK_SAMPLES];
+        int n;
+    }
+
+    private static final Chunk END = new Chunk();
+
+    private final Path path;
+    private final FileChannel channel;
+    private final LinkedBlockingQueue<Chunk> filled = new LinkedBlockingQueue<>();
+    private final ConcurrentLinkedQueue<Chunk> free = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+
+    // producer side (driving thread)
+    private Chunk cur = new Chunk();
+    private long lastTs = Long.MIN_VALUE;
+    private boolean closed = false;
+
+    // writer thread side
+    private final ByteBuffer out = ByteBuffer.allocate(Recording.CHUNK_HEADER_BYTES + CHUNK_SAMPLES * 15)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    private long fileOffset = Recording.FILE_HEADER_BYTES;
+    private long[] indexFirstTs = new long[64];
+    private long[] indexOffset = new long[64];
+    private int[] indexCount = new int[64];
+    private int chunks = 0;
+
+    private volatile long samples = 0;
+    private volatile long bytesWritten = Recording.FILE_HEADER_BYTES;
+    private volatile IOException failure = null;
+
+    public RecordingWriter(Path path, int tickHz, long createdEpochNanos) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try {
+            writeFully(Recording.fileHeader(tickHz, createdEpochNanos));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        thread = new Thread(this::run, "ecg-recorder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public Path path() { return path; }
+    public long samples() { return samples; }
+    public long bytesWritten() { return bytesWritten; }
+
+    // ====== producer (driving thread) ======
+
+    // ts must be non-decreasing; out-of-order samples are dropped
+    public void append(long tsNanos, int rrMs) {
+        if (closed || tsNanos < lastTs) return;
+        lastTs = tsNanos;
+        Chunk c = cur;
+        c.ts[c.n] = tsNanos;
+        c.rr[c.n] = rrMs;
+        if (++c.n == CHUNK_SAMPLES) handOff();
+        samples++;
+    }
+
+    // hands the partial chunk to the writer (e.g. before a pause); the next append starts a new chunk
+    public void flush() {
+        if (!closed && cur.n > 0) handOff();
+    }
+
+    private void handOff() {
+        filled.add(cur);
+        Chunk next = free.poll();
+        if (next == null) next = new Chunk();   // writer is behind: grow the pool
+        next.n = 0;
+        cur = next;
+    }
+
+    // Flushes, writes the index and closes the file. Call from the driving thread or once it stopped.
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        flush();
+        closed = true;
+        filled.add(END);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        try {
+            if (failure == null) writeIndex();
+            channel.force(true);
+        } catch (IOException e) {
+            if (failure == null) failure = e;
+        } finally {
+            channel.close();
+        }
+        if (failure != null) throw failure;
+    }
+
+    // ====== writer thread ======
+
+    private void run() {
+        while (true) {
+            Chunk c;
+            try {
+                c = filled.take();
+            } catch (InterruptedException e) {
+                continue; // only END stops the writer, so no chunk is ever lost
+            }
+            if (c == END) return;
+            if (failure == null) {
+                try {
+                    writeChunk(c);
+                } catch (IOException e) {
+                    failure = e; // remaining chunks are dropped; close() reports it
+                }
+            }
+            free.add(c);
+        }
+    }
+
+    private void writeChunk(Chunk c) throws IOException {
+        int n = c.n;
+        out.clear();
+        out.putInt(Recording.CHUNK_MAGIC).putInt(n).putLong(c.ts[0]).putLong(c.ts[n - 1])
+                .putInt(c.rr[0]).putInt(0);    // payload size patched below
+        long prevDelta = 0;
+        for (int i = 1; i < n; i++) {
+            long delta = c.ts[i] - c.ts[i - 1];
+            Recording.putVarLong(out, Recording.zigzag(delta - prevDelta));
+            Recording.putVarLong(out, Recording.zigzag(c.rr[i] - c.rr[i - 1]));
+            prevDelta = delta;
+        }
+        int payload = out.position() - Recording.CHUNK_HEADER_BYTES;
+        out.putInt(28, payload);
+        out.flip();
+
+        if (chunks == indexOffset.length) {
+            int cap = chunks * 2;
+            indexFirstTs = Arrays.copyOf(indexFirstTs, cap);
+            indexOffset = Arrays.copyOf(indexOffset, cap);
+            indexCount = Arrays.copyOf(indexCount, cap);
+        }
+        indexFirstTs[chunks] = c.ts[0];
+        indexOffset[chunks] = fileOffset;
+        indexCount[chunks] = n;
+
+        int len = out.remaining();
+        writeFully(out);
+        chunks++;
+        fileOffset += len;
+        bytesWritten = fileOffset;
+    }
+
+    private void writeIndex() throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(chunks * Recording.INDEX_ENTRY_BYTES + Recording.TRAILER_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < chunks; i++) {
+            bb.putLong(indexFirstTs[i]).putLong(indexOffset[i]).putInt(indexCount[i]);
+        }
+        bb.putLong(fileOffset).putInt(chunks).putInt(Recording.INDEX_MAGIC);
+        bb.flip();
+        writeFully(bb);
+        bytesWritten = fileOffset + bb.limit();
+    }
+
+    private void writeFully(ByteBuffer bb) throws IOException {
+        while (bb.hasRemaining()) channel.write(bb);
+    }
+}
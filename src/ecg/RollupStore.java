@@ -0,0 +1,336 @@
+package ecg;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+// Tiered min/max/avg/count rollups of one value stream (e.g. HR), for trend charts:
+//   SECOND -> MINUTE -> HOUR -> DAY
+// A sample only touches the open 1 s bucket. When a bucket closes it is appended to its tier's
+// ring and folded into the next tier's open bucket, so every tier is always pre-aggregated and
+// a chart query reads exactly the buckets it shows (binary search + copy), never raw samples.
+// Each tier keeps a fixed number of non-empty buckets (primitive parallel arrays, no objects).
+//
+// Buckets are aligned to local time (the zone's offset when the store was created), so DAY
+// buckets are calendar days. Samples are expected in non-decreasing time order; a late sample
+// is counted into the open bucket.
+// Thread-safe: writers (one at a time) and readers synchronize on the store; both hold the lock
+// only for O(tiers) work per sample or O(points) per query.
+public final class RollupStore {
+
+    public enum Tier {
+        SECOND(1_000_000_000L, 3600),                   // 1 h
+        MINUTE(60_000_000_000L, 2 * 1440),              // 2 days
+        HOUR(3_600_000_000_000L, 62 * 24),              // 2 months
+        DAY(86_400_000_000_000L, 3 * 366);              // 3 years
+
+        public final long nanos;
+        final int capacity;
+
+        Tier(long nanos, int capacity) {
+            this.nanos = nanos;
+            this.capacity = capacity;
+        }
+    }
+
+    private static final Tier[] TIERS = Tier.values();
+
+    // Query result, reused between queries (grows to the largest result)
+    public static final class Series {
+        public long[] startNanos = new long[0];    // bucket start, epoch nanos
+        public float[] min = new float[0];
+        public float[] max = new float[0];
+        public float[] avg = new float[0];
+        public int[] count = new int[0];
+        public int size;
+
+        void ensure(int n) {
+            if (startNanos.length >= n) return;
+            int cap = Math.max(n, 2 * startNanos.length);
+            startNanos = Arrays.copyOf(startNanos, cap);
+            min = Arrays.copyOf(min, cap);
+            max = Arrays.copyOf(max, cap);
+            avg = Arrays.copyOf(avg, cap);
+            count = Arrays.copyOf(count, cap);
+        }
+
+        void add(long start, float mn, float mx, double sum, int cnt) {
+            ensure(size + 1);
+            startNanos[size] = start;
+            min[size] = mn;
+            max[size] = mx;
+            avg[size] = (float) (sum / cnt);
+            count[size] = cnt;
+            size++;
+        }
+    }
+
+    // one tier: ring of closed buckets + the open one
+    private static final class Level {
+        final long nanos;
+        final long[] key;       // bucket index in local time (ascending)
+        final float[] min, max;
+        final double[] sum;
+        final int[] count;
+        int head = 0, size = 0;
+
+        long openKey = Long.MIN_VALUE;
+        float openMin, openMax;
+        double openSum;
+        int openCount = 0;
+
+        Level(Tier t) {
+            nanos = t.nanos;
+            key = new long[t.capacity];
+            min = new float[t.capacity];
+            max = new float[t.capacity];
+            sum = new double[t.capacity];
+            count = new int[t.capacity];
+        }
+
+        int phys(int i) {
+            int p = head + i;
+            return (p >= key.length) ? p - key.length : p;
+        }
+
+        void append(long k, float mn, float mx, double s, int c) {
+            int p;
+            if (size < key.length) {
+                p = phys(size++);
+            } else {
+                p = head;
+                head = (head + 1 == key.length) ? 0 : head + 1;
+            }
+            key[p] = k;
+            min[p] = mn;
+            max[p] = mx;
+            sum[p] = s;
+            count[p] = c;
+        }
+
+        void merge(float mn, float mx, double s, int c) {
+            if (openCount == 0) {
+                openMin = mn;
+                openMax = mx;
+            } else {
+                if (mn < openMin) openMin = mn;
+                if (mx > openMax) openMax = mx;
+            }
+            openSum += s;
+            openCount += c;
+        }
+
+        // first logical index with key >= k
+        int lowerBound(long k) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (key[phys(mid)] < k) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    private static final int FILE_MAGIC = 0x45434752;   // "ECGR"
+    private static final int FILE_VERSION = 1;
+
+    private final Level[] levels = new Level[TIERS.length];
+    private final long offsetNanos;     // local time = epoch + offset
+    private long samples = 0;
+    private long secondEnd = Long.MIN_VALUE;    // epoch nanos where the open 1 s bucket ends
+
+    public RollupStore() {
+        this(ZoneId.systemDefault());
+    }
+
+    public RollupStore(ZoneId zone) {
+        this.offsetNanos = zone.getRules().getOffset(Instant.now()).getTotalSeconds() * 1_000_000_000L;
+        for (int t = 0; t < TIERS.length; t++) levels[t] = new Level(TIERS[t]);
+    }
+
+    public synchronized long samples() { return samples; }
+
+    // end of the newest sample's 1 s bucket, epoch nanos (Long.MIN_VALUE: empty)
+    public synchronized long endNanos() { return (samples == 0) ? Long.MIN_VALUE : secondEnd; }
+
+    // ====== write ======
+
+    public synchronized void add(long tsNanos, float v) {
+        addUnlocked(tsNanos, v);
+    }
+
+    // bulk load (history import/backfill): one lock round-trip for n samples
+    public synchronized void addAll(long[] tsNanos, float[] v, int off, int n) {
+        for (int i = off, end = off + n; i < end; i++) addUnlocked(tsNanos[i], v[i]);
+    }
+
+    public synchronized void clear() {
+        for (Level l : levels) {
+            l.head = l.size = 0;
+            l.openKey = Long.MIN_VALUE;
+            l.openCount = 0;
+            l.openSum = 0;
+        }
+        samples = 0;
+        secondEnd = Long.MIN_VALUE;
+    }
+
+    // ====== snapshot ======
+
+    // Every tier's buckets (~250 KB), so a long history is built once and reloaded, not re-fed.
+    // Written to a temp file and moved into place.
+    public synchronized void save(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeLong(offsetNanos);
+            out.writeLong(samples);
+            out.writeLong(secondEnd);
+            for (Level l : levels) {
+                out.writeInt(l.size);
+                for (int i = 0; i < l.size; i++) {
+                    int p = l.phys(i);
+                    out.writeLong(l.key[p]);
+                    out.writeFloat(l.min[p]);
+                    out.writeFloat(l.max[p]);
+                    out.writeDouble(l.sum[p]);
+                    out.writeInt(l.count[p]);
+                }
+                out.writeLong(l.openKey);
+                out.writeFloat(l.openMin);
+                out.writeFloat(l.openMax);
+                out.writeDouble(l.openSum);
+                out.writeInt(l.openCount);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Replaces the contents with a save()d snapshot. false (store unchanged) if the file is
+    // missing, from another version, or was aligned to a different UTC offset.
+    public boolean load(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION || in.readLong() != offsetNanos) return false;
+            long n = in.readLong();
+            long end = in.readLong();
+            Level[] read = new Level[TIERS.length];
+            for (int t = 0; t < TIERS.length; t++) {
+                Level l = read[t] = new Level(TIERS[t]);
+                int size = in.readInt();
+                if (size < 0 || size > l.key.length) throw new IOException(file + ": bad " + TIERS[t] + " size " + size);
+                for (int i = 0; i < size; i++) {
+                    l.key[i] = in.readLong();
+                    l.min[i] = in.readFloat();
+                    l.max[i] = in.readFloat();
+                    l.sum[i] = in.readDouble();
+                    l.count[i] = in.readInt();
+                }
+                l.size = size;
+                l.openKey = in.readLong();
+                l.openMin = in.readFloat();
+                l.openMax = in.readFloat();
+                l.openSum = in.readDouble();
+                l.openCount = in.readInt();
+            }
+            synchronized (this) {
+                System.arraycopy(read, 0, levels, 0, read.length);
+                samples = n;
+                secondEnd = end;
+            }
+            return true;
+        }
+    }
+
+    private void addUnlocked(long tsNanos, float v) {
+        Level s = levels[0];
+        if (tsNanos >= secondEnd) {
+            long k = Math.floorDiv(tsNanos + offsetNanos, s.nanos);
+            if (s.openCount > 0) close(0);
+            s.openKey = k;
+            secondEnd = (k + 1) * s.nanos - offsetNanos;
+        }
+        if (s.openCount == 0) {
+            s.openMin = v;
+            s.openMax = v;
+        } else {
+            if (v < s.openMin) s.openMin = v;
+            if (v > s.openMax) s.openMax = v;
+        }
+        s.openSum += v;
+        s.openCount++;
+        samples++;
+    }
+
+    // closes the open bucket of tier t: into its ring, and folded into tier t+1
+    private void close(int t) {
+        Level l = levels[t];
+        l.append(l.openKey, l.openMin, l.openMax, l.openSum, l.openCount);
+        if (t + 1 < levels.length) {
+            Level up = levels[t + 1];
+            long k = Math.floorDiv(l.openKey * l.nanos, up.nanos);
+            if (k > up.openKey) {
+                if (up.openCount > 0) close(t + 1);
+                up.openKey = k;
+            }
+            up.merge(l.openMin, l.openMax, l.openSum, l.openCount);
+        }
+        l.openCount = 0;
+        l.openSum = 0;
+    }
+
+    // ====== read ======
+
+    // Buckets of `tier` overlapping [fromNanos, toNanos) into dst (cleared first), oldest first;
+    // the newest point includes the samples not rolled up yet. O(log n + points).
+    public synchronized void query(Tier tier, long fromNanos, long toNanos, Series dst) {
+        dst.size = 0;
+        int t = tier.ordinal();
+        Level l = levels[t];
+        long fromKey = Math.floorDiv(fromNanos + offsetNanos, l.nanos);
+        long toKey = Math.floorDiv(toNanos - 1 + offsetNanos, l.nanos);
+
+        dst.ensure(l.size + t + 1);
+        for (int i = l.lowerBound(fromKey); i < l.size; i++) {
+            int p = l.phys(i);
+            if (l.key[p] > toKey) break;
+            dst.add(startNanos(l, l.key[p]), l.min[p], l.max[p], l.sum[p], l.count[p]);
+        }
+
+        // still-open buckets of this tier and below, each mapped to its bucket in `tier`
+        long lastKey = Long.MIN_VALUE;
+        double lastSum = 0;
+        for (int j = t; j >= 0; j--) {
+            Level o = levels[j];
+            if (o.openCount == 0) continue;
+            long k = Math.floorDiv(o.openKey * o.nanos, l.nanos);
+            if (k < fromKey || k > toKey) continue;
+            int last = dst.size - 1;
+            if (k == lastKey) {
+                lastSum += o.openSum;
+                dst.count[last] += o.openCount;
+                dst.min[last] = Math.min(dst.min[last], o.openMin);
+                dst.max[last] = Math.max(dst.max[last], o.openMax);
+                dst.avg[last] = (float) (lastSum / dst.count[last]);
+            } else {
+                dst.add(startNanos(l, k), o.openMin, o.openMax, o.openSum, o.openCount);
+                lastKey = k;
+                lastSum = o.openSum;
+            }
+        }
+    }
+
+    private long startNanos(Level l, long key) {
+        return key * l.nanos - offsetNanos;
+    }
+}
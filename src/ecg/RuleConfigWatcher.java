@@ -0,0 +1,93 @@
+package ecg;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+// Hot reload for a rule file: a daemon thread polls its modification time and, when it
+// changes, reads and validates it (RulePlan.parse) before handing the text to the listener,
+// so a half-saved or broken file never replaces working rules -- it is reported and the
+// previous rules stay. A missing file is not an error (built-in defaults stay in effect).
+// The listener runs on the watcher thread; compile per patient and post() to the monitors.
+public final class RuleConfigWatcher {
+
+    public interface Listener {
+        void onLoaded(Path path, String text);
+
+        default void onError(Path path, String message) {}
+    }
+
+    private final Path path;
+    private final long pollMillis;
+    private final Listener listener;
+
+    private volatile Thread thread = null;
+    private FileTime lastModified = null;   // watcher thread
+
+    public RuleConfigWatcher(Path path, long pollMillis, Listener listener) {
+        if (pollMillis <= 0) throw new IllegalArgumentException("pollMillis must be > 0: " + pollMillis);
+        this.path = path;
+        this.pollMillis = pollMillis;
+        this.listener = listener;
+    }
+
+    public Path path() { return path; }
+
+    public synchronized void start() {
+        if (thread != null) return;
+        Thread t = new Thread(this::run, "rule-watcher");
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    public synchronized void stop() {
+        Thread t = thread;
+        thread = null;
+        if (t != null) t.interrupt();
+    }
+
+    private void run() {
+        while (thread == Thread.currentThread()) {
+            poll();
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void poll() {
+        FileTime mtime;
+        try {
+            mtime = Files.getLastModifiedTime(path);
+        } catch (NoSuchFileException e) {
+            lastModified = null;
+            return;
+        } catch (IOException e) {
+            listener.onError(path, e.toString());
+            return;
+        }
+        if (mtime.equals(lastModified)) return;
+        lastModified = mtime;
+
+        String text;
+        try {
+            text = Files.readString(path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            listener.onError(path, e.toString());
+            return;
+        }
+        try {
+            RulePlan.parse(text, RulePlan.NO_PATIENT);
+        } catch (IllegalArgumentException e) {
+            listener.onError(path, e.getMessage());
+            return;
+        }
+        listener.onLoaded(path, text);
+    }
+}
@@ -0,0 +1,200 @@
+package ecg;
+
+// Per-monitor evaluation state for a RulePlan, run on the monitor's driving thread once per
+// sample. Each rule computes its value (HR, RR, irregularity, ...), compares it with its on /
+// off thresholds and goes through its own debounce timers; the monitor is abnormal while any
+// rule is active. Transitions of the last evaluate() are left in changed()/changedCount()
+// for the caller to log, so nothing is allocated or called back from here.
+//
+// setPlan() (hot reload) keeps the state of rules whose name is still in the new plan, so
+// reloading an unrelated rule doesn't end an ongoing episode.
+public final class RuleEngine {
+
+    private static final int MIN_IRREGULAR_BEATS = 8;
+
+    private RulePlan plan;
+
+    // per rule (indexed like the plan)
+    private boolean[] active;
+    private long[] pendingSince;    // when the on- (inactive) or off-condition (active) began, -1: not pending
+    private long[] activeSince;
+    private double[] value;         // last computed value
+    private double[] baseline;      // BASELINE: slow HR average (NaN until the first sample)
+    private long[] baselineFrom;    // BASELINE: first sample time (valid after one window)
+    private long[] lastTs;
+
+    private int activeCount = 0;
+    private int[] changed;
+    private int changedCount = 0;
+
+    private final HrvStats.Values hrv = new HrvStats.Values();
+
+    public RuleEngine(RulePlan plan) {
+        setPlan(plan);
+    }
+
+    public RulePlan plan() { return plan; }
+
+    public void setPlan(RulePlan p) {
+        RulePlan old = plan;
+        boolean[] oldActive = active;
+        long[] oldPending = pendingSince, oldSince = activeSince, oldFrom = baselineFrom, oldLast = lastTs;
+        double[] oldValue = value, oldBase = baseline;
+
+        int n = p.size;
+        plan = p;
+        active = new boolean[n];
+        pendingSince = new long[n];
+        activeSince = new long[n];
+        value = new double[n];
+        baseline = new double[n];
+        baselineFrom = new long[n];
+        lastTs = new long[n];
+        changed = new int[n];
+        changedCount = 0;
+        activeCount = 0;
+        for (int i = 0; i < n; i++) {
+            int j = (old == null) ? -1 : indexOf(old, p.names[i]);
+            if (j >= 0 && old.kind[j] == p.kind[i]) {
+                active[i] = oldActive[j];
+                pendingSince[i] = oldPending[j];
+                activeSince[i] = oldSince[j];
+                value[i] = oldValue[j];
+                baseline[i] = oldBase[j];
+                baselineFrom[i] = oldFrom[j];
+                lastTs[i] = oldLast[j];
+            } else {
+                pendingSince[i] = -1;
+                activeSince[i] = -1;
+                baseline[i] = Double.NaN;
+                baselineFrom[i] = -1;
+                lastTs[i] = -1;
+            }
+            if (active[i]) activeCount++;
+        }
+    }
+
+    private static int indexOf(RulePlan p, String name) {
+        for (int i = 0; i < p.size; i++) if (p.names[i].equals(name)) return i;
+        return -1;
+    }
+
+    public void reset() {
+        for (int i = 0; i < plan.size; i++) {
+            active[i] = false;
+            pendingSince[i] = -1;
+            activeSince[i] = -1;
+            value[i] = 0;
+            baseline[i] = Double.NaN;
+            baselineFrom[i] = -1;
+            lastTs[i] = -1;
+        }
+        activeCount = 0;
+        changedCount = 0;
+    }
+
+    public boolean anyActive() { return activeCount > 0; }
+    public boolean isActive(int rule) { return active[rule]; }
+    public double value(int rule) { return value[rule]; }
+    public long activeSince(int rule) { return activeSince[rule]; }
+
+    // rules that turned on/off in the last evaluate()
+    public int changedCount() { return changedCount; }
+    public int changed(int k) { return changed[k]; }
+
+    // ====== evaluation (driving thread) ======
+
+    // ring: the monitor's summary samples (newest = this one); hrvStats: its rolling HRV
+    public void evaluate(long now, int hr, int rr, int lowBpm, int highBpm, EcgRingBuffer ring, HrvStats hrvStats) {
+        RulePlan p = plan;
+        changedCount = 0;
+        int hrvRead = -1;
+
+        for (int i = 0; i < p.size; i++) {
+            double on = p.on[i];
+            double v;
+            boolean valid = true;
+            switch (p.kind[i]) {
+                case RulePlan.OP_HR_HIGH -> {
+                    v = hr;
+                    if (p.useLimit[i]) on = highBpm;
+                }
+                case RulePlan.OP_HR_LOW -> {
+                    v = hr;
+                    if (p.useLimit[i]) on = lowBpm;
+                }
+                case RulePlan.OP_PAUSE -> v = rr;
+                case RulePlan.OP_IRREGULAR -> {
+                    int w = PatientMonitor.hrvWindowIndex(p.windowNanos[i]);
+                    if (w != hrvRead) {
+                        hrvStats.read(w, hrv);
+                        hrvRead = w;
+                    }
+                    valid = hrv.beats >= MIN_IRREGULAR_BEATS && hrv.meanRrMs > 0;
+                    v = valid ? 100.0 * hrv.rmssdMs / hrv.meanRrMs : 0;
+                }
+                case RulePlan.OP_RATE_CHANGE -> {
+                    int k = ring.lowerBound(now - p.windowNanos[i]);
+                    valid = ring.size() > 0 && ring.tsAt(0) <= now - p.windowNanos[i];
+                    v = valid ? Math.abs(hr - ring.hrAt(k)) : 0;
+                }
+                default -> {    // OP_BASELINE
+                    v = baselineDeviation(i, p, now, hr);
+                    valid = !Double.isNaN(v);
+                    if (!valid) v = 0;
+                }
+            }
+            value[i] = v;
+            step(i, p, now, valid, v, on);
+        }
+    }
+
+    // hysteresis + debounce for one rule
+    private void step(int i, RulePlan p, long now, boolean valid, double v, double on) {
+        int sign = (p.kind[i] == RulePlan.OP_HR_LOW) ? -1 : +1;
+        if (!active[i]) {
+            if (valid && sign * v > sign * on) {
+                if (pendingSince[i] < 0) pendingSince[i] = now;
+                if (now - pendingSince[i] >= p.forNanos[i]) {
+                    active[i] = true;
+                    activeSince[i] = now;
+                    pendingSince[i] = -1;
+                    activeCount++;
+                    changed[changedCount++] = i;
+                }
+            } else {
+                pendingSince[i] = -1;
+            }
+        } else {
+            double off = on - sign * p.hyst[i];
+            if (!valid || sign * v < sign * off || (p.hyst[i] == 0 && v == on)) {
+                if (pendingSince[i] < 0) pendingSince[i] = now;
+                if (now - pendingSince[i] >= p.clearNanos[i]) {
+                    active[i] = false;
+                    pendingSince[i] = -1;
+                    activeCount--;
+                    changed[changedCount++] = i;
+                }
+            } else {
+                pendingSince[i] = -1;
+            }
+        }
+    }
+
+    // |HR - baseline| in % of the baseline. The baseline is an exponential average of HR with
+    // the rule's window as time constant; it's frozen while the rule is active (an episode
+    // shouldn't become the new normal) and only trusted after one window of data.
+    private double baselineDeviation(int i, RulePlan p, long now, int hr) {
+        long tau = p.windowNanos[i];
+        if (Double.isNaN(baseline[i])) {
+            baseline[i] = hr;
+            baselineFrom[i] = now;
+        } else if (!active[i] && lastTs[i] >= 0) {
+            double a = Math.min(1.0, (double) (now - lastTs[i]) / tau);
+            baseline[i] += (hr - baseline[i]) * a;
+        }
+        lastTs[i] = now;
+        if (now - baselineFrom[i] < tau || baseline[i] <= 0) return Double.NaN;
+        return 100.0 * Math.abs(hr - baseline[i]) / baseline[i];
+    }
+}
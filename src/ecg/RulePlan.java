@@ -0,0 +1,283 @@
+package ecg;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Alert rules compiled into a flat plan: one slot per rule in parallel primitive arrays
+// (kind, thresholds, debounce times, window), so RuleEngine.evaluate() is a single loop with
+// a switch per rule -- no rule objects, boxing or lambdas per sample. Immutable; one plan
+// can be shared by any number of monitors (each keeps its own RuleEngine state).
+//
+// Every rule has hysteresis and debounce built in:
+//   on     threshold that starts the rule ("limit": the monitor's lowBpm/highBpm)
+//   hyst   how far back toward normal the value has to go to release it (off = on -/+ hyst)
+//   for    how long the on-condition must hold before the rule fires (e.g. sustained tachy)
+//   clear  how long the off-condition must hold before it releases
+//
+// Text form (one rule per line, '#' comments, durations as 500ms / 3s / 5m / 1h):
+//   <name> <kind> on=<value|limit> [hyst=<value>] [for=<dur>] [clear=<dur>] [window=<dur>]
+// Lines after "[patient <id>]" only apply to that patient and replace same-named rules.
+// parseConfig() reads the text once; patients without a section all share one plan.
+public final class RulePlan {
+
+    // plan opcodes (= Kind ordinal)
+    static final int OP_HR_HIGH = 0, OP_HR_LOW = 1, OP_PAUSE = 2, OP_IRREGULAR = 3, OP_RATE_CHANGE = 4, OP_BASELINE = 5;
+
+    public enum Kind {
+        HR_HIGH("hr_high", "HR above"),             // bpm
+        HR_LOW("hr_low", "HR below"),               // bpm (fires below `on`)
+        PAUSE("pause", "RR pause"),                 // ms
+        IRREGULAR("irregular", "Irregular RR"),     // RMSSD / mean RR, % (window: 10s/60s/300s)
+        RATE_CHANGE("rate_change", "HR change"),    // |HR now - HR window ago|, bpm
+        BASELINE("baseline", "Off baseline");       // |HR - patient baseline| / baseline, % (window: baseline time constant)
+
+        public final String key;
+        public final String label;
+
+        Kind(String key, String label) {
+            this.key = key;
+            this.label = label;
+        }
+
+        private static final Kind[] VALUES = values();
+
+        public static Kind of(int code) {
+            return (code >= 0 && code < VALUES.length) ? VALUES[code] : null;
+        }
+
+        static Kind parse(String key) {
+            for (Kind k : VALUES) if (k.key.equals(key)) return k;
+            return null;
+        }
+    }
+
+    public static final int NO_PATIENT = -1;
+
+    // Both limits from the monitor config, 5 bpm hysteresis, 2 s to fire, 3 s to clear
+    public static final RulePlan DEFAULT = parse(
+            "tachy hr_high on=limit hyst=5 for=2s clear=3s\n" +
+            "brady hr_low  on=limit hyst=5 for=2s clear=3s\n", NO_PATIENT);
+
+    // ====== plan (flat) ======
+    final int size;
+    final String[] names;
+    final int[] kind;               // OP_* (Kind ordinal)
+    final boolean[] useLimit;       // on = lowBpm/highBpm of the monitor
+    final double[] on;
+    final double[] hyst;
+    final long[] forNanos;
+    final long[] clearNanos;
+    final long[] windowNanos;
+
+    private RulePlan(List<Rule> rules) {
+        size = rules.size();
+        names = new String[size];
+        kind = new int[size];
+        useLimit = new boolean[size];
+        on = new double[size];
+        hyst = new double[size];
+        forNanos = new long[size];
+        clearNanos = new long[size];
+        windowNanos = new long[size];
+        for (int i = 0; i < size; i++) {
+            Rule r = rules.get(i);
+            names[i] = r.name;
+            kind[i] = r.kind.ordinal();
+            useLimit[i] = r.useLimit;
+            on[i] = r.on;
+            hyst[i] = r.hyst;
+            forNanos[i] = r.forNanos;
+            clearNanos[i] = r.clearNanos;
+            windowNanos[i] = r.windowNanos;
+        }
+    }
+
+    public int size() { return size; }
+    public String name(int i) { return names[i]; }
+    public Kind kind(int i) { return Kind.of(kind[i]); }
+
+    // longest look-back into the monitor's sample ring (rate_change windows), 0 if none
+    public long ringLookbackNanos() {
+        long max = 0;
+        for (int i = 0; i < size; i++) {
+            if (kind[i] == OP_RATE_CHANGE) max = Math.max(max, windowNanos[i]);
+        }
+        return max;
+    }
+
+    // ====== text form ======
+
+    private static final class Rule {
+        String name;
+        Kind kind;
+        boolean useLimit;
+        double on, hyst;
+        long forNanos, clearNanos, windowNanos;
+    }
+
+    // Rules that apply to patientId (NO_PATIENT: only the common section).
+    // IllegalArgumentException with the line number on any syntax error.
+    public static RulePlan parse(String text, int patientId) {
+        return parseConfig(text).plan(patientId);
+    }
+
+    // The whole file: the common plan plus each patient section's overrides.
+    // IllegalArgumentException with the line number on any syntax error.
+    public static Config parseConfig(String text) {
+        Map<String, Rule> common = new LinkedHashMap<>();
+        Map<Integer, List<Rule>> sections = new HashMap<>();
+        List<Rule> section = null;
+        int ln = 0;
+        for (int at = 0, len = text.length(); at < len; ) {
+            int nl = text.indexOf('\n', at);
+            int end = (nl < 0) ? len : nl;
+            String line = text.substring(at, end);
+            at = end + 1;
+            ln++;
+            int hash = line.indexOf('#');
+            if (hash >= 0) line = line.substring(0, hash);
+            line = line.trim();
+            if (line.isEmpty()) continue;
+            try {
+                if (line.startsWith("[")) {
+                    int id = parseSection(line);
+                    section = sections.get(id);
+                    if (section == null) sections.put(id, section = new ArrayList<>());
+                    continue;
+                }
+                Rule r = parseRule(line);
+                if (section != null) {
+                    section.add(r);
+                } else {
+                    common.remove(r.name);      // a later definition moves to the end
+                    common.put(r.name, r);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("line " + ln + ": " + e.getMessage(), e);
+            }
+        }
+        return new Config(common, sections);
+    }
+
+    public static final class Config {
+        private final Map<String, Rule> common;
+        private final Map<Integer, List<Rule>> sections;
+        private final RulePlan commonPlan;
+
+        private Config(Map<String, Rule> common, Map<Integer, List<Rule>> sections) {
+            this.common = common;
+            this.sections = sections;
+            this.commonPlan = new RulePlan(new ArrayList<>(common.values()));
+        }
+
+        // the shared common plan unless the patient has its own section
+        public RulePlan plan(int patientId) {
+            List<Rule> own = sections.get(patientId);
+            if (own == null) return commonPlan;
+            Map<String, Rule> rules = new LinkedHashMap<>(common);
+            for (Rule r : own) {
+                rules.remove(r.name);           // a patient override moves to the end
+                rules.put(r.name, r);
+            }
+            return new RulePlan(new ArrayList<>(rules.values()));
+        }
+    }
+
+    private static int parseSection(String line) {
+        String[] t = words(line.substring(1, line.endsWith("]") ? line.length() - 1 : line.length()));
+        if (!line.endsWith("]") || t.length != 2 || !t[0].equals("patient")) {
+            throw new IllegalArgumentException("expected [patient <id>]: " + line);
+        }
+        return parseInt(t[1]);
+    }
+
+    private static Rule parseRule(String line) {
+        String[] t = words(line);
+        if (t.length < 3) throw new IllegalArgumentException("expected <name> <kind> on=...: " + line);
+        Rule r = new Rule();
+        r.name = t[0];
+        r.kind = Kind.parse(t[1].toLowerCase(Locale.ROOT));
+        if (r.kind == null) throw new IllegalArgumentException("unknown rule kind: " + t[1]);
+        r.on = Double.NaN;
+        for (int i = 2; i < t.length; i++) {
+            int eq = t[i].indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("expected key=value: " + t[i]);
+            String key = t[i].substring(0, eq), v = t[i].substring(eq + 1);
+            switch (key) {
+                case "on" -> {
+                    if (v.equals("limit")) r.useLimit = true;
+                    else r.on = parseDouble(v);
+                }
+                case "hyst" -> r.hyst = Math.abs(parseDouble(v));
+                case "for" -> r.forNanos = parseDuration(v);
+                case "clear" -> r.clearNanos = parseDuration(v);
+                case "window" -> r.windowNanos = parseDuration(v);
+                default -> throw new IllegalArgumentException("unknown key: " + key);
+            }
+        }
+        if (!r.useLimit && Double.isNaN(r.on)) throw new IllegalArgumentException(r.name + ": missing on=");
+        if (r.useLimit && r.kind != Kind.HR_HIGH && r.kind != Kind.HR_LOW) {
+            throw new IllegalArgumentException(r.name + ": on=limit only for hr_high/hr_low");
+        }
+        switch (r.kind) {
+            case IRREGULAR -> {
+                if (r.windowNanos == 0) r.windowNanos = 60_000_000_000L;
+                if (PatientMonitor.hrvWindowIndex(r.windowNanos) < 0) {
+                    throw new IllegalArgumentException(r.name + ": window must be one of the HRV windows (10s, 60s, 300s)");
+                }
+            }
+            case RATE_CHANGE, BASELINE -> {
+                if (r.windowNanos <= 0) throw new IllegalArgumentException(r.name + ": missing window=");
+            }
+            default -> {}
+        }
+        return r;
+    }
+
+    // whitespace-separated tokens (no regex: rule files are parsed at startup)
+    private static String[] words(String s) {
+        List<String> out = new ArrayList<>();
+        int i = 0, n = s.length();
+        while (i < n) {
+            while (i < n && Character.isWhitespace(s.charAt(i))) i++;
+            int start = i;
+            while (i < n && !Character.isWhitespace(s.charAt(i))) i++;
+            if (i > start) out.add(s.substring(start, i));
+        }
+        return out.toArray(new String[0]);
+    }
+
+    static long parseDuration(String v) {
+        if (v.equals("0")) return 0;
+        long unit;
+        String num;
+        if (v.endsWith("ms")) { unit = 1_000_000L; num = v.substring(0, v.length() - 2); }
+        else if (v.endsWith("s")) { unit = 1_000_000_000L; num = v.substring(0, v.length() - 1); }
+        else if (v.endsWith("m")) { unit = 60_000_000_000L; num = v.substring(0, v.length() - 1); }
+        else if (v.endsWith("h")) { unit = 3_600_000_000_000L; num = v.substring(0, v.length() - 1); }
+        else throw new IllegalArgumentException("duration needs a unit (ms/s/m/h): " + v);
+        double d = parseDouble(num);
+        if (d < 0) throw new IllegalArgumentException("negative duration: " + v);
+        return (long) (d * unit);
+    }
+
+    private static double parseDouble(String v) {
+        try {
+            return Double.parseDouble(v);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("not a number: " + v);
+        }
+    }
+
+    private static int parseInt(String v) {
+        try {
+            return Integer.parseInt(v);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("not an integer: " + v);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ecg;
+
+import java.util.Random;
+
+// The demo heart-rate state machine of ProtoAppWindow: NORMAL -> LOW -> HIGH, one step every
+// PERIOD_MILLIS, each state showing a random bpm from its range. UI-free so Headless can put
+// monitors through the same cycle. Not thread-safe: one owner (FX thread / driving thread).
+public final class StateCycle {
+
+    public enum State {
+        LOW(30, 80),
+        NORMAL(80, 100),
+        HIGH(101, 170);
+
+        public final int minBpm;
+        public final int maxBpm;    // inclusive
+
+        State(int minBpm, int maxBpm) {
+            this.minBpm = minBpm;
+            this.maxBpm = maxBpm;
+        }
+    }
+
+    public static final long PERIOD_MILLIS = 5_000;
+
+    private static final State[] ORDER = { State.NORMAL, State.LOW, State.HIGH };
+
+    private final Random rng;
+    private int idx = 0;
+
+    public StateCycle(Random rng) {
+        this.rng = rng;
+    }
+
+    public State current() { return ORDER[idx]; }
+    public State peekNext() { return ORDER[(idx + 1) % ORDER.length]; }
+
+    public State advance() {
+        idx = (idx + 1) % ORDER.length;
+        return ORDER[idx];
+    }
+
+    public int randomBpm(State s) {
+        return s.minBpm + rng.nextInt(s.maxBpm - s.minBpm + 1);
+    }
+}
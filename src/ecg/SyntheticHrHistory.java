@@ -0,0 +1,98 @@
+package ecg;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.SplittableRandom;
+
+// Demo history for trend charts: a plausible HR series (circadian cycle, daytime activity
+// bursts, slow random walk) bulk-loaded into a RollupStore, e.g. a year at 4 Hz before the
+// live feed starts. Deterministic for a seed.
+//
+// A year at 4 Hz is ~126M samples (seconds of CPU), so apps use load(): the rolled-up store is
+// cached in a file and only the time since the last run is synthesized.
+public final class SyntheticHrHistory {
+
+    private static final int BATCH = 4096;
+
+    private SyntheticHrHistory() {}
+
+    // `days` of history up to untilNanos: the cached snapshot topped up to untilNanos (or a full
+    // fill() if there is no usable cache, or it is older than `days`), then cached again.
+    // Returns the samples synthesized by this call.
+    public static long load(RollupStore store, Path cache, long untilNanos, int days, int hz, long seed) {
+        long fromNanos = untilNanos - days * 86_400_000_000_000L;
+        boolean cached;
+        try {
+            cached = store.load(cache);
+        } catch (IOException e) {
+            System.err.println("trend cache " + cache + " unreadable, rebuilding: " + e);
+            cached = false;
+        }
+        long end = cached ? store.endNanos() : Long.MIN_VALUE;
+        if (end < fromNanos || end > untilNanos) {
+            store.clear();
+            end = fromNanos;
+            cached = false;
+        }
+        long n = fill(store, end, untilNanos, hz, cached ? seed ^ end : seed);
+        try {
+            Files.createDirectories(cache.toAbsolutePath().getParent());
+            store.save(cache);
+        } catch (IOException e) {
+            System.err.println("trend cache " + cache + " not saved: " + e);
+        }
+        return n;
+    }
+
+    // samples at `hz` over [fromNanos, toNanos); returns how many were added
+    public static long fill(RollupStore store, long fromNanos, long toNanos, int hz, long seed) {
+        if (hz <= 0) throw new IllegalArgumentException("hz must be > 0: " + hz);
+        SplittableRandom rng = new SplittableRandom(seed);
+        long step = 1_000_000_000L / hz;
+        long local = ZoneId.systemDefault().getRules().getOffset(Instant.now()).getTotalSeconds() * 1_000_000_000L;
+
+        // resting HR over the day, one value per minute (night ~58, afternoon ~80)
+        float[] day = new float[1440];
+        for (int m = 0; m < day.length; m++) {
+            double h = m / 60.0;
+            day[m] = (float) (69 - 11 * Math.cos(2 * Math.PI * (h - 3) / 24) + 3 * Math.sin(2 * Math.PI * h / 12));
+        }
+
+        double walkKeep = Math.pow(0.5, 1.0 / (hz * 1800.0));   // random walk pulled back, half-life 30 min
+        double burstKeep = Math.pow(0.5, 1.0 / (hz * 600.0));   // activity fades, half-life 10 min
+
+        long[] ts = new long[BATCH];
+        float[] v = new float[BATCH];
+        double walk = 0, burst = 0;
+        long n = 0;
+        int i = 0;
+        int minute = 0;
+        long minuteEnd = Long.MIN_VALUE;
+        for (long t = fromNanos; t < toNanos; t += step) {
+            if (t >= minuteEnd) {
+                long m = Math.floorDiv(t + local, 60_000_000_000L);
+                minute = (int) Math.floorMod(m, 1440L);
+                minuteEnd = (m + 1) * 60_000_000_000L - local;
+                // daytime activity (walk/run) ~3 times an hour
+                if (burst <= 0.5 && minute > 420 && minute < 1320 && rng.nextInt(20) == 0) burst = 20 + rng.nextInt(60);
+            }
+            int r = rng.nextInt(21);                // walk step -1..1, noise -3..3
+            walk = (walk + (r % 3 - 1) * 0.05) * walkKeep;
+            if (burst > 0.5) burst *= burstKeep;
+            else burst = 0;
+
+            ts[i] = t;
+            v[i] = (float) (day[minute] + walk + burst + (r / 3 - 3));
+            if (++i == BATCH) {
+                store.addAll(ts, v, 0, i);
+                n += i;
+                i = 0;
+            }
+        }
+        store.addAll(ts, v, 0, i);
+        return n + i;
+    }
+}
@@ -0,0 +1,77 @@
+package ecg;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+
+// "yyyy-MM-dd HH:mm:ss" for epoch-nanos timestamps, cached per second.
+//
+// Samples arrive at 20Hz+ and log bursts share a second, so the calendar math (zone offset,
+// LocalDateTime) only runs when the second changes; every other call reuses the last
+// 19 ASCII bytes / String. fileName() gives the same second as "yyyyMMdd-HHmmss".
+// Not thread-safe: one instance per exporter/thread.
+public final class TsFormat {
+
+    public static final int LENGTH = 19;
+
+    private final ZoneRules rules;
+    private final byte[] bytes = new byte[LENGTH];
+    private long cachedSec = Long.MIN_VALUE;
+    private String cachedText = null;
+
+    public TsFormat() {
+        this(ZoneId.systemDefault());
+    }
+
+    public TsFormat(ZoneId zone) {
+        this.rules = zone.getRules();
+    }
+
+    // 19 ASCII bytes for tsNanos; the array is reused, valid until the next call
+    public byte[] bytes(long tsNanos) {
+        long sec = Math.floorDiv(tsNanos, 1_000_000_000L);
+        if (sec != cachedSec) encode(sec);
+        return bytes;
+    }
+
+    public String text(long tsNanos) {
+        byte[] b = bytes(tsNanos);
+        if (cachedText == null) cachedText = new String(b, 0, LENGTH, StandardCharsets.US_ASCII);
+        return cachedText;
+    }
+
+    // "yyyyMMdd-HHmmss", for file names (e.g. recordings/session-<ts>.ecgrec)
+    public String fileName(long tsNanos) {
+        byte[] b = bytes(tsNanos);
+        byte[] f = { b[0], b[1], b[2], b[3], b[5], b[6], b[8], b[9], '-', b[11], b[12], b[14], b[15], b[17], b[18] };
+        return new String(f, StandardCharsets.US_ASCII);
+    }
+
+    private void encode(long sec) {
+        ZoneOffset off = rules.getOffset(Instant.ofEpochSecond(sec));
+        LocalDateTime t = LocalDateTime.ofEpochSecond(sec, 0, off);
+        digits(t.getYear(), 0, 4);
+        bytes[4] = '-';
+        digits(t.getMonthValue(), 5, 2);
+        bytes[7] = '-';
+        digits(t.getDayOfMonth(), 8, 2);
+        bytes[10] = ' ';
+        digits(t.getHour(), 11, 2);
+        bytes[13] = ':';
+        digits(t.getMinute(), 14, 2);
+        bytes[16] = ':';
+        digits(t.getSecond(), 17, 2);
+        cachedSec = sec;
+        cachedText = null;
+    }
+
+    private void digits(int v, int off, int width) {
+        for (int i = off + width - 1; i >= off; i--) {
+            bytes[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ecg;
+
+import java.lang.invoke.VarHandle;
+
+// Raw multi-lead waveform ring (mV as float), one primitive array per lead.
+//
+// One writer thread appends whole blocks with write(lead, ...) for every lead, then publishes
+// them with commit(n); readers on other threads (the FX renderer) only see committed samples.
+// Samples are addressed by their absolute index (0 = first sample ever written), so a reader
+// just remembers how far it got. When a reader falls more than capacity() behind, the old
+// samples are gone: read() returns false and it should skip ahead to oldest().
+// clear() is only safe while no reader is active.
+public final class WaveformBuffer {
+
+    private final float[][] data;   // [lead][slot]
+    private final int capacity;
+    private final int mask;
+    private final int sampleHz;
+
+    private volatile long written = 0;   // committed samples (writes before it are visible)
+    private volatile long reserved = 0;  // end of the block being written (>= written)
+
+    // capacity is rounded up to a power of two
+    public WaveformBuffer(int leads, int sampleHz, int capacity) {
+        if (leads <= 0) throw new IllegalArgumentException("leads must be > 0: " + leads);
+        if (sampleHz <= 0) throw new IllegalArgumentException("sampleHz must be > 0: " + sampleHz);
+        if (capacity <= 0 || capacity > (1 << 30)) throw new IllegalArgumentException("bad capacity: " + capacity);
+        int cap = Integer.highestOneBit(capacity);
+        if (cap < capacity) cap <<= 1;
+        this.capacity = cap;
+        this.mask = cap - 1;
+        this.sampleHz = sampleHz;
+        this.data = new float[leads][cap];
+    }
+
+    public int leads() { return data.length; }
+    public int sampleHz() { return sampleHz; }
+    public int capacity() { return capacity; }
+
+    // absolute index one past the newest committed sample
+    public long written() { return written; }
+
+    // absolute index of the oldest sample still in the ring
+    public long oldest() { return Math.max(0, written - capacity); }
+
+    // ====== write (single writer) ======
+
+    // Copies len samples of one lead to the uncommitted slots after written(). len <= capacity.
+    public void write(int lead, float[] src, int off, int len) {
+        long w = written;
+        if (w + len > reserved) {
+            reserved = w + len;
+            VarHandle.storeStoreFence(); // readers must see `reserved` before the new data
+        }
+        float[] d = data[lead];
+        int p = (int) (w & mask);
+        int first = Math.min(len, capacity - p);
+        System.arraycopy(src, off, d, p, first);
+        if (first < len) System.arraycopy(src, off + first, d, 0, len - first);
+    }
+
+    // publishes the n samples written (per lead) since the last commit
+    public void commit(int n) {
+        written = written + n;
+    }
+
+    public void clear() {
+        written = 0;
+        reserved = 0;
+    }
+
+    // ====== read (any thread) ======
+
+    // Copies samples [from, from+len) of one lead into dst. Returns false when part of the
+    // range was not committed yet or was overwritten (possibly while copying).
+    public boolean read(int lead, long from, float[] dst, int off, int len) {
+        long w = written;
+        if (from < 0 || from + len > w || w - from > capacity) return false;
+        float[] d = data[lead];
+        int p = (int) (from & mask);
+        int first = Math.min(len, capacity - p);
+        System.arraycopy(d, p, dst, off, first);
+        if (first < len) System.arraycopy(d, 0, dst, off + first, len - first);
+        // seqlock-style check: the writer may have started overwriting the range during the copy
+        VarHandle.loadLoadFence();
+        return reserved - from <= capacity;
+    }
+}
@@ -0,0 +1,41 @@
+package ecg;
+
+// AcquisitionEngine sampler that moves one block per tick from a WaveformSource into a
+// WaveformBuffer, e.g. 250 Hz in 5-sample blocks on a 20 ms engine period. The block arrays
+// are allocated once; the engine thread is the buffer's single writer.
+public final class WaveformPump implements AcquisitionEngine.Sampler {
+
+    private final WaveformBuffer buffer;
+    private final WaveformSource source;
+    private final float[][] block;
+    private final int blockSamples;
+
+    public WaveformPump(WaveformBuffer buffer, WaveformSource source, int blockSamples) {
+        if (blockSamples <= 0 || blockSamples > buffer.capacity()) {
+            throw new IllegalArgumentException("bad blockSamples: " + blockSamples);
+        }
+        this.buffer = buffer;
+        this.source = source;
+        this.blockSamples = blockSamples;
+        this.block = new float[buffer.leads()][blockSamples];
+    }
+
+    // engine period that keeps the buffer at its sample rate
+    public long periodNanos() {
+        return blockSamples * 1_000_000_000L / buffer.sampleHz();
+    }
+
+    // convenience: an engine driving this pump on a thread called `name`
+    public AcquisitionEngine engine(String name) {
+        return new AcquisitionEngine(name, periodNanos(), this);
+    }
+
+    @Override
+    public void sample(long tsNanos) {
+        source.fill(block, blockSamples);
+        for (int lead = 0; lead < block.length; lead++) {
+            buffer.write(lead, block[lead], 0, blockSamples);
+        }
+        buffer.commit(blockSamples);
+    }
+}
@@ -0,0 +1,104 @@
+package ecg;
+
+import java.util.Random;
+
+// RR from an actual waveform: every monitor tick synthesizes the tick's share of raw samples
+// (EcgSynth) and runs them through the streaming QrsDetector; the latest detected RR is what
+// the monitor's rrMs/hrBpm/evaluate() path sees. Runs entirely on the monitor's driving thread.
+//
+// The rhythm keeps the old simulator's behaviour, just expressed as a heart rate for the
+// synthesizer: a slow random walk plus rare tachy/brady episodes. forceRr()/reset() retarget
+// the rate and hold the forced RR until the detector has seen two beats of the new rhythm.
+// Optionally the raw samples are also written to a WaveformBuffer for a live trace.
+public final class WaveformRrSource implements PatientMonitor.RrSource {
+
+    private static final int DEFAULT_BPM = 75;
+
+    private final int sampleHz;
+    private final int tickHz;
+    private final EcgSynth synth;
+    private final QrsDetector detector;
+    private final Random rng;
+    private final float[][] block;
+
+    private WaveformBuffer trace = null;
+    private long ticks = 0;
+    private int bpm = DEFAULT_BPM;
+    private int rr = 800;
+    private long seenBeats = 0;
+    private int holdBeats = 0;      // detections to ignore after a forced change
+
+    public WaveformRrSource(int sampleHz, int tickHz, long seed) {
+        this.sampleHz = sampleHz;
+        this.tickHz = tickHz;
+        this.synth = new EcgSynth(sampleHz, seed);
+        this.detector = new QrsDetector(sampleHz);
+        this.rng = new Random(seed ^ 0x9E3779B97F4A7C15L);
+        this.block = new float[1][(sampleHz + tickHz - 1) / tickHz];
+        synth.setBpm(bpm);
+    }
+
+    public EcgSynth synth() { return synth; }
+    public QrsDetector detector() { return detector; }
+
+    // also publish the raw samples (lead 0) for display; call before the monitor runs
+    public void setTrace(WaveformBuffer trace) {
+        if (trace != null && (trace.sampleHz() != sampleHz || trace.capacity() < block[0].length)) {
+            throw new IllegalArgumentException("trace must be " + sampleHz + " Hz");
+        }
+        this.trace = trace;
+    }
+
+    @Override
+    public int nextRr(long tsNanos) {
+        simulateRate();
+
+        // this tick's samples (exact over time even when tickHz doesn't divide sampleHz)
+        int n = (int) ((ticks + 1) * sampleHz / tickHz - ticks * sampleHz / tickHz);
+        ticks++;
+        synth.fill(block, n);
+        detector.process(block[0], 0, n);
+        WaveformBuffer t = trace;
+        if (t != null) {
+            t.write(0, block[0], 0, n);
+            t.commit(n);
+        }
+
+        long beats = detector.beats();
+        if (beats != seenBeats) {
+            if (holdBeats > 0) holdBeats -= (int) Math.min(holdBeats, beats - seenBeats);
+            else if (detector.lastRrMs() > 0) rr = detector.lastRrMs();
+            seenBeats = beats;
+        }
+        return rr;
+    }
+
+    @Override
+    public void force(int rr) {
+        this.rr = rr;
+        setRate(PatientMonitor.hrFromRr(rr));
+        // the beat in flight and the next one were laid out at the old rate
+        holdBeats = 2;
+    }
+
+    @Override
+    public void reset() {
+        force(60000 / DEFAULT_BPM);
+    }
+
+    // same statistics as PatientMonitor's RR simulation, in bpm
+    private void simulateRate() {
+        if (rng.nextDouble() < 0.05) {
+            setRate(bpm + rng.nextInt(5) - 2); // -2..+2
+        }
+        if (rng.nextDouble() < 0.002) {
+            boolean tachy = rng.nextBoolean();
+            setRate(tachy ? (125 + rng.nextInt(76)) : (30 + rng.nextInt(17)));
+        }
+    }
+
+    private void setRate(int v) {
+        bpm = Math.max(30, Math.min(200, v));
+        synth.setBpm(bpm);
+    }
+}
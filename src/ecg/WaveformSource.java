@@ -0,0 +1,8 @@
+package ecg;
+
+// Produces raw waveform samples block by block (called on one producer thread).
+public interface WaveformSource {
+
+    // Fills out[lead][0..n) with the next n samples (mV) of every lead.
+    void fill(float[][] out, int n);
+}
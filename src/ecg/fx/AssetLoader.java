@@ -0,0 +1,204 @@
+package ecg.fx;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.binding.Bindings;
+import javafx.beans.binding.ObjectBinding;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+// Background image loading for the dashboards' resources/ folder.
+//
+// load() only registers the file and returns an Asset right away, so start() can build the
+// whole scene and show the stage without decoding anything. A few daemon worker threads
+// decode in priority order (the current State's images first, prioritize() bumps the next
+// state's); until then every Asset shows a light placeholder, and ImageViews bound to it
+// (bind()) swap to the real image when it is published on the FX thread.
+//
+// Missing/broken files end up as a null image (same as the old safeLoad() returning null).
+public final class AssetLoader {
+
+    public static final int PRIORITY_NOW = 0;      // needed by the first frame
+    public static final int PRIORITY_SOON = 1;     // needed by the next state
+    public static final int PRIORITY_LATER = 2;    // everything else
+
+    private static final Image PLACEHOLDER = placeholder();
+
+    private final Path baseDir;
+    private final PriorityBlockingQueue<Asset> queue = new PriorityBlockingQueue<>();
+    private final AtomicLong order = new AtomicLong();
+
+    public AssetLoader(Path baseDir) {
+        this(baseDir, Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())));
+    }
+
+    public AssetLoader(Path baseDir, int threads) {
+        this.baseDir = baseDir;
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(this::work, "asset-loader-" + i);
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1); // never compete with the FX thread
+            t.start();
+        }
+    }
+
+    public Asset load(String file, int priority) {
+        return load(file, priority, null);
+    }
+
+    // afterDecode runs on the worker with the decoded image (e.g. heart metrics), before publishing
+    public Asset load(String file, int priority, BiConsumer<Path, Image> afterDecode) {
+        Asset a = new Asset(baseDir.resolve(file), priority, order.getAndIncrement(), afterDecode);
+        queue.add(a);
+        return a;
+    }
+
+    // move still-queued assets ahead (re-insert: PriorityBlockingQueue doesn't re-sort in place)
+    public void prioritize(int priority, Asset... assets) {
+        for (Asset a : assets) {
+            if (a == null || a.priority <= priority) continue;
+            if (queue.remove(a)) {
+                a.priority = priority;
+                queue.add(a);
+            }
+        }
+    }
+
+    // ====== view helpers (FX thread) ======
+
+    // v follows the asset (placeholder, then image); a == null clears the view
+    public static void bind(ImageView v, ObservableValue<Image> a) {
+        v.imageProperty().unbind();
+        if (a == null) v.setImage(null);
+        else v.imageProperty().bind(a);
+    }
+
+    // ====== worker ======
+
+    private void work() {
+        while (true) {
+            Asset a;
+            try {
+                a = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            Image img = decode(a.path);
+            if (img != null && a.afterDecode != null) {
+                try {
+                    a.afterDecode.accept(a.path, img);
+                } catch (RuntimeException e) {
+                    System.out.println("[WARN] Asset post-process failed: " + a.path + " / " + e.getMessage());
+                }
+            }
+            Platform.runLater(() -> a.publish(img));
+        }
+    }
+
+    private static Image decode(Path path) {
+        try {
+            if (!Files.exists(path)) {
+                System.out.println("[WARN] File not found: " + path);
+                return null;
+            }
+            Image img = new Image(path.toUri().toString(), false); // synchronous, on this worker
+            if (img.isError()) {
+                Exception e = img.getException();
+                System.out.println("[WARN] Failed to load: " + path + " / " + (e != null ? e.getMessage() : "?"));
+                return null;
+            }
+            return img;
+        } catch (Exception e) {
+            System.out.println("[WARN] Failed to load: " + path + " / " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Image placeholder() {
+        WritableImage img = new WritableImage(1, 1);
+        PixelWriter pw = img.getPixelWriter();
+        pw.setColor(0, 0, Color.web("#000000", 0.06));
+        return img;
+    }
+
+    // ====== Asset ======
+
+    public static final class Asset implements ObservableValue<Image>, Comparable<Asset> {
+        private final Path path;
+        private final long seq;
+        private final BiConsumer<Path, Image> afterDecode;
+        private volatile int priority;
+
+        private final ReadOnlyObjectWrapper<Image> image = new ReadOnlyObjectWrapper<>(PLACEHOLDER);
+        private boolean ready = false;      // FX thread
+        private Runnable onReady = null;    // FX thread
+
+        private Asset(Path path, int priority, long seq, BiConsumer<Path, Image> afterDecode) {
+            this.path = path;
+            this.priority = priority;
+            this.seq = seq;
+            this.afterDecode = afterDecode;
+        }
+
+        public Path path() { return path; }
+        public ReadOnlyObjectProperty<Image> imageProperty() { return image.getReadOnlyProperty(); }
+
+        // decode finished (image may still be null if the file was missing)
+        public boolean isReady() { return ready; }
+
+        // ready and nothing to show
+        public boolean isMissing() { return ready && image.get() == null; }
+
+        // runs r on the FX thread once ready (right away if it already is)
+        public void whenReady(Runnable r) {
+            if (ready) {
+                r.run();
+            } else {
+                Runnable prev = onReady;
+                onReady = (prev == null) ? r : () -> { prev.run(); r.run(); };
+            }
+        }
+
+        // this asset, or `other` if this one turned out to be missing
+        public ObjectBinding<Image> orElse(ObservableValue<Image> other) {
+            return Bindings.createObjectBinding(() -> {
+                Image v = image.get();
+                return (v != null) ? v : other.getValue();
+            }, image, other);
+        }
+
+        private void publish(Image img) {
+            ready = true;
+            image.set(img);
+            Runnable r = onReady;
+            onReady = null;
+            if (r != null) r.run();
+        }
+
+        @Override
+        public int compareTo(Asset o) {
+            int c = Integer.compare(priority, o.priority);
+            return (c != 0) ? c : Long.compare(seq, o.seq);
+        }
+
+        // ====== ObservableValue (delegates to the image property) ======
+
+        @Override public Image getValue() { return image.get(); }
+        @Override public void addListener(ChangeListener<? super Image> l) { image.addListener(l); }
+        @Override public void removeListener(ChangeListener<? super Image> l) { image.removeListener(l); }
+        @Override public void addListener(InvalidationListener l) { image.addListener(l); }
+        @Override public void removeListener(InvalidationListener l) { image.removeListener(l); }
+    }
+}
@@ -0,0 +1,80 @@
+package ecg.fx;
+
+import ecg.Histogram;
+import ecg.Metrics;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.scene.control.Label;
+import javafx.scene.layout.GridPane;
+import javafx.util.Duration;
+
+// In-app diagnostics panel for a Metrics: one row per stage (rate, p50/p99/p99.9/max over the
+// last refresh period) plus the gauges. Refreshes itself every REFRESH_SEC while in a scene;
+// labels are created once and only their text changes.
+public final class DiagnosticsView {
+
+    private static final double REFRESH_SEC = 2;
+    private static final String[] HEADER = { "stage", "/s", "p50", "p99", "p99.9", "max" };
+
+    private final Metrics metrics;
+    private final Metrics.Window window;
+    private final GridPane grid = new GridPane();
+    private final Label[][] cells = new Label[Metrics.Stage.values().length][HEADER.length - 1];
+    private final Label gaugeLine = new Label();
+    private final Timeline ticker = new Timeline(new KeyFrame(Duration.seconds(REFRESH_SEC), e -> refresh()));
+
+    public DiagnosticsView(Metrics metrics) {
+        this.metrics = metrics;
+        this.window = metrics.newWindow();
+
+        grid.setHgap(14);
+        grid.setVgap(2);
+        grid.setPadding(new Insets(8));
+        for (int c = 0; c < HEADER.length; c++) {
+            Label h = new Label(HEADER[c]);
+            h.setStyle("-fx-font-weight: bold;");
+            grid.add(h, c, 0);
+        }
+        Metrics.Stage[] stages = Metrics.Stage.values();
+        for (int r = 0; r < stages.length; r++) {
+            grid.add(new Label(stages[r].key), 0, r + 1);
+            for (int c = 0; c < cells[r].length; c++) {
+                cells[r][c] = new Label("-");
+                grid.add(cells[r][c], c + 1, r + 1);
+            }
+        }
+        grid.add(gaugeLine, 0, stages.length + 1, HEADER.length, 1);
+
+        ticker.setCycleCount(Timeline.INDEFINITE);
+        grid.sceneProperty().addListener((o, ov, nv) -> {
+            if (nv != null) ticker.play();
+            else ticker.stop();
+        });
+    }
+
+    public GridPane node() { return grid; }
+
+    // FX thread
+    public void refresh() {
+        window.update();
+        double sec = Math.max(1e-9, window.intervalNanos() / 1e9);
+        Metrics.Stage[] stages = Metrics.Stage.values();
+        for (int r = 0; r < stages.length; r++) {
+            Histogram.Snapshot h = window.interval(stages[r]);
+            Metrics.Unit u = stages[r].unit;
+            Label[] row = cells[r];
+            row[0].setText(String.format("%.0f", h.count() / sec));
+            row[1].setText(Metrics.format(u, h.percentile(50)));
+            row[2].setText(Metrics.format(u, h.percentile(99)));
+            row[3].setText(Metrics.format(u, h.percentile(99.9)));
+            row[4].setText(Metrics.format(u, h.max()));
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < metrics.gaugeCount(); i++) {
+            if (i > 0) sb.append("   ");
+            sb.append(metrics.gaugeName(i)).append(' ').append(metrics.gaugeValue(i));
+        }
+        gaugeLine.setText(sb.toString());
+    }
+}
@@ -0,0 +1,227 @@
+package ecg.fx;
+
+import ecg.WaveformBuffer;
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+
+// Monitor-style sweep trace of a WaveformBuffer on one Canvas (no scene-graph node per sample).
+//
+// Its own AnimationTimer pulls the samples committed since the last frame and draws only the
+// dirty strip: the columns they cover plus a small erase gap ahead of the write head, which
+// wraps around at the right edge like a bedside monitor. Each pixel column is reduced to the
+// min/max of its samples (joined to the previous column's last sample), so 250..1000 Hz costs
+// one fillRect per column per lead no matter how many samples land in it.
+// Several leads are stacked in equal bands. A resize, speed change or falling behind the
+// ring just redraws the last screenful.
+public final class EcgSweepView extends Region {
+
+    private final Canvas canvas = new Canvas();
+    private final WaveformBuffer buffer;
+    private final int[] leads;          // buffer leads, top to bottom
+
+    private double pxPerSec = 100;      // sweep speed
+    private double minMv = -0.6, maxMv = 1.4;
+    private Paint stroke = Color.web("#E02020");
+    private Paint background = null;    // null: transparent
+    private double lineWidth = 1.6;
+    private int gapPx = 10;
+
+    // ====== render state (FX thread) ======
+    private long next = -1;             // next sample to draw; -1 = resync on the next frame
+    private long pendingCol;            // absolute column still collecting samples
+    private final float[] pMin, pMax, pLast;
+    private final double[] lastY;       // y of the previous column's last sample (NaN: none)
+    private float[] scratch = new float[1024];
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (isVisible()) draw();
+        }
+    };
+
+    public EcgSweepView(WaveformBuffer buffer, int... leads) {
+        this.buffer = buffer;
+        if (leads.length == 0) {
+            leads = new int[buffer.leads()];
+            for (int i = 0; i < leads.length; i++) leads[i] = i;
+        }
+        this.leads = leads.clone();
+        pMin = new float[leads.length];
+        pMax = new float[leads.length];
+        pLast = new float[leads.length];
+        lastY = new double[leads.length];
+
+        canvas.setManaged(false);
+        getChildren().add(canvas);
+        setMinSize(0, 0);
+
+        // run only while attached to a scene
+        sceneProperty().addListener((o, ov, nv) -> {
+            if (nv != null) timer.start();
+            else timer.stop();
+        });
+        visibleProperty().addListener((o, ov, nv) -> next = -1);
+    }
+
+    // ====== config (FX thread) ======
+
+    public void setSweepSpeed(double pxPerSec) {
+        if (pxPerSec <= 0) throw new IllegalArgumentException("pxPerSec must be > 0: " + pxPerSec);
+        this.pxPerSec = pxPerSec;
+        next = -1;
+    }
+
+    public void setRange(double minMv, double maxMv) {
+        if (maxMv <= minMv) throw new IllegalArgumentException("bad range: " + minMv + ".." + maxMv);
+        this.minMv = minMv;
+        this.maxMv = maxMv;
+        next = -1;
+    }
+
+    public void setStroke(Paint stroke) {
+        this.stroke = stroke;
+        next = -1;
+    }
+
+    public void setBackgroundFill(Paint background) {
+        this.background = background;
+        next = -1;
+    }
+
+    public void setLineWidth(double lineWidth) {
+        this.lineWidth = lineWidth;
+        next = -1;
+    }
+
+    public void setGap(int gapPx) {
+        this.gapPx = Math.max(0, gapPx);
+        next = -1;
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double w = Math.floor(getWidth()), h = Math.floor(getHeight());
+        if (canvas.getWidth() != w || canvas.getHeight() != h) {
+            canvas.setWidth(w);
+            canvas.setHeight(h);
+            next = -1;
+        }
+    }
+
+    // ====== drawing ======
+
+    private void draw() {
+        int width = (int) canvas.getWidth();
+        if (width <= 0 || canvas.getHeight() <= 0) return;
+        GraphicsContext g = canvas.getGraphicsContext2D();
+
+        long written = buffer.written();
+        if (next < 0 || written - next > buffer.capacity() || colOf(written) - colOf(next) > width) {
+            // resync: start one screen width back (or at the oldest sample still in the ring)
+            long back = (long) Math.ceil(width * buffer.sampleHz() / pxPerSec);
+            next = Math.max(buffer.oldest(), written - back);
+            clearColumns(g, 0, width, width);
+            pendingCol = colOf(next);
+            for (int l = 0; l < leads.length; l++) {
+                pMin[l] = Float.POSITIVE_INFINITY;
+                pMax[l] = Float.NEGATIVE_INFINITY;
+                lastY[l] = Double.NaN;
+            }
+        }
+        if (written <= next) return;
+
+        int n = (int) (written - next);
+        if (scratch.length < n) scratch = new float[Integer.highestOneBit(n) << 1];
+
+        // dirty strip: from the pending column through the new head, plus the erase gap
+        long firstCol = pendingCol;
+        long lastCol = colOf(written - 1);
+        clearColumns(g, firstCol, lastCol - firstCol + 1 + gapPx, width);
+
+        g.setFill(stroke);
+        double bandH = canvas.getHeight() / leads.length;
+        for (int l = 0; l < leads.length; l++) {
+            if (!buffer.read(leads[l], next, scratch, 0, n)) {
+                next = -1;      // lapped by the writer: redraw everything next frame
+                return;
+            }
+            drawLead(g, l, l * bandH, bandH, width, n);
+        }
+        pendingCol = lastCol;
+        next = written;
+    }
+
+    // feeds n samples of one lead; every completed column is flushed, the last stays pending
+    private void drawLead(GraphicsContext g, int l, double top, double bandH, int width, int n) {
+        long col = pendingCol;
+        float mn = pMin[l], mx = pMax[l], last = pLast[l];
+        for (int i = 0; i < n; i++) {
+            long c = colOf(next + i);
+            if (c != col) {
+                if (mx >= mn) flush(g, l, col, mn, mx, last, top, bandH, width);
+                col = c;
+                mn = Float.POSITIVE_INFINITY;
+                mx = Float.NEGATIVE_INFINITY;
+            }
+            float v = scratch[i];
+            if (v < mn) mn = v;
+            if (v > mx) mx = v;
+            last = v;
+        }
+        pMin[l] = mn;
+        pMax[l] = mx;
+        pLast[l] = last;
+    }
+
+    private void flush(GraphicsContext g, int l, long col, float mn, float mx, float last,
+                       double top, double bandH, int width) {
+        int x = (int) Math.floorMod(col, (long) width);
+        double yHi = y(mx, top, bandH), yLo = y(mn, top, bandH);
+        double prev = lastY[l];
+        if (!Double.isNaN(prev) && x != 0) {    // join to the previous column, not across the wrap
+            if (prev < yHi) yHi = prev;
+            if (prev > yLo) yLo = prev;
+        }
+        double half = lineWidth / 2;
+        g.fillRect(x, yHi - half, 1, yLo - yHi + lineWidth);
+        lastY[l] = y(last, top, bandH);
+    }
+
+    private double y(float mv, double top, double bandH) {
+        double f = (maxMv - mv) / (maxMv - minMv);
+        if (f < 0) f = 0;
+        else if (f > 1) f = 1;
+        return top + lineWidth / 2 + f * (bandH - lineWidth);
+    }
+
+    // erases `count` columns starting at absolute column `from` (wrapping)
+    private void clearColumns(GraphicsContext g, long from, long count, int width) {
+        double h = canvas.getHeight();
+        if (count >= width) {
+            clearRect(g, 0, width, h);
+            return;
+        }
+        int x0 = (int) Math.floorMod(from, (long) width);
+        int first = (int) Math.min(count, width - x0);
+        clearRect(g, x0, first, h);
+        if (first < count) clearRect(g, 0, (int) (count - first), h);
+    }
+
+    private void clearRect(GraphicsContext g, int x, int w, double h) {
+        if (background == null) {
+            g.clearRect(x, 0, w, h);
+        } else {
+            g.setFill(background);
+            g.fillRect(x, 0, w, h);
+        }
+    }
+
+    private long colOf(long sample) {
+        return (long) Math.floor(sample * pxPerSec / buffer.sampleHz());
+    }
+}
@@ -0,0 +1,69 @@
+package ecg.fx;
+
+import ecg.EventLog;
+import ecg.LogEvent;
+import java.util.AbstractList;
+import javafx.collections.ObservableListBase;
+
+// Newest-first ObservableList over an EventLog for TableView.
+//
+// Nothing is copied: get(i) hands out a LogEvent handle for seq (head - 1 - i), and the
+// TableView only asks for the rows it actually renders. refresh() (FX thread, once per
+// frame) turns everything appended since the last call into a single list change.
+public final class EventLogView extends ObservableListBase<LogEvent> {
+
+    private final EventLog log;
+    private final int limit;
+    private long head = 0;   // exclusive: newest visible seq is head - 1
+    private int size = 0;
+
+    public EventLogView(EventLog log) {
+        this(log, log.capacity());
+    }
+
+    public EventLogView(EventLog log, int limit) {
+        this.log = log;
+        this.limit = Math.min(limit, log.capacity());
+    }
+
+    public EventLog log() { return log; }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public LogEvent get(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("index " + i + ", size " + size);
+        return new LogEvent(log, head - 1 - i);
+    }
+
+    // FX thread: pull newly published entries into the view as one change event
+    public void refresh() {
+        long newHead = log.publishedHead(head);
+        if (newHead == head) return;
+
+        final long oldHead = head;
+        final int oldSize = size;
+        int added = (int) Math.min(newHead - oldHead, limit);
+        int newSize = (int) Math.min(newHead, limit);
+        int removed = oldSize + added - newSize;
+
+        head = newHead;
+        size = newSize;
+
+        beginChange();
+        nextAdd(0, added);
+        if (removed > 0) {
+            // the old tail rows that fell off; materialized only if a listener looks at them
+            final int firstOld = oldSize - removed;
+            nextRemove(newSize, new AbstractList<LogEvent>() {
+                @Override
+                public LogEvent get(int i) { return new LogEvent(log, oldHead - 1 - (firstOld + i)); }
+
+                @Override
+                public int size() { return removed; }
+            });
+        }
+        endChange();
+    }
+}
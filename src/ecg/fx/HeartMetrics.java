@@ -0,0 +1,129 @@
+package ecg.fx;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+
+// "손 제외, 빨간 하트만" 바운딩 박스 (shared by ProtoAppWindow / ProtoAppHeartMid)
+public final class HeartMetrics {
+    public final double imgW, imgH;
+    public final double heartMinX, heartMaxX, heartMinY, heartMaxY;
+
+    public HeartMetrics(double imgW, double imgH, double minX, double maxX, double minY, double maxY) {
+        this.imgW = imgW; this.imgH = imgH;
+        this.heartMinX = minX; this.heartMaxX = maxX;
+        this.heartMinY = minY; this.heartMaxY = maxY;
+    }
+
+    public double heartW() { return heartMaxX - heartMinX; }
+    public double heartCenterX() { return (heartMinX + heartMaxX) / 2.0; }
+
+    // ====== 핵심: 빨간 하트 영역(손 제외) 바운딩 계산 ======
+
+    // Same thresholds as the old Color-based check (r > 0.65, g/b < 0.35, opacity >= 0.05),
+    // converted to 0..255 so they run on the packed ARGB int directly (no Color per pixel).
+    static final int MIN_ALPHA = 13;   // 13/255 = 0.051
+    static final int MIN_RED = 166;    // 166/255 = 0.651
+    static final int MAX_GB = 89;      // 89/255 = 0.349
+
+    // below this many pixels, splitting costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 256 * 256;
+    private static final int STRIPE_PIXELS = 64 * 1024;
+
+    static boolean isRed(int p) {
+        return (p >>> 24) >= MIN_ALPHA
+                && ((p >> 16) & 0xFF) >= MIN_RED
+                && ((p >> 8) & 0xFF) <= MAX_GB
+                && (p & 0xFF) <= MAX_GB;
+    }
+
+    // returns null when no red pixel is found
+    public static HeartMetrics compute(PixelReader pr, int w, int h) {
+        // one bulk read instead of w*h getColor() calls
+        int[] argb = new int[w * h];
+        pr.getPixels(0, 0, w, h, PixelFormat.getIntArgbInstance(), argb, 0, w);
+        return compute(argb, w, h);
+    }
+
+    // argb: packed non-premultiplied ARGB, row-major, stride w
+    public static HeartMetrics compute(int[] argb, int w, int h) {
+        int[] box = ((long) w * h < PARALLEL_THRESHOLD)
+                ? scanRows(argb, w, 0, h)
+                : ForkJoinPool.commonPool().invoke(new Stripe(argb, w, 0, h));
+        return toMetrics(box, w, h);
+    }
+
+    // single-threaded path (benchmarks / tiny images)
+    static HeartMetrics computeSequential(int[] argb, int w, int h) {
+        return toMetrics(scanRows(argb, w, 0, h), w, h);
+    }
+
+    private static HeartMetrics toMetrics(int[] box, int w, int h) {
+        if (box[2] < 0) return null; // 빨강 못 찾음
+        return new HeartMetrics(w, h, box[0], box[2], box[1], box[3]);
+    }
+
+    // {minX, minY, maxX, maxY} over rows [y0, y1); maxX = -1 when nothing matched.
+    // Each row scans from the left until the first red pixel and from the right until the
+    // last one, so the inside of the heart is never touched.
+    static int[] scanRows(int[] argb, int w, int y0, int y1) {
+        int minX = w, minY = Integer.MAX_VALUE, maxX = -1, maxY = -1;
+        for (int y = y0; y < y1; y++) {
+            int row = y * w;
+            int first = -1;
+            for (int x = 0; x < w; x++) {
+                if (isRed(argb[row + x])) {
+                    first = x;
+                    break;
+                }
+            }
+            if (first < 0) continue;
+            int last = first;
+            for (int x = w - 1; x > first; x--) {
+                if (isRed(argb[row + x])) {
+                    last = x;
+                    break;
+                }
+            }
+            if (first < minX) minX = first;
+            if (last > maxX) maxX = last;
+            if (y < minY) minY = y;
+            maxY = y;
+        }
+        return new int[] { minX, minY, maxX, maxY };
+    }
+
+    // row stripes on the common ForkJoin pool, min/max merged on the way back up
+    private static final class Stripe extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] argb;
+        private final int w, y0, y1;
+
+        Stripe(int[] argb, int w, int y0, int y1) {
+            this.argb = argb;
+            this.w = w;
+            this.y0 = y0;
+            this.y1 = y1;
+        }
+
+        @Override
+        protected int[] compute() {
+            if ((long) (y1 - y0) * w <= STRIPE_PIXELS || y1 - y0 < 2) {
+                return scanRows(argb, w, y0, y1);
+            }
+            int mid = (y0 + y1) >>> 1;
+            Stripe top = new Stripe(argb, w, y0, mid);
+            top.fork();
+            int[] b = new Stripe(argb, w, mid, y1).compute();
+            int[] a = top.join();
+            if (a[2] < 0) return b;
+            if (b[2] < 0) return a;
+            return new int[] {
+                    Math.min(a[0], b[0]), Math.min(a[1], b[1]),
+                    Math.max(a[2], b[2]), Math.max(a[3], b[3])
+            };
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ecg.fx;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+
+// On-disk cache of HeartMetrics keyed by the SHA-256 of the image file, so a restart with
+// unchanged heart PNGs skips the pixel scan entirely (hashing a PNG is far cheaper than
+// scanning its decoded pixels). One small text file per image:
+//   <dir>/v1-<sha256>.txt : "imgW imgH minX maxX minY maxY"  or  "none" (no red found)
+// The "v1" prefix changes whenever the red predicate does. Cache I/O problems are never
+// fatal: they just fall back to computing.
+public final class HeartMetricsCache {
+
+    private static final String VERSION = "v1";
+    private static final String NONE = "none";
+
+    private final Path dir;
+
+    public HeartMetricsCache(Path dir) {
+        this.dir = dir;
+    }
+
+    // metrics for img (loaded from imageFile); null when img has no red heart / can't be read
+    public HeartMetrics get(Path imageFile, Image img) {
+        String key = null;
+        try {
+            key = VERSION + "-" + sha256(imageFile) + ".txt";
+            Path entry = dir.resolve(key);
+            if (Files.exists(entry)) {
+                String s = Files.readString(entry, StandardCharsets.US_ASCII).trim();
+                if (s.equals(NONE)) return null;
+                HeartMetrics m = parse(s);
+                if (m != null && m.imgW == img.getWidth() && m.imgH == img.getHeight()) return m;
+            }
+        } catch (IOException e) {
+            System.out.println("[WARN] heart metrics cache read failed: " + e.getMessage());
+        }
+
+        PixelReader pr = img.getPixelReader();
+        if (pr == null) return null;
+        HeartMetrics m = HeartMetrics.compute(pr, (int) img.getWidth(), (int) img.getHeight());
+        if (key != null) store(key, m);
+        return m;
+    }
+
+    private void store(String key, HeartMetrics m) {
+        String s = (m == null) ? NONE
+                : (long) m.imgW + " " + (long) m.imgH + " " + (long) m.heartMinX + " " + (long) m.heartMaxX
+                        + " " + (long) m.heartMinY + " " + (long) m.heartMaxY;
+        try {
+            Files.createDirectories(dir);
+            // write + rename, so a concurrent reader never sees a half-written entry
+            Path tmp = Files.createTempFile(dir, key, ".tmp");
+            Files.writeString(tmp, s, StandardCharsets.US_ASCII);
+            Files.move(tmp, dir.resolve(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("[WARN] heart metrics cache write failed: " + e.getMessage());
+        }
+    }
+
+    private static HeartMetrics parse(String s) {
+        String[] p = s.split(" ");
+        if (p.length != 6) return null;
+        try {
+            return new HeartMetrics(Long.parseLong(p[0]), Long.parseLong(p[1]), Long.parseLong(p[2]),
+                    Long.parseLong(p[3]), Long.parseLong(p[4]), Long.parseLong(p[5]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static String sha256(Path file) throws IOException {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(Files.readAllBytes(file)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ecg.fx;
+
+import ecg.HrvStats;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+
+// FX-side view of an HrvStats: one set of read-only properties per window for labels/charts
+// to bind to. refresh() copies the latest results on the FX thread (a no-op while nothing
+// changed); writers on other threads call requestRefresh(), which keeps at most one
+// Platform.runLater in flight.
+public final class HrvMetrics {
+
+    public static final class Window {
+        private final int seconds;
+        private final ReadOnlyIntegerWrapper beats = new ReadOnlyIntegerWrapper();
+        private final ReadOnlyDoubleWrapper sdnn = new ReadOnlyDoubleWrapper();
+        private final ReadOnlyDoubleWrapper rmssd = new ReadOnlyDoubleWrapper();
+        private final ReadOnlyDoubleWrapper pnn50 = new ReadOnlyDoubleWrapper();
+        private final ReadOnlyIntegerWrapper minHr = new ReadOnlyIntegerWrapper();
+        private final ReadOnlyIntegerWrapper maxHr = new ReadOnlyIntegerWrapper();
+        private final ReadOnlyDoubleWrapper meanHr = new ReadOnlyDoubleWrapper();
+
+        Window(int seconds) { this.seconds = seconds; }
+
+        public int seconds() { return seconds; }
+        public ReadOnlyIntegerProperty beatsProperty() { return beats.getReadOnlyProperty(); }
+        public ReadOnlyDoubleProperty sdnnProperty() { return sdnn.getReadOnlyProperty(); }
+        public ReadOnlyDoubleProperty rmssdProperty() { return rmssd.getReadOnlyProperty(); }
+        public ReadOnlyDoubleProperty pnn50Property() { return pnn50.getReadOnlyProperty(); }
+        public ReadOnlyIntegerProperty minHrProperty() { return minHr.getReadOnlyProperty(); }
+        public ReadOnlyIntegerProperty maxHrProperty() { return maxHr.getReadOnlyProperty(); }
+        public ReadOnlyDoubleProperty meanHrProperty() { return meanHr.getReadOnlyProperty(); }
+
+        void set(HrvStats.Values v) {
+            beats.set(v.beats);
+            sdnn.set(v.sdnnMs);
+            rmssd.set(v.rmssdMs);
+            pnn50.set(v.pnn50);
+            minHr.set(v.minHr);
+            maxHr.set(v.maxHr);
+            meanHr.set(v.meanHr);
+        }
+    }
+
+    private final HrvStats stats;
+    private final Window[] windows;
+    private final HrvStats.Values scratch = new HrvStats.Values();
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+    private long seenVersion = -1;
+
+    public HrvMetrics(HrvStats stats) {
+        this.stats = stats;
+        this.windows = new Window[stats.windows()];
+        for (int w = 0; w < windows.length; w++) windows[w] = new Window(stats.windowSec(w));
+    }
+
+    public int windows() { return windows.length; }
+    public Window window(int w) { return windows[w]; }
+
+    // FX thread
+    public void refresh() {
+        long v = stats.version();
+        if (v == seenVersion) return;
+        seenVersion = v;
+        for (int w = 0; w < windows.length; w++) {
+            stats.read(w, scratch);
+            windows[w].set(scratch);
+        }
+    }
+
+    // any thread
+    public void requestRefresh() {
+        if (pending.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                pending.set(false);
+                refresh();
+            });
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ecg.fx;
+
+import ecg.EventJournal;
+import ecg.LogEvent;
+import ecg.LogType;
+import java.util.EnumSet;
+import javafx.collections.ObservableListBase;
+
+// Newest-first ObservableList over an EventJournal for TableView, paged straight from the
+// mapped segments: get(i) hands out a LogEvent handle and the TableView only formats the rows
+// it renders.
+//
+// all(): every record; refresh() (FX thread) adds the ones journaled since, like EventLogView.
+// of(): a fixed query result (ids from EventJournal.select), re-run it for newer rows.
+public final class JournalView extends ObservableListBase<LogEvent> {
+
+    private final EventJournal journal;
+    private final long[] ids;   // null: every record
+    private long head;
+    private int size;
+
+    private JournalView(EventJournal journal, long[] ids) {
+        this.journal = journal;
+        this.ids = ids;
+        this.head = (ids == null) ? journal.size() : 0;
+        this.size = (ids == null) ? (int) Math.min(head, Integer.MAX_VALUE) : ids.length;
+    }
+
+    public static JournalView all(EventJournal journal) {
+        return new JournalView(journal, null);
+    }
+
+    // types null = any; [fromNanos, toNanos)
+    public static JournalView of(EventJournal journal, EnumSet<LogType> types, long fromNanos, long toNanos, int limit) {
+        if (types == null && fromNanos == Long.MIN_VALUE && toNanos == Long.MAX_VALUE) return all(journal);
+        return new JournalView(journal, journal.select(types, fromNanos, toNanos, limit));
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public LogEvent get(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("index " + i + ", size " + size);
+        return new LogEvent(journal, (ids == null) ? head - 1 - i : ids[i]);
+    }
+
+    // FX thread: pull newly journaled records into an all() view as one change event
+    public void refresh() {
+        if (ids != null) return;
+        long newHead = journal.size();
+        if (newHead == head || size == Integer.MAX_VALUE) return;
+        int added = (int) Math.min(newHead - head, Integer.MAX_VALUE - size);
+        head = newHead;
+        size += added;
+        beginChange();
+        nextAdd(0, added);
+        endChange();
+    }
+}
@@ -0,0 +1,158 @@
+package ecg.fx;
+
+import java.util.EnumMap;
+import javafx.beans.value.ObservableValue;
+import javafx.event.EventType;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Transform;
+import javafx.stage.Window;
+
+// Prerendered per-state screens: show(state) swaps in one snapshot image instead of
+// re-composing the `live` node tree (images, visibility, anchors, DropShadow) every time.
+//
+// - Cache miss: compose() mutates the live tree, which is shown and captured with
+//   Node.snapshot() (at the window's output scale) if the state is `cacheable`
+//   (e.g. all of its assets are decoded, so no placeholder gets baked in).
+// - Cache hit: the live tree is hidden and the snapshot ImageView takes its place, so the
+//   next pulse only draws one texture (+ whatever dynamic nodes sit on top).
+// - invalidate() on resize / asset change; a stale snapshot on screen is replaced by a fresh
+//   compose() of the current state.
+// Clicks on the snapshot inside a passClicksTo() node's bounds are forwarded to that node,
+// so image buttons keep working while the live tree is hidden.
+public final class StateSnapshotCache<S extends Enum<S>> {
+
+    private static final class Entry {
+        final WritableImage image;
+        final Bounds bounds;    // live.boundsInParent at capture time
+        final double scale;
+
+        Entry(WritableImage image, Bounds bounds, double scale) {
+            this.image = image;
+            this.bounds = bounds;
+            this.scale = scale;
+        }
+    }
+
+    private final Node live;
+    private final ImageView view;
+    private final EnumMap<S, Entry> cache;
+    private Node[] clickTargets = new Node[0];
+
+    private S current = null;
+    private Runnable currentCompose = null;
+    private boolean showingSnapshot = false;
+
+    // view must be an (empty) sibling of live; it is made unmanaged and positioned over live
+    public StateSnapshotCache(Class<S> type, Node live, ImageView view) {
+        this.live = live;
+        this.view = view;
+        this.cache = new EnumMap<>(type);
+        view.setManaged(false);
+        view.setVisible(false);
+        view.setPreserveRatio(false);
+        view.setSmooth(true);
+        view.addEventHandler(MouseEvent.ANY, this::forwardMouse);
+    }
+
+    public void passClicksTo(Node... targets) {
+        clickTargets = targets.clone();
+    }
+
+    // any change of these (size, layout inputs) drops every snapshot
+    public void invalidateOn(ObservableValue<?>... deps) {
+        for (ObservableValue<?> d : deps) d.addListener((o, ov, nv) -> invalidate());
+    }
+
+    // ====== show ======
+
+    public void show(S state, Runnable compose, boolean cacheable) {
+        current = state;
+        currentCompose = compose;
+
+        Entry e = cache.get(state);
+        if (e != null && e.scale == outputScale()) {
+            view.setImage(e.image);
+            view.setFitWidth(e.bounds.getWidth());
+            view.setFitHeight(e.bounds.getHeight());
+            view.relocate(e.bounds.getMinX(), e.bounds.getMinY());
+            view.setVisible(true);
+            live.setVisible(false);
+            showingSnapshot = true;
+            return;
+        }
+
+        compose.run();
+        showLive();
+        if (cacheable && live.getScene() != null) capture(state);
+    }
+
+    public void invalidate() {
+        cache.clear();
+        recomposeIfStale();
+    }
+
+    public void invalidate(S state) {
+        cache.remove(state);
+        if (state == current) recomposeIfStale();
+    }
+
+    public boolean isCached(S state) { return cache.containsKey(state); }
+
+    // ====== internal ======
+
+    private void recomposeIfStale() {
+        if (!showingSnapshot || currentCompose == null) return;
+        currentCompose.run();
+        showLive();
+    }
+
+    private void showLive() {
+        live.setVisible(true);
+        view.setVisible(false);
+        view.setImage(null);
+        showingSnapshot = false;
+    }
+
+    private void capture(S state) {
+        double s = outputScale();
+        SnapshotParameters p = new SnapshotParameters();
+        p.setFill(Color.TRANSPARENT);
+        p.setTransform(Transform.scale(s, s));
+        WritableImage img = live.snapshot(p, null); // runs CSS + layout for live first
+        cache.put(state, new Entry(img, live.getBoundsInParent(), s));
+    }
+
+    private double outputScale() {
+        if (live.getScene() == null) return 1.0;
+        Window w = live.getScene().getWindow();
+        return (w != null) ? w.getOutputScaleX() : 1.0;
+    }
+
+    private void forwardMouse(MouseEvent e) {
+        EventType<? extends MouseEvent> t = e.getEventType();
+        if (t != MouseEvent.MOUSE_CLICKED && t != MouseEvent.MOUSE_PRESSED && t != MouseEvent.MOUSE_RELEASED) return;
+        for (Node n : clickTargets) {
+            if (!visibleInLive(n)) continue;
+            Bounds b = n.localToScene(n.getBoundsInLocal());
+            if (b.contains(e.getSceneX(), e.getSceneY())) {
+                n.fireEvent(e.copyFor(n, n));
+                e.consume();
+                return;
+            }
+        }
+    }
+
+    // visible inside the (hidden) live tree, i.e. drawn in the snapshot
+    private boolean visibleInLive(Node n) {
+        for (Node p = n; p != null && p != live; p = p.getParent()) {
+            if (!p.isVisible()) return false;
+        }
+        return true;
+    }
+}
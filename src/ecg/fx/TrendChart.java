@@ -0,0 +1,153 @@
+package ecg.fx;
+
+import ecg.Decimator;
+import ecg.RollupStore;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.ObservableList;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import javafx.util.Duration;
+
+// Binds a LineChart series to a RollupStore: each Range reads one pre-aggregated tier
+// (Day = 1 min buckets, Month = 1 h, Year = 1 day), so switching ranges or refreshing costs
+// O(points shown) no matter how much raw data went into the store.
+// X is the position inside the range (0 = oldest, xMax = now) in the range's unit (hours,
+// days, months); Y is each bucket's average. Refreshes itself once a second while in a scene,
+// skipping the query when nothing new arrived.
+//
+// Before anything reaches the chart it is decimated to the plot width (Decimator): the
+// average line with LTTB to ~2 points per pixel, the optional min/max envelope series to one
+// extreme per pixel column. Updates reuse the series' existing Data objects and only add or
+// remove the difference at the end.
+public final class TrendChart {
+
+    public enum Range {
+        DAY(RollupStore.Tier.MINUTE, 1, 3_600_000_000_000L, 24, 3),          // x: hours
+        MONTH(RollupStore.Tier.HOUR, 30, 86_400_000_000_000L, 30, 5),        // x: days
+        YEAR(RollupStore.Tier.DAY, 365, 2_629_746_000_000_000L, 12, 1);      // x: months (365.2425 d / 12)
+
+        final RollupStore.Tier tier;
+        final long spanNanos;
+        final long unitNanos;
+        final double xMax, xTick;
+
+        Range(RollupStore.Tier tier, int days, long unitNanos, double xMax, double xTick) {
+            this.tier = tier;
+            this.spanNanos = days * 86_400_000_000_000L;
+            this.unitNanos = unitNanos;
+            this.xMax = xMax;
+            this.xTick = xTick;
+        }
+    }
+
+    private static final int FALLBACK_WIDTH_PX = 400;  // before the first layout
+
+    private final RollupStore store;
+    private final XYChart.Series<Number, Number> series;
+    private XYChart.Series<Number, Number> lower, upper;   // envelope, optional
+    private final NumberAxis xAxis;
+    private final RollupStore.Series buf = new RollupStore.Series();
+    private final Timeline ticker = new Timeline(new KeyFrame(Duration.seconds(1), e -> refresh()));
+
+    // decimation scratch, grown to the largest query
+    private double[] x = new double[0], avg = new double[0], lo = new double[0], hi = new double[0];
+    private int[] idx = new int[0];
+
+    private Range range = Range.DAY;
+    private long shownSamples = -1;
+
+    public TrendChart(RollupStore store, LineChart<Number, Number> chart, XYChart.Series<Number, Number> series) {
+        this.store = store;
+        this.series = series;
+        this.xAxis = (NumberAxis) chart.getXAxis();
+
+        ticker.setCycleCount(Timeline.INDEFINITE);
+        chart.sceneProperty().addListener((o, ov, nv) -> {
+            if (nv != null) ticker.play();
+            else ticker.stop();
+        });
+        // the point budget follows the plot width
+        xAxis.widthProperty().addListener((o, ov, nv) -> {
+            shownSamples = -1;
+            refresh();
+        });
+    }
+
+    public Range range() { return range; }
+
+    // min/max band around the average line (series already added to the chart)
+    public void setEnvelope(XYChart.Series<Number, Number> lower, XYChart.Series<Number, Number> upper) {
+        this.lower = lower;
+        this.upper = upper;
+        shownSamples = -1;
+        refresh();
+    }
+
+    // FX thread
+    public void show(Range r) {
+        range = r;
+        xAxis.setAutoRanging(false);
+        xAxis.setLowerBound(0);
+        xAxis.setUpperBound(r.xMax);
+        xAxis.setTickUnit(r.xTick);
+        shownSamples = -1;
+        refresh();
+    }
+
+    // FX thread
+    public void refresh() {
+        long samples = store.samples();
+        if (samples == shownSamples) return;
+        shownSamples = samples;
+
+        long now = System.currentTimeMillis() * 1_000_000L;
+        long from = now - range.spanNanos;
+        store.query(range.tier, from, now + 1, buf);
+
+        int n = buf.size;
+        if (x.length < n) {
+            x = new double[n];
+            avg = new double[n];
+            lo = new double[n];
+            hi = new double[n];
+            idx = new int[n];
+        }
+        for (int i = 0; i < n; i++) {
+            x[i] = (double) Math.max(0, buf.startNanos[i] - from) / range.unitNanos;
+            avg[i] = buf.avg[i];
+            lo[i] = buf.min[i];
+            hi[i] = buf.max[i];
+        }
+
+        int px = (int) xAxis.getWidth();
+        if (px <= 0) px = FALLBACK_WIDTH_PX;
+        setPoints(series, x, avg, idx, Decimator.lttb(x, avg, n, Math.max(3, 2 * px), idx));
+        if (lower != null) setPoints(lower, x, lo, idx, Decimator.extreme(x, lo, n, px, false, idx));
+        if (upper != null) setPoints(upper, x, hi, idx, Decimator.extreme(x, hi, n, px, true, idx));
+    }
+
+    // series <- (x, y)[idx[0..count)], updating the existing Data objects in place
+    private static void setPoints(XYChart.Series<Number, Number> s, double[] x, double[] y, int[] idx, int count) {
+        ObservableList<XYChart.Data<Number, Number>> data = s.getData();
+        int keep = Math.min(data.size(), count);
+        for (int i = 0; i < keep; i++) {
+            XYChart.Data<Number, Number> d = data.get(i);
+            d.setXValue(x[idx[i]]);
+            d.setYValue(y[idx[i]]);
+        }
+        if (data.size() > count) {
+            data.remove(count, data.size());
+        } else if (count > keep) {
+            XYChart.Data<Number, Number>[] more = newData(count - keep);
+            for (int i = keep; i < count; i++) more[i - keep] = new XYChart.Data<>(x[idx[i]], y[idx[i]]);
+            data.addAll(more);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static XYChart.Data<Number, Number>[] newData(int n) {
+        return (XYChart.Data<Number, Number>[]) new XYChart.Data[n];
+    }
+}
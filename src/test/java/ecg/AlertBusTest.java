@@ -0,0 +1,69 @@
+package ecg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+// Dedup windows and retry backoff follow the bus clock, not System.nanoTime()
+class AlertBusTest {
+
+    static final long MS = 1_000_000L;
+
+    final EcgClock.Manual clock = new EcgClock.Manual(0);
+    final AlertBus bus = new AlertBus(16, clock);
+
+    @AfterEach
+    void stop() {
+        bus.stop();
+    }
+
+    @Test
+    void dedupWindowIsClockTime() {
+        long window = AlertBus.Topic.BLE_WARNING.dedupNanos;
+        assertTrue(bus.post(AlertBus.Topic.BLE_WARNING, 0, 1, 130, 460));
+        assertFalse(bus.post(AlertBus.Topic.BLE_WARNING, 0, 1, 131, 458), "same key inside the window");
+        assertTrue(bus.post(AlertBus.Topic.BLE_WARNING, 0, 2, 40, 1500), "other key");
+
+        clock.advance(window - 1);
+        assertFalse(bus.post(AlertBus.Topic.BLE_WARNING, 0, 1, 132, 455));
+        clock.advance(1);
+        assertTrue(bus.post(AlertBus.Topic.BLE_WARNING, 0, 1, 133, 451));
+        assertEquals(2, bus.dedupCount());
+    }
+
+    @Test
+    void retryWaitsForBackoffOnTheClock() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        LinkedBlockingQueue<Integer> delivered = new LinkedBlockingQueue<>();
+        bus.setSink(AlertBus.Topic.BLE_WARNING, (t, ts, key, a, b, attempt) -> {
+            calls.incrementAndGet();
+            if (attempt == 1) throw new IOException("BLE write not acknowledged");
+        });
+        bus.setListener(new AlertBus.Listener() {
+            @Override
+            public void onDelivered(AlertBus.Topic t, long ts, int key, int a, int b, int attempts) {
+                delivered.add(attempts);
+            }
+        });
+        bus.start();
+
+        assertTrue(bus.post(AlertBus.Topic.BLE_WARNING, 0, 1, 130, 460));
+        long until = System.nanoTime() + 5_000 * MS;
+        while (calls.get() == 0 && System.nanoTime() < until) Thread.sleep(1);
+        assertEquals(1, calls.get());
+
+        // real time passes, the clock doesn't: still backing off
+        Thread.sleep(3 * AlertBus.Topic.BLE_WARNING.backoffNanos / MS);
+        assertEquals(1, calls.get());
+        assertEquals(1, bus.queued(AlertBus.Lane.WARNING));
+
+        clock.advance(AlertBus.Topic.BLE_WARNING.backoffNanos);
+        assertEquals(2, delivered.poll(5, TimeUnit.SECONDS));
+        assertEquals(2, calls.get());
+    }
+}
@@ -0,0 +1,122 @@
+package ecg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Recovery after a crash mid-write, and text truncation at MAX_TEXT_BYTES
+class EventJournalTest {
+
+    static final long T0 = 1_700_000_000_000_000_000L;
+    static final int SEGMENT = 64 << 10;
+    static final int REC = EventJournal.RECORD_BYTES;   // int-only record
+
+    @TempDir
+    Path dir;
+
+    private Path segment0() {
+        return dir.resolve("events-000000.ejl");
+    }
+
+    private void writeInts(int n) throws IOException {
+        try (EventJournal j = EventJournal.open(dir, SEGMENT)) {
+            for (int i = 0; i < n; i++) j.append(T0 + i, LogType.ABNORMAL_START, 0, i, 0, 0, 0, null);
+        }
+    }
+
+    private void patch(long offset, int value) throws IOException {
+        try (FileChannel ch = FileChannel.open(segment0(), StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, value);
+            ch.write(b, offset);
+        }
+    }
+
+    @Test
+    void reopensEverythingAfterClose() throws IOException {
+        writeInts(100);
+        try (EventJournal j = EventJournal.open(dir, SEGMENT)) {
+            assertEquals(100, j.size());
+            assertEquals(T0 + 42, j.tsNanos(42));
+            assertEquals(42, j.arg(42, 0));
+            assertEquals(LogType.ABNORMAL_START, j.type(99));
+        }
+    }
+
+    @Test
+    void tornLastRecordIsDroppedAndOverwritten() throws IOException {
+        writeInts(10);
+        long last = EventJournal.HEADER_BYTES + 9L * REC;
+        patch(last + 20, 0xBAD);                    // arg a of record 9: CRC no longer matches
+
+        try (EventJournal j = EventJournal.open(dir, SEGMENT)) {
+            assertEquals(9, j.size());
+            assertEquals(8, j.arg(8, 0));
+            j.append(T0 + 100, LogType.CALL, 0, 0, 0, 0, 0, "after recovery");
+        }
+        try (EventJournal j = EventJournal.open(dir, SEGMENT)) {
+            assertEquals(10, j.size());
+            assertEquals(LogType.CALL, j.type(9));
+            assertEquals("after recovery", j.text(9));
+        }
+    }
+
+    @Test
+    void intactLookingRecordsAfterATornOneAreCleared() throws IOException {
+        writeInts(20);
+        patch(EventJournal.HEADER_BYTES + 5L * REC, 3);     // record 5: impossible length
+
+        try (EventJournal j = EventJournal.open(dir, SEGMENT)) {
+            assertEquals(5, j.size(), "records 6..19 must not come back");
+            j.append(T0 + 200, LogType.CALL, 0, 0, 0, 0, 0, "x".repeat(100));
+        }
+        try (EventJournal j = EventJournal.open(dir, SEGMENT)) {
+            // old records 6..19 were zeroed at recovery, so they can't reappear behind the new one
+            assertEquals(6, j.size());
+            assertEquals(LogType.CALL, j.type(5));
+            long[] starts = j.select(EnumSet.of(LogType.ABNORMAL_START), Long.MIN_VALUE, Long.MAX_VALUE, 100);
+            assertEquals(5, starts.length);
+        }
+    }
+
+    @Test
+    void longTextIsCutAtACharacterBoundary() throws IOException {
+        String korean = "긴급연락".repeat(200);     // 3 bytes per char: 2400 bytes
+        assertEquals(EventJournal.MAX_TEXT_BYTES / 3 * 3, EventJournal.utf8Prefix(
+                korean.getBytes(StandardCharsets.UTF_8), EventJournal.MAX_TEXT_BYTES));
+        try (EventJournal j = EventJournal.open(dir, SEGMENT)) {
+            j.append(T0, LogType.CALL, 0, 0, 0, 0, 0, korean);
+            j.append(T0, LogType.CALL, 0, 0, 0, 0, 0, "a" + korean);
+            j.append(T0, LogType.CALL, 0, 0, 0, 0, 0, "ab" + korean);
+        }
+        try (EventJournal j = EventJournal.open(dir, SEGMENT)) {
+            assertEquals(3, j.size());
+            for (int i = 0; i < 3; i++) {
+                String t = j.text(i);
+                assertFalse(t.contains("�"), "broken character in record " + i);
+                assertTrue(t.getBytes(StandardCharsets.UTF_8).length <= EventJournal.MAX_TEXT_BYTES);
+                assertTrue(t.getBytes(StandardCharsets.UTF_8).length > EventJournal.MAX_TEXT_BYTES - 3);
+            }
+            assertEquals(korean.substring(0, EventJournal.MAX_TEXT_BYTES / 3), j.text(0));
+        }
+    }
+
+    @Test
+    void utf8PrefixKeepsShortAndAsciiText() {
+        byte[] ascii = "x".repeat(2000).getBytes(StandardCharsets.US_ASCII);
+        assertEquals(1024, EventJournal.utf8Prefix(ascii, 1024));
+        byte[] shortText = "심박 185".getBytes(StandardCharsets.UTF_8);
+        assertEquals(shortText.length, EventJournal.utf8Prefix(shortText, 1024));
+        byte[] emoji = "💓💓".getBytes(StandardCharsets.UTF_8);   // 2 x 4 bytes
+        assertEquals(4, EventJournal.utf8Prefix(emoji, 7));
+        assertEquals(0, EventJournal.utf8Prefix(emoji, 3));
+    }
+}
@@ -0,0 +1,66 @@
+package ecg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+// A Sink that throws must only cost its own connection, not the selector thread.
+class IngestServerTest {
+
+    static final int BAD = 13, GOOD = 14;
+
+    final LinkedBlockingQueue<Integer> rrs = new LinkedBlockingQueue<>();
+    final IngestServer server = new IngestServer(new InetSocketAddress("127.0.0.1", 0), (device, ts, hr, rr) -> {
+        if (device == BAD) throw new IllegalStateException("monitor for " + device + " failed");
+        rrs.add(rr);
+    });
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    @Test
+    void sinkFailureClosesOnlyThatConnection() throws Exception {
+        server.start();
+        try (SocketChannel good = connect(); SocketChannel bad = connect()) {
+            send(good, GOOD, 0, 800);
+            assertEquals(800, rrs.poll(5, TimeUnit.SECONDS));
+
+            send(bad, BAD, 0, 700);
+            assertEquals(-1, bad.socket().getInputStream().read(), "failing connection should be closed by the server");
+            assertEquals(1, server.errorCount());
+            assertInstanceOf(IllegalStateException.class, server.sinkFailure());
+
+            send(good, GOOD, 2, 810);
+            assertEquals(810, rrs.poll(5, TimeUnit.SECONDS), "selector thread died");
+
+            try (SocketChannel again = connect()) {
+                send(again, GOOD, 4, 820);
+                assertEquals(820, rrs.poll(5, TimeUnit.SECONDS), "new connections not accepted");
+            }
+        }
+    }
+
+    private SocketChannel connect() throws IOException {
+        SocketChannel ch = SocketChannel.open(new InetSocketAddress("127.0.0.1", server.port()));
+        ch.socket().setSoTimeout(5000);
+        return ch;
+    }
+
+    // HELLO + one RR frame
+    private static void send(SocketChannel ch, int device, int seq, int rr) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(2 * (DeviceFrame.HEADER + 4));
+        DeviceFrame.putHello(b, device, seq, 0, 0);
+        DeviceFrame.putRr(b, device, seq + 1, 1, 60000 / rr, rr);
+        b.flip();
+        while (b.hasRemaining()) ch.write(b);
+    }
+}
@@ -0,0 +1,94 @@
+package ecg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+// QrsDetector against EcgSynth ground truth (its BeatListener reports every R peak).
+// A beat counts as detected if a QRS is reported within [-50 ms, +250 ms] of its R peak
+// (detections carry a constant filter delay); the 3 s learning phase and the last second
+// are left out.
+class QrsDetectorTest {
+
+    static final int SECONDS = 300;
+
+    @ParameterizedTest(name = "{0} Hz {1}")
+    @CsvSource({
+        "250,  sinus, 75,  0,   false, 0.02",
+        "250,  tachy, 180, 0,   false, 0.02",
+        "250,  brady, 35,  0,   false, 0.02",
+        "250,  pvc,   75,  0.1, false, 0.02",
+        "250,  af,    90,  0,   true,  0.02",
+        "250,  noisy, 75,  0,   false, 0.1",
+        "500,  sinus, 75,  0,   false, 0.02",
+        "500,  pvc,   75,  0.1, false, 0.02",
+        "500,  af,    90,  0,   true,  0.02",
+        "1000, sinus, 75,  0,   false, 0.02",
+        "1000, tachy, 180, 0,   false, 0.02",
+        "1000, noisy, 75,  0,   false, 0.1",
+    })
+    void sensitivityAndPpv(int hz, String name, int bpm, double pvc, boolean af, double noiseMv) {
+        EcgSynth synth = new EcgSynth(hz, 11);
+        synth.setBpm(bpm);
+        synth.setEctopicProb(pvc);
+        synth.setAf(af);
+        synth.setNoiseMv(noiseMv);
+        long[] truth = new long[SECONDS * 6];
+        int[] nt = { 0 };
+        synth.setBeatListener((r, ectopic) -> truth[nt[0]++] = r);
+
+        QrsDetector det = new QrsDetector(hz);
+        long[] found = new long[SECONDS * 6];
+        int[] nf = { 0 };
+        det.setListener((at, rr) -> found[nf[0]++] = at);
+
+        int block = hz / 20;
+        float[][] buf = new float[1][block];
+        for (int i = 0; i < SECONDS * 20; i++) {
+            synth.fill(buf, block);
+            det.process(buf[0], 0, block);
+        }
+
+        long from = 3L * hz, to = (SECONDS - 1L) * hz;
+        long[] beats = Arrays.stream(truth, 0, nt[0]).filter(t -> t >= from && t < to).toArray();
+        boolean[] used = new boolean[nf[0]];
+        int tp = 0;
+        for (long t : beats) {
+            for (int j = 0; j < nf[0]; j++) {
+                long x = found[j];
+                if (!used[j] && x >= t - hz / 20 && x <= t + hz / 4) {
+                    used[j] = true;
+                    tp++;
+                    break;
+                }
+            }
+        }
+        long reported = Arrays.stream(found, 0, nf[0]).filter(x -> x >= from + hz / 4 && x < to).count();
+
+        double sensitivity = (double) tp / beats.length;
+        double ppv = (double) tp / Math.max(1, reported);
+        assertTrue(beats.length > SECONDS * bpm / 60 / 2, "too few beats: " + beats.length);
+        assertTrue(sensitivity >= 0.997, "sensitivity " + sensitivity + " (" + tp + "/" + beats.length + ")");
+        assertTrue(ppv >= 0.998, "PPV " + ppv + " (" + tp + "/" + reported + ")");
+    }
+
+    @ParameterizedTest(name = "{0} bpm")
+    @CsvSource({ "60", "75", "120" })
+    void meanRrMatchesRate(int bpm) {
+        EcgSynth synth = new EcgSynth(500, 3);
+        synth.setBpm(bpm);
+        synth.setHrvPercent(0);
+        synth.setNoiseMv(0.02);
+        QrsDetector det = new QrsDetector(500);
+        float[][] buf = new float[1][25];
+        for (int i = 0; i < 60 * 20; i++) {
+            synth.fill(buf, 25);
+            det.process(buf[0], 0, 25);
+        }
+        assertEquals(60000.0 / bpm, det.meanRrMs(), 60000.0 / bpm * 0.02);
+        // single RRs jitter by a few samples where the integrated peak is flat
+        assertEquals(60000.0 / bpm, det.lastRrMs(), 60000.0 / bpm * 0.08);
+    }
+}
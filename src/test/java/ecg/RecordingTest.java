@@ -0,0 +1,133 @@
+package ecg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// RecordingWriter -> Recording -> RecordingReplayer round trip over several chunks, with a
+// pause (flush + ts gap) in the middle.
+class RecordingTest {
+
+    static final long T0 = 1_700_000_000_000_000_000L;
+    static final long STEP = 50_000_000L;     // 20Hz
+    static final int N = 3 * RecordingWriter.CHUNK_SAMPLES + 100;
+    static final int PAUSE_AT = 1500;
+    static final long PAUSE = 90_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    long[] ts = new long[N];
+    int[] rr = new int[N];
+    Path file;
+
+    @BeforeEach
+    void write() throws IOException {
+        Random rnd = new Random(7);
+        int r = 800;
+        for (int i = 0; i < N; i++) {
+            ts[i] = T0 + i * STEP + (i >= PAUSE_AT ? PAUSE : 0);
+            r = Math.max(300, Math.min(2000, r + rnd.nextInt(41) - 20));
+            if (i % 700 == 0) r = 400;      // episode: big rr step
+            rr[i] = r;
+        }
+        file = dir.resolve("session.ecgrec");
+        try (RecordingWriter w = new RecordingWriter(file, 20, T0)) {
+            for (int i = 0; i < N; i++) {
+                if (i == PAUSE_AT) w.flush();
+                w.append(ts[i], rr[i]);
+            }
+            assertEquals(N, w.samples());
+        }
+    }
+
+    @Test
+    void readsBackEverySample() throws IOException {
+        try (Recording rec = Recording.open(file)) {
+            assertEquals(20, rec.tickHz());
+            assertEquals(T0, rec.createdEpochNanos());
+            assertEquals(N, rec.sampleCount());
+            assertEquals(ts[0], rec.startTs());
+            assertEquals(ts[N - 1], rec.endTs());
+            assertTrue(rec.chunkCount() > 3, "pause flush should start a new chunk");
+
+            Recording.Cursor c = rec.cursor();
+            for (int i = 0; i < N; i++) {
+                assertTrue(c.next(), "sample " + i);
+                assertEquals(ts[i], c.ts(), "ts " + i);
+                assertEquals(rr[i], c.rr(), "rr " + i);
+                assertEquals(i, c.index());
+            }
+            assertFalse(c.next());
+        }
+    }
+
+    @Test
+    void seekLandsOnFirstSampleAtOrAfter() throws IOException {
+        try (Recording rec = Recording.open(file)) {
+            for (int i : new int[] { 0, 1, 1023, 1024, 1025, PAUSE_AT - 1, PAUSE_AT, 2500, N - 1 }) {
+                Recording.Cursor c = rec.seek(ts[i]);
+                assertTrue(c.next());
+                assertEquals(i, c.index(), "exact seek " + i);
+                assertEquals(rr[i], c.rr());
+
+                c = rec.seek(ts[i] - 1);
+                assertTrue(c.next());
+                assertEquals(ts[i], c.ts(), "seek just before " + i);
+            }
+            // inside the pause -> first sample after it
+            Recording.Cursor c = rec.seek(ts[PAUSE_AT - 1] + PAUSE / 2);
+            assertTrue(c.next());
+            assertEquals(ts[PAUSE_AT], c.ts());
+
+            assertTrue(rec.seek(T0 - 1).next());
+            assertFalse(rec.seek(ts[N - 1] + 1).next());
+        }
+    }
+
+    @Test
+    void replayFeedsTheMonitorFromTheSeekPoint() throws Exception {
+        int from = 2000;
+        try (Recording rec = Recording.open(file)) {
+            PatientMonitor m = new PatientMonitor(0, 20, 600, 1);
+            RecordingReplayer r = new RecordingReplayer(rec, m);
+            CountDownLatch done = new CountDownLatch(1);
+            r.setOnFinished(done::countDown);
+            r.start(ts[from], 0);
+            assertTrue(done.await(10, TimeUnit.SECONDS), "replay didn't finish");
+            r.stop();
+
+            assertEquals(N - from, r.replayed());
+            assertEquals(ts[N - 1], r.positionTs());
+            EcgRingBuffer ring = m.copyRing();
+            assertEquals(N - from, ring.size());
+            for (int i = from; i < N; i++) {
+                assertEquals(ts[i], ring.tsAt(i - from));
+                assertEquals(rr[i], ring.rrAt(i - from));
+            }
+        }
+    }
+
+    @Test
+    void postAfterNaturalEndStillRuns() throws Exception {
+        try (Recording rec = Recording.open(file)) {
+            PatientMonitor m = new PatientMonitor(0, 20, 60, 1);
+            RecordingReplayer r = new RecordingReplayer(rec, m);
+            CountDownLatch done = new CountDownLatch(1);
+            r.setOnFinished(done::countDown);
+            r.start(ts[N - 10], 0);
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            CountDownLatch ran = new CountDownLatch(1);
+            r.post(ran::countDown);
+            assertTrue(ran.await(10, TimeUnit.SECONDS), "posted command lost");
+            assertFalse(r.isRunning());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ecg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+// Hysteresis/debounce transitions of HR rules at 20Hz (hr_* rules read neither ring nor HRV)
+class RuleEngineTest {
+
+    static final long MS = 1_000_000L;
+    static final long STEP = 50 * MS;
+
+    final RuleEngine engine = new RuleEngine(RulePlan.parse(
+            "tachy hr_high on=120 hyst=10 for=2s clear=3s\n" +
+            "brady hr_low  on=limit hyst=5 for=1s clear=1s\n", RulePlan.NO_PATIENT));
+    long now = 0;
+    int onCount = 0, offCount = 0;
+
+    // feeds hr for `ms` milliseconds of samples (lowBpm 50, highBpm unused by tachy)
+    private void feed(int hr, long ms) {
+        for (long t = 0; t < ms * MS; t += STEP) {
+            engine.evaluate(now, hr, 60000 / hr, 50, 999, null, null);
+            for (int k = 0; k < engine.changedCount(); k++) {
+                if (engine.isActive(engine.changed(k))) onCount++;
+                else offCount++;
+            }
+            now += STEP;
+        }
+    }
+
+    @Test
+    void firesOnlyAfterForDuration() {
+        feed(80, 1000);
+        feed(130, 2000);                    // samples at +0 .. +1950 ms
+        assertFalse(engine.isActive(0));
+        feed(130, 50);                      // +2000 ms
+        assertTrue(engine.isActive(0));
+        assertTrue(engine.anyActive());
+        assertEquals(1, onCount);
+        assertEquals(now - STEP, engine.activeSince(0));
+        assertEquals(130, engine.value(0));
+    }
+
+    @Test
+    void aBlipRestartsTheOnDebounce() {
+        feed(130, 1500);
+        feed(119, 50);                      // not above on: pending dropped
+        feed(130, 2000);
+        assertFalse(engine.isActive(0));
+        feed(130, 50);
+        assertTrue(engine.isActive(0));
+    }
+
+    @Test
+    void staysActiveInsideTheHysteresisBand() {
+        feed(130, 2050);
+        assertTrue(engine.isActive(0));
+        feed(112, 60_000);                  // below on=120, above off=110
+        assertTrue(engine.isActive(0));
+        assertEquals(0, offCount);
+    }
+
+    @Test
+    void clearsOnlyAfterClearDuration() {
+        feed(130, 2050);
+        feed(105, 3000);                    // samples at +0 .. +2950 ms
+        assertTrue(engine.isActive(0));
+        feed(112, 50);                      // back in the band: clear pending dropped
+        feed(105, 3000);
+        assertTrue(engine.isActive(0));
+        feed(105, 50);
+        assertFalse(engine.isActive(0));
+        assertFalse(engine.anyActive());
+        assertEquals(1, onCount);
+        assertEquals(1, offCount);
+    }
+
+    @Test
+    void lowRuleUsesTheMonitorLimitAndFiresBelowIt() {
+        feed(50, 5000);                     // at the limit: not below it
+        assertFalse(engine.isActive(1));
+        feed(45, 1050);
+        assertTrue(engine.isActive(1));
+        feed(53, 5000);                     // under off = 50 + 5
+        assertTrue(engine.isActive(1));
+        feed(56, 1050);
+        assertFalse(engine.isActive(1));
+    }
+
+    @Test
+    void reloadKeepsStateOfSameNamedRules() {
+        feed(130, 2050);
+        assertTrue(engine.isActive(0));
+        engine.setPlan(RulePlan.parse(
+                "pause pause on=2500\n" +
+                "tachy hr_high on=125 hyst=10 for=2s clear=3s\n", RulePlan.NO_PATIENT));
+        assertTrue(engine.isActive(1), "ongoing episode survives an unrelated reload");
+        assertFalse(engine.isActive(0));
+        assertTrue(engine.anyActive());
+
+        engine.setPlan(RulePlan.parse("tachy hr_low on=40\n", RulePlan.NO_PATIENT));
+        assertFalse(engine.anyActive(), "same name, different kind: fresh state");
+    }
+
+    @Test
+    void resetClearsEverything() {
+        feed(130, 2050);
+        engine.reset();
+        assertFalse(engine.anyActive());
+        feed(130, 1950);
+        assertFalse(engine.isActive(0), "debounce starts over after reset");
+    }
+}
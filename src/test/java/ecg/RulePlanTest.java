@@ -0,0 +1,126 @@
+package ecg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+// rules.conf parsing: syntax errors, patient sections, redefinitions
+class RulePlanTest {
+
+    static final long S = 1_000_000_000L;
+
+    @Test
+    void parsesEveryKey() {
+        RulePlan p = RulePlan.parse(
+                "# comment line\n" +
+                "tachy hr_high on=limit hyst=5 for=2s clear=3s   # trailing comment\n" +
+                "\n" +
+                "pause pause on=2500 for=0 clear=500ms\n" +
+                "afib  IRREGULAR on=12 window=10s\n" +
+                "jump  rate_change on=30 window=1m\n" +
+                "drift baseline on=20 window=1h\n", RulePlan.NO_PATIENT);
+
+        assertEquals(5, p.size());
+        assertEquals("tachy", p.name(0));
+        assertEquals(RulePlan.Kind.HR_HIGH, p.kind(0));
+        assertTrue(p.useLimit[0]);
+        assertEquals(5, p.hyst[0]);
+        assertEquals(2 * S, p.forNanos[0]);
+        assertEquals(3 * S, p.clearNanos[0]);
+
+        assertEquals(RulePlan.Kind.PAUSE, p.kind(1));
+        assertEquals(2500, p.on[1]);
+        assertEquals(0, p.forNanos[1]);
+        assertEquals(500_000_000L, p.clearNanos[1]);
+
+        assertEquals(RulePlan.Kind.IRREGULAR, p.kind(2));
+        assertEquals(10 * S, p.windowNanos[2]);
+        assertEquals(60 * S, p.windowNanos[3]);
+        assertEquals(3600 * S, p.windowNanos[4]);
+        assertEquals(60 * S, p.ringLookbackNanos());
+    }
+
+    @Test
+    void irregularDefaultsToOneMinuteWindow() {
+        RulePlan p = RulePlan.parse("afib irregular on=12\n", RulePlan.NO_PATIENT);
+        assertEquals(60 * S, p.windowNanos[0]);
+    }
+
+    @Test
+    void errorsNameTheLine() {
+        assertError("line 2: unknown rule kind: hr_fast", "ok hr_high on=100\nx hr_fast on=100\n");
+        assertError("line 1: expected <name> <kind> on=...", "x hr_high\n");
+        assertError("line 1: x: missing on=", "x hr_high hyst=5 for=1s\n");
+        assertError("line 1: x: on=limit only for hr_high/hr_low", "x pause on=limit\n");
+        assertError("line 1: duration needs a unit (ms/s/m/h): 2", "x hr_high on=100 for=2\n");
+        assertError("line 1: negative duration: -2s", "x hr_high on=100 for=-2s\n");
+        assertError("line 1: not a number: fast", "x hr_high on=fast\n");
+        assertError("line 1: unknown key: after", "x hr_high on=100 after=2s\n");
+        assertError("line 1: expected key=value: 100", "x hr_high 100\n");
+        assertError("line 1: x: window must be one of the HRV windows", "x irregular on=10 window=30s\n");
+        assertError("line 1: x: missing window=", "x rate_change on=20\n");
+        assertError("line 3: expected [patient <id>]", "a hr_high on=100\n\n[bed 3]\n");
+        assertError("line 1: not an integer: three", "[patient three]\n");
+    }
+
+    private static void assertError(String expectedPrefix, String text) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> RulePlan.parseConfig(text));
+        assertTrue(e.getMessage().startsWith(expectedPrefix), e.getMessage());
+    }
+
+    @Test
+    void patientSectionsOverrideByName() {
+        RulePlan.Config c = RulePlan.parseConfig(
+                "tachy hr_high on=limit hyst=5 for=2s clear=3s\n" +
+                "brady hr_low  on=limit hyst=5 for=2s clear=3s\n" +
+                "[patient 7]\n" +
+                "tachy hr_high on=150 for=10s\n" +
+                "pause pause   on=3000\n" +
+                "[patient 9]\n" +
+                "brady hr_low  on=35\n");
+
+        RulePlan common = c.plan(1);
+        assertSame(common, c.plan(2), "patients without a section share one plan");
+        assertSame(common, c.plan(RulePlan.NO_PATIENT));
+        assertEquals(2, common.size());
+
+        RulePlan p7 = c.plan(7);
+        assertEquals(3, p7.size());
+        assertEquals("brady", p7.name(0));      // untouched common rule keeps its place
+        assertEquals("tachy", p7.name(1));      // override moves to the end
+        assertEquals("pause", p7.name(2));
+        assertFalse(p7.useLimit[1]);
+        assertEquals(150, p7.on[1]);
+        assertEquals(10 * S, p7.forNanos[1]);
+        assertEquals(0, p7.hyst[1], "an override replaces the whole rule");
+
+        RulePlan p9 = c.plan(9);
+        assertEquals(2, p9.size());
+        assertEquals("tachy", p9.name(0));
+        assertEquals("brady", p9.name(1));
+        assertEquals(35, p9.on[1]);
+        assertTrue(common.useLimit[1], "sections don't leak into the common plan");
+    }
+
+    @Test
+    void laterCommonDefinitionWins() {
+        RulePlan p = RulePlan.parse(
+                "a hr_high on=100\n" +
+                "b hr_low on=40\n" +
+                "a hr_high on=130\n", RulePlan.NO_PATIENT);
+        assertEquals(2, p.size());
+        assertEquals("b", p.name(0));
+        assertEquals("a", p.name(1));
+        assertEquals(130, p.on[1]);
+    }
+
+    @Test
+    void defaultPlanUsesMonitorLimits() {
+        RulePlan p = RulePlan.DEFAULT;
+        assertEquals(2, p.size());
+        assertTrue(p.useLimit[0] && p.useLimit[1]);
+        assertEquals(RulePlan.Kind.HR_HIGH, p.kind(0));
+        assertEquals(RulePlan.Kind.HR_LOW, p.kind(1));
+    }
+}